@@ -0,0 +1,67 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Short iterations and a fresh repository per iteration keep the map from growing without bound
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class AccountCreationBenchmark {
+
+    private static final BigDecimal BALANCE = new BigDecimal("100.00");
+
+    @State(Scope.Benchmark)
+    public static class Repository {
+
+        @Param({"in-memory", "atomic"})
+        public String store;
+
+        AccountsRepository repository;
+
+        final AtomicInteger threadIndexes = new AtomicInteger();
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            repository = BenchmarkSupport.newRepository(store);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class IdSequence {
+
+        private String prefix;
+
+        private long next;
+
+        @Setup(Level.Trial)
+        public void setUp(Repository repository) {
+            prefix = "t" + repository.threadIndexes.getAndIncrement() + "-";
+        }
+
+        String nextAccountId() {
+            return prefix + next++;
+        }
+    }
+
+    @Benchmark
+    public void createAccount(Repository repository, IdSequence ids) {
+        repository.repository.createAccount(new Account(ids.nextAccountId(), BALANCE));
+    }
+}
@@ -0,0 +1,104 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryOffHeap;
+import com.dws.challenge.service.AccountsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Memory per account and GC cost of keeping tens of millions of accounts. Setup prints heap and off-heap bytes
+// per account after loading, the gc profiler reports gc.count and gc.time while transfers run. Ids are built per
+// operation so neither store gets them for free; 50M accounts on the heap need -PjmhHeap=-Xmx16g.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountFootprintBenchmark {
+
+    private static final long INITIAL_MINOR_UNITS = 100_000_000L;
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"1000000", "10000000", "50000000"})
+    public int accountCount;
+
+    @Param({"in-memory", "off-heap"})
+    public String store;
+
+    private AccountsRepository repository;
+
+    private AccountsService accountsService;
+
+    @Setup(Level.Trial)
+    public void load() {
+        final long heapBefore = usedHeapAfterGc();
+        final long collectionsBefore = collectionMillis();
+        repository = "off-heap".equals(store) ? new AccountsRepositoryOffHeap(accountCount) : BenchmarkSupport.newRepository(store);
+        // every account gets its own id and balance, as it would from a request
+        for (int i = 0; i < accountCount; i++) {
+            repository.createAccount(new Account(BenchmarkSupport.accountId(i), BigDecimal.valueOf(INITIAL_MINOR_UNITS + i, 2)));
+        }
+        final long heapBytes = usedHeapAfterGc() - heapBefore;
+        final long offHeapBytes = repository instanceof AccountsRepositoryOffHeap
+                ? ((AccountsRepositoryOffHeap) repository).getOffHeapBytes() : 0;
+        System.out.printf("%n%s, %d accounts: %.1f heap bytes and %.1f off-heap bytes per account, %d ms in GC while loading%n",
+                store, accountCount, (double) heapBytes / accountCount, (double) offHeapBytes / accountCount,
+                collectionMillis() - collectionsBefore);
+        accountsService = BenchmarkSupport.newAccountsService(repository, BenchmarkSupport.NO_NOTIFICATIONS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        repository.clearAccounts();
+        BenchmarkSupport.closeRepository(repository);
+    }
+
+    @Benchmark
+    public void amountTransfer() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int from = random.nextInt(accountCount);
+        final int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+        accountsService.amountTransfer(BenchmarkSupport.accountId(from), BenchmarkSupport.accountId(to), AMOUNT);
+    }
+
+    @Benchmark
+    public Account getAccount() {
+        return repository.getAccount(BenchmarkSupport.accountId(ThreadLocalRandom.current().nextInt(accountCount)));
+    }
+
+    private static long usedHeapAfterGc() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long collectionMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+}
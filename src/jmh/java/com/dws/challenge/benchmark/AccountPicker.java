@@ -0,0 +1,60 @@
+package com.dws.challenge.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+
+// Per-thread account selection following the configured contention pattern
+@State(Scope.Thread)
+public class AccountPicker {
+
+    // DISJOINT slices are sized for the largest thread count we run with
+    private static final int MAX_THREADS = 64;
+
+    private AccountsState accounts;
+
+    private SplittableRandom random;
+
+    private int sliceStart;
+
+    private int sliceSize;
+
+    int from;
+
+    int to;
+
+    @Setup(Level.Trial)
+    public void setUp(AccountsState accounts) {
+        this.accounts = accounts;
+        final int threadIndex = accounts.threadIndexes.getAndIncrement();
+        this.random = new SplittableRandom(31L * threadIndex + 17);
+        this.sliceSize = Math.max(2, accounts.accountCount / MAX_THREADS);
+        this.sliceStart = (threadIndex % MAX_THREADS) * sliceSize;
+    }
+
+    String nextAccountId() {
+        return accounts.accountIds[next()];
+    }
+
+    // picks two distinct accounts into from/to
+    void nextPair() {
+        from = next();
+        do {
+            to = next();
+        } while (to == from);
+    }
+
+    private int next() {
+        switch (accounts.pattern) {
+            case ZIPFIAN:
+                return accounts.zipfian.next(random.nextDouble());
+            case DISJOINT:
+                return sliceStart + random.nextInt(sliceSize);
+            default:
+                return random.nextInt(accounts.accountCount);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.ledger.ColumnarTransferLedger;
+import com.dws.challenge.ledger.TransferLedger;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Pre-populated accounts shared by all benchmark threads
+@State(Scope.Benchmark)
+public class AccountsState {
+
+    static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+
+    // accounts.ledger.max-postings-per-account
+    private static final int LEDGER_POSTINGS_PER_ACCOUNT = 65536;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int accountCount;
+
+    @Param({"UNIFORM", "ZIPFIAN", "DISJOINT"})
+    public ContentionPattern pattern;
+
+    @Param({"in-memory", "atomic", "sharded", "off-heap"})
+    public String store;
+
+    // Postings recorded per transfer, bounded as configured, compare the two for what the history costs a transfer
+    @Param({"false", "true"})
+    public boolean ledger;
+
+    AccountsRepository repository;
+
+    AccountsService accountsService;
+
+    String[] accountIds;
+
+    ZipfianGenerator zipfian;
+
+    final AtomicInteger threadIndexes = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = BenchmarkSupport.newRepository(store);
+        accountsService = BenchmarkSupport.newAccountsService(repository, BenchmarkSupport.NO_NOTIFICATIONS,
+                ledger ? new ColumnarTransferLedger(LEDGER_POSTINGS_PER_ACCOUNT) : TransferLedger.DISABLED);
+        accountIds = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accountIds[i] = BenchmarkSupport.accountId(i);
+            repository.createAccount(new Account(accountIds[i], INITIAL_BALANCE));
+        }
+        zipfian = pattern == ContentionPattern.ZIPFIAN ? new ZipfianGenerator(accountCount) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkSupport.closeRepository(repository);
+    }
+}
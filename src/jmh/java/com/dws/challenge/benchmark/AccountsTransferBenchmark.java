@@ -0,0 +1,39 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.NotSufficientBalanceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// Throughput (ops/us) and sampled latency percentiles (p99) of the transfer and lookup hot paths
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AccountsTransferBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Benchmark
+    public boolean amountTransfer(AccountsState accounts, AccountPicker picker) {
+        picker.nextPair();
+        try {
+            accounts.accountsService.amountTransfer(accounts.accountIds[picker.from], accounts.accountIds[picker.to], AMOUNT);
+            return true;
+        } catch (NotSufficientBalanceException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public Account getAccount(AccountsState accounts, AccountPicker picker) {
+        return accounts.repository.getAccount(picker.nextAccountId());
+    }
+}
@@ -0,0 +1,82 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.service.TransferAdmissionControl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Cost of admitting one transfer (tryAdmit and completed) on top of the transfer itself, with limits no request
+// reaches, and of refusing one when every account is over its rate. The target is well under a microsecond.
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@State(Scope.Benchmark)
+public class AdmissionBenchmark {
+
+    private static final int CLIENTS = 1024;
+
+    // One token per nanosecond, no thread can run out
+    private static final int UNLIMITED = 1_000_000_000;
+
+    @Param({"1000", "1000000"})
+    public int accountCount;
+
+    @Param({"true", "false"})
+    public boolean admitted;
+
+    private TransferAdmissionControl admissionControl;
+
+    private String[] accountIds;
+
+    private String[] clientIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final int accountRate = admitted ? UNLIMITED : 1;
+        admissionControl = new TransferAdmissionControl(
+                new TransferAdmissionControl.TokenBuckets(accountCount, accountRate, accountRate),
+                new TransferAdmissionControl.TokenBuckets(CLIENTS, UNLIMITED, UNLIMITED),
+                TimeUnit.MINUTES.toMillis(1), Integer.MAX_VALUE);
+        accountIds = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accountIds[i] = BenchmarkSupport.accountId(i);
+            admissionControl.tryAdmit("warm-up", accountIds[i]);
+        }
+        clientIds = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clientIds[i] = "client-" + i;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    @Benchmark
+    public int admit(Picker picker) {
+        final long startNanos = admissionControl.startNanos();
+        final int result = admissionControl.tryAdmit(clientIds[picker.next(CLIENTS)], accountIds[picker.next(accountCount)]);
+        if (result == TransferAdmissionControl.ADMITTED) {
+            admissionControl.completed(startNanos);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,123 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.BalanceReport;
+import com.dws.challenge.exception.NotSufficientBalanceException;
+import com.dws.challenge.ledger.TransferLedger;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BalanceReportService;
+import com.dws.challenge.service.BalanceSnapshots;
+import com.dws.challenge.service.TransferCombiner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Transfer throughput while one thread keeps taking balance reports, against the same transfers next to an idle
+// thread (reporting=false). Compare the transfer scores of the two; the report score is reports per second.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Group)
+public class BalanceReportBenchmark {
+
+    private static final BigDecimal BALANCE = new BigDecimal("1000000.00");
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"100000", "1000000"})
+    public int accountCount;
+
+    @Param({"in-memory", "atomic"})
+    public String store;
+
+    @Param({"false", "true"})
+    public boolean reporting;
+
+    private AccountsRepository repository;
+
+    private AccountsService accountsService;
+
+    private BalanceReportService balanceReportService;
+
+    private String[] accountIds;
+
+    private BigDecimal total;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = BenchmarkSupport.newRepository(store);
+        final BalanceSnapshots balanceSnapshots = new BalanceSnapshots();
+        accountsService = BenchmarkSupport.newAccountsService(repository, BenchmarkSupport.NO_NOTIFICATIONS,
+                TransferLedger.DISABLED, TransferCombiner.DISABLED, balanceSnapshots);
+        balanceReportService = new BalanceReportService(repository, balanceSnapshots, 0);
+        accountIds = new String[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accountIds[i] = BenchmarkSupport.accountId(i);
+            repository.createAccount(new Account(accountIds[i], BALANCE));
+        }
+        total = BALANCE.multiply(BigDecimal.valueOf(accountCount));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        balanceReportService.destroy();
+        BenchmarkSupport.closeRepository(repository);
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    @Benchmark
+    @Group("transfersWithReports")
+    @GroupThreads(3)
+    public boolean transfer(Picker picker) {
+        final int from = picker.next(accountCount);
+        final int to = (from + 1 + picker.next(accountCount - 1)) % accountCount;
+        try {
+            accountsService.amountTransfer(accountIds[from], accountIds[to], AMOUNT);
+            return true;
+        } catch (NotSufficientBalanceException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    @Group("transfersWithReports")
+    @GroupThreads(1)
+    public BalanceReport report() {
+        if (!reporting) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            return null;
+        }
+        final BalanceReport report = balanceReportService.balanceReport(10);
+        if (report.getTotalBalance().compareTo(total) != 0) {
+            throw new IllegalStateException("Snapshot total " + report.getTotalBalance() + " is not " + total);
+        }
+        return report;
+    }
+}
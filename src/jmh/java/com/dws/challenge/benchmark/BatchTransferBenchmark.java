@@ -0,0 +1,85 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.domain.BatchTransferMode;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// A 10k-item settlement batch against the same 10k transfers issued one by one, reported per transfer
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class BatchTransferBenchmark {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"1000", "100000"})
+    public int accountCount;
+
+    @Param({"in-memory", "atomic"})
+    public String store;
+
+    private AccountsService accountsService;
+
+    private List<AccountAmountTransfer> transfers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AccountsRepository repository = BenchmarkSupport.newRepository(store);
+        accountsService = BenchmarkSupport.newAccountsService(repository, BenchmarkSupport.NO_NOTIFICATIONS);
+        for (int i = 0; i < accountCount; i++) {
+            repository.createAccount(new Account(BenchmarkSupport.accountId(i), AccountsState.INITIAL_BALANCE));
+        }
+
+        final SplittableRandom random = new SplittableRandom(42);
+        final BigDecimal amount = new BigDecimal("0.01");
+        transfers = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            final int from = random.nextInt(accountCount);
+            final int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+            transfers.add(new AccountAmountTransfer(BenchmarkSupport.accountId(from), BenchmarkSupport.accountId(to), amount));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<TransferStatus> batchAllOrNothing() {
+        return accountsService.batchTransfer(transfers, BatchTransferMode.ALL_OR_NOTHING);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<TransferStatus> batchBestEffort() {
+        return accountsService.batchTransfer(transfers, BatchTransferMode.BEST_EFFORT);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void singleTransfers() {
+        for (AccountAmountTransfer transfer : transfers) {
+            accountsService.amountTransfer(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getTransferAmount());
+        }
+    }
+}
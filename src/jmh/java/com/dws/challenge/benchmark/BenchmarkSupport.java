@@ -0,0 +1,130 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.journal.TransferJournal;
+import com.dws.challenge.ledger.TransferLedger;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryAtomicBalance;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.AccountsRepositoryJpa;
+import com.dws.challenge.repository.AccountsRepositoryOffHeap;
+import com.dws.challenge.repository.AccountsRepositorySharded;
+import com.dws.challenge.service.AccountLockManager;
+import com.dws.challenge.service.AccountsMetrics;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BalanceSnapshots;
+import com.dws.challenge.service.TransferCombiner;
+import com.dws.challenge.service.TransferTimingWheel;
+import com.dws.challenge.service.NotificationService;
+import com.dws.challenge.util.AccountTransferValidator;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Wires the service the way Spring does, without starting a context inside the benchmark fork
+final class BenchmarkSupport {
+
+    static final NotificationService NO_NOTIFICATIONS = (Account account, String transferDescription) -> {
+    };
+
+    private static final int H2_MAX_CONNECTIONS = 128;
+
+    private static final int OFF_HEAP_EXPECTED_ACCOUNTS = 1 << 20;
+
+    private static final AtomicInteger DATABASE_INDEX = new AtomicInteger();
+
+    private BenchmarkSupport() {
+    }
+
+    static AccountsRepository newRepository(String store) {
+        switch (store) {
+            case "in-memory":
+                return new AccountsRepositoryInMemory();
+            case "atomic":
+                return new AccountsRepositoryAtomicBalance();
+            case "sharded":
+                return new AccountsRepositorySharded(0);
+            case "off-heap":
+                return new AccountsRepositoryOffHeap(OFF_HEAP_EXPECTED_ACCOUNTS);
+            case "jpa":
+                return newJpaRepository();
+            default:
+                throw new IllegalArgumentException("Unknown account store " + store);
+        }
+    }
+
+    // A fresh embedded in-memory H2 database with the table Hibernate creates from AccountEntity
+    private static AccountsRepository newJpaRepository() {
+        final JdbcConnectionPool dataSource = JdbcConnectionPool.create(
+                "jdbc:h2:mem:accounts-" + DATABASE_INDEX.incrementAndGet() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        dataSource.setMaxConnections(H2_MAX_CONNECTIONS);
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE account (account_id VARCHAR(255) NOT NULL PRIMARY KEY, "
+                + "balance DECIMAL(19, 2) NOT NULL, version BIGINT NOT NULL)");
+        return new AccountsRepositoryJpa(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    }
+
+    static AccountsService newAccountsService(AccountsRepository repository, NotificationService notificationService) {
+        return newAccountsService(repository, notificationService, TransferLedger.DISABLED);
+    }
+
+    static AccountsService newAccountsService(AccountsRepository repository, NotificationService notificationService,
+                                              TransferLedger transferLedger) {
+        return newAccountsService(repository, notificationService, transferLedger, TransferCombiner.DISABLED);
+    }
+
+    static AccountsService newAccountsService(AccountsRepository repository, NotificationService notificationService,
+                                              TransferLedger transferLedger, TransferCombiner transferCombiner) {
+        return newAccountsService(repository, notificationService, transferLedger, transferCombiner, new BalanceSnapshots());
+    }
+
+    static AccountsService newAccountsService(AccountsRepository repository, NotificationService notificationService,
+                                              TransferLedger transferLedger, TransferCombiner transferCombiner,
+                                              BalanceSnapshots balanceSnapshots) {
+        return newAccountsService(repository, notificationService, TransferJournal.DISABLED, transferLedger,
+                transferCombiner, balanceSnapshots);
+    }
+
+    static AccountsService newJournaledAccountsService(AccountsRepository repository, TransferJournal transferJournal) {
+        return newAccountsService(repository, NO_NOTIFICATIONS, transferJournal, TransferLedger.DISABLED,
+                TransferCombiner.DISABLED, new BalanceSnapshots());
+    }
+
+    // The only constructor call, src/jmh does not see the test classes and their AccountsServiceBuilder
+    private static AccountsService newAccountsService(AccountsRepository repository, NotificationService notificationService,
+                                                      TransferJournal transferJournal, TransferLedger transferLedger,
+                                                      TransferCombiner transferCombiner, BalanceSnapshots balanceSnapshots) {
+        return new AccountsService(repository, notificationService, new AccountTransferValidator(),
+                new AccountLockManager(1024), transferJournal, transferLedger, AccountsMetrics.NOOP,
+                transferCombiner, balanceSnapshots, new TransferTimingWheel(100, 1024, System.currentTimeMillis()));
+    }
+
+    static String accountId(int index) {
+        return "uid-" + index;
+    }
+
+    // Stops the threads of stores that own some, e.g. the shard threads
+    static void closeRepository(AccountsRepository repository) throws Exception {
+        if (repository instanceof DisposableBean) {
+            ((DisposableBean) repository).destroy();
+        }
+    }
+
+    static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
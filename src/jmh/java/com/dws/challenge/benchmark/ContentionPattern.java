@@ -0,0 +1,13 @@
+package com.dws.challenge.benchmark;
+
+public enum ContentionPattern {
+
+    // every account equally likely
+    UNIFORM,
+
+    // a few hot accounts take most of the traffic, theta 0.99 as in YCSB
+    ZIPFIAN,
+
+    // each benchmark thread only touches its own slice of accounts
+    DISJOINT
+}
@@ -0,0 +1,127 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.AmountTransactionException;
+import com.dws.challenge.ledger.TransferLedger;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferCombiner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Transfers on the locked in-memory store where one account takes part in most of them, with and without
+// combining. Run with -PjmhThreads 1, 4, 16 and 64: without combining throughput stays flat or drops as threads
+// are added, with combining the batches grow with the number of waiting threads. The batch size is printed per trial.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class HotAccountBenchmark {
+
+    private static final int ACCOUNTS = 100_000;
+
+    private static final BigDecimal BALANCE = new BigDecimal("1000000000.00");
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @State(Scope.Benchmark)
+    public static class HotAccounts {
+
+        // HOT_ACCOUNT: account 0 is the payer or payee of every transfer (a settlement account),
+        // ZIPFIAN: both sides drawn with theta 0.99, account 0 takes about 8% of the picks
+        @Param({"HOT_ACCOUNT", "ZIPFIAN"})
+        public String pattern;
+
+        @Param({"false", "true"})
+        public boolean combining;
+
+        AccountsService accountsService;
+
+        TransferCombiner transferCombiner;
+
+        ZipfianGenerator zipfian;
+
+        final String[] accountIds = new String[ACCOUNTS];
+
+        final AtomicInteger threadIndexes = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            final AccountsRepository repository = BenchmarkSupport.newRepository("in-memory");
+            for (int i = 0; i < ACCOUNTS; i++) {
+                accountIds[i] = BenchmarkSupport.accountId(i);
+                repository.createAccount(new Account(accountIds[i], BALANCE));
+            }
+            transferCombiner = combining ? new TransferCombiner(true, 256) : TransferCombiner.DISABLED;
+            accountsService = BenchmarkSupport.newAccountsService(repository, BenchmarkSupport.NO_NOTIFICATIONS,
+                    TransferLedger.DISABLED, transferCombiner);
+            zipfian = "ZIPFIAN".equals(pattern) ? new ZipfianGenerator(ACCOUNTS) : null;
+        }
+
+        @TearDown(Level.Trial)
+        public void printBatchSize() {
+            if (transferCombiner.getBatches() > 0) {
+                System.out.printf("%n%d combined transfers, %.1f per batch%n", transferCombiner.getCombinedTransfers(),
+                        (double) transferCombiner.getCombinedTransfers() / transferCombiner.getBatches());
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+
+        private SplittableRandom random;
+
+        private HotAccounts accounts;
+
+        int from;
+
+        int to;
+
+        @Setup(Level.Trial)
+        public void setUp(HotAccounts accounts) {
+            this.accounts = accounts;
+            this.random = new SplittableRandom(31L * accounts.threadIndexes.getAndIncrement() + 17);
+        }
+
+        void nextPair() {
+            if (accounts.zipfian == null) {
+                final int other = 1 + random.nextInt(ACCOUNTS - 1);
+                final boolean pays = random.nextBoolean();
+                from = pays ? 0 : other;
+                to = pays ? other : 0;
+                return;
+            }
+            from = accounts.zipfian.next(random.nextDouble());
+            do {
+                to = accounts.zipfian.next(random.nextDouble());
+            } while (to == from);
+        }
+    }
+
+    @Benchmark
+    public boolean amountTransfer(HotAccounts accounts, Picker picker) {
+        picker.nextPair();
+        try {
+            accounts.accountsService.amountTransfer(accounts.accountIds[picker.from], accounts.accountIds[picker.to], AMOUNT);
+            return true;
+        } catch (AmountTransactionException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.service.TransferIdempotencyStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Dedup cost per transfer with the window holding N ids, setup prints the memory held per id
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class IdempotencyBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int keys;
+
+    private TransferIdempotencyStore store;
+
+    private String[] transferIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 10% headroom, so no segment is full and a fresh id is claimed rather than refused
+        store = new TransferIdempotencyStore(keys + keys / 10, TimeUnit.DAYS.toSeconds(1));
+        transferIds = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            transferIds[i] = UUID.randomUUID().toString();
+            store.begin(transferIds[i], i);
+            store.complete(transferIds[i], 1);
+        }
+        System.out.printf("%n%d ids in the window, %d bytes held, %d bytes per id%n",
+                store.getSize(), store.getMemoryBytes(), store.getMemoryBytes() / store.getSize());
+    }
+
+    @Benchmark
+    public int replay() {
+        final int i = ThreadLocalRandom.current().nextInt(keys);
+        return store.begin(transferIds[i], i);
+    }
+
+    // The id is dropped again afterwards so the window stays at N ids
+    @Benchmark
+    public int newTransferId() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final String transferId = new UUID(random.nextLong(), random.nextLong()).toString();
+        final int result = store.begin(transferId, 0);
+        store.complete(transferId, 1);
+        store.abandon(transferId);
+        return result;
+    }
+}
@@ -0,0 +1,72 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.journal.JournalReplayer;
+import com.dws.challenge.journal.MappedTransferJournal;
+import com.dws.challenge.repository.AccountsRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Startup replay time. The journal is written once per trial without fsync, recovery then maps and replays it.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@State(Scope.Benchmark)
+public class JournalRecoveryBenchmark {
+
+    private static final int ACCOUNTS = 100_000;
+
+    private static final BigDecimal BALANCE = new BigDecimal("1000000.00");
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"10000000", "100000000"})
+    public int records;
+
+    @Param({"in-memory", "atomic"})
+    public String store;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void writeJournal() throws IOException {
+        directory = Files.createTempDirectory("journal-recovery-benchmark");
+        try (MappedTransferJournal journal = MappedTransferJournal.open(directory, 256 * 1024 * 1024, false, 0, null)) {
+            for (int i = 0; i < ACCOUNTS; i++) {
+                journal.appendAccountCreated(BenchmarkSupport.accountId(i), BALANCE);
+            }
+            for (int i = ACCOUNTS; i < records; i++) {
+                journal.appendTransfer(BenchmarkSupport.accountId(i % ACCOUNTS),
+                        BenchmarkSupport.accountId((i * 31 + 7) % ACCOUNTS), AMOUNT);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteJournal() throws IOException {
+        BenchmarkSupport.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public AccountsRepository recover() throws IOException {
+        final AccountsRepository repository = BenchmarkSupport.newRepository(store);
+        MappedTransferJournal.open(directory, 256 * 1024 * 1024, false, 0, new JournalReplayer(repository)).close();
+        return repository;
+    }
+}
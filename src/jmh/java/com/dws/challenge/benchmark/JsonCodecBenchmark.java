@@ -0,0 +1,77 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.web.AccountsJsonCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Request and response bodies through reflective binding and through AccountsJsonCodec; gc.alloc.rate.norm is bytes per op
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class JsonCodecBenchmark {
+
+    private static final byte[] TRANSFER = ("{\"accountFrom\":\"uid-1234567\",\"accountTo\":\"uid-7654321\","
+            + "\"transferAmount\":5500.80,\"transferId\":\"8f14e45f-ceea-467f-a5f5-d5c1c2a5f0b1\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] ACCOUNT = "{\"accountId\":\"uid-1234567\",\"balance\":1000000.00}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"binding", "codec"})
+    public String mapper;
+
+    private ObjectReader transferReader;
+
+    private ObjectReader accountReader;
+
+    private ObjectWriter accountWriter;
+
+    private Account account;
+
+    @Setup
+    public void setUp() {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        if ("codec".equals(mapper)) {
+            objectMapper.registerModule(AccountsJsonCodec.module());
+        }
+        transferReader = objectMapper.readerFor(AccountAmountTransfer.class);
+        accountReader = objectMapper.readerFor(Account.class);
+        accountWriter = objectMapper.writerFor(Account.class);
+        account = new Account("uid-1234567", new BigDecimal("685.88"));
+    }
+
+    @Benchmark
+    public AccountAmountTransfer readTransfer() throws IOException {
+        return transferReader.readValue(TRANSFER);
+    }
+
+    @Benchmark
+    public Account readAccount() throws IOException {
+        return accountReader.readValue(ACCOUNT);
+    }
+
+    @Benchmark
+    public byte[] writeAccount() throws IOException {
+        return accountWriter.writeValueAsBytes(account);
+    }
+}
@@ -0,0 +1,24 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.service.NotificationService;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Stands in for a slow email backend, every notification takes the configured time
+final class LatencyStubNotificationService implements NotificationService {
+
+    private final long latencyNanos;
+
+    LatencyStubNotificationService(long latencyMicros) {
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+    }
+
+    @Override
+    public void notifyAboutTransfer(Account account, String transferDescription) {
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferLeg;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// A payout from one account to `legs` payees as one multi-leg transfer against the same payout as single transfers,
+// both reported per payout
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class MultiLegTransferBenchmark {
+
+    private static final int ACCOUNTS = 100_000;
+
+    private static final BigDecimal PAYER_BALANCE = new BigDecimal("100000000000.00");
+
+    @Param({"10", "100", "1000"})
+    public int legs;
+
+    @Param({"in-memory", "atomic"})
+    public String store;
+
+    private AccountsRepository repository;
+
+    private AccountsService accountsService;
+
+    private String payer;
+
+    private List<TransferLeg> payout;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = BenchmarkSupport.newRepository(store);
+        accountsService = BenchmarkSupport.newAccountsService(repository, BenchmarkSupport.NO_NOTIFICATIONS);
+        payer = BenchmarkSupport.accountId(0);
+        repository.createAccount(new Account(payer, PAYER_BALANCE));
+        for (int i = 1; i < ACCOUNTS; i++) {
+            repository.createAccount(new Account(BenchmarkSupport.accountId(i), AccountsState.INITIAL_BALANCE));
+        }
+
+        final BigDecimal amount = new BigDecimal("0.01");
+        payout = new ArrayList<>(legs);
+        for (int i = 0; i < legs; i++) {
+            payout.add(new TransferLeg(BenchmarkSupport.accountId(1 + (i * 97) % (ACCOUNTS - 1)), amount));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkSupport.closeRepository(repository);
+    }
+
+    @Benchmark
+    public void multiLegTransfer() {
+        accountsService.multiLegTransfer(payer, payout);
+    }
+
+    @Benchmark
+    public void singleTransfers() {
+        for (TransferLeg leg : payout) {
+            accountsService.amountTransfer(payer, leg.getAccountTo(), leg.getTransferAmount());
+        }
+    }
+}
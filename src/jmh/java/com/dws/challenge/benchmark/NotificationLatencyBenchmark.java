@@ -0,0 +1,101 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.AccountsMetrics;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.AsyncNotificationService;
+import com.dws.challenge.service.NotificationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfer latency with a notification backend of the given latency, sent synchronously or through
+ * {@link AsyncNotificationService}. With async dispatch the transfer p99 should not move with
+ * {@code latencyMicros}; notifications the backend cannot keep up with are dropped and counted.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class NotificationLatencyBenchmark {
+
+    private static final int ACCOUNT_COUNT = 10_000;
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"0", "100", "1000", "10000"})
+    public long latencyMicros;
+
+    @Param({"sync", "async"})
+    public String dispatch;
+
+    private AsyncNotificationService asyncNotificationService;
+
+    private AccountsService accountsService;
+
+    private String[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        NotificationService notificationService = new LatencyStubNotificationService(latencyMicros);
+        if ("async".equals(dispatch)) {
+            asyncNotificationService = new AsyncNotificationService(notificationService, 65536, 4, 256,
+                    AsyncNotificationService.OverflowPolicy.DROP, 0, AccountsMetrics.NOOP);
+            notificationService = asyncNotificationService;
+        }
+
+        AccountsRepository repository = BenchmarkSupport.newRepository("in-memory");
+        accountsService = BenchmarkSupport.newAccountsService(repository, notificationService);
+        accountIds = new String[ACCOUNT_COUNT];
+        for (int i = 0; i < ACCOUNT_COUNT; i++) {
+            accountIds[i] = BenchmarkSupport.accountId(i);
+            repository.createAccount(new Account(accountIds[i], AccountsState.INITIAL_BALANCE));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if (asyncNotificationService != null) {
+            System.out.println("notifications delivered=" + asyncNotificationService.getDeliveredCount()
+                    + " dropped=" + asyncNotificationService.getDroppedCount());
+            asyncNotificationService.destroy();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Pair {
+
+        private final SplittableRandom random = new SplittableRandom();
+
+        int from;
+
+        int to;
+
+        void next() {
+            from = random.nextInt(ACCOUNT_COUNT);
+            to = (from + 1 + random.nextInt(ACCOUNT_COUNT - 1)) % ACCOUNT_COUNT;
+        }
+    }
+
+    @Benchmark
+    public void amountTransfer(Pair pair) {
+        pair.next();
+        accountsService.amountTransfer(accountIds[pair.from], accountIds[pair.to], AMOUNT);
+    }
+}
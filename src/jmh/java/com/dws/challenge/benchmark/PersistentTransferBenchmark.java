@@ -0,0 +1,96 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.NotSufficientBalanceException;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Embedded H2 against the in-memory store; few accounts means most concurrent transfers touch the same rows
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersistentTransferBenchmark {
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    @State(Scope.Benchmark)
+    public static class Accounts {
+
+        @Param({"16", "1024", "100000"})
+        public int accountCount;
+
+        @Param({"in-memory", "jpa"})
+        public String store;
+
+        AccountsService accountsService;
+
+        String[] accountIds;
+
+        final AtomicInteger threadIndexes = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            final AccountsRepository repository = BenchmarkSupport.newRepository(store);
+            accountsService = BenchmarkSupport.newAccountsService(repository, BenchmarkSupport.NO_NOTIFICATIONS);
+            accountIds = new String[accountCount];
+            final List<Account> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+            for (int i = 0; i < accountCount; i++) {
+                accountIds[i] = BenchmarkSupport.accountId(i);
+                batch.add(new Account(accountIds[i], INITIAL_BALANCE));
+                if (batch.size() == INSERT_BATCH_SIZE || i == accountCount - 1) {
+                    repository.createAccounts(batch);
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+
+        private SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp(Accounts accounts) {
+            random = new SplittableRandom(31L * accounts.threadIndexes.getAndIncrement() + 17);
+        }
+    }
+
+    @Benchmark
+    public boolean amountTransfer(Accounts accounts, Picker picker) {
+        final int from = picker.random.nextInt(accounts.accountCount);
+        int to;
+        do {
+            to = picker.random.nextInt(accounts.accountCount);
+        } while (to == from);
+        try {
+            accounts.accountsService.amountTransfer(accounts.accountIds[from], accounts.accountIds[to], AMOUNT);
+            return true;
+        } catch (NotSufficientBalanceException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of transfers that are rejected, as under overdraft-heavy or abusive traffic. Every call throws, the
+// gc profiler shows what a rejection allocates.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@State(Scope.Benchmark)
+public class RejectedTransferBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+
+    @Param({"INSUFFICIENT_BALANCE", "ACCOUNT_NOT_EXISTS", "INVALID_AMOUNT"})
+    public TransferStatus reason;
+
+    @Param({"in-memory", "atomic"})
+    public String store;
+
+    private AccountsRepository repository;
+
+    private AccountsService accountsService;
+
+    private String[] accountIds;
+
+    private String[] unknownAccountIds;
+
+    private BigDecimal amount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = BenchmarkSupport.newRepository(store);
+        accountsService = BenchmarkSupport.newAccountsService(repository, BenchmarkSupport.NO_NOTIFICATIONS);
+        accountIds = new String[ACCOUNTS];
+        unknownAccountIds = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds[i] = BenchmarkSupport.accountId(i);
+            unknownAccountIds[i] = "unknown-" + i;
+            repository.createAccount(new Account(accountIds[i], new BigDecimal("10.00")));
+        }
+        amount = reason == TransferStatus.INSUFFICIENT_BALANCE ? new BigDecimal("10.01")
+                : reason == TransferStatus.INVALID_AMOUNT ? new BigDecimal("-1.00") : new BigDecimal("1.00");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkSupport.closeRepository(repository);
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next() {
+            return random.nextInt(ACCOUNTS);
+        }
+    }
+
+    @Benchmark
+    public RuntimeException rejectedTransfer(Picker picker) {
+        final int from = picker.next();
+        final int to = (from + 1) % ACCOUNTS;
+        final String accountTo = reason == TransferStatus.ACCOUNT_NOT_EXISTS ? unknownAccountIds[to] : accountIds[to];
+        try {
+            accountsService.amountTransfer(accountIds[from], accountTo, amount);
+        } catch (RuntimeException e) {
+            return e;
+        }
+        throw new IllegalStateException("Transfer was not rejected");
+    }
+}
@@ -0,0 +1,154 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.NotSufficientBalanceException;
+import com.dws.challenge.journal.JournalShipper;
+import com.dws.challenge.journal.MappedTransferJournal;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journaled transfers on the primary without a standby and with one replicating them in its own JVM over
+ * localhost ({@link ReplicationStandby}), for the primary's throughput cost of shipping. The lag of every batch
+ * the standby acknowledged is printed at the end of the trial. The journal does not fsync, so shipping is not
+ * hidden behind the disk.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class ReplicationBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    private static final int MAX_LAG_SAMPLES = 1 << 22;
+
+    @Param({"false", "true"})
+    public boolean standby;
+
+    private Path directory;
+
+    private MappedTransferJournal journal;
+
+    private AccountsService accountsService;
+
+    private String[] accountIds;
+
+    private JournalShipper shipper;
+
+    private Process standbyProcess;
+
+    // Written by the shipper's acknowledgement thread only, there is one standby
+    private final long[] lagSamples = new long[MAX_LAG_SAMPLES];
+
+    private int lagSampleCount;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("replication-benchmark");
+        journal = MappedTransferJournal.open(directory, 64 * 1024 * 1024, false, 0, null);
+        accountsService = BenchmarkSupport.newJournaledAccountsService(new AccountsRepositoryInMemory(), journal);
+        accountIds = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds[i] = BenchmarkSupport.accountId(i);
+            accountsService.createAccount(new Account(accountIds[i], INITIAL_BALANCE));
+        }
+        if (!standby) {
+            return;
+        }
+
+        shipper = JournalShipper.start(journal, new InetSocketAddress("localhost", 0),
+                TimeUnit.MICROSECONDS.toNanos(100), this::recordLag);
+        final String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        standbyProcess = new ProcessBuilder(java, "-Xmx2g", "-cp", System.getProperty("java.class.path"),
+                ReplicationStandby.class.getName(), Integer.toString(shipper.getPort()))
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        while (shipper.getStandbyCount() == 0 || shipper.getLagBytes() > 0) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (standby) {
+            final long lagBytes = shipper.getLagBytes();
+            shipper.close();
+            standbyProcess.getOutputStream().close();
+            standbyProcess.waitFor();
+            printLag(lagBytes);
+        }
+        journal.close();
+        BenchmarkSupport.deleteDirectory(directory);
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public boolean amountTransfer(Picker picker) {
+        final int from = picker.random.nextInt(ACCOUNTS);
+        int to;
+        do {
+            to = picker.random.nextInt(ACCOUNTS);
+        } while (to == from);
+        try {
+            accountsService.amountTransfer(accountIds[from], accountIds[to], AMOUNT);
+            return true;
+        } catch (NotSufficientBalanceException e) {
+            return false;
+        }
+    }
+
+    private void recordLag(long nanos) {
+        if (lagSampleCount < MAX_LAG_SAMPLES) {
+            lagSamples[lagSampleCount++] = nanos;
+        }
+    }
+
+    private void printLag(long lagBytes) {
+        final long[] samples = Arrays.copyOf(lagSamples, lagSampleCount);
+        Arrays.sort(samples);
+        if (samples.length == 0) {
+            return;
+        }
+        System.out.printf("%nReplication lag over %d batches: p50 %d us, p99 %d us, p99.9 %d us, max %d us; "
+                        + "%d bytes behind at the end of the trial, journal at %d bytes%n", samples.length,
+                micros(samples, 0.5), micros(samples, 0.99), micros(samples, 0.999),
+                TimeUnit.NANOSECONDS.toMicros(samples[samples.length - 1]), lagBytes, journal.getWritePosition());
+    }
+
+    private static long micros(long[] sorted, double quantile) {
+        return TimeUnit.NANOSECONDS.toMicros(sorted[(int) Math.min(sorted.length - 1, (long) (quantile * sorted.length))]);
+    }
+}
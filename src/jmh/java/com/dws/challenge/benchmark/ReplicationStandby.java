@@ -0,0 +1,27 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.journal.JournalReceiver;
+import com.dws.challenge.journal.JournalReplayer;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+// Standby JVM started by ReplicationBenchmark: replicates from the primary's port until its stdin is closed
+public final class ReplicationStandby {
+
+    private ReplicationStandby() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        final InetSocketAddress primary = new InetSocketAddress("localhost", Integer.parseInt(args[0]));
+        try (JournalReceiver receiver = JournalReceiver.start(primary, 0,
+                new JournalReplayer(new AccountsRepositoryInMemory()), 100)) {
+            while (System.in.read() >= 0) {
+                // wait for the benchmark to close stdin
+            }
+            System.out.printf("Standby applied %d records up to journal position %d%n", receiver.getAppliedRecords(),
+                    receiver.getAppliedPosition());
+        }
+    }
+}
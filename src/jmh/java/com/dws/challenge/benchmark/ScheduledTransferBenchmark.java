@@ -0,0 +1,84 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.service.TransferTimingWheel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Scheduling and cancelling a transfer with 1M and 10M others pending over the next day, and advancing the wheel
+// by one tick with the transfers due in it. Insertion and cancellation should not depend on the number pending.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@State(Scope.Benchmark)
+public class ScheduledTransferBenchmark {
+
+    private static final long TICK_MILLIS = 100;
+
+    private static final long DAY_TICKS = TimeUnit.DAYS.toMillis(1) / TICK_MILLIS;
+
+    private static final int ACCOUNTS = 100_000;
+
+    @Param({"1000000", "10000000"})
+    public int pendingCount;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private final List<AccountAmountTransfer> due = new ArrayList<>();
+
+    private TransferTimingWheel wheel;
+
+    private String[] accountIds;
+
+    private long nowTick;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        accountIds = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds[i] = BenchmarkSupport.accountId(i);
+        }
+        // tick replaces what it fires and scheduleAndCancel frees its slot, one more is enough
+        wheel = new TransferTimingWheel(TICK_MILLIS, pendingCount + 1, 0);
+        for (int i = 0; i < pendingCount; i++) {
+            schedule();
+        }
+    }
+
+    @Benchmark
+    public long scheduleAndCancel() {
+        return wheel.cancel(schedule()) ? 1 : 0;
+    }
+
+    // Each tick fires pendingCount / DAY_TICKS transfers on average, which are replaced to keep the count steady
+    @Benchmark
+    public int tick() {
+        nowTick++;
+        due.clear();
+        final int fired = wheel.pollDue(nowTick * TICK_MILLIS, Integer.MAX_VALUE, due);
+        for (int i = 0; i < fired; i++) {
+            schedule();
+        }
+        return fired;
+    }
+
+    private long schedule() {
+        return wheel.schedule(accountIds[random.nextInt(ACCOUNTS)], accountIds[random.nextInt(ACCOUNTS)],
+                1 + random.nextInt(100_000), (nowTick + 1 + random.nextLong(DAY_TICKS)) * TICK_MILLIS);
+    }
+}
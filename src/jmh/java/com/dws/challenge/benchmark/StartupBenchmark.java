@@ -0,0 +1,97 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.journal.AccountsSnapshots;
+import com.dws.challenge.journal.JournalReplayer;
+import com.dws.challenge.journal.MappedTransferJournal;
+import com.dws.challenge.journal.SnapshotService;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.BalanceSnapshots;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Rebuilding the store at startup from a snapshot against replaying the full journal history of the same state
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    private static final int SEGMENT_SIZE = 256 * 1024 * 1024;
+
+    private static final int TRANSFERS_PER_ACCOUNT = 5;
+
+    private static final BigDecimal BALANCE = new BigDecimal("1000.00");
+
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"1000000", "10000000"})
+    public int accounts;
+
+    @Param({"snapshot", "journal"})
+    public String source;
+
+    @Param({"in-memory", "atomic"})
+    public String store;
+
+    private Path journalDirectory;
+
+    private Path snapshotDirectory;
+
+    @Setup(Level.Trial)
+    public void writeHistory() throws IOException {
+        journalDirectory = Files.createTempDirectory("startup-benchmark-journal");
+        snapshotDirectory = Files.createTempDirectory("startup-benchmark-snapshots");
+        try (MappedTransferJournal journal = MappedTransferJournal.open(journalDirectory, SEGMENT_SIZE, false, 0, null)) {
+            for (int i = 0; i < accounts; i++) {
+                journal.appendAccountCreated(BenchmarkSupport.accountId(i), BALANCE);
+            }
+            for (long i = 0; i < (long) accounts * TRANSFERS_PER_ACCOUNT; i++) {
+                journal.appendTransfer(BenchmarkSupport.accountId((int) (i % accounts)),
+                        BenchmarkSupport.accountId((int) ((i * 31 + 7) % accounts)), AMOUNT);
+            }
+            if ("snapshot".equals(source)) {
+                // Snapshots are written from the live store, which is rebuilt from the history for that
+                final AccountsRepository live = new AccountsRepositoryInMemory();
+                journal.read(0, journal.getWritePosition(), new JournalReplayer(live));
+                final SnapshotService snapshotService = new SnapshotService(journal, live, new BalanceSnapshots(),
+                        snapshotDirectory, 0);
+                snapshotService.takeSnapshot();
+                snapshotService.destroy();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteHistory() throws IOException {
+        BenchmarkSupport.deleteDirectory(journalDirectory);
+        BenchmarkSupport.deleteDirectory(snapshotDirectory);
+    }
+
+    @Benchmark
+    public AccountsRepository startup() throws IOException {
+        final AccountsRepository repository = BenchmarkSupport.newRepository(store);
+        final Path snapshot = AccountsSnapshots.latest(snapshotDirectory);
+        final long replayFrom = snapshot == null ? 0 : AccountsSnapshots.load(snapshot, repository);
+        MappedTransferJournal.open(journalDirectory, SEGMENT_SIZE, false, replayFrom, new JournalReplayer(repository))
+                .close();
+        return repository;
+    }
+}
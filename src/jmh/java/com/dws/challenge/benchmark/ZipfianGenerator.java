@@ -0,0 +1,40 @@
+package com.dws.challenge.benchmark;
+
+// Gray et al. "Quickly generating billion-record synthetic databases", as used by YCSB. Index 0 is the hottest.
+final class ZipfianGenerator {
+
+    private static final double THETA = 0.99;
+
+    private final int items;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+    private final double halfPowTheta;
+
+    ZipfianGenerator(int items) {
+        this.items = items;
+        this.zetaN = zeta(items);
+        this.alpha = 1.0 / (1.0 - THETA);
+        this.eta = (1 - Math.pow(2.0 / items, 1 - THETA)) / (1 - zeta(2) / zetaN);
+        this.halfPowTheta = 1 + Math.pow(0.5, THETA);
+    }
+
+    int next(double uniform) {
+        final double uz = uniform * zetaN;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < halfPowTheta) {
+            return 1;
+        }
+        return Math.min(items - 1, (int) (items * Math.pow(eta * uniform - eta + 1, alpha)));
+    }
+
+    private static double zeta(int n) {
+        double sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, THETA);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,523 @@
+package com.dws.challenge.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Open-model soak test of the accounts API: requests are started on a fixed schedule, {@code rate} per second
+ * whatever the server's response times, and create accounts, read them and transfer between them in the
+ * {@code mix} proportions. Accounts are picked uniformly or Zipf-skewed ({@code skew} is the exponent, 0.99 puts
+ * about a tenth of the traffic on the hottest account of 10k). Latency is measured from when a request was due,
+ * not from when it could be sent, so a server that stalls is charged for every request queued behind the stall
+ * (no coordinated omission); the service time from the actual send is kept alongside.
+ * <p>
+ * Without {@code url} the application is started in its own JVM from {@code soak.serverClasspath}. After the run
+ * every account is read back and the balances must add up to what was created, since transfers only move money.
+ * The summary, per-operation HdrHistogram percentile distributions and a per-second timeline are written to
+ * {@code reportDir}; a broken invariant exits with status 1.
+ */
+public final class SoakTest {
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000");
+
+    private static final int VERIFICATION_CHUNK = 256;
+
+    private static final int CLIENTS = 64;
+
+    private static final Pattern BALANCE = Pattern.compile("\"balance\"\\s*:\\s*\"?(-?[0-9.]+)");
+
+    private enum Operation {
+        CREATE(201), GET(200), TRANSFER(202);
+
+        final int expectedStatus;
+
+        // From the scheduled start, measured phase only
+        final Histogram responseTime = new ConcurrentHistogram(3);
+
+        // From the actual send, measured phase only
+        final Histogram serviceTime = new ConcurrentHistogram(3);
+
+        // Response time of every request, drained each second for the timeline
+        final Recorder interval = new Recorder(3);
+
+        final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+        Operation(int expectedStatus) {
+            this.expectedStatus = expectedStatus;
+        }
+    }
+
+    private final HttpClient client;
+
+    private final URI baseUri;
+
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final int rate;
+
+    private final int accounts;
+
+    private final AccountPicker picker;
+
+    private final Operation[] mix;
+
+    private final Semaphore inFlight;
+
+    private final int maxInFlight;
+
+    private final AtomicInteger createAttempts = new AtomicInteger();
+
+    private final SplittableRandom random = new SplittableRandom(17);
+
+    private volatile long measureFrom = Long.MAX_VALUE;
+
+    private volatile long measureTo = Long.MAX_VALUE;
+
+    private SoakTest(URI baseUri, int rate, int accounts, double skew, Operation[] mix, int maxInFlight) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.baseUri = baseUri;
+        this.rate = rate;
+        this.accounts = accounts;
+        this.picker = new AccountPicker(accounts, skew);
+        this.mix = mix;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = parseOptions(args);
+        final Path reportDir = Paths.get(options.getOrDefault("reportDir", "build/reports/soak"));
+        Files.createDirectories(reportDir);
+
+        Process server = null;
+        String url = options.get("url");
+        if (url == null) {
+            final int port = freePort();
+            server = startServer(options.getOrDefault("serverArgs", ""), port, reportDir.resolve("server.log"));
+            url = "http://localhost:" + port;
+        }
+        boolean conserved = false;
+        try {
+            final SoakTest soakTest = new SoakTest(URI.create(url),
+                    Integer.parseInt(options.getOrDefault("rate", "2000")),
+                    Integer.parseInt(options.getOrDefault("accounts", "10000")),
+                    Double.parseDouble(options.getOrDefault("skew", "0")),
+                    parseMix(options.getOrDefault("mix", "transfer:90,get:9,create:1")),
+                    Integer.parseInt(options.getOrDefault("maxInFlight", "10000")));
+            if (server != null) {
+                soakTest.awaitHealthy(server);
+            }
+            conserved = soakTest.run(Integer.parseInt(options.getOrDefault("warmup", "10")),
+                    Integer.parseInt(options.getOrDefault("duration", "60")), options, reportDir);
+        } finally {
+            if (server != null) {
+                server.destroy();
+                server.waitFor(30, TimeUnit.SECONDS);
+            }
+        }
+        System.exit(conserved ? 0 : 1);
+    }
+
+    private boolean run(int warmupSeconds, int durationSeconds, Map<String, String> options, Path reportDir)
+            throws Exception {
+        createAccounts();
+
+        final long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        measureTo = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        final StringBuilder timeline = new StringBuilder("second,completed,transfer_p50_ms,transfer_p99_ms,"
+                + "transfer_max_ms,get_p99_ms,create_p99_ms,in_flight\n");
+        final Thread reporter = new Thread(() -> reportEverySecond(start, timeline), "soak-timeline");
+        reporter.setDaemon(true);
+        reporter.start();
+
+        final long dispatched = dispatch(start, measureTo);
+        // Balances are only read back once every request has been answered
+        final boolean drained = inFlight.tryAcquire(maxInFlight, 90, TimeUnit.SECONDS);
+        reporter.interrupt();
+        reporter.join();
+
+        // With requests still outstanding the balances can move while they are read, so the check would mean nothing
+        final String conservation = drained ? verifyConservation()
+                : "SKIPPED: some requests never completed, the run fails without a balance check";
+        final boolean conserved = conservation.startsWith("OK");
+        writeReport(options, reportDir, dispatched, drained, timeline, conservation);
+        return conserved;
+    }
+
+    private void createAccounts() {
+        final List<CompletableFuture<HttpResponse<Void>>> chunk = new ArrayList<>(VERIFICATION_CHUNK);
+        for (int start = 0; start < accounts; start += VERIFICATION_CHUNK) {
+            for (int i = start; i < Math.min(accounts, start + VERIFICATION_CHUNK); i++) {
+                chunk.add(client.sendAsync(createRequest(accountId(i), i), HttpResponse.BodyHandlers.discarding()));
+            }
+            for (CompletableFuture<HttpResponse<Void>> created : chunk) {
+                final int status = created.join().statusCode();
+                if (status != 201) {
+                    throw new IllegalStateException("Creating the soak test accounts failed with HTTP " + status);
+                }
+            }
+            chunk.clear();
+        }
+    }
+
+    // Starts every request at its scheduled time, or as soon as the client can when it is behind
+    private long dispatch(long start, long end) {
+        final double nanosPerRequest = 1e9 / rate;
+        long sent = 0;
+        while (true) {
+            final long scheduled = start + (long) (sent * nanosPerRequest);
+            if (scheduled >= end) {
+                return sent;
+            }
+            final long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquireUninterruptibly();
+            send(mix[random.nextInt(mix.length)], scheduled);
+            sent++;
+        }
+    }
+
+    private void send(Operation operation, long scheduled) {
+        final HttpRequest request;
+        switch (operation) {
+            case CREATE:
+                final int attempt = createAttempts.getAndIncrement();
+                request = createRequest("soak-" + runId + "-new-" + attempt, attempt);
+                break;
+            case GET:
+                request = HttpRequest.newBuilder(baseUri.resolve("/v1/accounts/" + accountId(picker.next(random))))
+                        .timeout(Duration.ofSeconds(60))
+                        .GET()
+                        .build();
+                break;
+            default:
+                final int from = picker.next(random);
+                int to;
+                do {
+                    to = picker.next(random);
+                } while (to == from);
+                request = jsonPost("/v1/accounts/transfer", clientId(from), "{\"accountFrom\":\"" + accountId(from)
+                        + "\",\"accountTo\":\"" + accountId(to) + "\",\"transferAmount\":\""
+                        + BigDecimal.valueOf(random.nextInt(1, 100), 2) + "\"}");
+        }
+        final long sent = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            final long completed = System.nanoTime();
+            inFlight.release();
+            final long responseMicros = TimeUnit.NANOSECONDS.toMicros(completed - scheduled);
+            operation.interval.recordValue(responseMicros);
+            if (scheduled < measureFrom || scheduled >= measureTo) {
+                return;
+            }
+            operation.responseTime.recordValue(responseMicros);
+            operation.serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(completed - sent));
+            final String outcome = error != null ? error.getClass().getSimpleName()
+                    : response.statusCode() == operation.expectedStatus ? "ok" : "HTTP " + response.statusCode();
+            operation.outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        });
+    }
+
+    private void reportEverySecond(long start, StringBuilder timeline) {
+        final Map<Operation, Histogram> last = new EnumMap<>(Operation.class);
+        for (long second = 1; ; second++) {
+            final long wait = start + TimeUnit.SECONDS.toNanos(second) - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            long completed = 0;
+            for (Operation operation : Operation.values()) {
+                final Histogram histogram = operation.interval.getIntervalHistogram(last.get(operation));
+                last.put(operation, histogram);
+                completed += histogram.getTotalCount();
+            }
+            final Histogram transfers = last.get(Operation.TRANSFER);
+            final String line = String.format(Locale.ROOT, "%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f,%d", second, completed,
+                    millis(transfers.getValueAtPercentile(50)), millis(transfers.getValueAtPercentile(99)),
+                    millis(transfers.getMaxValue()), millis(last.get(Operation.GET).getValueAtPercentile(99)),
+                    millis(last.get(Operation.CREATE).getValueAtPercentile(99)),
+                    maxInFlight - inFlight.availablePermits());
+            timeline.append(line).append('\n');
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Reads every account back: the initial ones must hold INITIAL_BALANCE each in total, and each account created
+     * during the run adds one more INITIAL_BALANCE. Transfers may have been refused, never half applied.
+     */
+    private String verifyConservation() {
+        final List<String> ids = new ArrayList<>(accounts + createAttempts.get());
+        for (int i = 0; i < accounts; i++) {
+            ids.add(accountId(i));
+        }
+        for (int i = 0; i < createAttempts.get(); i++) {
+            ids.add("soak-" + runId + "-new-" + i);
+        }
+
+        BigDecimal total = BigDecimal.ZERO;
+        int found = 0;
+        int missingInitial = 0;
+        final List<CompletableFuture<HttpResponse<String>>> chunk = new ArrayList<>(VERIFICATION_CHUNK);
+        for (int start = 0; start < ids.size(); start += VERIFICATION_CHUNK) {
+            final int end = Math.min(ids.size(), start + VERIFICATION_CHUNK);
+            for (int i = start; i < end; i++) {
+                chunk.add(client.sendAsync(HttpRequest.newBuilder(baseUri.resolve("/v1/accounts/" + ids.get(i)))
+                        .timeout(Duration.ofSeconds(60)).GET().build(), HttpResponse.BodyHandlers.ofString()));
+            }
+            for (int i = start; i < end; i++) {
+                final Matcher balance = BALANCE.matcher(chunk.get(i - start).join().body());
+                if (balance.find()) {
+                    total = total.add(new BigDecimal(balance.group(1)));
+                    found++;
+                } else if (i < accounts) {
+                    missingInitial++;
+                }
+            }
+            chunk.clear();
+        }
+        final BigDecimal expected = INITIAL_BALANCE.multiply(BigDecimal.valueOf(found));
+        final String accountsChecked = String.format(Locale.ROOT, "%d accounts (%d created during the run) hold %s, "
+                + "expected %s", found, found - accounts + missingInitial, total.toPlainString(), expected.toPlainString());
+        if (missingInitial > 0) {
+            return "VIOLATED: " + missingInitial + " initial accounts are missing; " + accountsChecked;
+        }
+        return (total.compareTo(expected) == 0 ? "OK: " : "VIOLATED: ") + accountsChecked;
+    }
+
+    private void writeReport(Map<String, String> options, Path reportDir, long dispatched, boolean drained,
+                             CharSequence timeline, String conservation) throws IOException {
+        final StringWriter summary = new StringWriter();
+        final PrintWriter out = new PrintWriter(summary);
+        final double seconds = (measureTo - measureFrom) / 1e9;
+        long measured = 0;
+        for (Operation operation : Operation.values()) {
+            measured += operation.responseTime.getTotalCount();
+        }
+        out.printf(Locale.ROOT, "Soak test at %s against %s%n", Instant.now(), baseUri);
+        out.printf(Locale.ROOT, "options %s%n", new TreeMap<>(options));
+        out.printf(Locale.ROOT, "target %d requests/s, completed %.1f/s over %.0fs after warm-up, %d requests "
+                + "dispatched, %d accounts%s%n", rate, measured / seconds, seconds, dispatched, accounts,
+                drained ? "" : ", some requests never completed");
+        out.println();
+        out.println("Response time from the scheduled start (coordinated omission corrected), ms");
+        out.printf(Locale.ROOT, "%-9s %9s %9s %9s %9s %9s %9s %9s   %s%n", "operation", "count", "p50", "p90", "p99",
+                "p99.9", "p99.99", "max", "outcomes");
+        for (Operation operation : Operation.values()) {
+            printRow(out, operation, operation.responseTime);
+        }
+        out.println();
+        out.println("Service time from the actual send, ms");
+        for (Operation operation : Operation.values()) {
+            printRow(out, operation, operation.serviceTime);
+        }
+        out.println();
+        out.println("Money conservation: " + conservation);
+        out.flush();
+
+        System.out.println();
+        System.out.print(summary);
+        Files.write(reportDir.resolve("summary.txt"), summary.toString().getBytes(StandardCharsets.UTF_8));
+        Files.write(reportDir.resolve("timeline.csv"), timeline.toString().getBytes(StandardCharsets.UTF_8));
+        for (Operation operation : Operation.values()) {
+            final String name = operation.name().toLowerCase(Locale.ROOT);
+            writeDistribution(reportDir.resolve(name + "-response-time.hgrm"), operation.responseTime);
+            writeDistribution(reportDir.resolve(name + "-service-time.hgrm"), operation.serviceTime);
+        }
+        System.out.println("Report written to " + reportDir.toAbsolutePath());
+    }
+
+    private static void printRow(PrintWriter out, Operation operation, Histogram histogram) {
+        final Map<String, Long> outcomes = new TreeMap<>();
+        operation.outcomes.forEach((outcome, count) -> outcomes.put(outcome, count.sum()));
+        out.printf(Locale.ROOT, "%-9s %9d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f   %s%n",
+                operation.name().toLowerCase(Locale.ROOT), histogram.getTotalCount(),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getValueAtPercentile(99.99)), millis(histogram.getMaxValue()), outcomes);
+    }
+
+    // Percentile distribution in milliseconds, plottable with HdrHistogram's plotter
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8.name())) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private String accountId(int index) {
+        return "soak-" + runId + "-" + index;
+    }
+
+    private HttpRequest createRequest(String accountId, int index) {
+        return jsonPost("/v1/accounts", clientId(index), "{\"accountId\":\"" + accountId + "\",\"balance\":" + INITIAL_BALANCE + "}");
+    }
+
+    // Spreads the requests over CLIENTS ids so the per-client admission limit sees many callers, not one
+    private String clientId(int accountIndex) {
+        return "soak-" + runId + "-client-" + accountIndex % CLIENTS;
+    }
+
+    private HttpRequest jsonPost(String path, String clientId, String body) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .header("X-Client-Id", clientId)
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private void awaitHealthy(Process server) throws InterruptedException {
+        final HttpRequest health = HttpRequest.newBuilder(baseUri.resolve("/actuator/health"))
+                .timeout(Duration.ofSeconds(5)).GET().build();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+        while (System.nanoTime() < deadline && server.isAlive()) {
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            TimeUnit.MILLISECONDS.sleep(200);
+        }
+        throw new IllegalStateException("The server did not become healthy, see server.log in the report directory");
+    }
+
+    // The application in its own JVM, so the load generator's allocation and GC do not land on the server
+    private static Process startServer(String serverArgs, int port, Path log) throws IOException {
+        final String classpath = System.getProperty("soak.serverClasspath");
+        if (classpath == null) {
+            throw new IllegalStateException("Pass --url of a running server or run through ./gradlew soakTest");
+        }
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String arg : serverArgs.trim().split("\\s+")) {
+            if (!arg.isEmpty()) {
+                command.add(arg);
+            }
+        }
+        command.addAll(Arrays.asList("-cp", classpath, "com.dws.challenge.ChallengeApplication",
+                "--server.port=" + port));
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // transfer:90,get:9,create:1 as a 100-slot table drawn from uniformly
+    private static Operation[] parseMix(String mix) {
+        final List<Operation> slots = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            final String[] weight = part.trim().split(":");
+            final Operation operation = Operation.valueOf(weight[0].toUpperCase(Locale.ROOT));
+            for (int i = Integer.parseInt(weight[1]); i > 0; i--) {
+                slots.add(operation);
+            }
+        }
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("Empty mix " + mix);
+        }
+        return slots.toArray(new Operation[0]);
+    }
+
+    // --name=value arguments
+    private static Map<String, String> parseOptions(String[] args) {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final int separator = arg.indexOf('=');
+            if (arg.startsWith("--") && separator > 2) {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+
+    // Account index 0 is the hottest: with skew s, index i is drawn with weight 1 / (i + 1)^s
+    private static final class AccountPicker {
+
+        private final int accounts;
+
+        // null when uniform
+        private final double[] cumulative;
+
+        private AccountPicker(int accounts, double skew) {
+            this.accounts = accounts;
+            if (skew <= 0) {
+                cumulative = null;
+                return;
+            }
+            cumulative = new double[accounts];
+            double sum = 0;
+            for (int i = 0; i < accounts; i++) {
+                sum += 1 / Math.pow(i + 1, skew);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < accounts; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int next(SplittableRandom random) {
+            if (cumulative == null) {
+                return random.nextInt(accounts);
+            }
+            final int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+        }
+    }
+}
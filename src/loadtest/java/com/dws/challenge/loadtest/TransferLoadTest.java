@@ -0,0 +1,178 @@
+package com.dws.challenge.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-model load test against a running server: {@code concurrency} transfers are kept in flight, each
+ * completed request immediately issues the next one. The client is asynchronous, so ten thousand in-flight
+ * requests do not need ten thousand client threads. Prints throughput and latency percentiles of the measured
+ * phase; run it once against the default server and once with the virtual-threads profile to compare.
+ */
+public final class TransferLoadTest {
+
+    private static final int MAX_SAMPLES = 20_000_000;
+
+    private static final int ACCOUNT_CREATION_CHUNK = 256;
+
+    private final HttpClient client;
+
+    private final URI baseUri;
+
+    private final int concurrency;
+
+    private final int accounts;
+
+    private final long[] latencies = new long[MAX_SAMPLES];
+
+    private final AtomicInteger samples = new AtomicInteger();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    private volatile boolean recording;
+
+    private volatile boolean running = true;
+
+    private TransferLoadTest(URI baseUri, int concurrency, int accounts) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.baseUri = baseUri;
+        this.concurrency = concurrency;
+        this.accounts = accounts;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = parseOptions(args);
+        final TransferLoadTest loadTest = new TransferLoadTest(
+                URI.create(options.getOrDefault("url", "http://localhost:8080")),
+                Integer.parseInt(options.getOrDefault("concurrency", "1000")),
+                Integer.parseInt(options.getOrDefault("accounts", "10000")));
+        loadTest.run(Integer.parseInt(options.getOrDefault("warmup", "10")),
+                Integer.parseInt(options.getOrDefault("duration", "30")));
+    }
+
+    private void run(int warmupSeconds, int durationSeconds) throws InterruptedException {
+        createAccounts();
+
+        final CountDownLatch stopped = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            final SplittableRandom random = new SplittableRandom(31L * i + 17);
+            CompletableFuture.runAsync(() -> sendTransfer(random, stopped));
+        }
+
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        completed.reset();
+        failures.clear();
+        recording = true;
+        final long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        recording = false;
+        final long elapsed = System.nanoTime() - start;
+        running = false;
+        stopped.await(30, TimeUnit.SECONDS);
+
+        report(elapsed);
+    }
+
+    private void createAccounts() {
+        final CompletableFuture<?>[] chunk = new CompletableFuture<?>[ACCOUNT_CREATION_CHUNK];
+        for (int start = 0; start < accounts; start += ACCOUNT_CREATION_CHUNK) {
+            final int size = Math.min(ACCOUNT_CREATION_CHUNK, accounts - start);
+            for (int i = 0; i < size; i++) {
+                chunk[i] = client.sendAsync(jsonPost("/v1/accounts",
+                        "{\"accountId\":\"load-" + (start + i) + "\",\"balance\":1000000000}"),
+                        HttpResponse.BodyHandlers.discarding());
+            }
+            CompletableFuture.allOf(Arrays.copyOf(chunk, size)).join();
+        }
+    }
+
+    // One in-flight request per call, the completion sends the next one
+    private void sendTransfer(SplittableRandom random, CountDownLatch stopped) {
+        if (!running) {
+            stopped.countDown();
+            return;
+        }
+        final int from = random.nextInt(accounts);
+        int to = random.nextInt(accounts - 1);
+        if (to >= from) {
+            to++;
+        }
+        final HttpRequest request = jsonPost("/v1/accounts/transfer",
+                "{\"accountFrom\":\"load-" + from + "\",\"accountTo\":\"load-" + to + "\",\"transferAmount\":\"0.01\"}");
+        final long sent = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenCompleteAsync((response, error) -> {
+            final long latency = System.nanoTime() - sent;
+            if (recording) {
+                if (error != null) {
+                    failures.computeIfAbsent(error.getClass().getSimpleName(), key -> new LongAdder()).increment();
+                } else if (response.statusCode() != 202) {
+                    failures.computeIfAbsent("HTTP " + response.statusCode(), key -> new LongAdder()).increment();
+                } else {
+                    completed.increment();
+                    final int sample = samples.getAndIncrement();
+                    if (sample < MAX_SAMPLES) {
+                        latencies[sample] = latency;
+                    }
+                }
+            }
+            sendTransfer(random, stopped);
+        });
+    }
+
+    private void report(long elapsedNanos) {
+        final long[] sorted = Arrays.copyOf(latencies, Math.min(samples.get(), MAX_SAMPLES));
+        Arrays.sort(sorted);
+        final double seconds = elapsedNanos / 1e9;
+        System.out.printf("concurrency %d, %d transfers in %.1fs: %.0f transfers/s%n",
+                concurrency, completed.sum(), seconds, completed.sum() / seconds);
+        System.out.printf("latency ms p50 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999), percentile(sorted, 1.0));
+        failures.forEach((failure, count) -> System.out.printf("failed %s: %d%n", failure, count.sum()));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        final int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private HttpRequest jsonPost(String path, String body) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    // --name=value arguments
+    private static Map<String, String> parseOptions(String[] args) {
+        final Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            final int separator = arg.indexOf('=');
+            if (arg.startsWith("--") && separator > 2) {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+}
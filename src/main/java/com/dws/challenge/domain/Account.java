@@ -16,9 +16,10 @@ public class Account {
   @NotEmpty
   private final String accountId;
 
+  // Volatile so a balance snapshot scan that sees a new balance also sees the pre-image recorded before it
   @NotNull
   @Min(value = 0, message = "Initial balance must be positive.")
-  private BigDecimal balance;
+  private volatile BigDecimal balance;
 
   public Account(String accountId) {
     this.accountId = accountId;
@@ -6,6 +6,7 @@ import lombok.Data;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 import java.math.BigDecimal;
 
 @Data
@@ -20,13 +21,23 @@ public class AccountAmountTransfer {
 	@NotNull
 	@Min(value = 0, message = "Please check you have initial balance must be positive.")
 	private BigDecimal transferAmount;
-	
+
+	// Optional idempotency key, a retry with the same id returns the first result instead of transferring again
+	@Size(max = 128)
+	private String transferId;
+
+	public AccountAmountTransfer(String accountFrom, String accountTo, BigDecimal transferAmount) {
+		this(accountFrom, accountTo, transferAmount, null);
+	}
+
 	@JsonCreator
 	public AccountAmountTransfer(@JsonProperty("accountFrom") String accountFrom,
 								 @JsonProperty("accountTo") String accountTo,
-								 @JsonProperty("transferAmount") BigDecimal transferAmount) {
+								 @JsonProperty("transferAmount") BigDecimal transferAmount,
+								 @JsonProperty("transferId") String transferId) {
 		this.accountFrom = accountFrom;
 		this.accountTo = accountTo;
 	    this.transferAmount = transferAmount;
+	    this.transferId = transferId;
 	}
 }
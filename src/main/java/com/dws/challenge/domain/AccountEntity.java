@@ -0,0 +1,41 @@
+package com.dws.challenge.domain;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Version;
+import java.math.BigDecimal;
+
+/**
+ * Persistent form of {@link Account} for the JPA store. Every balance update also bumps
+ * {@code version}, so a read-modify-write through JPA fails instead of overwriting a
+ * concurrent conditional update.
+ */
+@Entity
+@Table(name = "account")
+@Getter
+@Setter
+@NoArgsConstructor
+public class AccountEntity {
+
+  @Id
+  @Column(name = "account_id", nullable = false, updatable = false)
+  private String accountId;
+
+  @Column(name = "balance", nullable = false, precision = 19, scale = 2)
+  private BigDecimal balance;
+
+  @Version
+  @Column(name = "version", nullable = false)
+  private long version;
+
+  public AccountEntity(String accountId, BigDecimal balance) {
+    this.accountId = accountId;
+    this.balance = balance;
+  }
+}
@@ -0,0 +1,13 @@
+package com.dws.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class AccountImportSummary {
+
+  private final long imported;
+
+  private final long duplicates;
+
+  private final long invalid;
+}
@@ -0,0 +1,19 @@
+package com.dws.challenge.domain;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// One posting of a transfer on an account, debits have a negative amount
+@Data
+public class AccountTransaction {
+
+	private final long cursor;
+
+	private final Instant timestamp;
+
+	private final BigDecimal amount;
+
+	private final String counterparty;
+}
@@ -0,0 +1,16 @@
+package com.dws.challenge.domain;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Newest first, nextCursor is null on the last page
+@Data
+public class AccountTransactionsPage {
+
+	private final String accountId;
+
+	private final List<AccountTransaction> transactions;
+
+	private final Long nextCursor;
+}
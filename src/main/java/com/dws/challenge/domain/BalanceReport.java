@@ -0,0 +1,17 @@
+package com.dws.challenge.domain;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// All balances at one point in time: their count and exact total, and the largest ones highest first
+@Data
+public class BalanceReport {
+
+  private final long accounts;
+
+  private final BigDecimal totalBalance;
+
+  private final List<Account> topBalances;
+}
@@ -0,0 +1,10 @@
+package com.dws.challenge.domain;
+
+public enum BatchTransferMode {
+
+	// every transfer is applied or none is
+	ALL_OR_NOTHING,
+
+	// valid transfers are applied, failed ones are reported
+	BEST_EFFORT
+}
@@ -0,0 +1,31 @@
+package com.dws.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+public class BatchTransferRequest {
+
+	public static final int MAX_TRANSFERS = 100_000;
+
+	@NotNull
+	private BatchTransferMode mode;
+
+	@NotEmpty
+	@Size(max = MAX_TRANSFERS, message = "A batch can contain at most " + MAX_TRANSFERS + " transfers.")
+	private List<@Valid @NotNull AccountAmountTransfer> transfers;
+
+	@JsonCreator
+	public BatchTransferRequest(@JsonProperty("mode") BatchTransferMode mode,
+								@JsonProperty("transfers") List<AccountAmountTransfer> transfers) {
+		this.mode = mode;
+		this.transfers = transfers;
+	}
+}
@@ -0,0 +1,39 @@
+package com.dws.challenge.domain;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BatchTransferResult {
+
+	private final int completed;
+
+	private final int failed;
+
+	private final List<Item> results;
+
+	public static BatchTransferResult of(List<TransferStatus> statuses) {
+		final List<Item> results = new ArrayList<>(statuses.size());
+		int completed = 0;
+		for (int i = 0; i < statuses.size(); i++) {
+			final TransferStatus status = statuses.get(i);
+			if (status == TransferStatus.COMPLETED) {
+				completed++;
+			}
+			results.add(new Item(i, status, status.getMessage()));
+		}
+		return new BatchTransferResult(completed, statuses.size() - completed, results);
+	}
+
+	@Data
+	public static class Item {
+
+		private final int index;
+
+		private final TransferStatus status;
+
+		private final String message;
+	}
+}
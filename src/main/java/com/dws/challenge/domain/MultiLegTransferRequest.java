@@ -0,0 +1,32 @@
+package com.dws.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+// One debit of accountFrom paying every leg, applied in full or not at all
+@Data
+public class MultiLegTransferRequest {
+
+	public static final int MAX_LEGS = 10_000;
+
+	@NotNull
+	private String accountFrom;
+
+	@NotEmpty
+	@Size(max = MAX_LEGS, message = "A transfer can have at most " + MAX_LEGS + " legs.")
+	private List<@Valid @NotNull TransferLeg> legs;
+
+	@JsonCreator
+	public MultiLegTransferRequest(@JsonProperty("accountFrom") String accountFrom,
+								   @JsonProperty("legs") List<TransferLeg> legs) {
+		this.accountFrom = accountFrom;
+		this.legs = legs;
+	}
+}
@@ -0,0 +1,21 @@
+package com.dws.challenge.domain;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// A deferred transfer, executed on the first scheduler tick at or after executeAt
+@Data
+public class ScheduledTransfer {
+
+	private final long id;
+
+	private final String accountFrom;
+
+	private final String accountTo;
+
+	private final BigDecimal transferAmount;
+
+	private final Instant executeAt;
+}
@@ -0,0 +1,37 @@
+package com.dws.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+public class ScheduledTransferRequest {
+
+	@NotNull
+	private String accountFrom;
+
+	@NotNull
+	private String accountTo;
+
+	@NotNull
+	private BigDecimal transferAmount;
+
+	// ISO-8601 instant, one in the past executes on the next tick
+	@NotNull
+	private Instant executeAt;
+
+	@JsonCreator
+	public ScheduledTransferRequest(@JsonProperty("accountFrom") String accountFrom,
+									@JsonProperty("accountTo") String accountTo,
+									@JsonProperty("transferAmount") BigDecimal transferAmount,
+									@JsonProperty("executeAt") Instant executeAt) {
+		this.accountFrom = accountFrom;
+		this.accountTo = accountTo;
+		this.transferAmount = transferAmount;
+		this.executeAt = executeAt;
+	}
+}
@@ -0,0 +1,14 @@
+package com.dws.challenge.domain;
+
+import lombok.Data;
+
+import java.util.List;
+
+// In no particular time order, may hold fewer than the limit before the last page; nextCursor is null on the last page
+@Data
+public class ScheduledTransfersPage {
+
+	private final List<ScheduledTransfer> transfers;
+
+	private final Long nextCursor;
+}
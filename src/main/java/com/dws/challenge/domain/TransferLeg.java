@@ -0,0 +1,28 @@
+package com.dws.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+
+// One credit of a multi-leg transfer, the source account is the request's
+@Data
+public class TransferLeg {
+
+	@NotNull
+	private String accountTo;
+
+	@NotNull
+	@Min(value = 0, message = "Please check you have initial balance must be positive.")
+	private BigDecimal transferAmount;
+
+	@JsonCreator
+	public TransferLeg(@JsonProperty("accountTo") String accountTo,
+					   @JsonProperty("transferAmount") BigDecimal transferAmount) {
+		this.accountTo = accountTo;
+		this.transferAmount = transferAmount;
+	}
+}
@@ -0,0 +1,24 @@
+package com.dws.challenge.domain;
+
+import com.dws.challenge.util.Constants;
+
+public enum TransferStatus {
+
+	COMPLETED(Constants.TRANSFER_COMPLETED),
+	INVALID_AMOUNT(Constants.INVALID_AMOUNT),
+	INVALID_AMOUNT_PRECISION(Constants.INVALID_AMOUNT_PRECISION),
+	ACCOUNT_NOT_EXISTS(Constants.ACCOUNT_NOT_EXISTS),
+	INSUFFICIENT_BALANCE(Constants.INSUFFICIENT_BALANCE),
+	// all-or-nothing batch item that was valid but not applied because another item failed
+	NOT_APPLIED(Constants.TRANSFER_NOT_APPLIED);
+
+	private final String message;
+
+	TransferStatus(String message) {
+		this.message = message;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+}
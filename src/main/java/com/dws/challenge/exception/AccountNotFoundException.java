@@ -6,4 +6,9 @@ public class AccountNotFoundException extends RuntimeException {
         super(message);
     }
 
+    // Stackless, see TransferRejections
+    AccountNotFoundException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
 }
\ No newline at end of file
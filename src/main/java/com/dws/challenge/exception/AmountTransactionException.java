@@ -7,4 +7,9 @@ public class AmountTransactionException extends RuntimeException {
     public AmountTransactionException(String message) {
 		super(message);
     }
+
+    // Stackless, see TransferRejections
+    AmountTransactionException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
@@ -7,4 +7,9 @@ public class NotSufficientBalanceException extends RuntimeException{
 	public NotSufficientBalanceException(String message){
 	        super(message);
 	    }
+
+	// Stackless, see TransferRejections
+	NotSufficientBalanceException(String message, boolean writableStackTrace) {
+		super(message, null, false, writableStackTrace);
+	}
 }
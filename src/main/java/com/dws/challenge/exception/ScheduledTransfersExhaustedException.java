@@ -0,0 +1,10 @@
+package com.dws.challenge.exception;
+
+public class ScheduledTransfersExhaustedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ScheduledTransfersExhaustedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.dws.challenge.exception;
+
+// An accounts shard did not answer in time or is stopped; the change was not made and can be retried
+public class ShardUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ShardUnavailableException(String message) {
+        super(message);
+    }
+
+    public ShardUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
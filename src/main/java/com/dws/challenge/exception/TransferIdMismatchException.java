@@ -0,0 +1,10 @@
+package com.dws.challenge.exception;
+
+public class TransferIdMismatchException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TransferIdMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.dws.challenge.exception;
+
+public class TransferIdsExhaustedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TransferIdsExhaustedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.dws.challenge.exception;
+
+public class TransferInProgressException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TransferInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,60 @@
+package com.dws.challenge.exception;
+
+import com.dws.challenge.domain.TransferStatus;
+
+import static com.dws.challenge.util.Constants.*;
+
+/**
+ * Shared instances of the exceptions a transfer is rejected with. A rejection is an expected outcome, not a bug: the
+ * stack trace would only point at the validation code, and filling it in costs more than the whole rejected transfer.
+ * These carry no stack trace and no suppressed exceptions, their cause cannot be set, so they are immutable and
+ * can be thrown from any thread.
+ */
+public final class TransferRejections {
+
+    public static final AccountNotFoundException ACCOUNT_NOT_FOUND = new AccountNotFoundException(ACCOUNT_NOT_EXISTS, false);
+
+    public static final NotSufficientBalanceException NOT_SUFFICIENT_BALANCE =
+            new NotSufficientBalanceException(INSUFFICIENT_BALANCE, false);
+
+    public static final AmountTransactionException NEGATIVE_AMOUNT = new AmountTransactionException(INVALID_AMOUNT, false);
+
+    public static final AmountTransactionException AMOUNT_PRECISION =
+            new AmountTransactionException(INVALID_AMOUNT_PRECISION, false);
+
+    private TransferRejections() {
+    }
+
+    // The exception for a rejected status, as thrown by AccountsService#amountTransfer
+    public static RuntimeException of(TransferStatus status) {
+        switch (status) {
+            case ACCOUNT_NOT_EXISTS:
+                return ACCOUNT_NOT_FOUND;
+            case INSUFFICIENT_BALANCE:
+                return NOT_SUFFICIENT_BALANCE;
+            case INVALID_AMOUNT:
+                return NEGATIVE_AMOUNT;
+            case INVALID_AMOUNT_PRECISION:
+                return AMOUNT_PRECISION;
+            default:
+                throw new IllegalArgumentException("Not a rejection: " + status);
+        }
+    }
+
+    // The status of one of the shared rejections, the inverse of of(); null for any other exception
+    public static TransferStatus statusOf(RuntimeException rejection) {
+        if (rejection == ACCOUNT_NOT_FOUND) {
+            return TransferStatus.ACCOUNT_NOT_EXISTS;
+        }
+        if (rejection == NOT_SUFFICIENT_BALANCE) {
+            return TransferStatus.INSUFFICIENT_BALANCE;
+        }
+        if (rejection == NEGATIVE_AMOUNT) {
+            return TransferStatus.INVALID_AMOUNT;
+        }
+        if (rejection == AMOUNT_PRECISION) {
+            return TransferStatus.INVALID_AMOUNT_PRECISION;
+        }
+        return null;
+    }
+}
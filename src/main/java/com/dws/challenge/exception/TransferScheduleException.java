@@ -0,0 +1,10 @@
+package com.dws.challenge.exception;
+
+public class TransferScheduleException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TransferScheduleException(String message) {
+        super(message);
+    }
+}
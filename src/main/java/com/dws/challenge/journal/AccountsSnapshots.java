@@ -0,0 +1,200 @@
+package com.dws.challenge.journal;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepository;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of every account, taken at a journal position:
+ * <pre>
+ * int   magic, int version, long journal position the snapshot includes everything before
+ * per account: short length + UTF-8 account id, int balance scale, short length + balance unscaled value
+ * long  account count, int CRC32C of everything before it
+ * </pre>
+ * Files are written under a temporary name and renamed, so a crash never leaves a partial snapshot behind.
+ */
+public final class AccountsSnapshots {
+
+    static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private static final int MAGIC = 0x41435353;
+
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private static final int MAX_RECORD_SIZE = Short.BYTES + JournalRecords.MAX_FIELD_LENGTH + Integer.BYTES + Short.BYTES
+            + JournalRecords.MAX_FIELD_LENGTH;
+
+    // Large snapshots are mapped in windows, a single mapping cannot exceed 2GB
+    private static final long MAP_WINDOW = 1L << 30;
+
+    private AccountsSnapshots() {
+    }
+
+    /**
+     * Writes the accounts of the repository with the balances {@code balances} gives them as the snapshot at the
+     * journal position and returns its file. An account it gives no balance is left out.
+     */
+    public static Path write(Path directory, long journalPosition, AccountsRepository accountsRepository,
+                             Function<Account, BigDecimal> balances) throws IOException {
+        Files.createDirectories(directory);
+        final Path snapshot = snapshotPath(directory, journalPosition);
+        final Path temporary = directory.resolve(snapshot.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final CRC32C checksum = new CRC32C();
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), checksum), 1 << 16));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(journalPosition);
+
+            final long[] count = new long[1];
+            try {
+                accountsRepository.forEachAccount(account -> {
+                    final BigDecimal balance = balances.apply(account);
+                    if (balance == null) {
+                        return;
+                    }
+                    try {
+                        writeAccount(output, account.getAccountId(), balance);
+                        count[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            output.writeLong(count[0]);
+            output.flush();
+            output.writeInt((int) checksum.getValue());
+            output.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return snapshot;
+    }
+
+    /**
+     * Creates the accounts of the snapshot in the repository, reading the file through memory mappings.
+     * Returns the journal position to continue replaying from.
+     */
+    public static long load(Path snapshot, AccountsRepository accountsRepository) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE) {
+                throw new IllegalStateException("Snapshot " + snapshot + " is truncated");
+            }
+            final long dataEnd = size - TRAILER_SIZE;
+            final CRC32C checksum = new CRC32C();
+
+            long windowStart = 0;
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAP_WINDOW));
+            if (window.getInt() != MAGIC || window.getInt() != VERSION) {
+                throw new IllegalStateException("Snapshot " + snapshot + " has an unknown format");
+            }
+            final long journalPosition = window.getLong();
+
+            long count = 0;
+            while (windowStart + window.position() < dataEnd) {
+                if (window.remaining() < MAX_RECORD_SIZE && windowStart + window.limit() < size) {
+                    final long position = windowStart + window.position();
+                    checksum.update(window.flip());
+                    windowStart = position;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(size - windowStart, MAP_WINDOW));
+                }
+                final String accountId = JournalRecords.readString(window);
+                final BigDecimal balance = JournalRecords.readDecimal(window);
+                accountsRepository.createAccount(new Account(accountId, balance));
+                count++;
+            }
+
+            final ByteBuffer checked = window.duplicate();
+            checked.position(0).limit((int) (dataEnd - windowStart) + Long.BYTES);
+            checksum.update(checked);
+            window.position((int) (dataEnd - windowStart));
+            if (window.getLong() != count || window.getInt() != (int) checksum.getValue()) {
+                throw new IllegalStateException("Snapshot " + snapshot + " is corrupt");
+            }
+            return journalPosition;
+        }
+    }
+
+    // The snapshot with the highest journal position, null when there is none
+    public static Path latest(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        Path latest = null;
+        long latestPosition = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                final long position = journalPosition(file);
+                if (position > latestPosition) {
+                    latest = file;
+                    latestPosition = position;
+                }
+            }
+        }
+        return latest;
+    }
+
+    // Removes the snapshots older than the given one
+    public static void deleteBefore(Path snapshot) throws IOException {
+        final long position = journalPosition(snapshot);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(snapshot.getParent(), "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                if (journalPosition(file) < position) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    static Path snapshotPath(Path directory, long journalPosition) {
+        return directory.resolve(String.format("%020d%s", journalPosition, SNAPSHOT_SUFFIX));
+    }
+
+    static long journalPosition(Path snapshot) {
+        final String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private static void writeAccount(DataOutputStream output, String id, BigDecimal balance) throws IOException {
+        final byte[] accountId = JournalRecords.encodeString(id);
+        final byte[] unscaled = balance.unscaledValue().toByteArray();
+        if (accountId.length > JournalRecords.MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("Account id too long for the snapshot");
+        }
+        if (unscaled.length > JournalRecords.MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("Balance too large for the snapshot");
+        }
+        output.writeShort(accountId.length);
+        output.write(accountId);
+        output.writeInt(balance.scale());
+        output.writeShort(unscaled.length);
+        output.write(unscaled);
+    }
+}
@@ -0,0 +1,56 @@
+package com.dws.challenge.journal;
+
+import com.dws.challenge.ledger.TransferLedger;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.BalanceSnapshots;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Configuration
+public class JournalConfig {
+
+    // The repository is rebuilt from the latest snapshot and the journal after it before any other bean can use it,
+    // the ledger from the journal after the snapshot
+    @Bean
+    @ConditionalOnProperty(name = "accounts.journal.enabled", havingValue = "true")
+    public MappedTransferJournal transferJournal(AccountsRepository accountsRepository, TransferLedger transferLedger,
+                                                 @Value("${accounts.journal.directory:journal}") String directory,
+                                                 @Value("${accounts.journal.segment-size:67108864}") int segmentSize,
+                                                 @Value("${accounts.journal.fsync:true}") boolean fsync,
+                                                 @Value("${accounts.snapshot.enabled:false}") boolean snapshots,
+                                                 @Value("${accounts.snapshot.directory:snapshots}") String snapshotDirectory) throws IOException {
+        long replayFrom = 0;
+        final Path snapshot = snapshots ? AccountsSnapshots.latest(Paths.get(snapshotDirectory)) : null;
+        if (snapshot != null) {
+            final long startNanos = System.nanoTime();
+            replayFrom = AccountsSnapshots.load(snapshot, accountsRepository);
+            log.info("Loaded snapshot {} in {} ms", snapshot, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+        return MappedTransferJournal.open(Paths.get(directory), segmentSize, fsync, replayFrom,
+                new JournalReplayer(accountsRepository, transferLedger));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "accounts", name = {"journal.enabled", "snapshot.enabled"}, havingValue = "true")
+    public SnapshotService snapshotService(MappedTransferJournal transferJournal, AccountsRepository accountsRepository,
+                                           BalanceSnapshots balanceSnapshots,
+                                           @Value("${accounts.snapshot.directory:snapshots}") String directory,
+                                           @Value("${accounts.snapshot.interval-seconds:300}") long intervalSeconds) throws IOException {
+        return new SnapshotService(transferJournal, accountsRepository, balanceSnapshots, Paths.get(directory), intervalSeconds);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "accounts.journal.enabled", havingValue = "false", matchIfMissing = true)
+    public TransferJournal disabledTransferJournal() {
+        return TransferJournal.DISABLED;
+    }
+}
@@ -0,0 +1,193 @@
+package com.dws.challenge.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * Standby side of {@link JournalShipper}: connects to the primary, applies the journal records it streams to the
+ * handler in journal order and acknowledges the position applied after every read. Records are decoded straight
+ * from the receive buffer; one that arrives in parts waits there for the rest. A lost connection is retried from
+ * the applied position. A record the handler cannot apply stops replication, the standby would diverge otherwise.
+ */
+@Slf4j
+public class JournalReceiver implements Closeable {
+
+    // Larger than any record: two account ids of at most 64 KiB each
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final InetSocketAddress primary;
+
+    private final JournalRecordHandler handler;
+
+    private final long retryMillis;
+
+    private final CRC32C checksum = new CRC32C();
+
+    private final LongAdder appliedRecords = new LongAdder();
+
+    private final Thread thread;
+
+    private volatile long appliedPosition;
+
+    private volatile SocketChannel channel;
+
+    private volatile boolean closed;
+
+    private JournalReceiver(InetSocketAddress primary, long startPosition, JournalRecordHandler handler,
+                            long retryMillis) {
+        this.primary = primary;
+        this.appliedPosition = startPosition;
+        this.handler = handler;
+        this.retryMillis = retryMillis;
+        this.thread = new Thread(this::run, "journal-receiver");
+        this.thread.setDaemon(true);
+    }
+
+    // Replicates from the primary's journal position on, 0 for an empty repository
+    public static JournalReceiver start(InetSocketAddress primary, long startPosition, JournalRecordHandler handler,
+                                        long retryMillis) {
+        final JournalReceiver receiver = new JournalReceiver(primary, startPosition, handler, retryMillis);
+        receiver.thread.start();
+        return receiver;
+    }
+
+    // Primary journal position everything before which has been applied
+    public long getAppliedPosition() {
+        return appliedPosition;
+    }
+
+    public long getAppliedRecords() {
+        return appliedRecords.sum();
+    }
+
+    public boolean isConnected() {
+        return channel != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        final SocketChannel connected = channel;
+        if (connected != null) {
+            connected.close();
+        }
+        thread.interrupt();
+    }
+
+    private void run() {
+        while (!closed) {
+            try (SocketChannel connection = SocketChannel.open(primary)) {
+                connection.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel = connection;
+                receive(connection);
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("Replication from {} interrupted at journal position {}: {}", primary, appliedPosition,
+                            e.toString());
+                }
+            } catch (RuntimeException e) {
+                log.error("Cannot apply the journal record at position {}, replication stopped", appliedPosition, e);
+                return;
+            } finally {
+                channel = null;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(retryMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void receive(SocketChannel connection) throws IOException {
+        final ByteBuffer handshake = ByteBuffer.allocate(Long.BYTES);
+        handshake.putLong(0, appliedPosition);
+        while (handshake.hasRemaining()) {
+            connection.write(handshake);
+        }
+        handshake.clear().limit(Integer.BYTES);
+        readFully(connection, handshake);
+        final int segmentSize = handshake.getInt(0);
+        if (segmentSize == JournalShipper.POSITION_UNAVAILABLE) {
+            throw new IOException("The primary no longer has the journal from position " + appliedPosition);
+        }
+        log.info("Replicating from {} at journal position {}", primary, appliedPosition);
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final ByteBuffer acknowledgement = ByteBuffer.allocate(Long.BYTES);
+        // Journal position of the first byte in the buffer
+        long bufferPosition = appliedPosition;
+        while (!closed) {
+            if (connection.read(buffer) < 0) {
+                throw new EOFException("The primary closed the connection");
+            }
+            buffer.flip();
+            final int offset = apply(buffer, bufferPosition, segmentSize);
+            buffer.position(offset);
+            buffer.compact();
+            if (offset == 0) {
+                continue;
+            }
+            bufferPosition += offset;
+            appliedPosition = bufferPosition;
+            acknowledgement.clear();
+            acknowledgement.putLong(0, bufferPosition);
+            while (acknowledgement.hasRemaining()) {
+                connection.write(acknowledgement);
+            }
+        }
+    }
+
+    // Applies the complete records in the buffer and returns the offset after the last one
+    private int apply(ByteBuffer buffer, long bufferPosition, int segmentSize) throws IOException {
+        int offset = 0;
+        while (offset < buffer.limit()) {
+            final long position = bufferPosition + offset;
+            final long segmentRemaining = segmentSize - position % segmentSize;
+            if (segmentRemaining < JournalRecords.HEADER_SIZE) {
+                offset += (int) Math.min(segmentRemaining, buffer.limit() - offset);
+                continue;
+            }
+            if (buffer.limit() - offset < JournalRecords.HEADER_SIZE) {
+                return offset;
+            }
+            final int length = buffer.getInt(offset);
+            if (length == 0) {
+                // The rest of the segment is zero, the next record starts the next segment
+                offset += (int) Math.min(segmentRemaining, buffer.limit() - offset);
+                continue;
+            }
+            if (length < 0 || length > buffer.capacity() - JournalRecords.HEADER_SIZE - JournalRecords.TRAILER_SIZE) {
+                throw new IOException("Invalid journal record length " + length + " at position " + position);
+            }
+            if (buffer.limit() - offset < JournalRecords.HEADER_SIZE + length + JournalRecords.TRAILER_SIZE) {
+                return offset;
+            }
+            final int next = JournalRecords.read(buffer, offset, checksum, handler);
+            if (next == JournalRecords.END_OF_DATA) {
+                throw new IOException("Corrupt journal record at position " + position);
+            }
+            appliedRecords.increment();
+            offset = next;
+        }
+        return offset;
+    }
+
+    private static void readFully(SocketChannel connection, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (connection.read(buffer) < 0) {
+                throw new EOFException("The primary closed the connection");
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.dws.challenge.journal;
+
+import java.math.BigDecimal;
+
+public interface JournalRecordHandler {
+
+    void onAccountCreated(String accountId, BigDecimal balance);
+
+    // timestampMillis is when the transfer was journaled, 0 for records written before transfers were timestamped
+    void onTransfer(String accountFrom, String accountTo, BigDecimal amount, long timestampMillis);
+}
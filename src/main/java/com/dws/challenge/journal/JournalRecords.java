@@ -0,0 +1,124 @@
+package com.dws.challenge.journal;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary record layout shared by the writer, recovery and readers:
+ * <pre>
+ * int   length of type + payload, 0 marks the end of the data in a segment
+ * byte  type
+ * short length + UTF-8 account id (the source account for transfers)
+ * short length + UTF-8 account id (transfers only, the destination account)
+ * int   amount scale, short length + amount unscaled value (two's complement)
+ * long  epoch millis the transfer was journaled at (transfers only)
+ * int   CRC32C of type + payload
+ * </pre>
+ */
+final class JournalRecords {
+
+    static final byte ACCOUNT_CREATED = 1;
+
+    static final byte TIMESTAMPED_TRANSFER = 3;
+
+    static final int HEADER_SIZE = Integer.BYTES;
+
+    static final int TRAILER_SIZE = Integer.BYTES;
+
+    static final int END_OF_DATA = -1;
+
+    // Account ids and unscaled amounts are written with an unsigned short length
+    static final int MAX_FIELD_LENGTH = 0xffff;
+
+    private JournalRecords() {
+    }
+
+    static byte[] encodeString(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static int recordSize(byte type, byte[] first, byte[] second, byte[] unscaled) {
+        return HEADER_SIZE + bodySize(type, first, second, unscaled) + TRAILER_SIZE;
+    }
+
+    // Writes one record at the buffer position and advances it past the record, the timestamp is kept by transfers only
+    static void write(ByteBuffer target, CRC32C checksum, byte type, byte[] first, byte[] second, int scale, byte[] unscaled,
+                      long timestampMillis) {
+        final int start = target.position();
+        target.putInt(bodySize(type, first, second, unscaled));
+        target.put(type);
+        target.putShort((short) first.length).put(first);
+        if (second != null) {
+            target.putShort((short) second.length).put(second);
+        }
+        target.putInt(scale);
+        target.putShort((short) unscaled.length).put(unscaled);
+        if (type == TIMESTAMPED_TRANSFER) {
+            target.putLong(timestampMillis);
+        }
+
+        final ByteBuffer body = target.duplicate();
+        body.position(start + HEADER_SIZE).limit(target.position());
+        checksum.reset();
+        checksum.update(body);
+        target.putInt((int) checksum.getValue());
+    }
+
+    /**
+     * Validates and decodes the record at {@code offset}, handing it to the handler when one is given.
+     * Returns the offset of the next record, or {@link #END_OF_DATA} at the end of the data or at a torn record.
+     */
+    static int read(ByteBuffer source, int offset, CRC32C checksum, JournalRecordHandler handler) {
+        if (offset + HEADER_SIZE > source.limit()) {
+            return END_OF_DATA;
+        }
+        final int length = source.getInt(offset);
+        final int bodyStart = offset + HEADER_SIZE;
+        if (length <= 0 || length > source.limit() - bodyStart - TRAILER_SIZE) {
+            return END_OF_DATA;
+        }
+
+        final ByteBuffer body = source.duplicate();
+        body.position(bodyStart).limit(bodyStart + length);
+        checksum.reset();
+        checksum.update(body);
+        if ((int) checksum.getValue() != source.getInt(bodyStart + length)) {
+            return END_OF_DATA;
+        }
+
+        if (handler != null) {
+            body.position(bodyStart);
+            final byte type = body.get();
+            final String first = readString(body);
+            if (type == TIMESTAMPED_TRANSFER) {
+                final String second = readString(body);
+                final BigDecimal amount = readDecimal(body);
+                handler.onTransfer(first, second, amount, body.getLong());
+            } else {
+                handler.onAccountCreated(first, readDecimal(body));
+            }
+        }
+        return bodyStart + length + TRAILER_SIZE;
+    }
+
+    private static int bodySize(byte type, byte[] first, byte[] second, byte[] unscaled) {
+        return 1 + Short.BYTES + first.length + (second == null ? 0 : Short.BYTES + second.length)
+                + Integer.BYTES + Short.BYTES + unscaled.length + (type == TIMESTAMPED_TRANSFER ? Long.BYTES : 0);
+    }
+
+    static String readString(ByteBuffer body) {
+        final byte[] bytes = new byte[body.getShort() & 0xffff];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static BigDecimal readDecimal(ByteBuffer body) {
+        final int scale = body.getInt();
+        final byte[] unscaled = new byte[body.getShort() & 0xffff];
+        body.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
@@ -0,0 +1,69 @@
+package com.dws.challenge.journal;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.ledger.TransferLedger;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AtomicBalanceRepository;
+import com.dws.challenge.util.MoneyUnits;
+
+import java.math.BigDecimal;
+
+/**
+ * Rebuilds repository state from journal records. Records were only written for changes that succeeded, so
+ * transfers are applied without checks. Balance changes are plain additions and give the same result in any
+ * order, which matters for the lock-free store where concurrent transfers are journaled in completion order.
+ * Transfers are also recorded in the ledger with the time they were journaled at.
+ */
+public class JournalReplayer implements JournalRecordHandler {
+
+    private final AccountsRepository accountsRepository;
+
+    private final AtomicBalanceRepository atomicBalanceRepository;
+
+    private final TransferLedger transferLedger;
+
+    public JournalReplayer(AccountsRepository accountsRepository) {
+        this(accountsRepository, TransferLedger.DISABLED);
+    }
+
+    public JournalReplayer(AccountsRepository accountsRepository, TransferLedger transferLedger) {
+        this.accountsRepository = accountsRepository;
+        this.transferLedger = transferLedger;
+        this.atomicBalanceRepository = accountsRepository instanceof AtomicBalanceRepository
+                ? (AtomicBalanceRepository) accountsRepository : null;
+    }
+
+    // A rejected duplicate create is journaled after the original one, so the first record wins
+    @Override
+    public void onAccountCreated(String accountId, BigDecimal balance) {
+        try {
+            accountsRepository.createAccount(new Account(accountId, balance));
+        } catch (DuplicateAccountIdException ignored) {
+            // duplicate create attempt
+        }
+    }
+
+    @Override
+    public void onTransfer(String accountFrom, String accountTo, BigDecimal amount, long timestampMillis) {
+        if (atomicBalanceRepository != null) {
+            final long minorUnits = MoneyUnits.toMinorUnits(amount);
+            atomicBalanceRepository.credit(accountFrom, -minorUnits);
+            atomicBalanceRepository.credit(accountTo, minorUnits);
+        } else {
+            final Account from = existingAccount(accountFrom);
+            from.setBalance(from.getBalance().subtract(amount));
+            final Account to = existingAccount(accountTo);
+            to.setBalance(to.getBalance().add(amount));
+        }
+        transferLedger.recordTransfer(accountFrom, accountTo, amount, timestampMillis);
+    }
+
+    private Account existingAccount(String accountId) {
+        final Account account = accountsRepository.getAccount(accountId);
+        if (account == null) {
+            throw new IllegalStateException("Journal transfer references unknown account " + accountId);
+        }
+        return account;
+    }
+}
@@ -0,0 +1,292 @@
+package com.dws.challenge.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+/**
+ * Streams the journal of a primary to standbys over TCP. A standby connects and sends the journal position it has
+ * applied up to; the shipper answers with the segment size and then sends the journal bytes from there on exactly
+ * as they are in the segment files, with {@link FileChannel#transferTo} so they go from the page cache to the socket
+ * without being copied through the heap. Each pass sends everything appended since the previous one, so batches
+ * grow with the load and an idle journal is polled every {@code pollNanos}. Only records already on disk are sent, a
+ * standby never gets one the primary could lose in a crash; when appends are not forced the shipper forces the
+ * journal itself before each pass. The standby acknowledges the position it has applied, which gives the replication
+ * lag in bytes and in time since the shipper first saw the data.
+ * <p>
+ * Replication is asynchronous: a transfer returns once it is journaled on the primary, a standby may be behind by
+ * the current lag. A standby must ask for a position the primary still has segments for.
+ */
+@Slf4j
+public class JournalShipper implements Closeable {
+
+    // Handshake answer for a position whose segments were deleted or that the journal has not reached
+    static final int POSITION_UNAVAILABLE = -1;
+
+    // Unacknowledged batches remembered per standby for the lag in time, further ones are not timed
+    private static final int MAX_PENDING_BATCHES = 1024;
+
+    private final MappedTransferJournal journal;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final long pollNanos;
+
+    private final LongConsumer lagListener;
+
+    private final Set<Standby> standbys = ConcurrentHashMap.newKeySet();
+
+    private final Thread acceptor;
+
+    private volatile boolean closed;
+
+    private JournalShipper(MappedTransferJournal journal, ServerSocketChannel serverChannel, long pollNanos,
+                           LongConsumer lagListener) {
+        this.journal = journal;
+        this.serverChannel = serverChannel;
+        this.pollNanos = pollNanos;
+        this.lagListener = lagListener;
+        this.acceptor = new Thread(this::accept, "journal-shipper");
+        this.acceptor.setDaemon(true);
+    }
+
+    /**
+     * Listens for standbys on the address. The listener gets the lag in nanoseconds of every batch a standby
+     * acknowledges, from the pass that shipped it to the acknowledgement.
+     */
+    public static JournalShipper start(MappedTransferJournal journal, InetSocketAddress address, long pollNanos,
+                                       LongConsumer lagListener) throws IOException {
+        final ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address);
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        }
+        final JournalShipper shipper = new JournalShipper(journal, serverChannel, pollNanos, lagListener);
+        shipper.acceptor.start();
+        log.info("Shipping journal to standbys on {}", serverChannel.getLocalAddress());
+        return shipper;
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getStandbyCount() {
+        return standbys.size();
+    }
+
+    // Journal bytes the furthest behind standby has not applied yet
+    public long getLagBytes() {
+        final long writePosition = journal.getWritePosition();
+        long lag = 0;
+        for (Standby standby : standbys) {
+            lag = Math.max(lag, writePosition - standby.acknowledgedPosition);
+        }
+        return lag;
+    }
+
+    // Age of the oldest shipped batch a standby has not acknowledged yet, 0 when all are caught up
+    public long getLagNanos() {
+        final long now = System.nanoTime();
+        long lag = 0;
+        for (Standby standby : standbys) {
+            lag = Math.max(lag, standby.oldestPendingAge(now));
+        }
+        return lag;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverChannel.close();
+        for (Standby standby : standbys) {
+            standby.channel.close();
+        }
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                final SocketChannel channel = serverChannel.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                final Standby standby = new Standby(channel);
+                final Thread shipping = new Thread(standby::ship, "journal-shipper-" + channel.getRemoteAddress());
+                shipping.setDaemon(true);
+                shipping.start();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("Cannot accept standby connection", e);
+            }
+        }
+    }
+
+    private final class Standby {
+
+        private final SocketChannel channel;
+
+        // Shipped positions and when the shipper saw them, oldest first, guarded by itself
+        private final ArrayDeque<long[]> pending = new ArrayDeque<>();
+
+        private volatile long acknowledgedPosition;
+
+        private Standby(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void ship() {
+            FileChannel segment = null;
+            try {
+                final long start = handshake();
+                if (start == POSITION_UNAVAILABLE) {
+                    return;
+                }
+                acknowledgedPosition = start;
+                standbys.add(this);
+                final Thread acknowledgements = new Thread(this::readAcknowledgements,
+                        Thread.currentThread().getName() + "-acks");
+                acknowledgements.setDaemon(true);
+                acknowledgements.start();
+                log.info("Standby {} connected at journal position {}", channel.getRemoteAddress(), start);
+
+                final int segmentSize = journal.getSegmentSize();
+                long segmentStart = -1;
+                long position = start;
+                while (!closed && channel.isOpen()) {
+                    if (!journal.isFsync()) {
+                        journal.force(journal.getWritePosition());
+                    }
+                    final long target = journal.getDurablePosition();
+                    if (target == position) {
+                        LockSupport.parkNanos(pollNanos);
+                        continue;
+                    }
+                    addPending(target, System.nanoTime());
+                    // The zero tail of a finished segment goes along, the standby skips it like recovery does
+                    while (position < target) {
+                        final long positionSegmentStart = position - position % segmentSize;
+                        if (positionSegmentStart != segmentStart) {
+                            if (segment != null) {
+                                segment.close();
+                            }
+                            segmentStart = positionSegmentStart;
+                            segment = FileChannel.open(MappedTransferJournal.segmentPath(journal.getDirectory(),
+                                    segmentStart), StandardOpenOption.READ);
+                        }
+                        final long end = Math.min(target, segmentStart + segmentSize);
+                        position += segment.transferTo(position - segmentStart, end - position, channel);
+                    }
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("Standby connection lost: {}", e.toString());
+                }
+            } finally {
+                standbys.remove(this);
+                closeQuietly(segment);
+                closeQuietly(channel);
+            }
+        }
+
+        // Reads the standby's position and answers with the segment size, or refuses a position the journal lacks
+        private long handshake() throws IOException {
+            final ByteBuffer request = ByteBuffer.allocate(Long.BYTES);
+            readFully(request);
+            final long start = request.getLong(0);
+            final List<Long> segmentStarts = MappedTransferJournal.listSegments(journal.getDirectory());
+            final boolean available = start >= 0 && start <= journal.getDurablePosition()
+                    && !segmentStarts.isEmpty() && start >= segmentStarts.get(0);
+            final ByteBuffer response = ByteBuffer.allocate(Integer.BYTES);
+            response.putInt(0, available ? journal.getSegmentSize() : POSITION_UNAVAILABLE);
+            while (response.hasRemaining()) {
+                channel.write(response);
+            }
+            if (!available) {
+                log.warn("Standby {} asked for journal position {} which is no longer or not yet available",
+                        channel.getRemoteAddress(), start);
+                return POSITION_UNAVAILABLE;
+            }
+            return start;
+        }
+
+        private void readAcknowledgements() {
+            final ByteBuffer acknowledgement = ByteBuffer.allocate(Long.BYTES);
+            try {
+                while (!closed) {
+                    acknowledgement.clear();
+                    readFully(acknowledgement);
+                    final long position = acknowledgement.getLong(0);
+                    acknowledgedPosition = position;
+                    acknowledged(position, System.nanoTime());
+                }
+            } catch (IOException e) {
+                // stops the shipping thread too, also when it is idle
+                closeQuietly(channel);
+            }
+        }
+
+        private void addPending(long position, long nanos) {
+            synchronized (pending) {
+                if (pending.size() < MAX_PENDING_BATCHES) {
+                    pending.addLast(new long[]{position, nanos});
+                }
+            }
+        }
+
+        private void acknowledged(long position, long now) {
+            long[] batch = null;
+            synchronized (pending) {
+                while (!pending.isEmpty() && pending.peekFirst()[0] <= position) {
+                    batch = pending.pollFirst();
+                }
+            }
+            if (batch != null) {
+                lagListener.accept(now - batch[1]);
+            }
+        }
+
+        private long oldestPendingAge(long now) {
+            synchronized (pending) {
+                final long[] oldest = pending.peekFirst();
+                return oldest == null ? 0 : now - oldest[1];
+            }
+        }
+
+        private void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Standby closed the connection");
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+}
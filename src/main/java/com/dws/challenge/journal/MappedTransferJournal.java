@@ -0,0 +1,318 @@
+package com.dws.challenge.journal;
+
+import com.dws.challenge.domain.AccountAmountTransfer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * {@link TransferJournal} written to fixed-size memory-mapped segment files named after their start position.
+ * Appends are serialized and only copy the record into the mapping. {@link #awaitDurable(long)} forces the
+ * active segment for everything appended so far, so threads that wait while a force is running are usually
+ * covered by it when they get their turn. A segment is forced before the journal rolls over to the next one,
+ * so only the tail of the last segment can hold a torn record after a crash.
+ */
+@Slf4j
+public class MappedTransferJournal implements TransferJournal, Closeable {
+
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final boolean fsync;
+
+    private final CRC32C checksum = new CRC32C();
+
+    // Not a monitor: a virtual thread blocked in force() under synchronized would pin its carrier thread
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // guarded by this
+    private MappedByteBuffer segment;
+
+    // guarded by this
+    private long segmentStart;
+
+    private volatile long writePosition;
+
+    private volatile long durablePosition;
+
+    private MappedTransferJournal(Path directory, int segmentSize, boolean fsync) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Opens the journal in {@code directory}, replaying every valid record at or after {@code replayFrom} into
+     * the handler. Anything after the last valid record of the last segment is discarded.
+     */
+    public static MappedTransferJournal open(Path directory, int segmentSize, boolean fsync, long replayFrom,
+                                             JournalRecordHandler handler) throws IOException {
+        Files.createDirectories(directory);
+        final MappedTransferJournal journal = new MappedTransferJournal(directory, segmentSize, fsync);
+        journal.recover(replayFrom, handler);
+        return journal;
+    }
+
+    @Override
+    public long appendAccountCreated(String accountId, BigDecimal balance) {
+        return append(JournalRecords.ACCOUNT_CREATED, JournalRecords.encodeString(accountId), null, balance, 0);
+    }
+
+    @Override
+    public long appendTransfer(String accountFrom, String accountTo, BigDecimal amount) {
+        return append(JournalRecords.TIMESTAMPED_TRANSFER, JournalRecords.encodeString(accountFrom),
+                JournalRecords.encodeString(accountTo), amount, System.currentTimeMillis());
+    }
+
+    /**
+     * Appends the transfers back to back under one lock hold. When they do not fit in the active segment the journal
+     * rolls over before writing any of them, so an append that fails leaves none of them behind. A group larger
+     * than a segment is refused.
+     */
+    @Override
+    public synchronized long appendTransfers(List<AccountAmountTransfer> transfers) {
+        if (transfers.isEmpty()) {
+            return 0;
+        }
+        final byte[][] accountIds = new byte[transfers.size() * 2][];
+        final byte[][] unscaled = new byte[transfers.size()][];
+        long groupSize = 0;
+        for (int i = 0; i < transfers.size(); i++) {
+            final AccountAmountTransfer transfer = transfers.get(i);
+            accountIds[2 * i] = JournalRecords.encodeString(transfer.getAccountFrom());
+            accountIds[2 * i + 1] = JournalRecords.encodeString(transfer.getAccountTo());
+            unscaled[i] = transfer.getTransferAmount().unscaledValue().toByteArray();
+            groupSize += recordSize(JournalRecords.TIMESTAMPED_TRANSFER, accountIds[2 * i], accountIds[2 * i + 1], unscaled[i]);
+        }
+        if (groupSize > segmentSize) {
+            throw new IllegalArgumentException("Journal records of " + groupSize + " bytes exceed the segment size");
+        }
+        if (segment.remaining() < groupSize) {
+            roll();
+        }
+
+        final long timestampMillis = System.currentTimeMillis();
+        for (int i = 0; i < transfers.size(); i++) {
+            JournalRecords.write(segment, checksum, JournalRecords.TIMESTAMPED_TRANSFER, accountIds[2 * i],
+                    accountIds[2 * i + 1], transfers.get(i).getTransferAmount().scale(), unscaled[i], timestampMillis);
+        }
+        writePosition = segmentStart + segment.position();
+        return writePosition;
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        if (fsync) {
+            force(position);
+        }
+    }
+
+    // Forces the journal to disk up to at least the position, also when appends are not forced
+    public void force(long position) {
+        if (durablePosition >= position) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            if (durablePosition >= position) {
+                return;
+            }
+            final MappedByteBuffer activeSegment;
+            final long flushedPosition;
+            synchronized (this) {
+                activeSegment = segment;
+                flushedPosition = writePosition;
+            }
+            activeSegment.force();
+            durablePosition = flushedPosition;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public long getWritePosition() {
+        return writePosition;
+    }
+
+    // Everything before it is on disk
+    public long getDurablePosition() {
+        return durablePosition;
+    }
+
+    // Whether awaitDurable forces appends to disk
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (segment != null) {
+            segment.force();
+            durablePosition = writePosition;
+        }
+    }
+
+    /**
+     * Hands the records in {@code [from, to)} to the handler without disturbing appends. Both positions must be
+     * record boundaries returned by this journal and {@code to} must not be past {@link #getWritePosition()}.
+     */
+    public void read(long from, long to, JournalRecordHandler handler) throws IOException {
+        final CRC32C readChecksum = new CRC32C();
+        for (long start : listSegments(directory)) {
+            if (start + segmentSize <= from || start >= to) {
+                continue;
+            }
+            final MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(segmentPath(directory, start), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+            }
+            int offset = 0;
+            while (start + offset < to) {
+                final int next = JournalRecords.read(buffer, offset, readChecksum, start + offset >= from ? handler : null);
+                if (next == JournalRecords.END_OF_DATA) {
+                    break;
+                }
+                offset = next;
+            }
+        }
+    }
+
+    // Removes the segments that lie entirely before the position, once a snapshot covers them
+    public void deleteSegmentsBefore(long position) throws IOException {
+        final long activeSegmentStart;
+        synchronized (this) {
+            activeSegmentStart = segmentStart;
+        }
+        for (long start : listSegments(directory)) {
+            if (start + segmentSize <= position && start < activeSegmentStart) {
+                Files.deleteIfExists(segmentPath(directory, start));
+            }
+        }
+    }
+
+    static Path segmentPath(Path directory, long segmentStart) {
+        return directory.resolve(String.format("%020d%s", segmentStart, SEGMENT_SUFFIX));
+    }
+
+    // Segment start positions in ascending order
+    static List<Long> listSegments(Path directory) throws IOException {
+        final List<Long> segmentStarts = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                final String name = file.getFileName().toString();
+                segmentStarts.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(segmentStarts);
+        return segmentStarts;
+    }
+
+    private synchronized long append(byte type, byte[] first, byte[] second, BigDecimal amount, long timestampMillis) {
+        final byte[] unscaled = amount.unscaledValue().toByteArray();
+        final int recordSize = recordSize(type, first, second, unscaled);
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Journal record of " + recordSize + " bytes exceeds the segment size");
+        }
+        if (segment.remaining() < recordSize) {
+            roll();
+        }
+
+        JournalRecords.write(segment, checksum, type, first, second, amount.scale(), unscaled, timestampMillis);
+        writePosition = segmentStart + segment.position();
+        return writePosition;
+    }
+
+    // Checks the field lengths, so a record that cannot be read back is refused before anything is written
+    private static int recordSize(byte type, byte[] first, byte[] second, byte[] unscaled) {
+        if (first.length > JournalRecords.MAX_FIELD_LENGTH
+                || (second != null && second.length > JournalRecords.MAX_FIELD_LENGTH)) {
+            throw new IllegalArgumentException("Account id too long for the journal");
+        }
+        if (unscaled.length > JournalRecords.MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("Amount too large for the journal");
+        }
+        return JournalRecords.recordSize(type, first, second, unscaled);
+    }
+
+    // The remaining bytes of a segment stay zero, which readers take as the end of its data
+    private void roll() {
+        segment.force();
+        try {
+            openSegment(segmentStart + segmentSize, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open next journal segment", e);
+        }
+    }
+
+    private void openSegment(long start, int offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(directory, start),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment.position(offset);
+        segmentStart = start;
+        writePosition = start + offset;
+        durablePosition = writePosition;
+    }
+
+    private synchronized void recover(long replayFrom, JournalRecordHandler handler) throws IOException {
+        final List<Long> segmentStarts = listSegments(directory);
+        if (segmentStarts.isEmpty()) {
+            // Positions continue after a snapshot even when the journal files are gone
+            openSegment(replayFrom - replayFrom % segmentSize, (int) (replayFrom % segmentSize));
+            return;
+        }
+
+        long records = 0;
+        for (int i = 0; i < segmentStarts.size(); i++) {
+            final long start = segmentStarts.get(i);
+            openSegment(start, 0);
+            int offset = 0;
+            int next;
+            while ((next = JournalRecords.read(segment, offset, checksum,
+                    start + offset >= replayFrom ? handler : null)) != JournalRecords.END_OF_DATA) {
+                offset = next;
+                records++;
+            }
+            segment.position(offset);
+            writePosition = start + offset;
+        }
+
+        // Zero the torn tail so a later recovery cannot pick up stale records behind new ones
+        final byte[] zeros = new byte[64 * 1024];
+        final ByteBuffer tail = segment.duplicate();
+        while (tail.hasRemaining()) {
+            tail.put(zeros, 0, Math.min(zeros.length, tail.remaining()));
+        }
+        segment.force();
+        durablePosition = writePosition;
+        log.info("Recovered {} journal records from {} segments, journal position {}", records, segmentStarts.size(),
+                writePosition);
+    }
+}
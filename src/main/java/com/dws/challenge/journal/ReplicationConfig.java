@@ -0,0 +1,73 @@
+package com.dws.challenge.journal;
+
+import com.dws.challenge.ledger.TransferLedger;
+import com.dws.challenge.repository.AccountsRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ReplicationConfig {
+
+    // Needs the journal: standbys are fed from its segment files. A standby starts from position 0 and snapshots
+    // delete the segments they cover, so a primary cannot take snapshots until they are shipped too
+    @Bean
+    @ConditionalOnProperty(name = "accounts.replication.role", havingValue = "primary")
+    public JournalShipper journalShipper(MappedTransferJournal transferJournal,
+                                         @Value("${accounts.snapshot.enabled:false}") boolean snapshots,
+                                         @Value("${accounts.replication.host:localhost}") String host,
+                                         @Value("${accounts.replication.port:7070}") int port,
+                                         @Value("${accounts.replication.poll-micros:200}") long pollMicros,
+                                         MeterRegistry meterRegistry) throws IOException {
+        if (snapshots) {
+            throw new IllegalStateException("A standby replays the primary's journal from its start, disable "
+                    + "accounts.snapshot on the primary");
+        }
+        final Timer lagTimer = Timer.builder("accounts.replication.batch.lag")
+                .description("From shipping a journal batch to its acknowledgement by the standby")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        final JournalShipper shipper = JournalShipper.start(transferJournal, new InetSocketAddress(host, port),
+                TimeUnit.MICROSECONDS.toNanos(pollMicros), nanos -> lagTimer.record(nanos, TimeUnit.NANOSECONDS));
+        Gauge.builder("accounts.replication.standbys", shipper, JournalShipper::getStandbyCount)
+                .register(meterRegistry);
+        Gauge.builder("accounts.replication.lag.bytes", shipper, JournalShipper::getLagBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        TimeGauge.builder("accounts.replication.lag", shipper, TimeUnit.NANOSECONDS, JournalShipper::getLagNanos)
+                .register(meterRegistry);
+        return shipper;
+    }
+
+    // Replicates into the store from the primary's first journal record, so the store must start empty
+    @Bean
+    @ConditionalOnProperty(name = "accounts.replication.role", havingValue = "standby")
+    public JournalReceiver journalReceiver(AccountsRepository accountsRepository, TransferLedger transferLedger,
+                                           @Value("${accounts.journal.enabled:false}") boolean journal,
+                                           @Value("${accounts.replication.host:localhost}") String host,
+                                           @Value("${accounts.replication.port:7070}") int port,
+                                           @Value("${accounts.replication.retry-millis:1000}") long retryMillis,
+                                           MeterRegistry meterRegistry) {
+        if (journal) {
+            throw new IllegalStateException("A standby is rebuilt from the primary's journal, disable accounts.journal on it");
+        }
+        final JournalReceiver receiver = JournalReceiver.start(new InetSocketAddress(host, port), 0,
+                new JournalReplayer(accountsRepository, transferLedger), retryMillis);
+        Gauge.builder("accounts.replication.applied.position", receiver, JournalReceiver::getAppliedPosition)
+                .register(meterRegistry);
+        Gauge.builder("accounts.replication.applied.records", receiver, JournalReceiver::getAppliedRecords)
+                .register(meterRegistry);
+        Gauge.builder("accounts.replication.connected", receiver, r -> r.isConnected() ? 1 : 0)
+                .register(meterRegistry);
+        return receiver;
+    }
+}
@@ -0,0 +1,97 @@
+package com.dws.challenge.journal;
+
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.BalanceSnapshots;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes snapshots of the live accounts in the background without blocking transfers. A {@link BalanceSnapshots}
+ * view is opened and the journal position read at its cut, when no balance change is running; every change is
+ * journaled inside its epoch, so the view holds exactly the records before that position. The journal is forced up
+ * to the position before the accounts are streamed from the store into the file, so a snapshot never covers records
+ * a crash could still lose. Besides the file buffer, a snapshot only costs the pre-images of the accounts changed
+ * while it is written. Journal segments and snapshots the new snapshot covers are deleted afterwards, which bounds
+ * both disk usage and the replay work at startup.
+ */
+@Slf4j
+public class SnapshotService implements DisposableBean {
+
+    private final MappedTransferJournal journal;
+
+    private final AccountsRepository accountsRepository;
+
+    private final BalanceSnapshots balanceSnapshots;
+
+    private final Path directory;
+
+    private final ScheduledExecutorService scheduler;
+
+    // guarded by this
+    private Path lastSnapshot;
+
+    // guarded by this
+    private long lastPosition;
+
+    public SnapshotService(MappedTransferJournal journal, AccountsRepository accountsRepository,
+                           BalanceSnapshots balanceSnapshots, Path directory, long intervalSeconds) throws IOException {
+        this.journal = journal;
+        this.accountsRepository = accountsRepository;
+        this.balanceSnapshots = balanceSnapshots;
+        this.directory = directory;
+        this.lastSnapshot = AccountsSnapshots.latest(directory);
+        this.lastPosition = lastSnapshot == null ? 0 : AccountsSnapshots.journalPosition(lastSnapshot);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "accounts-snapshot");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        if (intervalSeconds > 0) {
+            this.scheduler.scheduleWithFixedDelay(this::takeScheduledSnapshot, intervalSeconds, intervalSeconds,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    // Returns the new snapshot file, or the previous one when nothing was journaled since
+    public synchronized Path takeSnapshot() throws IOException {
+        final long startNanos = System.nanoTime();
+        final long position;
+        final Path snapshot;
+        try (BalanceSnapshots.Snapshot view = balanceSnapshots.open(journal::getWritePosition)) {
+            position = view.getCutPosition();
+            if (lastSnapshot != null && position == lastPosition) {
+                return lastSnapshot;
+            }
+            journal.force(position);
+            snapshot = AccountsSnapshots.write(directory, position, accountsRepository, view::balanceOf);
+        }
+
+        AccountsSnapshots.deleteBefore(snapshot);
+        journal.deleteSegmentsBefore(position);
+        lastSnapshot = snapshot;
+        lastPosition = position;
+        log.info("Wrote snapshot {} in {} ms", snapshot, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        return snapshot;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    private void takeScheduledSnapshot() {
+        try {
+            takeSnapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Snapshot failed, the journal is kept until the next attempt", e);
+        }
+    }
+}
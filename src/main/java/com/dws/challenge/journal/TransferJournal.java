@@ -0,0 +1,48 @@
+package com.dws.challenge.journal;
+
+import com.dws.challenge.domain.AccountAmountTransfer;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Append-only log of account creations and transfers. Appends return the journal position just past the record;
+ * a caller that needs the record on disk waits for that position with {@link #awaitDurable(long)}, which lets
+ * concurrent callers share one flush (group commit). Callers append before they change any balance, so a failed
+ * append leaves nothing in memory the journal does not have.
+ */
+public interface TransferJournal {
+
+    TransferJournal DISABLED = new TransferJournal() {
+
+        @Override
+        public long appendAccountCreated(String accountId, BigDecimal balance) {
+            return 0;
+        }
+
+        @Override
+        public long appendTransfer(String accountFrom, String accountTo, BigDecimal amount) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+        }
+    };
+
+    long appendAccountCreated(String accountId, BigDecimal balance);
+
+    long appendTransfer(String accountFrom, String accountTo, BigDecimal amount);
+
+    // Appends the transfers of one operation, all of them or none when the append fails; 0 for an empty list. One by
+    // one here, which only holds for journals whose appends cannot fail.
+    default long appendTransfers(List<AccountAmountTransfer> transfers) {
+        long position = 0;
+        for (AccountAmountTransfer transfer : transfers) {
+            position = appendTransfer(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getTransferAmount());
+        }
+        return position;
+    }
+
+    void awaitDurable(long position);
+}
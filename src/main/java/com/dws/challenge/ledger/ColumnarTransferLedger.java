@@ -0,0 +1,308 @@
+package com.dws.challenge.ledger;
+
+import com.dws.challenge.domain.AccountTransaction;
+import com.dws.challenge.domain.AccountTransactionsPage;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory ledger keeping the postings of each account in columns of primitive arrays rather than one object
+ * per posting: timestamp, unscaled amount, amount scale and a reference to the counterparty's postings (which
+ * also interns its account id), 21 bytes per posting. Columns are split into fixed chunks, so an account with
+ * millions of postings grows without copying them; the first chunk starts small, accounts that never transfer
+ * take no memory at all.
+ * <p>
+ * Appends to an account are serialized on its postings and take the timestamp there, so timestamps never go
+ * backwards within an account and a time range is found by binary search. Readers do not lock: the posting count
+ * is published after the columns are written, and a chunk that grows or a new chunk is published in a new chunk
+ * table only once it holds every posting before it, so a reader never sees a table or chunk being filled.
+ * <p>
+ * Each account keeps at least its newest {@code maxPostingsPerAccount} postings; when a new chunk is started the
+ * oldest one is dropped from the table, so memory per account is bounded. Cursors keep counting from the first
+ * posting, pages simply end where the retained postings do.
+ * <p>
+ * {@link #hold} locks the postings of the accounts in account id order, the lock-free stores take it around the
+ * balance change so postings follow balance order.
+ */
+public class ColumnarTransferLedger implements TransferLedger {
+
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final Map<String, Postings> accounts = new ConcurrentHashMap<>();
+
+    // Chunks in an account's table, the one being filled included
+    private final int maxChunks;
+
+    // Unbounded, for tests and benchmarks
+    public ColumnarTransferLedger() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public ColumnarTransferLedger(int maxPostingsPerAccount) {
+        if (maxPostingsPerAccount <= 0) {
+            throw new IllegalArgumentException("Ledger must keep at least one posting per account: "
+                    + maxPostingsPerAccount);
+        }
+        this.maxChunks = (int) (((long) maxPostingsPerAccount + CHUNK_MASK) / CHUNK_SIZE + 1);
+    }
+
+    @Override
+    public void recordTransfer(String accountFrom, String accountTo, BigDecimal amount) {
+        recordTransfer(accountFrom, accountTo, amount, System.currentTimeMillis());
+    }
+
+    @Override
+    public void recordTransfer(String accountFrom, String accountTo, BigDecimal amount, long timestampMillis) {
+        final Postings debited = postingsOf(accountFrom);
+        final Postings credited = postingsOf(accountTo);
+        debited.append(amount.negate(), credited, timestampMillis);
+        credited.append(amount, debited, timestampMillis);
+    }
+
+    @Override
+    public Hold hold(String accountFrom, String accountTo) {
+        final int order = accountFrom.compareTo(accountTo);
+        if (order == 0) {
+            return hold(postingsOf(accountFrom));
+        }
+        final Postings first = postingsOf(order < 0 ? accountFrom : accountTo);
+        final Postings second = postingsOf(order < 0 ? accountTo : accountFrom);
+        first.lock.lock();
+        second.lock.lock();
+        return () -> {
+            second.lock.unlock();
+            first.lock.unlock();
+        };
+    }
+
+    @Override
+    public Hold hold(Collection<String> accountIds) {
+        final String[] sorted = accountIds.stream().distinct().sorted().toArray(String[]::new);
+        if (sorted.length == 1) {
+            return hold(postingsOf(sorted[0]));
+        }
+        final Postings[] held = new Postings[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            held[i] = postingsOf(sorted[i]);
+            held[i].lock.lock();
+        }
+        return () -> {
+            for (int i = held.length - 1; i >= 0; i--) {
+                held[i].lock.unlock();
+            }
+        };
+    }
+
+    private static Hold hold(Postings postings) {
+        postings.lock.lock();
+        return postings.lock::unlock;
+    }
+
+    @Override
+    public AccountTransactionsPage transactions(String accountId, Long cursor, int limit, long fromMillis, long toMillis) {
+        final Postings postings = accounts.get(accountId);
+        if (postings == null) {
+            return new AccountTransactionsPage(accountId, Collections.emptyList(), null);
+        }
+        // size first, the table read after it holds every posting below that size it has not dropped
+        final int size = postings.size;
+        final Table table = postings.table;
+        final int retained = table.firstChunk << CHUNK_SHIFT;
+
+        final int first = firstAtOrAfter(table, retained, size, fromMillis);
+        final int end = Math.min(firstAtOrAfter(table, retained, size, toMillis),
+                cursor == null ? size : (int) Math.min(cursor, size));
+        final int start = Math.max(first, end - limit);
+
+        final List<AccountTransaction> transactions = new ArrayList<>(Math.max(0, end - start));
+        for (int index = end - 1; index >= start; index--) {
+            final Chunk chunk = table.chunk(index);
+            final int offset = index & CHUNK_MASK;
+            transactions.add(new AccountTransaction(index, Instant.ofEpochMilli(chunk.timestamps[offset]),
+                    postings.amount(chunk, offset), chunk.counterparties[offset].accountId));
+        }
+        return new AccountTransactionsPage(accountId, transactions, start > first ? Long.valueOf(start) : null);
+    }
+
+    // Postings recorded for the account, dropped ones included, for tests and benchmarks
+    public int size(String accountId) {
+        final Postings postings = accounts.get(accountId);
+        return postings == null ? 0 : postings.size;
+    }
+
+    private Postings postingsOf(String accountId) {
+        final Postings postings = accounts.get(accountId);
+        return postings != null ? postings : accounts.computeIfAbsent(accountId,
+                id -> new Postings(id, maxChunks));
+    }
+
+    // Index of the first retained posting at or after millis, size if there is none
+    private static int firstAtOrAfter(Table table, int retained, int size, long millis) {
+        int low = retained;
+        int high = Math.max(retained, size);
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (table.chunk(middle).timestamps[middle & CHUNK_MASK] < millis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static final class Chunk {
+
+        final long[] timestamps;
+
+        final long[] unscaledAmounts;
+
+        final byte[] scales;
+
+        final Postings[] counterparties;
+
+        // Amounts that do not fit an unscaled long and a byte scale, by offset, guarded by the postings' lock
+        Map<Integer, BigDecimal> largeAmounts;
+
+        Chunk(int capacity) {
+            this.timestamps = new long[capacity];
+            this.unscaledAmounts = new long[capacity];
+            this.scales = new byte[capacity];
+            this.counterparties = new Postings[capacity];
+        }
+
+        Chunk grow(int capacity, int length) {
+            final Chunk grown = new Chunk(capacity);
+            System.arraycopy(timestamps, 0, grown.timestamps, 0, length);
+            System.arraycopy(unscaledAmounts, 0, grown.unscaledAmounts, 0, length);
+            System.arraycopy(scales, 0, grown.scales, 0, length);
+            System.arraycopy(counterparties, 0, grown.counterparties, 0, length);
+            grown.largeAmounts = largeAmounts;
+            return grown;
+        }
+    }
+
+    // The retained chunks of an account, chunks[i] holds the postings from (firstChunk + i) << CHUNK_SHIFT on
+    private static final class Table {
+
+        final Chunk[] chunks;
+
+        final int firstChunk;
+
+        Table(Chunk[] chunks, int firstChunk) {
+            this.chunks = chunks;
+            this.firstChunk = firstChunk;
+        }
+
+        Chunk chunk(int index) {
+            return chunks[(index >>> CHUNK_SHIFT) - firstChunk];
+        }
+
+        // A table with the chunk added at the end, without the oldest chunks beyond maxChunks
+        Table append(Chunk chunk, int maxChunks) {
+            final int dropped = Math.max(0, chunks.length + 1 - maxChunks);
+            final Chunk[] appended = Arrays.copyOfRange(chunks, dropped, chunks.length + 1);
+            appended[appended.length - 1] = chunk;
+            return new Table(appended, firstChunk + dropped);
+        }
+
+        Table replace(int slot, Chunk chunk) {
+            final Chunk[] replaced = chunks.clone();
+            replaced[slot] = chunk;
+            return new Table(replaced, firstChunk);
+        }
+    }
+
+    private static final class Postings {
+
+        final String accountId;
+
+        final ReentrantLock lock = new ReentrantLock();
+
+        final int maxChunks;
+
+        // Replaced under the lock, never changed once published, see append
+        volatile Table table = new Table(new Chunk[]{new Chunk(INITIAL_CAPACITY)}, 0);
+
+        volatile int size;
+
+        long lastTimestamp;
+
+        Postings(String accountId, int maxChunks) {
+            this.accountId = accountId;
+            this.maxChunks = maxChunks;
+        }
+
+        void append(BigDecimal amount, Postings counterparty, long timestampMillis) {
+            lock.lock();
+            try {
+                appendLocked(amount, counterparty, timestampMillis);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // The posting is written after a new chunk table is published, readers only look at it once size says so
+        private void appendLocked(BigDecimal amount, Postings counterparty, long timestampMillis) {
+            final int index = size;
+            final int chunkIndex = index >>> CHUNK_SHIFT;
+            final int offset = index & CHUNK_MASK;
+            Table current = table;
+            final int slot = chunkIndex - current.firstChunk;
+            if (slot == current.chunks.length) {
+                current = current.append(new Chunk(CHUNK_SIZE), maxChunks);
+                table = current;
+            } else if (offset == current.chunks[slot].timestamps.length) {
+                // only the first chunk grows, by doubling up to the chunk size, into a copy filled before it is
+                // published
+                final Chunk grown = current.chunks[slot].grow(Math.min(CHUNK_SIZE, offset * 2), offset);
+                current = current.replace(slot, grown);
+                table = current;
+            }
+
+            final Chunk chunk = current.chunk(index);
+            lastTimestamp = Math.max(lastTimestamp, timestampMillis);
+            chunk.timestamps[offset] = lastTimestamp;
+            chunk.counterparties[offset] = counterparty;
+            final BigInteger unscaled = amount.unscaledValue();
+            if (unscaled.bitLength() < Long.SIZE && amount.scale() >= 0 && amount.scale() <= Byte.MAX_VALUE) {
+                chunk.unscaledAmounts[offset] = unscaled.longValue();
+                chunk.scales[offset] = (byte) amount.scale();
+            } else {
+                if (chunk.largeAmounts == null) {
+                    chunk.largeAmounts = new HashMap<>();
+                }
+                chunk.largeAmounts.put(offset, amount);
+                chunk.scales[offset] = -1;
+            }
+            size = index + 1;
+        }
+
+        BigDecimal amount(Chunk chunk, int offset) {
+            final byte scale = chunk.scales[offset];
+            if (scale >= 0) {
+                return BigDecimal.valueOf(chunk.unscaledAmounts[offset], scale);
+            }
+            lock.lock();
+            try {
+                return chunk.largeAmounts.get(offset);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.dws.challenge.ledger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class LedgerConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "accounts.ledger.enabled", havingValue = "true")
+    public ColumnarTransferLedger transferLedger(
+            @Value("${accounts.ledger.max-postings-per-account:65536}") int maxPostingsPerAccount) {
+        return new ColumnarTransferLedger(maxPostingsPerAccount);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "accounts.ledger.enabled", havingValue = "false", matchIfMissing = true)
+    public TransferLedger disabledTransferLedger() {
+        return TransferLedger.DISABLED;
+    }
+}
@@ -0,0 +1,63 @@
+package com.dws.challenge.ledger;
+
+import com.dws.challenge.domain.AccountTransactionsPage;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Immutable history of the postings of every account. A transfer is recorded as a debit on the source and a
+ * credit on the destination account, in the order the balances changed.
+ */
+public interface TransferLedger {
+
+    TransferLedger DISABLED = new TransferLedger() {
+
+        @Override
+        public void recordTransfer(String accountFrom, String accountTo, BigDecimal amount) {
+        }
+
+        @Override
+        public void recordTransfer(String accountFrom, String accountTo, BigDecimal amount, long timestampMillis) {
+        }
+
+        @Override
+        public AccountTransactionsPage transactions(String accountId, Long cursor, int limit, long fromMillis, long toMillis) {
+            return new AccountTransactionsPage(accountId, Collections.emptyList(), null);
+        }
+    };
+
+    void recordTransfer(String accountFrom, String accountTo, BigDecimal amount);
+
+    // A transfer that happened at timestampMillis, for rebuilding the ledger from the journal
+    void recordTransfer(String accountFrom, String accountTo, BigDecimal amount, long timestampMillis);
+
+    /**
+     * Up to {@code limit} postings of the account with a timestamp in {@code [fromMillis, toMillis)}, newest
+     * first. A null cursor starts from the newest posting, the next page passes the returned {@code nextCursor}.
+     */
+    AccountTransactionsPage transactions(String accountId, Long cursor, int limit, long fromMillis, long toMillis);
+
+    /**
+     * Holds the accounts' place in the ledger until closed: transfers on other threads involving them wait to be
+     * recorded. A store that changes balances without account locks takes the hold before the change and records
+     * it before closing, so postings keep the order of the balance changes.
+     */
+    default Hold hold(String accountFrom, String accountTo) {
+        return Hold.NONE;
+    }
+
+    default Hold hold(Collection<String> accountIds) {
+        return Hold.NONE;
+    }
+
+    interface Hold extends AutoCloseable {
+
+        Hold NONE = () -> {
+        };
+
+        @Override
+        void close();
+    }
+}
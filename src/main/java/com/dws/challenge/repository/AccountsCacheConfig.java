@@ -0,0 +1,36 @@
+package com.dws.challenge.repository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+// Only the persistent store pays a query per lookup, the in-memory stores are not wrapped
+@Configuration
+@ConditionalOnProperty(name = "accounts.repository", havingValue = "jpa")
+public class AccountsCacheConfig {
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "accounts.cache.enabled", havingValue = "true", matchIfMissing = true)
+    public CachingAccountsRepository cachingAccountsRepository(AccountsRepositoryJpa accountsRepositoryJpa,
+                                                               @Value("${accounts.cache.max-size:100000}") int maxSize,
+                                                               MeterRegistry meterRegistry) {
+        final CachingAccountsRepository cache = new CachingAccountsRepository(accountsRepositoryJpa, maxSize);
+        FunctionCounter.builder("accounts.cache.hits", cache, CachingAccountsRepository::getHitCount)
+                .register(meterRegistry);
+        FunctionCounter.builder("accounts.cache.misses", cache, CachingAccountsRepository::getMissCount)
+                .register(meterRegistry);
+        FunctionCounter.builder("accounts.cache.evictions", cache, CachingAccountsRepository::getEvictionCount)
+                .register(meterRegistry);
+        Gauge.builder("accounts.cache.hit.rate", cache, CachingAccountsRepository::getHitRate)
+                .register(meterRegistry);
+        Gauge.builder("accounts.cache.size", cache, CachingAccountsRepository::getSize)
+                .register(meterRegistry);
+        return cache;
+    }
+}
@@ -3,13 +3,32 @@ package com.dws.challenge.repository;
 import com.dws.challenge.domain.Account;
 import com.dws.challenge.exception.DuplicateAccountIdException;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
 
 public interface AccountsRepository {
 
   void createAccount(Account account) throws DuplicateAccountIdException;
 
+  // Bulk insert, returns the positions of the accounts whose id already existed instead of throwing
+  BitSet createAccounts(List<Account> accounts);
+
   Account getAccount(String accountId);
 
+  // Weakly consistent scan, accounts created or changed during the scan may or may not be seen
+  void forEachAccount(Consumer<Account> action);
+
+  // Weakly consistent like forEachAccount, as a parallel stream split along the store's own partitions
+  default Stream<Account> streamAccounts() {
+    final List<Account> accounts = new ArrayList<>();
+    forEachAccount(accounts::add);
+    return accounts.parallelStream();
+  }
+
   void clearAccounts();
 
 
@@ -0,0 +1,126 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.AmountTransactionException;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.util.MoneyUnits;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static com.dws.challenge.util.Constants.ACCOUNT_NOT_EXISTS;
+
+@Repository
+@ConditionalOnProperty(name = "accounts.repository", havingValue = "atomic")
+public class AccountsRepositoryAtomicBalance implements AtomicBalanceRepository {
+
+    private final Map<String, Balance> balances = new ConcurrentHashMap<>();
+
+    @Override
+    public void createAccount(Account account) throws DuplicateAccountIdException {
+        Balance previousBalance = balances.putIfAbsent(account.getAccountId(),
+                new Balance(MoneyUnits.toMinorUnits(account.getBalance())));
+        if (previousBalance != null) {
+            throw new DuplicateAccountIdException(
+                    "Account id " + account.getAccountId() + " already exists!");
+        }
+    }
+
+    @Override
+    public BitSet createAccounts(List<Account> accounts) {
+        BitSet duplicates = new BitSet();
+        for (int i = 0; i < accounts.size(); i++) {
+            Account account = accounts.get(i);
+            if (balances.putIfAbsent(account.getAccountId(), new Balance(MoneyUnits.toMinorUnits(account.getBalance()))) != null) {
+                duplicates.set(i);
+            }
+        }
+        return duplicates;
+    }
+
+    // Detached copy - balance changes go through tryDebit/credit, not Account.setBalance
+    @Override
+    public Account getAccount(String accountId) {
+        Balance balance = balances.get(accountId);
+        return balance == null ? null : new Account(accountId, MoneyUnits.toBigDecimal(balance.value));
+    }
+
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        balances.forEach((accountId, balance) -> action.accept(new Account(accountId, MoneyUnits.toBigDecimal(balance.value))));
+    }
+
+    @Override
+    public Stream<Account> streamAccounts() {
+        return balances.entrySet().parallelStream()
+                .map(entry -> new Account(entry.getKey(), MoneyUnits.toBigDecimal(entry.getValue().value)));
+    }
+
+    @Override
+    public void clearAccounts() {
+        balances.clear();
+    }
+
+    @Override
+    public boolean containsAccount(String accountId) {
+        return balances.containsKey(accountId);
+    }
+
+    @Override
+    public long getBalance(String accountId) throws AmountTransactionException {
+        return balanceOf(accountId).value;
+    }
+
+    @Override
+    public boolean tryDebit(String accountId, long amount) throws AmountTransactionException {
+        return balanceOf(accountId).tryDebit(amount);
+    }
+
+    @Override
+    public void credit(String accountId, long amount) throws AmountTransactionException {
+        balanceOf(accountId).credit(amount);
+    }
+
+    private Balance balanceOf(String accountId) {
+        Balance balance = balances.get(accountId);
+        if (balance == null) {
+            throw new AmountTransactionException(ACCOUNT_NOT_EXISTS);
+        }
+        return balance;
+    }
+
+    static final class Balance {
+
+        private static final AtomicLongFieldUpdater<Balance> VALUE =
+                AtomicLongFieldUpdater.newUpdater(Balance.class, "value");
+
+        private volatile long value;
+
+        Balance(long value) {
+            this.value = value;
+        }
+
+        boolean tryDebit(long amount) {
+            long current;
+            do {
+                current = value;
+                if (current < amount) {
+                    return false;
+                }
+            } while (!VALUE.compareAndSet(this, current, current - amount));
+            return true;
+        }
+
+        void credit(long amount) {
+            VALUE.getAndAdd(this, amount);
+        }
+    }
+
+}
@@ -2,12 +2,18 @@ package com.dws.challenge.repository;
 
 import com.dws.challenge.domain.Account;
 import com.dws.challenge.exception.DuplicateAccountIdException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
+@ConditionalOnProperty(name = "accounts.repository", havingValue = "in-memory", matchIfMissing = true)
 public class AccountsRepositoryInMemory implements AccountsRepository {
 
     private final Map<String, Account> accounts = new ConcurrentHashMap<>();
@@ -21,11 +27,33 @@ public class AccountsRepositoryInMemory implements AccountsRepository {
         }
     }
 
+    @Override
+    public BitSet createAccounts(List<Account> newAccounts) {
+        BitSet duplicates = new BitSet();
+        for (int i = 0; i < newAccounts.size(); i++) {
+            Account account = newAccounts.get(i);
+            if (accounts.putIfAbsent(account.getAccountId(), account) != null) {
+                duplicates.set(i);
+            }
+        }
+        return duplicates;
+    }
+
     @Override
     public Account getAccount(String accountId) {
         return accounts.get(accountId);
     }
 
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        accounts.values().forEach(action);
+    }
+
+    @Override
+    public Stream<Account> streamAccounts() {
+        return accounts.values().parallelStream();
+    }
+
     @Override
     public void clearAccounts() {
         accounts.clear();
@@ -0,0 +1,177 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.AmountTransactionException;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.util.MoneyUnits;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static com.dws.challenge.util.Constants.ACCOUNT_NOT_EXISTS;
+
+/**
+ * Accounts in the {@code account} table mapped by {@link com.dws.challenge.domain.AccountEntity}. The hot paths
+ * use plain JDBC: account creation is a JDBC batch insert and balance changes are single conditional updates,
+ * so the database checks and applies a debit in one round trip with no read-modify-write.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.repository", havingValue = "jpa")
+public class AccountsRepositoryJpa implements AtomicBalanceRepository {
+
+    private static final String INSERT = "INSERT INTO account (account_id, balance, version) VALUES (?, ?, 0)";
+
+    private static final String SELECT_BALANCE = "SELECT balance FROM account WHERE account_id = ?";
+
+    private static final String SELECT_ALL = "SELECT account_id, balance FROM account";
+
+    private static final String DEBIT = "UPDATE account SET balance = balance - ?, version = version + 1 "
+            + "WHERE account_id = ? AND balance >= ?";
+
+    private static final String CREDIT = "UPDATE account SET balance = balance + ?, version = version + 1 "
+            + "WHERE account_id = ?";
+
+    private static final int EXPORT_FETCH_SIZE = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public AccountsRepositoryJpa(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void createAccount(Account account) throws DuplicateAccountIdException {
+        try {
+            jdbcTemplate.update(INSERT, account.getAccountId(), toDatabaseBalance(account.getBalance()));
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateAccountIdException(
+                    "Account id " + account.getAccountId() + " already exists!");
+        }
+    }
+
+    // Existing ids are looked up first so a duplicate does not fail the whole JDBC batch
+    @Override
+    public BitSet createAccounts(List<Account> accounts) {
+        final BitSet duplicates = new BitSet();
+        if (accounts.isEmpty()) {
+            return duplicates;
+        }
+        final List<String> accountIds = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            accountIds.add(account.getAccountId());
+        }
+        final Set<String> existing = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT account_id FROM account WHERE account_id IN ("
+                        + String.join(",", Collections.nCopies(accountIds.size(), "?")) + ")",
+                String.class, accountIds.toArray()));
+
+        final List<Object[]> rows = new ArrayList<>(accounts.size());
+        final Set<String> inserted = new HashSet<>();
+        for (int i = 0; i < accounts.size(); i++) {
+            final Account account = accounts.get(i);
+            if (existing.contains(account.getAccountId()) || !inserted.add(account.getAccountId())) {
+                duplicates.set(i);
+            } else {
+                rows.add(new Object[]{account.getAccountId(), toDatabaseBalance(account.getBalance())});
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT, rows));
+        return duplicates;
+    }
+
+    // Detached copy - balance changes go through tryDebit/credit, not Account.setBalance
+    @Override
+    public Account getAccount(String accountId) {
+        final List<BigDecimal> balance = jdbcTemplate.queryForList(SELECT_BALANCE, BigDecimal.class, accountId);
+        return balance.isEmpty() ? null : new Account(accountId, balance.get(0));
+    }
+
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        jdbcTemplate.query(connection -> {
+            final PreparedStatement statement = connection.prepareStatement(SELECT_ALL);
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> action.accept(new Account(resultSet.getString(1), resultSet.getBigDecimal(2))));
+    }
+
+    @Override
+    public void clearAccounts() {
+        jdbcTemplate.update("DELETE FROM account");
+    }
+
+    @Override
+    public boolean containsAccount(String accountId) {
+        return !jdbcTemplate.queryForList(SELECT_BALANCE, BigDecimal.class, accountId).isEmpty();
+    }
+
+    @Override
+    public long getBalance(String accountId) throws AmountTransactionException {
+        final List<BigDecimal> balance = jdbcTemplate.queryForList(SELECT_BALANCE, BigDecimal.class, accountId);
+        if (balance.isEmpty()) {
+            throw new AmountTransactionException(ACCOUNT_NOT_EXISTS);
+        }
+        return MoneyUnits.toMinorUnits(balance.get(0));
+    }
+
+    @Override
+    public boolean tryDebit(String accountId, long amount) throws AmountTransactionException {
+        final BigDecimal debit = MoneyUnits.toBigDecimal(amount);
+        if (jdbcTemplate.update(DEBIT, debit, accountId, debit) == 1) {
+            return true;
+        }
+        if (!containsAccount(accountId)) {
+            throw new AmountTransactionException(ACCOUNT_NOT_EXISTS);
+        }
+        return false;
+    }
+
+    @Override
+    public void credit(String accountId, long amount) throws AmountTransactionException {
+        if (jdbcTemplate.update(CREDIT, MoneyUnits.toBigDecimal(amount), accountId) != 1) {
+            throw new AmountTransactionException(ACCOUNT_NOT_EXISTS);
+        }
+    }
+
+    // Both updates in one transaction, rows are updated in account id order so opposite transfers cannot deadlock
+    @Override
+    public boolean transfer(String accountFrom, String accountTo, long amount) throws AmountTransactionException {
+        final Boolean transferred = transactionTemplate.execute(status -> {
+            final boolean debitFirst = accountFrom.compareTo(accountTo) < 0;
+            if (!debitFirst) {
+                credit(accountTo, amount);
+            }
+            if (!tryDebit(accountFrom, amount)) {
+                status.setRollbackOnly();
+                return false;
+            }
+            if (debitFirst) {
+                credit(accountTo, amount);
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(transferred);
+    }
+
+    private static BigDecimal toDatabaseBalance(BigDecimal balance) {
+        return MoneyUnits.toBigDecimal(MoneyUnits.toMinorUnits(balance));
+    }
+}
@@ -0,0 +1,402 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.AmountTransactionException;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.util.MoneyUnits;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.dws.challenge.util.Constants.ACCOUNT_NOT_EXISTS;
+
+/**
+ * Accounts kept outside the Java heap, so tens of millions of them add nothing for the garbage collector to trace.
+ * Accounts are split into stripes by id hash. Each stripe numbers its accounts in creation order and keeps, in
+ * direct buffers:
+ * <ul>
+ * <li>an open-addressing index of 16-byte slots (64-bit id hash, account number), linear probing, at most 3/4 full</li>
+ * <li>the balances in minor units and the position of each id, 8 bytes each per account, in fixed chunks</li>
+ * <li>the ids themselves in an append-only arena, a 2-byte length then ASCII bytes (UTF-8 for other ids)</li>
+ * </ul>
+ * Balances never move, so debits and credits are a compare-and-swap on the balance without any lock. Reads do
+ * not lock either: an index slot is published after the account it points to is written, and a grown index is
+ * published after it is filled. Only creations take their stripe's lock.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.repository", havingValue = "off-heap")
+public class AccountsRepositoryOffHeap implements AtomicBalanceRepository {
+
+    private static final int STRIPES = 64;
+
+    // Aligned long access on direct buffers, including compare-and-set
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final int SLOT_SIZE = 2 * Long.BYTES;
+
+    // 1GB of index per stripe, a single direct buffer cannot exceed 2GB
+    private static final int MAX_SLOTS = 1 << 26;
+
+    // Accounts per chunk of the balance and id position columns
+    private static final int COLUMN_CHUNK_SHIFT = 13;
+
+    private static final int ARENA_CHUNK_SHIFT = 18;
+
+    private static final int MAX_ID_BYTES = 0x7fff;
+
+    // Length flag of ids stored as UTF-8 rather than one byte per char
+    private static final int UTF8_FLAG = 0x8000;
+
+    private final int initialSlots;
+
+    private volatile Stripe[] stripes;
+
+    // expectedAccounts sizes the indexes up front, so loading that many accounts never grows them
+    @Autowired
+    public AccountsRepositoryOffHeap(@Value("${accounts.off-heap.expected-accounts:1048576}") int expectedAccounts) {
+        final long slots = Math.max(16, (long) expectedAccounts * 4 / 3 / STRIPES + 1);
+        this.initialSlots = (int) Math.min(MAX_SLOTS, Long.highestOneBit(slots - 1) << 1);
+        this.stripes = newStripes();
+    }
+
+    @Override
+    public void createAccount(Account account) throws DuplicateAccountIdException {
+        if (!insert(account.getAccountId(), MoneyUnits.toMinorUnits(account.getBalance()))) {
+            throw new DuplicateAccountIdException(
+                    "Account id " + account.getAccountId() + " already exists!");
+        }
+    }
+
+    @Override
+    public BitSet createAccounts(List<Account> accounts) {
+        BitSet duplicates = new BitSet();
+        for (int i = 0; i < accounts.size(); i++) {
+            Account account = accounts.get(i);
+            if (!insert(account.getAccountId(), MoneyUnits.toMinorUnits(account.getBalance()))) {
+                duplicates.set(i);
+            }
+        }
+        return duplicates;
+    }
+
+    // Detached copy - balance changes go through tryDebit/credit, not Account.setBalance
+    @Override
+    public Account getAccount(String accountId) {
+        final long hash = hash(accountId);
+        final Stripe stripe = stripeOf(hash);
+        final int number = stripe.find(accountId, hash);
+        return number < 0 ? null : new Account(accountId, MoneyUnits.toBigDecimal(stripe.balance(number)));
+    }
+
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        for (Stripe stripe : stripes) {
+            final int count = stripe.count;
+            for (int number = 0; number < count; number++) {
+                action.accept(new Account(stripe.accountId(number), MoneyUnits.toBigDecimal(stripe.balance(number))));
+            }
+        }
+    }
+
+    // Split by stripe, each stripe's accounts are read by one thread
+    @Override
+    public Stream<Account> streamAccounts() {
+        return Arrays.stream(stripes).parallel().flatMap(stripe -> IntStream.range(0, stripe.count)
+                .mapToObj(number -> new Account(stripe.accountId(number), MoneyUnits.toBigDecimal(stripe.balance(number)))));
+    }
+
+    @Override
+    public void clearAccounts() {
+        stripes = newStripes();
+    }
+
+    @Override
+    public boolean containsAccount(String accountId) {
+        final long hash = hash(accountId);
+        return stripeOf(hash).find(accountId, hash) >= 0;
+    }
+
+    @Override
+    public long getBalance(String accountId) throws AmountTransactionException {
+        final long hash = hash(accountId);
+        final Stripe stripe = stripeOf(hash);
+        return stripe.balance(numberOf(stripe, accountId, hash));
+    }
+
+    @Override
+    public boolean tryDebit(String accountId, long amount) throws AmountTransactionException {
+        final long hash = hash(accountId);
+        final Stripe stripe = stripeOf(hash);
+        final int number = numberOf(stripe, accountId, hash);
+        final ByteBuffer chunk = stripe.balances[number >>> COLUMN_CHUNK_SHIFT];
+        final int offset = columnOffset(number);
+        long current;
+        do {
+            current = (long) LONGS.getVolatile(chunk, offset);
+            if (current < amount) {
+                return false;
+            }
+        } while (!LONGS.compareAndSet(chunk, offset, current, current - amount));
+        return true;
+    }
+
+    @Override
+    public void credit(String accountId, long amount) throws AmountTransactionException {
+        final long hash = hash(accountId);
+        final Stripe stripe = stripeOf(hash);
+        final int number = numberOf(stripe, accountId, hash);
+        LONGS.getAndAdd(stripe.balances[number >>> COLUMN_CHUNK_SHIFT], columnOffset(number), amount);
+    }
+
+    public long getAccountCount() {
+        long count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.count;
+        }
+        return count;
+    }
+
+    // Direct memory held by the indexes, columns and id arenas
+    public long getOffHeapBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            bytes += stripe.offHeapBytes();
+        }
+        return bytes;
+    }
+
+    private boolean insert(String accountId, long balance) {
+        final long hash = hash(accountId);
+        final Stripe stripe = stripeOf(hash);
+        stripe.lock.lock();
+        try {
+            if (stripe.find(accountId, hash) >= 0) {
+                return false;
+            }
+            stripe.append(accountId, hash, balance);
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private static int numberOf(Stripe stripe, String accountId, long hash) {
+        final int number = stripe.find(accountId, hash);
+        if (number < 0) {
+            throw new AmountTransactionException(ACCOUNT_NOT_EXISTS);
+        }
+        return number;
+    }
+
+    private Stripe stripeOf(long hash) {
+        return stripes[(int) (hash >>> 58) & (STRIPES - 1)];
+    }
+
+    private Stripe[] newStripes() {
+        final Stripe[] created = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            created[i] = new Stripe(initialSlots);
+        }
+        return created;
+    }
+
+    // String's cached hash spread over 64 bits, 0 marks an empty slot
+    private static long hash(String accountId) {
+        long hash = accountId.hashCode() * 0x9e3779b97f4a7c15L;
+        hash ^= hash >>> 32;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static int columnOffset(int number) {
+        return (number & ((1 << COLUMN_CHUNK_SHIFT) - 1)) * Long.BYTES;
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    private static final class Stripe {
+
+        final ReentrantLock lock = new ReentrantLock();
+
+        // Replaced by a larger copy when 3/4 full
+        volatile ByteBuffer index;
+
+        // Chunks of balances and id positions by account number, and of the id arena. Written under the lock and
+        // read after the index slot or the count that publishes them.
+        ByteBuffer[] balances = new ByteBuffer[1];
+        ByteBuffer[] idPositions = new ByteBuffer[1];
+        ByteBuffer[] arena = new ByteBuffer[1];
+        long arenaPosition;
+
+        volatile int count;
+
+        Stripe(int slots) {
+            this.index = allocate(slots * SLOT_SIZE);
+        }
+
+        // Account number of the id, -1 when absent
+        int find(String accountId, long hash) {
+            final ByteBuffer slots = index;
+            final int mask = slots.capacity() / SLOT_SIZE - 1;
+            for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+                final long slotHash = (long) LONGS.getAcquire(slots, slot * SLOT_SIZE);
+                if (slotHash == 0) {
+                    return -1;
+                }
+                if (slotHash == hash) {
+                    final int number = (int) (long) LONGS.get(slots, slot * SLOT_SIZE + Long.BYTES);
+                    if (idEquals(number, accountId)) {
+                        return number;
+                    }
+                }
+            }
+        }
+
+        long balance(int number) {
+            return (long) LONGS.getVolatile(balances[number >>> COLUMN_CHUNK_SHIFT], columnOffset(number));
+        }
+
+        // Under the lock, the account is written before the index slot that makes it visible
+        void append(String accountId, long hash, long balance) {
+            final int number = count;
+            final int chunk = number >>> COLUMN_CHUNK_SHIFT;
+            if (chunk == balances.length) {
+                balances = Arrays.copyOf(balances, chunk * 2);
+                idPositions = Arrays.copyOf(idPositions, chunk * 2);
+            }
+            if (balances[chunk] == null) {
+                balances[chunk] = allocate(Long.BYTES << COLUMN_CHUNK_SHIFT);
+                idPositions[chunk] = allocate(Long.BYTES << COLUMN_CHUNK_SHIFT);
+            }
+            LONGS.set(balances[chunk], columnOffset(number), balance);
+            LONGS.set(idPositions[chunk], columnOffset(number), writeId(accountId));
+
+            if ((number + 1) * 4L > (index.capacity() / SLOT_SIZE) * 3L) {
+                index = grow(index);
+            }
+            insertSlot(index, hash, number);
+            count = number + 1;
+        }
+
+        private long writeId(String accountId) {
+            final boolean ascii = isAscii(accountId);
+            final byte[] utf8 = ascii ? null : accountId.getBytes(StandardCharsets.UTF_8);
+            final int length = ascii ? accountId.length() : utf8.length;
+            if (length > MAX_ID_BYTES) {
+                throw new IllegalArgumentException("Account id too long for the off-heap store");
+            }
+            final int arenaChunkSize = 1 << ARENA_CHUNK_SHIFT;
+            int offset = (int) (arenaPosition & (arenaChunkSize - 1));
+            if (offset + Short.BYTES + length > arenaChunkSize) {
+                arenaPosition += arenaChunkSize - offset;
+                offset = 0;
+            }
+            final int chunk = (int) (arenaPosition >>> ARENA_CHUNK_SHIFT);
+            if (chunk == arena.length) {
+                arena = Arrays.copyOf(arena, chunk * 2);
+            }
+            if (arena[chunk] == null) {
+                arena[chunk] = allocate(arenaChunkSize);
+            }
+            final ByteBuffer buffer = arena[chunk];
+            buffer.putShort(offset, (short) (ascii ? length : length | UTF8_FLAG));
+            for (int i = 0; i < length; i++) {
+                buffer.put(offset + Short.BYTES + i, ascii ? (byte) accountId.charAt(i) : utf8[i]);
+            }
+            final long position = arenaPosition;
+            arenaPosition += Short.BYTES + length;
+            return position;
+        }
+
+        private boolean idEquals(int number, String accountId) {
+            final long position = (long) LONGS.get(idPositions[number >>> COLUMN_CHUNK_SHIFT], columnOffset(number));
+            final ByteBuffer buffer = arena[(int) (position >>> ARENA_CHUNK_SHIFT)];
+            final int offset = (int) (position & ((1 << ARENA_CHUNK_SHIFT) - 1));
+            final int header = buffer.getShort(offset) & 0xffff;
+            if ((header & UTF8_FLAG) != 0) {
+                return accountId.equals(accountId(number));
+            }
+            if (header != accountId.length()) {
+                return false;
+            }
+            for (int i = 0; i < header; i++) {
+                final char c = accountId.charAt(i);
+                if (c > 0x7f || buffer.get(offset + Short.BYTES + i) != (byte) c) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String accountId(int number) {
+            final long position = (long) LONGS.get(idPositions[number >>> COLUMN_CHUNK_SHIFT], columnOffset(number));
+            final ByteBuffer buffer = arena[(int) (position >>> ARENA_CHUNK_SHIFT)];
+            final int offset = (int) (position & ((1 << ARENA_CHUNK_SHIFT) - 1));
+            final int header = buffer.getShort(offset) & 0xffff;
+            final byte[] bytes = new byte[header & ~UTF8_FLAG];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(offset + Short.BYTES + i);
+            }
+            return new String(bytes, (header & UTF8_FLAG) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.US_ASCII);
+        }
+
+        long offHeapBytes() {
+            long bytes = index.capacity();
+            for (ByteBuffer chunk : balances) {
+                bytes += chunk == null ? 0 : 2L * chunk.capacity();
+            }
+            for (ByteBuffer chunk : arena) {
+                bytes += chunk == null ? 0 : chunk.capacity();
+            }
+            return bytes;
+        }
+
+        private static ByteBuffer grow(ByteBuffer slots) {
+            if (slots.capacity() / SLOT_SIZE >= MAX_SLOTS) {
+                throw new IllegalStateException("Off-heap account index is full");
+            }
+            final ByteBuffer grown = allocate(slots.capacity() * 2);
+            for (int offset = 0; offset < slots.capacity(); offset += SLOT_SIZE) {
+                final long hash = (long) LONGS.get(slots, offset);
+                if (hash != 0) {
+                    insertSlot(grown, hash, (int) (long) LONGS.get(slots, offset + Long.BYTES));
+                }
+            }
+            return grown;
+        }
+
+        private static void insertSlot(ByteBuffer slots, long hash, int number) {
+            final int mask = slots.capacity() / SLOT_SIZE - 1;
+            int slot = (int) hash & mask;
+            while ((long) LONGS.get(slots, slot * SLOT_SIZE) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            LONGS.set(slots, slot * SLOT_SIZE + Long.BYTES, (long) number);
+            LONGS.setRelease(slots, slot * SLOT_SIZE, hash);
+        }
+
+        private static boolean isAscii(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) > 0x7f) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
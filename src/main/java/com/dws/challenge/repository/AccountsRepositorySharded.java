@@ -0,0 +1,424 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.AmountTransactionException;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.exception.ShardUnavailableException;
+import com.dws.challenge.util.MoneyUnits;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static com.dws.challenge.util.Constants.ACCOUNT_NOT_EXISTS;
+
+/**
+ * Accounts hash-partitioned into shards, each owned by one thread. Every balance change is a command on the
+ * owning shard's inbound queue, so a balance has a single writer and needs neither locks nor CAS; readers see
+ * the latest written value through a volatile read. A transfer between shards debits on the source shard,
+ * which then hands the credit to the destination shard; if the credit fails the source shard gives the amount
+ * back. Callers wait for their command, so the queues never hold more than one command per calling thread.
+ * <p>
+ * A caller waits at most {@code accounts.shards.timeout-millis}. A command whose caller gave up is skipped, or
+ * undone if it was already running, so a timed out change never happens. Commands of a stopped shard, after
+ * {@link #destroy()} or an error in its thread, fail instead of waiting forever, and new ones are refused. Both fail
+ * the caller with a {@link ShardUnavailableException}.
+ * <p>
+ * Undoing a timed out transfer is a refund on the source shard that runs after the caller has returned, so after the
+ * caller left its {@code BalanceSnapshots} epoch: a balance report opened in between can see the source debited and
+ * the amount credited nowhere. Reports opened after the refund ran are exact again.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "accounts.repository", havingValue = "sharded")
+public class AccountsRepositorySharded implements AtomicBalanceRepository, DisposableBean {
+
+    // Spins before an idle shard parks, waking a parked thread costs far more than a short spin
+    private static final int IDLE_SPINS = 256;
+
+    private static final long DEFAULT_TIMEOUT_MILLIS = 5_000;
+
+    private static final String SHARD_STOPPED = "Accounts shard is stopped";
+
+    private static final String SHARD_TIMEOUT = "Timed out waiting for an accounts shard";
+
+    private final Shard[] shards;
+
+    private final long timeoutNanos;
+
+    private volatile boolean running = true;
+
+    public AccountsRepositorySharded(int shardCount) {
+        this(shardCount, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    // 0 shards means one per available processor
+    @Autowired
+    public AccountsRepositorySharded(@Value("${accounts.shards:0}") int shardCount,
+                                     @Value("${accounts.shards.timeout-millis:5000}") long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Shard timeout must be positive: " + timeoutMillis);
+        }
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        final int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            this.shards[i] = new Shard(i);
+        }
+    }
+
+    @Override
+    public void createAccount(Account account) throws DuplicateAccountIdException {
+        Balance previousBalance = shardOf(account.getAccountId()).balances.putIfAbsent(account.getAccountId(),
+                new Balance(MoneyUnits.toMinorUnits(account.getBalance())));
+        if (previousBalance != null) {
+            throw new DuplicateAccountIdException(
+                    "Account id " + account.getAccountId() + " already exists!");
+        }
+    }
+
+    @Override
+    public BitSet createAccounts(List<Account> accounts) {
+        BitSet duplicates = new BitSet();
+        for (int i = 0; i < accounts.size(); i++) {
+            Account account = accounts.get(i);
+            if (shardOf(account.getAccountId()).balances.putIfAbsent(account.getAccountId(),
+                    new Balance(MoneyUnits.toMinorUnits(account.getBalance()))) != null) {
+                duplicates.set(i);
+            }
+        }
+        return duplicates;
+    }
+
+    // Detached copy - balance changes go through the owning shard, not Account.setBalance
+    @Override
+    public Account getAccount(String accountId) {
+        Balance balance = shardOf(accountId).balances.get(accountId);
+        return balance == null ? null : new Account(accountId, MoneyUnits.toBigDecimal(balance.value));
+    }
+
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        for (Shard shard : shards) {
+            shard.balances.forEach((accountId, balance) ->
+                    action.accept(new Account(accountId, MoneyUnits.toBigDecimal(balance.value))));
+        }
+    }
+
+    // Split by shard, each shard's accounts are streamed by one thread
+    @Override
+    public Stream<Account> streamAccounts() {
+        return Arrays.stream(shards).parallel().flatMap(shard -> shard.balances.entrySet().stream()
+                .map(entry -> new Account(entry.getKey(), MoneyUnits.toBigDecimal(entry.getValue().value))));
+    }
+
+    @Override
+    public void clearAccounts() {
+        for (Shard shard : shards) {
+            shard.balances.clear();
+        }
+    }
+
+    @Override
+    public boolean containsAccount(String accountId) {
+        return shardOf(accountId).balances.containsKey(accountId);
+    }
+
+    @Override
+    public long getBalance(String accountId) throws AmountTransactionException {
+        return shardOf(accountId).balanceOf(accountId).value;
+    }
+
+    @Override
+    public boolean tryDebit(String accountId, long amount) throws AmountTransactionException {
+        final Shard shard = shardOf(accountId);
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        shard.execute(result, () -> {
+            final boolean debited = shard.debit(accountId, amount);
+            if (!result.complete(debited) && debited) {
+                shard.credit(accountId, amount);
+            }
+        });
+        return await(result);
+    }
+
+    @Override
+    public void credit(String accountId, long amount) throws AmountTransactionException {
+        final Shard shard = shardOf(accountId);
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        shard.execute(result, () -> {
+            shard.credit(accountId, amount);
+            if (!result.complete(Boolean.TRUE)) {
+                shard.credit(accountId, -amount);
+            }
+        });
+        await(result);
+    }
+
+    @Override
+    public boolean transfer(String accountFrom, String accountTo, long amount) throws AmountTransactionException {
+        final Shard source = shardOf(accountFrom);
+        final Shard target = shardOf(accountTo);
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        source.execute(result, () -> {
+            if (source == target) {
+                // Both balances belong to this thread, check the destination before touching the source
+                source.balanceOf(accountTo);
+                final boolean debited = source.debit(accountFrom, amount);
+                if (debited) {
+                    source.credit(accountTo, amount);
+                }
+                if (!result.complete(debited) && debited) {
+                    source.credit(accountTo, -amount);
+                    source.credit(accountFrom, amount);
+                }
+                return;
+            }
+            if (!source.debit(accountFrom, amount)) {
+                result.complete(Boolean.FALSE);
+                return;
+            }
+
+            // Runs even when the caller gave up meanwhile, the debit has to be settled either way
+            target.handOff(result, () -> {
+                if (result.isDone()) {
+                    refund(source, accountFrom, amount, result, null);
+                    return;
+                }
+                try {
+                    target.credit(accountTo, amount);
+                } catch (RuntimeException e) {
+                    refund(source, accountFrom, amount, result, e);
+                    return;
+                }
+                if (!result.complete(Boolean.TRUE)) {
+                    target.credit(accountTo, -amount);
+                    refund(source, accountFrom, amount, result, null);
+                }
+            }, () -> refund(source, accountFrom, amount, result, new ShardUnavailableException(SHARD_STOPPED)));
+        });
+        return await(result);
+    }
+
+    // Compensation - the debit is returned by the shard that owns the source account, then the caller is failed
+    private static void refund(Shard source, String accountFrom, long amount, CompletableFuture<Boolean> result,
+                               RuntimeException failure) {
+        source.handOff(result, () -> {
+            source.credit(accountFrom, amount);
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            }
+        }, () -> {
+            log.error("Shard stopped before {} was refunded to {}", amount, accountFrom);
+            result.completeExceptionally(new ShardUnavailableException(SHARD_STOPPED));
+        });
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.owner);
+        }
+        for (Shard shard : shards) {
+            shard.owner.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private Shard shardOf(String accountId) {
+        final int hash = accountId.hashCode();
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    // A caller that gives up completes the result itself, the command then leaves the balances as they were
+    private boolean await(CompletableFuture<Boolean> result) {
+        try {
+            return result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (result.completeExceptionally(new ShardUnavailableException(SHARD_TIMEOUT))) {
+                throw new ShardUnavailableException(SHARD_TIMEOUT);
+            }
+            // completed by the shard while timing out
+            return await(result);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (result.completeExceptionally(new ShardUnavailableException(SHARD_TIMEOUT))) {
+                throw new ShardUnavailableException("Interrupted while waiting for a shard", e);
+            }
+            return await(result);
+        }
+    }
+
+    private static final class Command {
+
+        private final CompletableFuture<Boolean> result;
+
+        private final Runnable action;
+
+        // Runs instead of the action when the shard stops first
+        private final Runnable onStopped;
+
+        Command(CompletableFuture<Boolean> result, Runnable action, Runnable onStopped) {
+            this.result = result;
+            this.action = action;
+            this.onStopped = onStopped;
+        }
+    }
+
+    private final class Shard implements Runnable {
+
+        private final Map<String, Balance> balances = new ConcurrentHashMap<>();
+
+        private final Queue<Command> inbox = new ConcurrentLinkedQueue<>();
+
+
+        private final Thread owner;
+
+        private volatile boolean sleeping;
+
+        private volatile boolean stopped;
+
+        Shard(int index) {
+            this.owner = new Thread(this, "accounts-shard-" + index);
+            this.owner.setDaemon(true);
+            this.owner.start();
+        }
+
+        // Skipped once the caller has its result, which is how a caller that timed out cancels its command
+        void execute(CompletableFuture<Boolean> result, Runnable action) {
+            submit(new Command(result, () -> {
+                if (!result.isDone()) {
+                    action.run();
+                }
+            }, () -> result.completeExceptionally(new ShardUnavailableException(SHARD_STOPPED))));
+        }
+
+        // Always runs, for the second half of a command that already changed a balance
+        void handOff(CompletableFuture<Boolean> result, Runnable action, Runnable onStopped) {
+            submit(new Command(result, action, onStopped));
+        }
+
+        private void submit(Command command) {
+            if (stopped || !running) {
+                command.onStopped.run();
+                return;
+            }
+            inbox.offer(command);
+            if (stopped) {
+                // the owner may have drained before the offer, whoever polls the command fails it
+                drain();
+            } else if (sleeping) {
+                LockSupport.unpark(owner);
+            }
+        }
+
+        private void drain() {
+            Command command;
+            while ((command = inbox.poll()) != null) {
+                try {
+                    command.onStopped.run();
+                } catch (RuntimeException e) {
+                    log.error("Failing a shard command failed", e);
+                }
+            }
+        }
+
+        // Owner thread only
+        boolean debit(String accountId, long amount) {
+            final Balance balance = balanceOf(accountId);
+            if (balance.value < amount) {
+                return false;
+            }
+            balance.value = balance.value - amount;
+            return true;
+        }
+
+        // Owner thread only
+        void credit(String accountId, long amount) {
+            final Balance balance = balanceOf(accountId);
+            balance.value = balance.value + amount;
+        }
+
+        Balance balanceOf(String accountId) {
+            final Balance balance = balances.get(accountId);
+            if (balance == null) {
+                throw new AmountTransactionException(ACCOUNT_NOT_EXISTS);
+            }
+            return balance;
+        }
+
+        @Override
+        public void run() {
+            try {
+                process();
+            } catch (Throwable e) {
+                log.error("Shard {} stopped", owner.getName(), e);
+            } finally {
+                stopped = true;
+                drain();
+            }
+        }
+
+        private void process() {
+            int idle = 0;
+            while (running) {
+                final Command command = inbox.poll();
+                if (command != null) {
+                    idle = 0;
+                    try {
+                        command.action.run();
+                    } catch (RuntimeException e) {
+                        command.result.completeExceptionally(e);
+                    }
+                } else if (++idle < IDLE_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    // A producer either sees sleeping set or its command is seen by the isEmpty check
+                    sleeping = true;
+                    if (inbox.isEmpty() && running) {
+                        LockSupport.park(this);
+                    }
+                    sleeping = false;
+                    idle = 0;
+                }
+            }
+        }
+    }
+
+    // Written by the owning shard only, read by anyone
+    static final class Balance {
+
+        private volatile long value;
+
+        Balance(long value) {
+            this.value = value;
+        }
+    }
+}
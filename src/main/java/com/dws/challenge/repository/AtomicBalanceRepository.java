@@ -0,0 +1,29 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.exception.AmountTransactionException;
+
+/**
+ * Repository that owns its balances and applies changes atomically itself, so
+ * {@link com.dws.challenge.service.AccountsService} does not need account locks.
+ * Amounts are fixed-scale minor units, see {@link com.dws.challenge.util.MoneyUnits}.
+ */
+public interface AtomicBalanceRepository extends AccountsRepository {
+
+  boolean containsAccount(String accountId);
+
+  long getBalance(String accountId) throws AmountTransactionException;
+
+  // false when the balance is not sufficient, the account is left untouched
+  boolean tryDebit(String accountId, long amount) throws AmountTransactionException;
+
+  void credit(String accountId, long amount) throws AmountTransactionException;
+
+  default boolean transfer(String accountFrom, String accountTo, long amount) throws AmountTransactionException {
+    if (!tryDebit(accountFrom, amount)) {
+      return false;
+    }
+    credit(accountTo, amount);
+    return true;
+  }
+
+}
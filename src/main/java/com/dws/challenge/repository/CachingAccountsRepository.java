@@ -0,0 +1,217 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.AmountTransactionException;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.util.MoneyUnits;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static com.dws.challenge.util.Constants.ACCOUNT_NOT_EXISTS;
+
+/**
+ * Read-through cache of balances in front of a persistent store. Entries are kept in striped LRU maps, each
+ * bounded to its share of {@code maxSize}. Balance changes are written through to the store and invalidate
+ * the cached entry; a load that races with an invalidation in its stripe is not cached, so a stale balance
+ * never outlives the write that replaced it.
+ */
+public class CachingAccountsRepository implements AtomicBalanceRepository {
+
+    private static final int STRIPES = 64;
+
+    private final AtomicBalanceRepository delegate;
+
+    private final Stripe[] stripes;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingAccountsRepository(AtomicBalanceRepository delegate, int maxSize) {
+        if (maxSize < STRIPES) {
+            throw new IllegalArgumentException("Cache size must be at least " + STRIPES);
+        }
+        this.delegate = delegate;
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe(maxSize / STRIPES);
+        }
+    }
+
+    @Override
+    public void createAccount(Account account) throws DuplicateAccountIdException {
+        delegate.createAccount(account);
+    }
+
+    @Override
+    public BitSet createAccounts(List<Account> accounts) {
+        return delegate.createAccounts(accounts);
+    }
+
+    // Detached copy, like the stores it caches
+    @Override
+    public Account getAccount(String accountId) {
+        final Long balance = cachedBalance(accountId);
+        return balance == null ? null : new Account(accountId, MoneyUnits.toBigDecimal(balance));
+    }
+
+    // Bulk reads go straight to the store and would only flush the working set
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        delegate.forEachAccount(action);
+    }
+
+    @Override
+    public Stream<Account> streamAccounts() {
+        return delegate.streamAccounts();
+    }
+
+    @Override
+    public void clearAccounts() {
+        delegate.clearAccounts();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.generation++;
+                stripe.balances.clear();
+            }
+        }
+    }
+
+    @Override
+    public boolean containsAccount(String accountId) {
+        return cachedBalance(accountId) != null;
+    }
+
+    @Override
+    public long getBalance(String accountId) throws AmountTransactionException {
+        final Long balance = cachedBalance(accountId);
+        if (balance == null) {
+            throw new AmountTransactionException(ACCOUNT_NOT_EXISTS);
+        }
+        return balance;
+    }
+
+    @Override
+    public boolean tryDebit(String accountId, long amount) throws AmountTransactionException {
+        if (!delegate.tryDebit(accountId, amount)) {
+            return false;
+        }
+        invalidate(accountId);
+        return true;
+    }
+
+    @Override
+    public void credit(String accountId, long amount) throws AmountTransactionException {
+        try {
+            delegate.credit(accountId, amount);
+        } finally {
+            invalidate(accountId);
+        }
+    }
+
+    @Override
+    public boolean transfer(String accountFrom, String accountTo, long amount) throws AmountTransactionException {
+        try {
+            return delegate.transfer(accountFrom, accountTo, amount);
+        } finally {
+            invalidate(accountFrom);
+            invalidate(accountTo);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        final long hitCount = hits.sum();
+        final long requests = hitCount + misses.sum();
+        return requests == 0 ? 0 : (double) hitCount / requests;
+    }
+
+    public int getSize() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.balances.size();
+            }
+        }
+        return size;
+    }
+
+    private Long cachedBalance(String accountId) {
+        final Stripe stripe = stripeOf(accountId);
+        final long generation;
+        synchronized (stripe) {
+            final Long balance = stripe.balances.get(accountId);
+            if (balance != null) {
+                hits.increment();
+                return balance;
+            }
+            generation = stripe.generation;
+        }
+
+        misses.increment();
+        final Account account = delegate.getAccount(accountId);
+        if (account == null) {
+            return null;
+        }
+        final Long balance = MoneyUnits.toMinorUnits(account.getBalance());
+        synchronized (stripe) {
+            if (stripe.generation == generation) {
+                stripe.balances.put(accountId, balance);
+            }
+        }
+        return balance;
+    }
+
+    private void invalidate(String accountId) {
+        final Stripe stripe = stripeOf(accountId);
+        synchronized (stripe) {
+            stripe.generation++;
+            stripe.balances.remove(accountId);
+        }
+    }
+
+    private Stripe stripeOf(String accountId) {
+        final int hash = accountId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    // Access-ordered map, guarded by the stripe itself
+    private final class Stripe {
+
+        private final Map<String, Long> balances;
+
+        private long generation;
+
+        Stripe(int capacity) {
+            this.balances = new LinkedHashMap<String, Long>(capacity * 4 / 3 + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.dws.challenge.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped account locks. Every account id maps to one of a fixed number of stripes and
+ * stripes are always acquired in ascending index order, so two transfers touching the same
+ * pair of accounts in opposite directions cannot deadlock while transfers on unrelated
+ * accounts only contend when their ids hash to the same stripe.
+ */
+@Component
+public class AccountLockManager {
+
+    // tryLock result when both stripes were taken
+    public static final int LOCKED = -1;
+
+    private final ReentrantLock[] locks;
+
+    private final int mask;
+
+    public AccountLockManager(@Value("${accounts.lock.stripes:1024}") int stripes) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Lock stripes must be a positive power of two: " + stripes);
+        }
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.locks[i] = new ReentrantLock();
+        }
+        this.mask = stripes - 1;
+    }
+
+    public void lock(final String firstAccountId, final String secondAccountId) {
+        final int first = stripeOf(firstAccountId);
+        final int second = stripeOf(secondAccountId);
+
+        if (first == second) {
+            locks[first].lock();
+            return;
+        }
+        locks[Math.min(first, second)].lock();
+        locks[Math.max(first, second)].lock();
+    }
+
+    // Takes both stripes only if neither is held by another thread, otherwise takes none and returns the busy stripe
+    public int tryLock(final String firstAccountId, final String secondAccountId) {
+        final int first = stripeOf(firstAccountId);
+        final int second = stripeOf(secondAccountId);
+
+        if (first == second) {
+            return locks[first].tryLock() ? LOCKED : first;
+        }
+        final int lower = Math.min(first, second);
+        final int upper = Math.max(first, second);
+        if (!locks[lower].tryLock()) {
+            return lower;
+        }
+        if (!locks[upper].tryLock()) {
+            locks[lower].unlock();
+            return upper;
+        }
+        return LOCKED;
+    }
+
+    public void unlock(final String firstAccountId, final String secondAccountId) {
+        final int first = stripeOf(firstAccountId);
+        final int second = stripeOf(secondAccountId);
+
+        if (first == second) {
+            locks[first].unlock();
+            return;
+        }
+        locks[Math.max(first, second)].unlock();
+        locks[Math.min(first, second)].unlock();
+    }
+
+    // Locks every stripe covering the given accounts once, in ascending order. Pass the result to unlockAll.
+    public int[] lockAll(final Collection<String> accountIds) {
+        final int[] stripes = new int[accountIds.size()];
+        int count = 0;
+        for (String accountId : accountIds) {
+            stripes[count++] = stripeOf(accountId);
+        }
+        Arrays.sort(stripes);
+
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || stripes[i] != stripes[i - 1]) {
+                stripes[distinct++] = stripes[i];
+            }
+        }
+        final int[] lockedStripes = Arrays.copyOf(stripes, distinct);
+        for (int stripe : lockedStripes) {
+            locks[stripe].lock();
+        }
+        return lockedStripes;
+    }
+
+    public void unlockAll(final int[] lockedStripes) {
+        for (int i = lockedStripes.length - 1; i >= 0; i--) {
+            locks[lockedStripes[i]].unlock();
+        }
+    }
+
+    int stripeOf(final String accountId) {
+        final int hash = accountId.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+}
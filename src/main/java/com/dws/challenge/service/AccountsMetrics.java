@@ -0,0 +1,112 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.AccountNotFoundException;
+import com.dws.challenge.exception.NotSufficientBalanceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.dws.challenge.util.Constants.ACCOUNT_NOT_EXISTS;
+import static com.dws.challenge.util.Constants.INSUFFICIENT_BALANCE;
+
+/**
+ * Hot-path meters, all registered up front so recording is a lookup-free call on a fixed meter. Timers publish
+ * fixed-bucket histograms (Prometheus {@code histogram_quantile}) rather than client-side percentiles, which keeps
+ * recording to a bucket increment.
+ */
+@Component
+public class AccountsMetrics {
+
+    // Meters of a registry without children do nothing, for services built outside Spring
+    public static final AccountsMetrics NOOP = new AccountsMetrics(new CompositeMeterRegistry());
+
+    private final Timer transferTimer;
+
+    private final Timer lockWaitTimer;
+
+    private final Timer lookupTimer;
+
+    private final Timer notificationQueueTimer;
+
+    private final Counter rejectedAccountNotExists;
+
+    private final Counter rejectedInsufficientBalance;
+
+    private final Counter rejectedInvalidAmount;
+
+    @Autowired
+    public AccountsMetrics(MeterRegistry registry) {
+        this.transferTimer = histogramTimer("accounts.transfer", "amountTransfer end-to-end", registry);
+        this.lockWaitTimer = histogramTimer("accounts.lock.wait", "Time waiting for account locks", registry);
+        this.lookupTimer = histogramTimer("accounts.repository.lookup", "Account lookups in the repository", registry);
+        this.notificationQueueTimer = histogramTimer("notifications.queue.time",
+                "Time a notification waits in the async queue", registry);
+        this.rejectedAccountNotExists = rejectedCounter("account_not_exists", registry);
+        this.rejectedInsufficientBalance = rejectedCounter("insufficient_balance", registry);
+        this.rejectedInvalidAmount = rejectedCounter("invalid_amount", registry);
+    }
+
+    public void recordTransfer(long startNanos) {
+        transferTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordLockWait(long startNanos) {
+        lockWaitTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordLookup(long startNanos) {
+        lookupTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordNotificationQueueTime(long enqueuedNanos) {
+        notificationQueueTimer.record(System.nanoTime() - enqueuedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Amount exceptions carry the reason in their message, the other rejects have their own type
+    public void transferRejected(RuntimeException rejection) {
+        if (rejection instanceof AccountNotFoundException || ACCOUNT_NOT_EXISTS.equals(rejection.getMessage())) {
+            rejectedAccountNotExists.increment();
+        } else if (rejection instanceof NotSufficientBalanceException || INSUFFICIENT_BALANCE.equals(rejection.getMessage())) {
+            rejectedInsufficientBalance.increment();
+        } else {
+            rejectedInvalidAmount.increment();
+        }
+    }
+
+    public void transferRejected(TransferStatus status) {
+        switch (status) {
+            case ACCOUNT_NOT_EXISTS:
+                rejectedAccountNotExists.increment();
+                break;
+            case INSUFFICIENT_BALANCE:
+                rejectedInsufficientBalance.increment();
+                break;
+            case INVALID_AMOUNT:
+            case INVALID_AMOUNT_PRECISION:
+                rejectedInvalidAmount.increment();
+                break;
+            default:
+                // completed, or not applied because of another item
+        }
+    }
+
+    private static Timer histogramTimer(String name, String description, MeterRegistry registry) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Counter rejectedCounter(String reason, MeterRegistry registry) {
+        return Counter.builder("accounts.transfer.rejected")
+                .description("Transfers rejected by validation")
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
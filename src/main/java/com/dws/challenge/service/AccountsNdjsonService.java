@@ -0,0 +1,173 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountImportSummary;
+import com.dws.challenge.util.MoneyUnits;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Bulk account import and export as newline-delimited JSON, one {@code {"accountId":..,"balance":..}}
+ * object per line. Both directions go through Jackson's streaming parser and generator and hold at
+ * most one insert batch in memory, whatever the size of the stream.
+ */
+@Service
+public class AccountsNdjsonService {
+
+    static final int INSERT_BATCH_SIZE = 1024;
+
+    private static final String DUPLICATE = "DUPLICATE";
+
+    private static final String INVALID = "INVALID";
+
+    private final AccountsService accountsService;
+
+    private final JsonFactory jsonFactory;
+
+    @Autowired
+    public AccountsNdjsonService(AccountsService accountsService, ObjectMapper objectMapper) {
+        this.accountsService = accountsService;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    // Rejected lines are reported on the output as they are found, followed by one summary line
+    public AccountImportSummary importAccounts(InputStream input, OutputStream report) throws IOException {
+        long imported = 0;
+        long duplicates = 0;
+        long invalid = 0;
+
+        try (JsonParser parser = jsonFactory.createParser(input);
+             JsonGenerator generator = createGenerator(report)) {
+            final List<Account> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+            final int[] batchLines = new int[INSERT_BATCH_SIZE];
+
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                final int line = parser.getTokenLocation().getLineNr();
+                final Account account = token == JsonToken.START_OBJECT ? readAccount(parser) : null;
+                if (account == null) {
+                    parser.skipChildren();
+                    writeRejectedLine(generator, line, null, INVALID);
+                    invalid++;
+                    continue;
+                }
+
+                batchLines[batch.size()] = line;
+                batch.add(account);
+                if (batch.size() == INSERT_BATCH_SIZE) {
+                    final int batchDuplicates = insertBatch(batch, batchLines, generator);
+                    duplicates += batchDuplicates;
+                    imported += batch.size() - batchDuplicates;
+                    batch.clear();
+                }
+            }
+            final int batchDuplicates = insertBatch(batch, batchLines, generator);
+            duplicates += batchDuplicates;
+            imported += batch.size() - batchDuplicates;
+
+            generator.writeStartObject();
+            generator.writeNumberField("imported", imported);
+            generator.writeNumberField("duplicates", duplicates);
+            generator.writeNumberField("invalid", invalid);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+        return new AccountImportSummary(imported, duplicates, invalid);
+    }
+
+    public void exportAccounts(OutputStream output) throws IOException {
+        try (JsonGenerator generator = createGenerator(output)) {
+            accountsService.getAccountsRepository().forEachAccount(account -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeStringField("accountId", account.getAccountId());
+                    generator.writeFieldName("balance");
+                    generator.writeNumber(account.getBalance());
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // One value per line, the generator's default space between root values is not wanted
+    private JsonGenerator createGenerator(OutputStream output) throws IOException {
+        final JsonGenerator generator = jsonFactory.createGenerator(output);
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    private int insertBatch(List<Account> batch, int[] batchLines, JsonGenerator generator) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        final BitSet duplicates = accountsService.createAccounts(batch);
+        for (int i = duplicates.nextSetBit(0); i >= 0; i = duplicates.nextSetBit(i + 1)) {
+            writeRejectedLine(generator, batchLines[i], batch.get(i).getAccountId(), DUPLICATE);
+        }
+        return duplicates.cardinality();
+    }
+
+    // Reads the fields of one account object, null when the account is not valid
+    private static Account readAccount(JsonParser parser) throws IOException {
+        String accountId = null;
+        BigDecimal balance = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            if ("accountId".equals(field) && value == JsonToken.VALUE_STRING) {
+                accountId = parser.getText();
+            } else if ("balance".equals(field) && value.isNumeric()) {
+                balance = parser.getDecimalValue();
+            } else if ("balance".equals(field) && value == JsonToken.VALUE_STRING) {
+                balance = parseDecimal(parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (accountId == null || accountId.isEmpty() || balance == null
+                || balance.signum() < 0 || !MoneyUnits.hasValidScale(balance)) {
+            return null;
+        }
+        return new Account(accountId, balance);
+    }
+
+    private static BigDecimal parseDecimal(String text) {
+        try {
+            return new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void writeRejectedLine(JsonGenerator generator, int line, String accountId, String status)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("line", line);
+        if (accountId != null) {
+            generator.writeStringField("accountId", accountId);
+        }
+        generator.writeStringField("status", status);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
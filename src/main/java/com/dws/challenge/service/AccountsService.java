@@ -1,17 +1,38 @@
 package com.dws.challenge.service;
 
 import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.domain.AccountTransactionsPage;
+import com.dws.challenge.domain.BatchTransferMode;
+import com.dws.challenge.domain.ScheduledTransfer;
+import com.dws.challenge.domain.ScheduledTransfersPage;
+import com.dws.challenge.domain.TransferLeg;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.AccountNotFoundException;
 import com.dws.challenge.exception.AmountTransactionException;
+import com.dws.challenge.exception.NotSufficientBalanceException;
+import com.dws.challenge.exception.TransferRejections;
+import com.dws.challenge.journal.TransferJournal;
+import com.dws.challenge.ledger.TransferLedger;
 import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AtomicBalanceRepository;
 import com.dws.challenge.util.AccountTransferValidator;
+import com.dws.challenge.util.MoneyUnits;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.util.concurrent.locks.ReentrantLock;
-
-import static com.dws.challenge.util.Constants.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 @Service
 public class AccountsService {
@@ -19,69 +40,777 @@ public class AccountsService {
     @Getter
     private final AccountsRepository accountsRepository;
 
-    @Autowired
-    private NotificationService notificationService;
+    // Set when the repository applies balance changes itself (lock-free), null for Account object stores
+    private final AtomicBalanceRepository atomicBalanceRepository;
 
-    @Autowired
-    private AccountTransferValidator accountTransferValidator;
+    private final NotificationService notificationService;
+
+    private final AccountTransferValidator accountTransferValidator;
+
+    private final AccountLockManager accountLockManager;
+
+    private final TransferJournal transferJournal;
+
+    private final TransferLedger transferLedger;
+
+    private final AccountsMetrics accountsMetrics;
+
+    private final TransferCombiner transferCombiner;
+
+    private final BalanceSnapshots balanceSnapshots;
+
+    private final TransferTimingWheel transferTimingWheel;
+
+    private final Consumer<List<TransferCombiner.CombinedTransfer>> combinedTransfersApplier = this::applyCombinedTransfers;
 
     @Autowired
-    public AccountsService(AccountsRepository accountsRepository) {
+    public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService,
+                           AccountTransferValidator accountTransferValidator, AccountLockManager accountLockManager,
+                           TransferJournal transferJournal, TransferLedger transferLedger, AccountsMetrics accountsMetrics,
+                           TransferCombiner transferCombiner, BalanceSnapshots balanceSnapshots,
+                           TransferTimingWheel transferTimingWheel) {
         this.accountsRepository = accountsRepository;
+        this.notificationService = notificationService;
+        this.accountTransferValidator = accountTransferValidator;
+        this.accountLockManager = accountLockManager;
+        this.transferJournal = transferJournal;
+        this.transferLedger = transferLedger;
+        this.accountsMetrics = accountsMetrics;
+        this.transferCombiner = transferCombiner;
+        this.balanceSnapshots = balanceSnapshots;
+        this.transferTimingWheel = transferTimingWheel;
+        this.atomicBalanceRepository = accountsRepository instanceof AtomicBalanceRepository
+                ? (AtomicBalanceRepository) accountsRepository : null;
     }
 
+    // Journaled under the account lock and before the account becomes visible, so on replay the creation record
+    // always comes before any transfer of the account. A rejected duplicate leaves a record that replay skips.
     public void createAccount(Account account) {
-        this.accountsRepository.createAccount(account);
+        final String accountId = account.getAccountId();
+        final long journalPosition;
+
+        final long epoch = balanceSnapshots.enter();
+        accountLockManager.lock(accountId, accountId);
+        try {
+            journalPosition = transferJournal.appendAccountCreated(accountId, account.getBalance());
+            this.recordCreated(epoch, accountId);
+            this.accountsRepository.createAccount(account);
+        } finally {
+            accountLockManager.unlock(accountId, accountId);
+            balanceSnapshots.exit(epoch);
+        }
+        transferJournal.awaitDurable(journalPosition);
+    }
+
+    // Bulk variant of createAccount, returns the positions of the accounts whose id already existed
+    public BitSet createAccounts(List<Account> accounts) {
+        final List<String> accountIds = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            accountIds.add(account.getAccountId());
+        }
+
+        long journalPosition = 0;
+        final BitSet duplicates;
+        final long epoch = balanceSnapshots.enter();
+        final int[] lockedStripes = accountLockManager.lockAll(accountIds);
+        try {
+            for (Account account : accounts) {
+                journalPosition = transferJournal.appendAccountCreated(account.getAccountId(), account.getBalance());
+                this.recordCreated(epoch, account.getAccountId());
+            }
+            duplicates = this.accountsRepository.createAccounts(accounts);
+        } finally {
+            accountLockManager.unlockAll(lockedStripes);
+            balanceSnapshots.exit(epoch);
+        }
+        transferJournal.awaitDurable(journalPosition);
+        return duplicates;
     }
 
     public Account getAccount(String accountId) {
-        return this.accountsRepository.getAccount(accountId);
+        final long startNanos = System.nanoTime();
+        try {
+            return this.accountsRepository.getAccount(accountId);
+        } finally {
+            accountsMetrics.recordLookup(startNanos);
+        }
+    }
+
+    // Postings of an existing account newest first, see TransferLedger#transactions
+    public AccountTransactionsPage getTransactions(final String accountId, final Long cursor, final int limit,
+                                                   final Instant from, final Instant to) {
+        if (getAccount(accountId) == null) {
+            throw TransferRejections.ACCOUNT_NOT_FOUND;
+        }
+        return transferLedger.transactions(accountId, cursor, limit,
+                from == null ? Long.MIN_VALUE : from.toEpochMilli(), to == null ? Long.MAX_VALUE : to.toEpochMilli());
+    }
+
+    /**
+     * Schedules a transfer for executeAt. Only the amount and the accounts are checked now; the balance is checked
+     * when it executes, in a best-effort batch with the other transfers due then, see ScheduledTransferRunner.
+     */
+    public ScheduledTransfer scheduleTransfer(final String fromAccount, final String toAccount,
+                                              final BigDecimal transferAmount, final Instant executeAt) {
+        if (transferAmount.signum() <= 0) {
+            throw TransferRejections.NEGATIVE_AMOUNT;
+        }
+        final long amountMinorUnits = MoneyUnits.toMinorUnits(transferAmount);
+        final Account debitedAccount = getAccount(fromAccount);
+        final Account creditedAccount = getAccount(toAccount);
+        if (debitedAccount == null || creditedAccount == null) {
+            throw TransferRejections.ACCOUNT_NOT_FOUND;
+        }
+        final long id = transferTimingWheel.schedule(debitedAccount.getAccountId(), creditedAccount.getAccountId(),
+                amountMinorUnits, executeAt.toEpochMilli());
+        return new ScheduledTransfer(id, debitedAccount.getAccountId(), creditedAccount.getAccountId(),
+                MoneyUnits.toBigDecimal(amountMinorUnits), executeAt);
+    }
+
+    // False when the transfer does not exist, already executed or was cancelled before
+    public boolean cancelScheduledTransfer(final long id) {
+        return transferTimingWheel.cancel(id);
+    }
+
+    // Pending scheduled transfers of one account, either side, or of all accounts when accountId is null
+    public ScheduledTransfersPage getScheduledTransfers(final String accountId, final Long cursor, final int limit) {
+        return transferTimingWheel.list(accountId, cursor, limit);
     }
 
     // @Transactional - In live production environment can leverage Transaction
     public void amountTransfer(final String fromAccount, final String toAccount, final BigDecimal transferAmount)
             throws AmountTransactionException {
+        final long startNanos = System.nanoTime();
+        try {
+            this.transfer(fromAccount, toAccount, transferAmount);
+        } catch (AmountTransactionException | AccountNotFoundException | NotSufficientBalanceException e) {
+            accountsMetrics.transferRejected(e);
+            throw e;
+        } finally {
+            accountsMetrics.recordTransfer(startNanos);
+        }
+    }
+
+    private void transfer(final String fromAccount, final String toAccount, final BigDecimal transferAmount) {
+        if (atomicBalanceRepository != null) {
+            this.atomicTransfer(fromAccount, toAccount, transferAmount);
+            return;
+        }
+        // Each account is looked up once per transfer and reused for validation, the balance update and notifications
+        final Account debitedAccount = getAccount(fromAccount);
+        final Account creditedAccount = getAccount(toAccount);
 
-        accountTransferValidator.validate(getAccount(fromAccount), getAccount(toAccount), transferAmount);
+        // Rejections are status codes up to here and leave as shared stackless exceptions, see TransferRejections
+        final TransferStatus rejection = accountTransferValidator.check(debitedAccount, creditedAccount, transferAmount);
+        if (rejection != null) {
+            throw TransferRejections.of(rejection);
+        }
+
+        final long journalPosition = this.lockedAmountTransfer(debitedAccount, creditedAccount, transferAmount);
+        // Group commit - waits outside the locks, concurrent transfers share one flush
+        transferJournal.awaitDurable(journalPosition);
 
-        //Multithreading env
-        final ReentrantLock lock = new ReentrantLock();
-        lock.lock();
+        this.notifyAboutTransfer(debitedAccount, creditedAccount, transferAmount);
+    }
+
+    // A lock-free store is checked by account id and changed in minor units, no account copy is read for the transfer.
+    // The accounts for the notifications are only built once it is durable, from the balances the store holds then.
+    private void atomicTransfer(final String fromAccount, final String toAccount, final BigDecimal transferAmount) {
+        final TransferStatus rejection = accountTransferValidator.check(
+                atomicBalanceRepository.containsAccount(fromAccount) && atomicBalanceRepository.containsAccount(toAccount),
+                transferAmount);
+        if (rejection != null) {
+            throw TransferRejections.of(rejection);
+        }
+
+        final long journalPosition = this.atomicAmountTransfer(fromAccount, toAccount, transferAmount);
+        transferJournal.awaitDurable(journalPosition);
+
+        this.notifyAboutTransfer(this.currentAccount(fromAccount), this.currentAccount(toAccount), transferAmount);
+    }
+
+    //Multithreading env - balance check, debit and credit run atomically under both account locks, the balance is only
+    // checked here. When a lock is taken and combining is on, the transfer is queued on the combiner of that stripe
+    // instead of waiting for it.
+    private long lockedAmountTransfer(final Account debitedAccount, final Account creditedAccount,
+                                      final BigDecimal transferAmount) {
+        final String fromAccount = debitedAccount.getAccountId();
+        final String toAccount = creditedAccount.getAccountId();
+        final long epoch = balanceSnapshots.enter();
+        final long lockStartNanos = System.nanoTime();
+        if (!transferCombiner.isEnabled()) {
+            accountLockManager.lock(fromAccount, toAccount);
+        } else {
+            final int contendedStripe = accountLockManager.tryLock(fromAccount, toAccount);
+            if (contendedStripe != AccountLockManager.LOCKED) {
+                // The batch is applied in the epoch of whichever caller combines it
+                balanceSnapshots.exit(epoch);
+                final TransferCombiner.CombinedTransfer combined = transferCombiner.combine(contendedStripe,
+                        new TransferCombiner.CombinedTransfer(new AccountAmountTransfer(fromAccount, toAccount, transferAmount),
+                                debitedAccount, creditedAccount), combinedTransfersApplier);
+                accountsMetrics.recordLockWait(lockStartNanos);
+                if (combined.getStatus() != TransferStatus.COMPLETED) {
+                    throw TransferRejections.of(combined.getStatus());
+                }
+                return combined.getJournalPosition();
+            }
+        }
+        accountsMetrics.recordLockWait(lockStartNanos);
 
         try {
-            this.requestToDebit(fromAccount, transferAmount);
-            this.requestToCredit(toAccount, transferAmount);
+            if (debitedAccount.getBalance().compareTo(transferAmount) < 0) {
+                throw TransferRejections.NOT_SUFFICIENT_BALANCE;
+            }
+            // Journaled before the balances change, an append that fails leaves them as they were
+            final long journalPosition = transferJournal.appendTransfer(fromAccount, toAccount, transferAmount);
+            balanceSnapshots.record(epoch, fromAccount, debitedAccount.getBalance());
+            balanceSnapshots.record(epoch, toAccount, creditedAccount.getBalance());
+            this.requestToDebit(debitedAccount, transferAmount);
+            this.requestToCredit(creditedAccount, transferAmount);
+            transferLedger.recordTransfer(fromAccount, toAccount, transferAmount);
+            return journalPosition;
         } finally {
-            lock.unlock();
+            accountLockManager.unlock(fromAccount, toAccount);
+            balanceSnapshots.exit(epoch);
         }
+    }
 
+    // Runs on the combining thread: the queued transfers go through the batch path, so every account is locked and
+    // updated once per batch while each transfer is still checked in queue order against the running balances
+    private void applyCombinedTransfers(final List<TransferCombiner.CombinedTransfer> batch) {
+        final List<AccountAmountTransfer> transfers = new ArrayList<>(batch.size());
+        final Map<String, Account> accounts = new HashMap<>();
+        for (TransferCombiner.CombinedTransfer combined : batch) {
+            transfers.add(combined.getTransfer());
+            accounts.put(combined.getDebitedAccount().getAccountId(), combined.getDebitedAccount());
+            accounts.put(combined.getCreditedAccount().getAccountId(), combined.getCreditedAccount());
+        }
+        final TransferStatus[] statuses = new TransferStatus[batch.size()];
+        final long journalPosition = this.lockedBatchTransfer(transfers, BatchTransferMode.BEST_EFFORT, statuses, accounts);
+        for (int i = 0; i < statuses.length; i++) {
+            batch.get(i).applied(statuses[i], journalPosition);
+        }
+    }
 
-        notificationService.notifyAboutTransfer(getAccount(fromAccount), "The amount of " + transferAmount + " for transfer request account number: " + toAccount + " is completed.");
-        notificationService.notifyAboutTransfer(getAccount(toAccount), "The amount of " + transferAmount + " to account with the account with ID + " + fromAccount + " is completed.");
+    /**
+     * Pays every leg from one account, all legs or none. Amounts are validated and summed once, each account is
+     * looked up once and all of them are locked together in stripe order, then the source is checked against the
+     * total and debited once. The payer gets one notification for the whole transfer, each payee one for its credits.
+     */
+    public void multiLegTransfer(final String fromAccount, final List<TransferLeg> legs) throws AmountTransactionException {
+        final long startNanos = System.nanoTime();
+        try {
+            this.applyMultiLegTransfer(fromAccount, legs);
+        } catch (AmountTransactionException | AccountNotFoundException | NotSufficientBalanceException e) {
+            accountsMetrics.transferRejected(e);
+            throw e;
+        } finally {
+            accountsMetrics.recordTransfer(startNanos);
+        }
+    }
+
+    private void applyMultiLegTransfer(final String fromAccount, final List<TransferLeg> legs) {
+        final Account debitedAccount = getAccount(fromAccount);
+        // Payees in leg order with the sum of their legs, a payee listed twice is credited once
+        final Map<String, Account> creditedAccounts = new LinkedHashMap<>();
+        final Map<String, BigDecimal> credits = new HashMap<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (TransferLeg leg : legs) {
+            Account creditedAccount = creditedAccounts.get(leg.getAccountTo());
+            if (creditedAccount == null) {
+                creditedAccount = getAccount(leg.getAccountTo());
+            }
+            final TransferStatus rejection = accountTransferValidator.check(debitedAccount, creditedAccount, leg.getTransferAmount());
+            if (rejection != null) {
+                throw TransferRejections.of(rejection);
+            }
+            creditedAccounts.put(leg.getAccountTo(), creditedAccount);
+            credits.merge(leg.getAccountTo(), leg.getTransferAmount(), BigDecimal::add);
+            total = total.add(leg.getTransferAmount());
+        }
+
+        final long journalPosition = atomicBalanceRepository != null
+                ? this.atomicMultiLegTransfer(debitedAccount, creditedAccounts, credits, total, legs)
+                : this.lockedMultiLegTransfer(debitedAccount, creditedAccounts, credits, total, legs);
+        transferJournal.awaitDurable(journalPosition);
+
+        notificationService.notifyAboutTransfer(debitedAccount, "The amount of " + total + " for transfer request to "
+                + creditedAccounts.size() + " accounts is completed.");
+        creditedAccounts.forEach((accountId, creditedAccount) -> notificationService.notifyAboutTransfer(creditedAccount,
+                "The amount of " + credits.get(accountId) + " to account with the account with ID + " + fromAccount + " is completed."));
+    }
+
+    private long lockedMultiLegTransfer(final Account debitedAccount, final Map<String, Account> creditedAccounts,
+                                        final Map<String, BigDecimal> credits, final BigDecimal total,
+                                        final List<TransferLeg> legs) {
+        final List<String> accountIds = new ArrayList<>(creditedAccounts.size() + 1);
+        accountIds.add(debitedAccount.getAccountId());
+        accountIds.addAll(creditedAccounts.keySet());
+
+        final long epoch = balanceSnapshots.enter();
+        final long lockStartNanos = System.nanoTime();
+        final int[] lockedStripes = accountLockManager.lockAll(accountIds);
+        accountsMetrics.recordLockWait(lockStartNanos);
+        try {
+            if (debitedAccount.getBalance().compareTo(total) < 0) {
+                throw TransferRejections.NOT_SUFFICIENT_BALANCE;
+            }
+            final long journalPosition = transferJournal.appendTransfers(legTransfers(debitedAccount.getAccountId(), legs));
+            balanceSnapshots.record(epoch, debitedAccount.getAccountId(), debitedAccount.getBalance());
+            creditedAccounts.forEach((accountId, creditedAccount) ->
+                    balanceSnapshots.record(epoch, accountId, creditedAccount.getBalance()));
+            this.requestToDebit(debitedAccount, total);
+            creditedAccounts.forEach((accountId, creditedAccount) -> this.requestToCredit(creditedAccount, credits.get(accountId)));
+            this.recordInLedger(legTransfers(debitedAccount.getAccountId(), legs));
+            return journalPosition;
+        } finally {
+            accountLockManager.unlockAll(lockedStripes);
+            balanceSnapshots.exit(epoch);
+        }
     }
 
-    Account requestToDebit(String accountId, BigDecimal amount) throws AmountTransactionException {
-        final Account account = getAccount(accountId);
+    // One CAS debit of the total, the journal records of the legs, then the credits. Every amount is converted first,
+    // so a leg with too many decimal places is rejected before anything moves. The notified balances are read back
+    // from the store once the credits are applied. The ledger hold of every account keeps postings in balance order.
+    private long atomicMultiLegTransfer(final Account debitedAccount, final Map<String, Account> creditedAccounts,
+                                        final Map<String, BigDecimal> credits, final BigDecimal total,
+                                        final List<TransferLeg> legs) {
+        final Map<String, Long> minorCredits = new HashMap<>(credits.size() * 2);
+        for (Map.Entry<String, BigDecimal> credit : credits.entrySet()) {
+            minorCredits.put(credit.getKey(), MoneyUnits.toMinorUnits(credit.getValue()));
+        }
+        final List<AccountAmountTransfer> transfers = legTransfers(debitedAccount.getAccountId(), legs);
+        final long debit = MoneyUnits.toMinorUnits(total);
+        try (TransferLedger.Hold ignored = transferLedger.hold(heldAccounts(transfers))) {
+            final long journalPosition;
+            final long epoch = balanceSnapshots.enter();
+            try {
+                if (balanceSnapshots.isRecording(epoch)) {
+                    this.recordBalance(epoch, debitedAccount.getAccountId());
+                    minorCredits.keySet().forEach(accountId -> this.recordBalance(epoch, accountId));
+                }
+                if (!atomicBalanceRepository.tryDebit(debitedAccount.getAccountId(), debit)) {
+                    throw TransferRejections.NOT_SUFFICIENT_BALANCE;
+                }
+                try {
+                    journalPosition = transferJournal.appendTransfers(transfers);
+                } catch (RuntimeException e) {
+                    atomicBalanceRepository.credit(debitedAccount.getAccountId(), debit);
+                    throw e;
+                }
+                minorCredits.forEach(atomicBalanceRepository::credit);
+            } finally {
+                balanceSnapshots.exit(epoch);
+            }
+
+            this.readBalance(debitedAccount);
+            creditedAccounts.values().forEach(this::readBalance);
+            this.recordInLedger(transfers);
+            return journalPosition;
+        }
+    }
+
+    private static List<AccountAmountTransfer> legTransfers(final String fromAccount, final List<TransferLeg> legs) {
+        final List<AccountAmountTransfer> transfers = new ArrayList<>(legs.size());
+        for (TransferLeg leg : legs) {
+            transfers.add(new AccountAmountTransfer(fromAccount, leg.getAccountTo(), leg.getTransferAmount()));
+        }
+        return transfers;
+    }
+
+    /**
+     * Applies a settlement batch. Every account is looked up and locked once for the whole batch, transfers are then
+     * checked in order against running balances and each touched account gets a single balance update at the end.
+     * Results are returned in request order.
+     */
+    public List<TransferStatus> batchTransfer(final List<AccountAmountTransfer> transfers, final BatchTransferMode mode) {
+        final TransferStatus[] statuses = new TransferStatus[transfers.size()];
+        final Map<String, Account> accounts = new HashMap<>();
+        final long journalPosition = atomicBalanceRepository != null
+                ? this.atomicBatchTransfer(transfers, mode, statuses, accounts)
+                : this.lockedBatchTransfer(transfers, mode, statuses, accounts);
+        transferJournal.awaitDurable(journalPosition);
+
+        for (int i = 0; i < statuses.length; i++) {
+            if (statuses[i] == TransferStatus.COMPLETED) {
+                final AccountAmountTransfer transfer = transfers.get(i);
+                this.notifyAboutTransfer(accounts.get(transfer.getAccountFrom()), accounts.get(transfer.getAccountTo()),
+                        transfer.getTransferAmount());
+            } else {
+                accountsMetrics.transferRejected(statuses[i]);
+            }
+        }
+        return Arrays.asList(statuses);
+    }
+
+    private long lockedBatchTransfer(final List<AccountAmountTransfer> transfers, final BatchTransferMode mode,
+                                     final TransferStatus[] statuses, final Map<String, Account> accounts) {
+        boolean rejected = false;
+        for (int i = 0; i < statuses.length; i++) {
+            final AccountAmountTransfer transfer = transfers.get(i);
+            if (transfer.getTransferAmount().signum() < 0) {
+                statuses[i] = TransferStatus.INVALID_AMOUNT;
+            } else if (resolve(accounts, transfer.getAccountFrom()) == null || resolve(accounts, transfer.getAccountTo()) == null) {
+                statuses[i] = TransferStatus.ACCOUNT_NOT_EXISTS;
+            }
+            rejected |= statuses[i] != null;
+        }
+        if (rejected && mode == BatchTransferMode.ALL_OR_NOTHING) {
+            markNotApplied(statuses);
+            return 0;
+        }
+
+        final long epoch = balanceSnapshots.enter();
+        final long lockStartNanos = System.nanoTime();
+        final int[] lockedStripes = accountLockManager.lockAll(accounts.keySet());
+        accountsMetrics.recordLockWait(lockStartNanos);
+        try {
+            final Map<String, BigDecimal> balances = new HashMap<>(accounts.size() * 2);
+            for (int i = 0; i < statuses.length; i++) {
+                if (statuses[i] != null) {
+                    continue;
+                }
+                final AccountAmountTransfer transfer = transfers.get(i);
+                final BigDecimal fromBalance = balances.computeIfAbsent(transfer.getAccountFrom(), id -> accounts.get(id).getBalance());
+                if (fromBalance.compareTo(transfer.getTransferAmount()) < 0) {
+                    statuses[i] = TransferStatus.INSUFFICIENT_BALANCE;
+                    rejected = true;
+                    continue;
+                }
+                balances.put(transfer.getAccountFrom(), fromBalance.subtract(transfer.getTransferAmount()));
+                final BigDecimal toBalance = balances.computeIfAbsent(transfer.getAccountTo(), id -> accounts.get(id).getBalance());
+                balances.put(transfer.getAccountTo(), toBalance.add(transfer.getTransferAmount()));
+                statuses[i] = TransferStatus.COMPLETED;
+            }
+
+            if (rejected && mode == BatchTransferMode.ALL_OR_NOTHING) {
+                markNotApplied(statuses);
+                return 0;
+            }
+            final List<AccountAmountTransfer> completed = completedTransfers(transfers, statuses);
+            final long journalPosition = transferJournal.appendTransfers(completed);
+            balances.forEach((accountId, balance) -> {
+                final Account account = accounts.get(accountId);
+                balanceSnapshots.record(epoch, accountId, account.getBalance());
+                account.setBalance(balance);
+            });
+            this.recordInLedger(completed);
+            return journalPosition;
+        } finally {
+            accountLockManager.unlockAll(lockedStripes);
+            balanceSnapshots.exit(epoch);
+        }
+    }
+
+    // Best effort applies each transfer by itself. All-or-nothing checks the items in order against running balances
+    // like the locked path: every account is debited the deepest point its running balance reaches in the batch,
+    // what was taken is credited back if one of them is short, and the rest of each account's change is credited
+    // once all debits succeeded. Other transfers can see the debits before those credits, never the batch's credits
+    // without its debits. The ledger hold of the batch's accounts keeps postings in balance order.
+    private long atomicBatchTransfer(final List<AccountAmountTransfer> transfers, final BatchTransferMode mode,
+                                     final TransferStatus[] statuses, final Map<String, Account> accounts) {
+        final long[] amounts = new long[statuses.length];
+        boolean rejected = false;
+        for (int i = 0; i < statuses.length; i++) {
+            final AccountAmountTransfer transfer = transfers.get(i);
+            if (transfer.getTransferAmount().signum() < 0) {
+                statuses[i] = TransferStatus.INVALID_AMOUNT;
+            } else if (!atomicBalanceRepository.containsAccount(transfer.getAccountFrom())
+                    || !atomicBalanceRepository.containsAccount(transfer.getAccountTo())) {
+                statuses[i] = TransferStatus.ACCOUNT_NOT_EXISTS;
+            } else {
+                try {
+                    amounts[i] = MoneyUnits.toMinorUnits(transfer.getTransferAmount());
+                } catch (AmountTransactionException e) {
+                    statuses[i] = TransferStatus.INVALID_AMOUNT_PRECISION;
+                }
+            }
+            rejected |= statuses[i] != null;
+        }
+
+        try (TransferLedger.Hold ignored = transferLedger.hold(heldAccounts(transfers, statuses))) {
+            final long journalPosition;
+            final long epoch = balanceSnapshots.enter();
+            try {
+                if (balanceSnapshots.isRecording(epoch)) {
+                    for (int i = 0; i < statuses.length; i++) {
+                        if (statuses[i] == null) {
+                            this.recordBalance(epoch, transfers.get(i).getAccountFrom());
+                            this.recordBalance(epoch, transfers.get(i).getAccountTo());
+                        }
+                    }
+                }
+                journalPosition = this.applyAtomicBatch(transfers, mode, statuses, amounts, rejected);
+            } finally {
+                balanceSnapshots.exit(epoch);
+            }
+
+            for (int i = 0; i < statuses.length; i++) {
+                if (statuses[i] == TransferStatus.COMPLETED) {
+                    resolve(accounts, transfers.get(i).getAccountFrom());
+                    resolve(accounts, transfers.get(i).getAccountTo());
+                }
+            }
+            this.recordInLedger(completedTransfers(transfers, statuses));
+            return journalPosition;
+        }
+    }
+
+    // Returns the journal position to wait for. All-or-nothing journals the batch between its debits and its credits,
+    // best effort after its transfers, which are reversed when the append fails.
+    private long applyAtomicBatch(final List<AccountAmountTransfer> transfers, final BatchTransferMode mode,
+                                  final TransferStatus[] statuses, final long[] amounts, final boolean rejected) {
+        if (mode == BatchTransferMode.BEST_EFFORT) {
+            for (int i = 0; i < statuses.length; i++) {
+                if (statuses[i] == null) {
+                    final AccountAmountTransfer transfer = transfers.get(i);
+                    statuses[i] = atomicBalanceRepository.transfer(transfer.getAccountFrom(), transfer.getAccountTo(), amounts[i])
+                            ? TransferStatus.COMPLETED : TransferStatus.INSUFFICIENT_BALANCE;
+                }
+            }
+            try {
+                return transferJournal.appendTransfers(completedTransfers(transfers, statuses));
+            } catch (RuntimeException e) {
+                for (int i = 0; i < statuses.length; i++) {
+                    if (statuses[i] == TransferStatus.COMPLETED) {
+                        this.reverseAtomicTransfer(transfers.get(i).getAccountFrom(), transfers.get(i).getAccountTo(), amounts[i]);
+                    }
+                }
+                throw e;
+            }
+        } else if (rejected) {
+            markNotApplied(statuses);
+            return 0;
+        } else {
+            // Sorted, so concurrent batches take their debits in the same order
+            final Map<String, RunningBalance> runningBalances = new TreeMap<>();
+            for (int i = 0; i < statuses.length; i++) {
+                final AccountAmountTransfer transfer = transfers.get(i);
+                runningBalances.computeIfAbsent(transfer.getAccountFrom(), id -> new RunningBalance()).add(-amounts[i], i);
+                runningBalances.computeIfAbsent(transfer.getAccountTo(), id -> new RunningBalance()).add(amounts[i], i);
+            }
+            final String shortAccount = this.debitLowestPoints(runningBalances);
+            if (shortAccount != null) {
+                Arrays.fill(statuses, TransferStatus.NOT_APPLIED);
+                statuses[this.firstShortItem(transfers, amounts, shortAccount, runningBalances.get(shortAccount))] =
+                        TransferStatus.INSUFFICIENT_BALANCE;
+                return 0;
+            }
+            final long journalPosition;
+            try {
+                journalPosition = transferJournal.appendTransfers(transfers);
+            } catch (RuntimeException e) {
+                runningBalances.forEach((accountId, running) -> {
+                    if (running.lowest < 0) {
+                        atomicBalanceRepository.credit(accountId, -running.lowest);
+                    }
+                });
+                throw e;
+            }
+            Arrays.fill(statuses, TransferStatus.COMPLETED);
+            runningBalances.forEach((accountId, running) -> {
+                if (running.amount > running.lowest) {
+                    atomicBalanceRepository.credit(accountId, running.amount - running.lowest);
+                }
+            });
+            return journalPosition;
+        }
+    }
+
+    // The item the short account cannot pay for at its current balance, or the one where its running balance is lowest
+    // when a concurrent credit has made up for it since
+    private int firstShortItem(final List<AccountAmountTransfer> transfers, final long[] amounts, final String shortAccount,
+                               final RunningBalance running) {
+        long balance = atomicBalanceRepository.getBalance(shortAccount);
+        for (int i = 0; i < amounts.length; i++) {
+            final AccountAmountTransfer transfer = transfers.get(i);
+            if (shortAccount.equals(transfer.getAccountFrom())) {
+                if (balance < amounts[i]) {
+                    return i;
+                }
+                balance -= amounts[i];
+            }
+            if (shortAccount.equals(transfer.getAccountTo())) {
+                balance += amounts[i];
+            }
+        }
+        return running.lowestItem;
+    }
+
+    private static List<AccountAmountTransfer> completedTransfers(final List<AccountAmountTransfer> transfers,
+                                                                  final TransferStatus[] statuses) {
+        final List<AccountAmountTransfer> completed = new ArrayList<>(statuses.length);
+        for (int i = 0; i < statuses.length; i++) {
+            if (statuses[i] == TransferStatus.COMPLETED) {
+                completed.add(transfers.get(i));
+            }
+        }
+        return completed;
+    }
+
+    private static List<String> heldAccounts(final List<AccountAmountTransfer> transfers) {
+        return heldAccounts(transfers, new TransferStatus[transfers.size()]);
+    }
+
+    // Accounts of the transfers not rejected up front, whose ledger place a lock-free change holds while it runs
+    private static List<String> heldAccounts(final List<AccountAmountTransfer> transfers, final TransferStatus[] statuses) {
+        final List<String> accountIds = new ArrayList<>(transfers.size() * 2);
+        for (int i = 0; i < statuses.length; i++) {
+            if (statuses[i] == null) {
+                accountIds.add(transfers.get(i).getAccountFrom());
+                accountIds.add(transfers.get(i).getAccountTo());
+            }
+        }
+        return accountIds;
+    }
+
+    private void recordInLedger(final List<AccountAmountTransfer> transfers) {
+        for (AccountAmountTransfer transfer : transfers) {
+            transferLedger.recordTransfer(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getTransferAmount());
+        }
+    }
+
+    // Returns the first account without enough balance after undoing the debits already taken, null when all succeeded
+    private String debitLowestPoints(final Map<String, RunningBalance> runningBalances) {
+        final Map<String, Long> debited = new HashMap<>();
+        for (Map.Entry<String, RunningBalance> running : runningBalances.entrySet()) {
+            final long lowest = running.getValue().lowest;
+            if (lowest == 0) {
+                continue;
+            }
+            if (!atomicBalanceRepository.tryDebit(running.getKey(), -lowest)) {
+                debited.forEach(atomicBalanceRepository::credit);
+                return running.getKey();
+            }
+            debited.put(running.getKey(), -lowest);
+        }
+        return null;
+    }
+
+    private Account resolve(final Map<String, Account> accounts, final String accountId) {
+        Account account = accounts.get(accountId);
         if (account == null) {
-            throw new AmountTransactionException(ACCOUNT_NOT_EXISTS);
+            account = getAccount(accountId);
+            if (account != null) {
+                accounts.put(accountId, account);
+            }
+        }
+        return account;
+    }
+
+    private static void markNotApplied(final TransferStatus[] statuses) {
+        for (int i = 0; i < statuses.length; i++) {
+            if (statuses[i] == null || statuses[i] == TransferStatus.COMPLETED) {
+                statuses[i] = TransferStatus.NOT_APPLIED;
+            }
+        }
+    }
+
+    private void notifyAboutTransfer(final Account fromAccount, final Account toAccount, final BigDecimal transferAmount) {
+        notificationService.notifyAboutTransfer(fromAccount, "The amount of " + transferAmount + " for transfer request account number: " + toAccount.getAccountId() + " is completed.");
+        notificationService.notifyAboutTransfer(toAccount, "The amount of " + transferAmount + " to account with the account with ID + " + fromAccount.getAccountId() + " is completed.");
+    }
+
+    // Lock-free path - the amount is converted to minor units once, the debit is a single CAS on the balance. The
+    // store checks the balance, so the transfer is journaled after it and reversed when the append fails. The ledger
+    // hold keeps the postings of both accounts in the order their balances change; it is taken before the snapshot
+    // epoch is entered, so a change inside an epoch never waits for one.
+    private long atomicAmountTransfer(final String fromAccountId, final String toAccountId,
+                                      final BigDecimal transferAmount) throws AmountTransactionException {
+        final long amount = MoneyUnits.toMinorUnits(transferAmount);
+        try (TransferLedger.Hold ignored = transferLedger.hold(fromAccountId, toAccountId)) {
+            final long journalPosition;
+            final long epoch = balanceSnapshots.enter();
+            try {
+                if (balanceSnapshots.isRecording(epoch)) {
+                    this.recordBalance(epoch, fromAccountId);
+                    this.recordBalance(epoch, toAccountId);
+                }
+                if (!atomicBalanceRepository.transfer(fromAccountId, toAccountId, amount)) {
+                    throw TransferRejections.NOT_SUFFICIENT_BALANCE;
+                }
+                try {
+                    journalPosition = transferJournal.appendTransfer(fromAccountId, toAccountId, transferAmount);
+                } catch (RuntimeException e) {
+                    this.reverseAtomicTransfer(fromAccountId, toAccountId, amount);
+                    throw e;
+                }
+            } finally {
+                balanceSnapshots.exit(epoch);
+            }
+            transferLedger.recordTransfer(fromAccountId, toAccountId, transferAmount);
+            return journalPosition;
+        }
+    }
+
+    // A lock-free store's balance after the transfer committed, the copy read before it is stale by then and may
+    // miss concurrent transfers too
+    private void readBalance(final Account account) {
+        account.setBalance(MoneyUnits.toBigDecimal(atomicBalanceRepository.getBalance(account.getAccountId())));
+    }
+
+    private Account currentAccount(final String accountId) {
+        return new Account(accountId, MoneyUnits.toBigDecimal(atomicBalanceRepository.getBalance(accountId)));
+    }
+
+    // Undoes a lock-free transfer the journal could not take, with plain additions like replay: the credited account
+    // may have spent the amount already, so it is taken back without a balance check
+    private void reverseAtomicTransfer(final String fromAccount, final String toAccount, final long amount) {
+        atomicBalanceRepository.credit(toAccount, -amount);
+        atomicBalanceRepository.credit(fromAccount, amount);
+    }
+
+    // Pre-image of a lock-free store's balance for an open snapshot, read from the store before the change
+    private void recordBalance(final long epoch, final String accountId) {
+        balanceSnapshots.record(epoch, accountId, MoneyUnits.toBigDecimal(atomicBalanceRepository.getBalance(accountId)));
+    }
+
+    // Called under the account lock, before the account is created
+    private void recordCreated(final long epoch, final String accountId) {
+        if (balanceSnapshots.isRecording(epoch) && accountsRepository.getAccount(accountId) == null) {
+            balanceSnapshots.recordCreated(epoch, accountId);
+        }
+    }
+
+    // Called under the account lock with the account the transfer looked up
+    Account requestToDebit(Account account, BigDecimal amount) throws AmountTransactionException {
+        if (account == null) {
+            throw TransferRejections.ACCOUNT_NOT_FOUND;
         }
         if (account.getBalance().compareTo(amount) < 0) { // -1 check
-            throw new AmountTransactionException(INSUFFICIENT_BALANCE);
+            throw TransferRejections.NOT_SUFFICIENT_BALANCE;
         }
         BigDecimal bal = account.getBalance().subtract(amount);
         account.setBalance(bal);
         return account;
     }
 
-    Account requestToCredit(String accountId, BigDecimal amount) throws AmountTransactionException {
+    Account requestToCredit(Account account, BigDecimal amount) throws AmountTransactionException {
 
-        final Account account = getAccount(accountId);
         if (account == null) {
-            throw new AmountTransactionException(ACCOUNT_NOT_EXISTS);
+            throw TransferRejections.ACCOUNT_NOT_FOUND;
         }
         BigDecimal bal = account.getBalance().add(amount);
         account.setBalance(bal);
         return account;
     }
 
+    // One account's change over an all-or-nothing batch in minor units, and the lowest it reaches on the way
+    private static final class RunningBalance {
+
+        long amount;
+
+        long lowest;
+
+        int lowestItem;
+
+        void add(long change, int item) {
+            amount += change;
+            if (amount < lowest) {
+                lowest = amount;
+                lowestItem = item;
+            }
+        }
+    }
+
 }
@@ -0,0 +1,46 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.service.AsyncNotificationService.OverflowPolicy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.function.ToDoubleFunction;
+
+@Configuration
+@ConditionalOnProperty(name = "notification.async.enabled", havingValue = "true")
+public class AsyncNotificationConfig {
+
+    @Bean
+    @Primary
+    public AsyncNotificationService asyncNotificationService(
+            EmailNotificationService emailNotificationService,
+            @Value("${notification.async.capacity:65536}") int capacity,
+            @Value("${notification.async.workers:2}") int workers,
+            @Value("${notification.async.batch-size:256}") int batchSize,
+            @Value("${notification.async.overflow-policy:CALLER_RUNS}") OverflowPolicy overflowPolicy,
+            @Value("${notification.async.block-timeout-ms:100}") long blockTimeoutMillis,
+            AccountsMetrics accountsMetrics, MeterRegistry meterRegistry) {
+        final AsyncNotificationService service = new AsyncNotificationService(emailNotificationService, capacity, workers,
+                batchSize, overflowPolicy, blockTimeoutMillis, accountsMetrics);
+        Gauge.builder("notifications.queue.depth", service, AsyncNotificationService::getQueueDepth)
+                .register(meterRegistry);
+        registerCounter("delivered", service, AsyncNotificationService::getDeliveredCount, meterRegistry);
+        registerCounter("dropped", service, AsyncNotificationService::getDroppedCount, meterRegistry);
+        registerCounter("spilled", service, AsyncNotificationService::getSpilledCount, meterRegistry);
+        registerCounter("failed", service, AsyncNotificationService::getFailedCount, meterRegistry);
+        return service;
+    }
+
+    private static void registerCounter(String outcome, AsyncNotificationService service,
+                                        ToDoubleFunction<AsyncNotificationService> count, MeterRegistry meterRegistry) {
+        FunctionCounter.builder("notifications", service, count)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,200 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.domain.Account;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorator that takes notifications off the transfer thread. Notifications are queued in a
+ * bounded ring buffer and delivered to the wrapped service in batches by a small worker pool.
+ * When the buffer is full the {@link OverflowPolicy} decides between bounded backpressure,
+ * dropping and spilling the delivery back onto the caller. The account is copied when the
+ * notification is queued, so it carries the balance right after the transfer and not whatever
+ * the account holds by the time it is delivered. After {@link #destroy()} notifications are
+ * delivered on the calling thread.
+ */
+@Slf4j
+public class AsyncNotificationService implements NotificationService, DisposableBean {
+
+    public enum OverflowPolicy {
+        // wait up to the block timeout for free space in the buffer, then discard and count it
+        BLOCK,
+        // discard the notification and count it
+        DROP,
+        // deliver synchronously on the calling thread
+        CALLER_RUNS
+    }
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final NotificationService delegate;
+
+    private final BlockingQueue<PendingNotification> queue;
+
+    private final int batchSize;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final long blockTimeoutMillis;
+
+    private final ExecutorService workers;
+
+    private final AccountsMetrics accountsMetrics;
+
+    private volatile boolean running = true;
+
+    private final LongAdder delivered = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder spilled = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    public AsyncNotificationService(NotificationService delegate, int capacity, int workerCount, int batchSize,
+                                    OverflowPolicy overflowPolicy, long blockTimeoutMillis,
+                                    AccountsMetrics accountsMetrics) {
+        this.delegate = delegate;
+        this.accountsMetrics = accountsMetrics;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+
+        final AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "notification-dispatcher-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            this.workers.execute(this::drainLoop);
+        }
+    }
+
+    @Override
+    public void notifyAboutTransfer(Account account, String transferDescription) {
+        final PendingNotification notification = new PendingNotification(
+                new Account(account.getAccountId(), account.getBalance()), transferDescription);
+        if (!running) {
+            deliver(notification);
+            return;
+        }
+        if (queue.offer(notification)) {
+            // the workers may have stopped before the offer, take it back unless one of them got it
+            if (!running && queue.remove(notification)) {
+                deliver(notification);
+            }
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    if (!queue.offer(notification, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        dropped.increment();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                }
+                break;
+            case DROP:
+                dropped.increment();
+                break;
+            default:
+                spilled.increment();
+                deliver(notification);
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getRemainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getSpilledCount() {
+        return spilled.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    // Queued notifications are still delivered, later ones go out on the calling thread
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        workers.shutdown();
+        if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("Notification dispatcher stopped with {} notifications pending", queue.size());
+            workers.shutdownNow();
+        }
+    }
+
+    private void drainLoop() {
+        final List<PendingNotification> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                final PendingNotification first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (PendingNotification notification : batch) {
+                    deliver(notification);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deliver(PendingNotification notification) {
+        accountsMetrics.recordNotificationQueueTime(notification.enqueuedNanos);
+        try {
+            delegate.notifyAboutTransfer(notification.account, notification.transferDescription);
+            delivered.increment();
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.error("Failed to send notification to owner of {}", notification.account.getAccountId(), e);
+        }
+    }
+
+    private static final class PendingNotification {
+
+        private final Account account;
+
+        private final String transferDescription;
+
+        private final long enqueuedNanos = System.nanoTime();
+
+        private PendingNotification(Account account, String transferDescription) {
+            this.account = account;
+            this.transferDescription = transferDescription;
+        }
+    }
+}
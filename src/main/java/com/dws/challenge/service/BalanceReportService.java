@@ -0,0 +1,113 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.BalanceReport;
+import com.dws.challenge.repository.AccountsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reconciliation and top-N reports over a {@link BalanceSnapshots} view of every account. The accounts are scanned
+ * as the repository's parallel stream inside a dedicated fork-join pool, so reports neither take the common pool
+ * from other work nor lock accounts; each fork-join task keeps its own count, total and top-N heap and the tasks'
+ * results are merged on the way back up.
+ */
+@Slf4j
+@Service
+public class BalanceReportService implements DisposableBean {
+
+    // Highest balance first, ties by id so the report is deterministic
+    private static final Comparator<Account> BY_BALANCE_DESCENDING = Comparator.comparing(Account::getBalance)
+            .reversed().thenComparing(Account::getAccountId);
+
+    private final AccountsRepository accountsRepository;
+
+    private final BalanceSnapshots balanceSnapshots;
+
+    private final ForkJoinPool scanPool;
+
+    // 0 parallelism means one thread per available processor
+    @Autowired
+    public BalanceReportService(AccountsRepository accountsRepository, BalanceSnapshots balanceSnapshots,
+                                @Value("${accounts.reports.parallelism:0}") int parallelism) {
+        this.accountsRepository = accountsRepository;
+        this.balanceSnapshots = balanceSnapshots;
+        this.scanPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    public BalanceReport balanceReport(final int topLimit) {
+        final long startNanos = System.nanoTime();
+        try (BalanceSnapshots.Snapshot snapshot = balanceSnapshots.open()) {
+            final Totals totals = scanPool.submit(() -> accountsRepository.streamAccounts()
+                    .collect(() -> new Totals(topLimit), (partial, account) -> partial.add(snapshot, account), Totals::merge))
+                    .join();
+            log.info("Balance report of {} accounts in {}us, {} changed during the scan", totals.accounts,
+                    (System.nanoTime() - startNanos) / 1000, snapshot.getPreImageCount());
+            return new BalanceReport(totals.accounts, totals.totalBalance, totals.topBalances());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scanPool.shutdownNow();
+    }
+
+    // Partial result of one fork-join task, the top heap holds the task's topLimit largest balances lowest first
+    private static final class Totals {
+
+        private final int topLimit;
+
+        private final PriorityQueue<Account> top;
+
+        private long accounts;
+
+        private BigDecimal totalBalance = BigDecimal.ZERO;
+
+        Totals(int topLimit) {
+            this.topLimit = topLimit;
+            this.top = new PriorityQueue<>(Math.min(topLimit, 1024) + 1, BY_BALANCE_DESCENDING.reversed());
+        }
+
+        void add(BalanceSnapshots.Snapshot snapshot, Account account) {
+            final BigDecimal balance = snapshot.balanceOf(account);
+            if (balance == null) {
+                return;
+            }
+            accounts++;
+            totalBalance = totalBalance.add(balance);
+            if (topLimit > 0 && (top.size() < topLimit || balance.compareTo(top.peek().getBalance()) >= 0)) {
+                // A copy, a live account keeps changing after the snapshot
+                offer(new Account(account.getAccountId(), balance));
+            }
+        }
+
+        void merge(Totals other) {
+            accounts += other.accounts;
+            totalBalance = totalBalance.add(other.totalBalance);
+            other.top.forEach(this::offer);
+        }
+
+        private void offer(Account account) {
+            top.add(account);
+            if (top.size() > topLimit) {
+                top.poll();
+            }
+        }
+
+        List<Account> topBalances() {
+            final List<Account> sorted = new ArrayList<>(top);
+            sorted.sort(BY_BALANCE_DESCENDING);
+            return sorted;
+        }
+    }
+}
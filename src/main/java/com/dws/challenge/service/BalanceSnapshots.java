@@ -0,0 +1,161 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.domain.Account;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Point-in-time views of all balances for reports, taken while transfers keep running. Every balance change runs
+ * inside an epoch ({@link #enter}/{@link #exit}). Opening a snapshot starts a new epoch and waits until the changes
+ * of the previous one have finished; that moment is the snapshot. Changes of the new epoch record each account's
+ * balance as it was before they touch it (its pre-image, only the first one counts) and accounts they create as
+ * not existing. A scan then reads the live balance of every account and takes the pre-image instead where there is
+ * one, so every transfer is either wholly in the view or wholly after it and the total is exact.
+ * <p>
+ * Writers only wait while a snapshot opens, for as long as the balance updates already running take; the scan
+ * itself never blocks them. Pre-images are kept until the snapshot is closed, at most one per account. One
+ * snapshot is open at a time, further ones wait for it to close.
+ */
+@Component
+public class BalanceSnapshots {
+
+    // Pre-image of an account created after the snapshot, compared by identity
+    private static final BigDecimal CREATED_AFTER = new BigDecimal("-1");
+
+    // Writers inside an epoch, by epoch parity
+    private final LongAdder[] active = {new LongAdder(), new LongAdder()};
+
+    private final Semaphore openSnapshot = new Semaphore(1);
+
+    private volatile long epoch;
+
+    private volatile Snapshot current;
+
+    /**
+     * Enters the current epoch before a balance change, the returned epoch is passed to {@link #record} and
+     * {@link #exit}. Call it before taking account locks: while a snapshot opens, writers of the new epoch wait
+     * here for the writers of the previous one, which may hold them.
+     */
+    public long enter() {
+        while (true) {
+            final long entered = epoch;
+            final LongAdder writers = active[(int) entered & 1];
+            writers.increment();
+            if (epoch != entered) {
+                writers.decrement();
+                continue;
+            }
+            final Snapshot snapshot = current;
+            if (snapshot != null && entered >= snapshot.epoch) {
+                while (!snapshot.open) {
+                    Thread.yield();
+                }
+            }
+            return entered;
+        }
+    }
+
+    public void exit(long entered) {
+        active[(int) entered & 1].decrement();
+    }
+
+    // True when changes in this epoch have to record pre-images, for stores where reading the balance costs a lookup
+    public boolean isRecording(long entered) {
+        final Snapshot snapshot = current;
+        return snapshot != null && entered >= snapshot.epoch;
+    }
+
+    // Called before the account's balance changes, with the balance it still has
+    public void record(long entered, String accountId, BigDecimal balance) {
+        final Snapshot snapshot = current;
+        if (snapshot != null && entered >= snapshot.epoch) {
+            snapshot.preImages.putIfAbsent(accountId, balance);
+        }
+    }
+
+    // Called before a new account becomes visible, the snapshot will not count it
+    public void recordCreated(long entered, String accountId) {
+        record(entered, accountId, CREATED_AFTER);
+    }
+
+    /**
+     * Opens a snapshot of the balances as they are once the changes running now have finished. The caller scans the
+     * accounts through {@link Snapshot#balanceOf} and closes it.
+     */
+    public Snapshot open() {
+        return open(() -> 0);
+    }
+
+    /**
+     * Like {@link #open()}, and reads {@code cut} at the moment of the snapshot, while no balance change is running:
+     * for changes journaled inside their epoch the journal position then is exactly the one the snapshot is at.
+     */
+    public Snapshot open(LongSupplier cut) {
+        openSnapshot.acquireUninterruptibly();
+        final long previous = epoch;
+        final Snapshot snapshot = new Snapshot(previous + 1);
+        current = snapshot;
+        epoch = previous + 1;
+        final LongAdder previousWriters = active[(int) previous & 1];
+        while (previousWriters.sum() != 0) {
+            Thread.yield();
+        }
+        snapshot.cutPosition = cut.getAsLong();
+        snapshot.open = true;
+        return snapshot;
+    }
+
+    public final class Snapshot implements AutoCloseable {
+
+        private final long epoch;
+
+        private final Map<String, BigDecimal> preImages = new ConcurrentHashMap<>();
+
+        // Published by open
+        private long cutPosition;
+
+        private volatile boolean open;
+
+        private Snapshot(long epoch) {
+            this.epoch = epoch;
+        }
+
+        /**
+         * The account's balance in this snapshot, null for an account created after it. The account must have been
+         * read from the repository after the snapshot was opened.
+         */
+        public BigDecimal balanceOf(Account account) {
+            // The live balance is read first: a change that moved it had recorded its pre-image already
+            final BigDecimal balance = account.getBalance();
+            final BigDecimal preImage = preImages.get(account.getAccountId());
+            if (preImage == null) {
+                return balance;
+            }
+            return preImage == CREATED_AFTER ? null : preImage;
+        }
+
+        // What the cut supplier read when the snapshot was taken, 0 without one
+        public long getCutPosition() {
+            return cutPosition;
+        }
+
+        // Accounts changed since the snapshot was taken
+        public int getPreImageCount() {
+            return preImages.size();
+        }
+
+        @Override
+        public void close() {
+            if (current == this) {
+                current = null;
+                openSnapshot.release();
+            }
+        }
+    }
+}
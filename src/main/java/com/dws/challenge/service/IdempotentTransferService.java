@@ -0,0 +1,96 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.TransferIdMismatchException;
+import com.dws.challenge.exception.TransferIdsExhaustedException;
+import com.dws.challenge.exception.TransferInProgressException;
+import com.dws.challenge.exception.TransferRejections;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+
+import static com.dws.challenge.util.Constants.*;
+
+/**
+ * Transfers carrying a {@code transferId} run at most once within the deduplication window; a retry gets the
+ * outcome of the first attempt, including its rejection. The id is only claimed for the duration of the transfer,
+ * unrelated transfers never wait on each other here.
+ */
+@Service
+public class IdempotentTransferService {
+
+    // The stored outcome is 1 + the ordinal of the transfer's status
+    private static final TransferStatus[] OUTCOMES = TransferStatus.values();
+
+    private static final long FINGERPRINT_SEED = 0x27d4eb2f165667c5L;
+
+    private final AccountsService accountsService;
+
+    private final TransferIdempotencyStore transferIdempotencyStore;
+
+    @Autowired
+    public IdempotentTransferService(AccountsService accountsService, TransferIdempotencyStore transferIdempotencyStore) {
+        this.accountsService = accountsService;
+        this.transferIdempotencyStore = transferIdempotencyStore;
+    }
+
+    public void amountTransfer(final AccountAmountTransfer transfer) {
+        final String transferId = transfer.getTransferId();
+        if (transferId == null) {
+            accountsService.amountTransfer(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getTransferAmount());
+            return;
+        }
+
+        final int previous = transferIdempotencyStore.begin(transferId, fingerprint(transfer));
+        switch (previous) {
+            case TransferIdempotencyStore.ACQUIRED:
+                break;
+            case TransferIdempotencyStore.IN_FLIGHT:
+                throw new TransferInProgressException(TRANSFER_IN_PROGRESS);
+            case TransferIdempotencyStore.MISMATCH:
+                throw new TransferIdMismatchException(TRANSFER_ID_REUSED);
+            case TransferIdempotencyStore.FULL:
+                throw new TransferIdsExhaustedException(TRANSFER_IDS_EXHAUSTED);
+            default:
+                replay(previous);
+                return;
+        }
+
+        TransferStatus status = null;
+        try {
+            accountsService.amountTransfer(transfer.getAccountFrom(), transfer.getAccountTo(), transfer.getTransferAmount());
+            status = TransferStatus.COMPLETED;
+        } catch (RuntimeException e) {
+            // Only the shared rejections are an outcome, see TransferRejections
+            status = TransferRejections.statusOf(e);
+            throw e;
+        } finally {
+            // Anything without a known outcome is retried rather than remembered
+            if (status != null) {
+                transferIdempotencyStore.complete(transferId, status.ordinal() + 1);
+            } else {
+                transferIdempotencyStore.abandon(transferId);
+            }
+        }
+    }
+
+    // Returns for a completed transfer, otherwise throws what the first attempt threw
+    private static void replay(final int outcome) {
+        final TransferStatus status = OUTCOMES[outcome - 1];
+        if (status != TransferStatus.COMPLETED) {
+            throw TransferRejections.of(status);
+        }
+    }
+
+    // Same id with another payload is a client bug, 100 and 100.00 are the same amount. 64 bits, so two different
+    // transfers only share a fingerprint by a 2^-64 chance.
+    private static long fingerprint(final AccountAmountTransfer transfer) {
+        final BigDecimal amount = transfer.getTransferAmount();
+        long fingerprint = TransferIdempotencyStore.hash(transfer.getAccountFrom(), FINGERPRINT_SEED);
+        fingerprint = TransferIdempotencyStore.hash(transfer.getAccountTo(), fingerprint);
+        return TransferIdempotencyStore.hash(amount == null ? null : amount.stripTrailingZeros().toPlainString(),
+                fingerprint);
+    }
+}
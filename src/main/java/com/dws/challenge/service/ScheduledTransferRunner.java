@@ -0,0 +1,137 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.domain.BatchTransferMode;
+import com.dws.challenge.domain.TransferStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executes due scheduled transfers from one background thread, once per wheel tick. Due transfers go through the
+ * normal batch path in best-effort batches, so each batch locks its accounts once and a transfer that cannot be
+ * applied (the balance is short, an account is gone) is rejected without failing the others. Rejected transfers are
+ * counted and logged, they are not retried.
+ * <p>
+ * A batch that throws (the journal append or its durability wait failed) has already left the wheel and may or may
+ * not have been applied, so running it again could pay twice. Its transfers are moved to the failed transfers
+ * instead, kept until an operator takes them with {@link #drainFailed} and counted as failed.
+ */
+@Slf4j
+public class ScheduledTransferRunner implements DisposableBean {
+
+    private final TransferTimingWheel transferTimingWheel;
+
+    private final AccountsService accountsService;
+
+    private final int batchSize;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final Queue<AccountAmountTransfer> failedTransfers = new ConcurrentLinkedQueue<>();
+
+    public ScheduledTransferRunner(TransferTimingWheel transferTimingWheel, AccountsService accountsService,
+                                   int batchSize, long tickMillis) {
+        this.transferTimingWheel = transferTimingWheel;
+        this.accountsService = accountsService;
+        this.batchSize = batchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "scheduled-transfers");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (tickMillis > 0) {
+            this.scheduler.scheduleWithFixedDelay(this::executeScheduledTransfers, tickMillis, tickMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Executes every transfer due at nowMillis and returns how many were executed, rejected ones included
+    public int executeDue(long nowMillis) {
+        final List<AccountAmountTransfer> batch = new ArrayList<>(batchSize);
+        int executed = 0;
+        int polled;
+        do {
+            batch.clear();
+            polled = transferTimingWheel.pollDue(nowMillis, batchSize, batch);
+            if (polled > 0) {
+                final List<TransferStatus> statuses;
+                try {
+                    statuses = accountsService.batchTransfer(batch, BatchTransferMode.BEST_EFFORT);
+                } catch (RuntimeException e) {
+                    failedTransfers.addAll(batch);
+                    failed.add(polled);
+                    log.error("Scheduled transfers failed, {} kept as failed: {}", polled, batch, e);
+                    throw e;
+                }
+                for (TransferStatus status : statuses) {
+                    if (status == TransferStatus.COMPLETED) {
+                        completed.increment();
+                    } else {
+                        rejected.increment();
+                    }
+                }
+                executed += polled;
+            }
+        } while (polled == batchSize);
+        return executed;
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public int getFailedPending() {
+        return failedTransfers.size();
+    }
+
+    // Moves the failed transfers not taken yet into the list, oldest first, and returns how many
+    public int drainFailed(List<AccountAmountTransfer> drained) {
+        int count = 0;
+        AccountAmountTransfer transfer;
+        while ((transfer = failedTransfers.poll()) != null) {
+            drained.add(transfer);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    // An exception would cancel the periodic task, the failed batch is kept by executeDue and the rest stays due
+    private void executeScheduledTransfers() {
+        try {
+            final int executed = executeDue(System.currentTimeMillis());
+            if (executed > 0) {
+                log.debug("Executed {} scheduled transfers", executed);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Scheduled transfers stopped for this tick, {} pending", transferTimingWheel.getPending());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.dws.challenge.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ScheduledTransfersConfig {
+
+    @Bean
+    public TransferTimingWheel transferTimingWheel(
+            @Value("${accounts.scheduled.tick-millis:100}") long tickMillis,
+            @Value("${accounts.scheduled.max-pending:16777216}") int maxPending,
+            MeterRegistry meterRegistry) {
+        final TransferTimingWheel wheel = new TransferTimingWheel(tickMillis, maxPending, System.currentTimeMillis());
+        Gauge.builder("accounts.scheduled.pending", wheel, TransferTimingWheel::getPending)
+                .register(meterRegistry);
+        Gauge.builder("accounts.scheduled.memory", wheel, TransferTimingWheel::getMemoryBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        return wheel;
+    }
+
+    @Bean
+    public ScheduledTransferRunner scheduledTransferRunner(TransferTimingWheel transferTimingWheel,
+                                                           AccountsService accountsService,
+                                                           @Value("${accounts.scheduled.tick-millis:100}") long tickMillis,
+                                                           @Value("${accounts.scheduled.batch-size:1024}") int batchSize,
+                                                           MeterRegistry meterRegistry) {
+        final ScheduledTransferRunner runner = new ScheduledTransferRunner(transferTimingWheel, accountsService,
+                batchSize, tickMillis);
+        FunctionCounter.builder("accounts.scheduled.executed", runner, ScheduledTransferRunner::getCompleted)
+                .tag("outcome", "completed")
+                .register(meterRegistry);
+        FunctionCounter.builder("accounts.scheduled.executed", runner, ScheduledTransferRunner::getRejected)
+                .tag("outcome", "rejected")
+                .register(meterRegistry);
+        FunctionCounter.builder("accounts.scheduled.executed", runner, ScheduledTransferRunner::getFailed)
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        Gauge.builder("accounts.scheduled.failed", runner, ScheduledTransferRunner::getFailedPending)
+                .description("Scheduled transfers of failed batches, not retried")
+                .register(meterRegistry);
+        return runner;
+    }
+}
@@ -0,0 +1,57 @@
+package com.dws.challenge.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TransferAdmissionConfig {
+
+    @Bean
+    public TransferAdmissionControl transferAdmissionControl(
+            @Value("${accounts.admission.enabled:true}") boolean enabled,
+            @Value("${accounts.admission.account.rate-per-second:100000}") int accountRate,
+            @Value("${accounts.admission.account.burst:200000}") int accountBurst,
+            @Value("${accounts.admission.account.max-keys:1048576}") int accountKeys,
+            @Value("${accounts.admission.client.rate-per-second:100000}") int clientRate,
+            @Value("${accounts.admission.client.burst:200000}") int clientBurst,
+            @Value("${accounts.admission.client.max-keys:65536}") int clientKeys,
+            @Value("${accounts.admission.target-latency-ms:50}") long targetLatencyMillis,
+            @Value("${accounts.admission.max-in-flight:4096}") int maxInFlight,
+            MeterRegistry meterRegistry) {
+        if (!enabled) {
+            return TransferAdmissionControl.DISABLED;
+        }
+        final TransferAdmissionControl admissionControl = new TransferAdmissionControl(
+                new TransferAdmissionControl.TokenBuckets(accountKeys, accountRate, accountBurst),
+                new TransferAdmissionControl.TokenBuckets(clientKeys, clientRate, clientBurst),
+                targetLatencyMillis, maxInFlight);
+        rejectedCounter("overloaded", TransferAdmissionControl.OVERLOADED, admissionControl, meterRegistry);
+        rejectedCounter("client_limited", TransferAdmissionControl.CLIENT_LIMITED, admissionControl, meterRegistry);
+        rejectedCounter("account_limited", TransferAdmissionControl.ACCOUNT_LIMITED, admissionControl, meterRegistry);
+        Gauge.builder("accounts.admission.in-flight", admissionControl, TransferAdmissionControl::getInFlight)
+                .register(meterRegistry);
+        Gauge.builder("accounts.admission.admitted-fraction", admissionControl,
+                        TransferAdmissionControl::getAdmittedFraction)
+                .register(meterRegistry);
+        FunctionCounter.builder("accounts.admission.bucket-overflow", admissionControl,
+                        TransferAdmissionControl::getBucketOverflows)
+                .description("Transfers refused because their key found no rate limit slot")
+                .register(meterRegistry);
+        Gauge.builder("accounts.admission.memory", admissionControl, TransferAdmissionControl::getMemoryBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        return admissionControl;
+    }
+
+    private static void rejectedCounter(String reason, int code, TransferAdmissionControl admissionControl,
+                                        MeterRegistry registry) {
+        FunctionCounter.builder("accounts.admission.rejected", admissionControl, control -> control.getRejected(code))
+                .tag("reason", reason)
+                .description("Transfers refused with 429 before validation")
+                .register(registry);
+    }
+}
@@ -0,0 +1,285 @@
+package com.dws.challenge.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control for transfers, checked before a transfer is validated or touches an account. A request is
+ * admitted when the load shedder lets it through and both its client and its debited account are within their rate.
+ * <p>
+ * Rates are token buckets kept in the GCRA form: one word per key, the time at which the bucket would be full
+ * again. Refill is computed from the clock when a key is checked, so there is no refill timer and an idle key costs
+ * nothing. Keys live in flat {@link AtomicLongArray}s, 16 bytes per slot, claimed and updated with CAS. A key whose
+ * bucket is full is indistinguishable from a key never seen, so its slot is reused by the next key that needs one
+ * and the tables never have to be purged; a key that finds its probe range taken by active keys is refused and
+ * counted as an overflow, which tables sized for the number of keys keep rare.
+ * <p>
+ * The shedder adapts every {@code 100ms} to the mean latency of the transfers admitted in that window and the
+ * number of transfers in flight: above the target it admits a shrinking random fraction of requests, below it the
+ * fraction grows back (AIMD). The adjustment is made by whichever request first sees the window has ended.
+ */
+public class TransferAdmissionControl {
+
+    public static final TransferAdmissionControl DISABLED = new TransferAdmissionControl();
+
+    // tryAdmit results
+    public static final int ADMITTED = 0;
+    public static final int OVERLOADED = 1;
+    public static final int CLIENT_LIMITED = 2;
+    public static final int ACCOUNT_LIMITED = 3;
+
+    private static final long ADJUST_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // Admitted fraction of requests in 1/65536, never below 1/32 so latency keeps being measured
+    private static final int FULL_ADMISSION = 1 << 16;
+    private static final int MIN_ADMISSION = FULL_ADMISSION / 32;
+    private static final int ADMISSION_STEP = FULL_ADMISSION / 16;
+
+    private final boolean enabled;
+
+    private final TokenBuckets accountBuckets;
+
+    private final TokenBuckets clientBuckets;
+
+    private final long targetLatencyNanos;
+
+    private final long maxInFlight;
+
+    private final LongSupplier clockNanos;
+
+    private final LongAdder inFlight = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder latencyNanos = new LongAdder();
+
+    private final LongAdder[] rejected = {null, new LongAdder(), new LongAdder(), new LongAdder()};
+
+    private final AtomicLong nextAdjustNanos;
+
+    // Read by every request, written by the request that adjusts
+    private volatile int admission = FULL_ADMISSION;
+
+    // Guarded by winning nextAdjustNanos
+    private long lastCompleted;
+
+    private long lastLatencyNanos;
+
+    private TransferAdmissionControl() {
+        this.enabled = false;
+        this.accountBuckets = null;
+        this.clientBuckets = null;
+        this.targetLatencyNanos = Long.MAX_VALUE;
+        this.maxInFlight = Long.MAX_VALUE;
+        this.clockNanos = System::nanoTime;
+        this.nextAdjustNanos = new AtomicLong(Long.MAX_VALUE);
+    }
+
+    public TransferAdmissionControl(TokenBuckets accountBuckets, TokenBuckets clientBuckets, long targetLatencyMillis,
+                                    int maxInFlight) {
+        this(accountBuckets, clientBuckets, targetLatencyMillis, maxInFlight, monotonicNanos());
+    }
+
+    public TransferAdmissionControl(TokenBuckets accountBuckets, TokenBuckets clientBuckets, long targetLatencyMillis,
+                                    int maxInFlight, LongSupplier clockNanos) {
+        if (targetLatencyMillis <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Admission latency target and in-flight limit must be positive");
+        }
+        this.enabled = true;
+        this.accountBuckets = accountBuckets;
+        this.clientBuckets = clientBuckets;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.maxInFlight = maxInFlight;
+        this.clockNanos = clockNanos;
+        this.nextAdjustNanos = new AtomicLong(clockNanos.getAsLong() + ADJUST_INTERVAL_NANOS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns {@link #ADMITTED} or the reason the transfer is refused. An admitted transfer must be reported with
+     * {@link #completed} once it has run, whatever its outcome.
+     */
+    public int tryAdmit(String clientId, String accountId) {
+        if (!enabled) {
+            return ADMITTED;
+        }
+        final long now = clockNanos.getAsLong();
+        final long nextAdjust = nextAdjustNanos.get();
+        if (now - nextAdjust >= 0 && nextAdjustNanos.compareAndSet(nextAdjust, now + ADJUST_INTERVAL_NANOS)) {
+            adjust();
+        }
+
+        final int reason;
+        final int currentAdmission = admission;
+        if (currentAdmission < FULL_ADMISSION && ThreadLocalRandom.current().nextInt(FULL_ADMISSION) >= currentAdmission) {
+            reason = OVERLOADED;
+        } else if (!clientBuckets.tryAcquire(hash(clientId), now)) {
+            reason = CLIENT_LIMITED;
+        } else if (!accountBuckets.tryAcquire(hash(accountId), now)) {
+            reason = ACCOUNT_LIMITED;
+        } else {
+            inFlight.increment();
+            return ADMITTED;
+        }
+        rejected[reason].increment();
+        return reason;
+    }
+
+    // Start of an admitted transfer on this control's clock, to be passed to completed
+    public long startNanos() {
+        return enabled ? clockNanos.getAsLong() : 0;
+    }
+
+    // Reports an admitted transfer that started at startNanos (from startNanos()) as finished
+    public void completed(long startNanos) {
+        if (!enabled) {
+            return;
+        }
+        inFlight.decrement();
+        latencyNanos.add(clockNanos.getAsLong() - startNanos);
+        completed.increment();
+    }
+
+    private void adjust() {
+        final long completedNow = completed.sum();
+        final long latencyNow = latencyNanos.sum();
+        final long windowCompleted = completedNow - lastCompleted;
+        final long meanLatency = windowCompleted == 0 ? 0 : (latencyNow - lastLatencyNanos) / windowCompleted;
+        lastCompleted = completedNow;
+        lastLatencyNanos = latencyNow;
+
+        final boolean overloaded = meanLatency > targetLatencyNanos || inFlight.sum() > maxInFlight;
+        admission = overloaded ? Math.max(MIN_ADMISSION, admission * 3 / 4)
+                : Math.min(FULL_ADMISSION, admission + ADMISSION_STEP);
+    }
+
+    public long getInFlight() {
+        return enabled ? inFlight.sum() : 0;
+    }
+
+    // Fraction of requests the shedder currently lets through
+    public double getAdmittedFraction() {
+        return (double) admission / FULL_ADMISSION;
+    }
+
+    public long getRejected(int reason) {
+        return enabled ? rejected[reason].sum() : 0;
+    }
+
+    public long getMemoryBytes() {
+        return enabled ? accountBuckets.getMemoryBytes() + clientBuckets.getMemoryBytes() : 0;
+    }
+
+    // Requests refused because every slot their key could use belonged to an active key
+    public long getBucketOverflows() {
+        return enabled ? accountBuckets.getOverflowCount() + clientBuckets.getOverflowCount() : 0;
+    }
+
+    // 64-bit FNV-1a with the MurmurHash3 finalizer, 0 marks a free slot
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    // Strictly positive, so a zero (never written) bucket reads as full
+    private static LongSupplier monotonicNanos() {
+        final long start = System.nanoTime() - 1;
+        return () -> System.nanoTime() - start;
+    }
+
+    /**
+     * Token buckets of {@code ratePerSecond} and {@code burst} tokens for up to {@code maxKeys} keys. Slot pairs hold
+     * the key hash and the key's theoretical arrival time: a request is allowed when, after adding one emission
+     * interval, that time is no more than a burst ahead of now. Keys that hash alike share a bucket, and a key with
+     * no free or idle slot in its probe range has no bucket and is refused.
+     */
+    public static final class TokenBuckets {
+
+        private static final int MAX_PROBES = 8;
+
+        private final AtomicLongArray slots;
+
+        private final int mask;
+
+        private final long emissionIntervalNanos;
+
+        private final long burstNanos;
+
+        private final LongAdder overflows = new LongAdder();
+
+        public TokenBuckets(int maxKeys, int ratePerSecond, int burst) {
+            if (maxKeys <= 0 || ratePerSecond <= 0 || burst <= 0) {
+                throw new IllegalArgumentException("Rate limit keys, rate and burst must be positive");
+            }
+            final int slotCount = Integer.highestOneBit(Math.max(MAX_PROBES, maxKeys - 1)) << 1;
+            this.slots = new AtomicLongArray(slotCount * 2);
+            this.mask = slotCount - 1;
+            this.emissionIntervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+            this.burstNanos = emissionIntervalNanos * burst;
+        }
+
+        // Takes a token of the key's bucket at now (a positive clock in nanoseconds), false if it has none left
+        public boolean tryAcquire(long keyHash, long now) {
+            int reusable = -1;
+            long reusableKey = 0;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                final int slot = ((int) keyHash + probe) & mask;
+                final long slotKey = slots.get(slot * 2);
+                if (slotKey == keyHash) {
+                    return acquire(slot, now);
+                }
+                if (slotKey == 0) {
+                    if (slots.compareAndSet(slot * 2, 0, keyHash)) {
+                        return acquire(slot, now);
+                    }
+                    probe--;
+                } else if (reusable < 0 && slots.get(slot * 2 + 1) - now <= 0) {
+                    reusable = slot;
+                    reusableKey = slotKey;
+                }
+            }
+            // The idle key's full bucket is taken over as is, a lost race only means sharing it for a moment
+            if (reusable >= 0 && slots.compareAndSet(reusable * 2, reusableKey, keyHash)) {
+                return acquire(reusable, now);
+            }
+            // Admitting it unmetered would let a flood of new keys bypass the limit
+            overflows.increment();
+            return false;
+        }
+
+        private boolean acquire(int slot, long now) {
+            final int index = slot * 2 + 1;
+            while (true) {
+                final long arrival = slots.get(index);
+                final long nextArrival = Math.max(arrival, now) + emissionIntervalNanos;
+                if (nextArrival - now > burstNanos) {
+                    return false;
+                }
+                if (slots.compareAndSet(index, arrival, nextArrival)) {
+                    return true;
+                }
+            }
+        }
+
+        public long getMemoryBytes() {
+            return slots.length() * 8L;
+        }
+
+        public long getOverflowCount() {
+            return overflows.sum();
+        }
+    }
+}
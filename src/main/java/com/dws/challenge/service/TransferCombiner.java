@@ -0,0 +1,206 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.domain.TransferStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Flat combining for transfers on hot accounts. A transfer that finds an account lock stripe taken is queued on that
+ * stripe's combiner instead of waiting for the lock. Whichever queued caller takes the combiner applies everything
+ * queued so far as one batch, the others park until their own result is in. A settlement account that is a side of
+ * most transfers then takes one lock acquisition and one balance update per batch instead of one lock handoff per
+ * transfer, and batches get larger as more callers pile up. Off unless {@code accounts.combining.enabled} is set.
+ */
+@Component
+public class TransferCombiner {
+
+    public static final TransferCombiner DISABLED = new TransferCombiner(false, 1);
+
+    private static final int COMBINERS = 64;
+
+    // A combiner hands over after this many batches once its own transfer is done, so no caller serves forever
+    private static final int MAX_PASSES = 4;
+
+    // Backstop for a missed unpark, a waiter normally wakes when its batch is applied
+    private static final long PARK_NANOS = 1_000_000;
+
+    private final boolean enabled;
+
+    private final int maxBatch;
+
+    private final Combiner[] combiners;
+
+    public TransferCombiner(@Value("${accounts.combining.enabled:false}") boolean enabled,
+                            @Value("${accounts.combining.max-batch:256}") int maxBatch) {
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("Combining batch size must be positive: " + maxBatch);
+        }
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.combiners = new Combiner[enabled ? COMBINERS : 0];
+        for (int i = 0; i < combiners.length; i++) {
+            combiners[i] = new Combiner();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the transfer on the combiner of the contended stripe and returns once a batch containing it has been
+     * applied, by this thread or another. The applier gets the batch in queue order and sets each transfer's
+     * status; if it throws, every transfer of the batch fails with that exception.
+     */
+    public CombinedTransfer combine(final int stripe, final CombinedTransfer transfer,
+                                    final Consumer<List<CombinedTransfer>> applier) {
+        final Combiner combiner = combiners[stripe & (COMBINERS - 1)];
+        transfer.waiter = Thread.currentThread();
+        combiner.queue.add(transfer);
+
+        while (!transfer.done) {
+            if (combiner.lock.tryLock()) {
+                try {
+                    combiner.applyQueued(transfer, applier, maxBatch);
+                } finally {
+                    combiner.lock.unlock();
+                }
+                // Callers that queued after the last drain may all be parked, wake one to take over
+                final CombinedTransfer next = combiner.queue.peek();
+                if (next != null) {
+                    LockSupport.unpark(next.waiter);
+                }
+            } else {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+        }
+
+        if (transfer.failure instanceof Error) {
+            throw (Error) transfer.failure;
+        }
+        if (transfer.failure != null) {
+            throw (RuntimeException) transfer.failure;
+        }
+        return transfer;
+    }
+
+    // Transfers applied through a combiner and the batches they took, for tests and benchmarks
+    public long getCombinedTransfers() {
+        long transfers = 0;
+        for (Combiner combiner : combiners) {
+            transfers += combiner.transfers;
+        }
+        return transfers;
+    }
+
+    public long getBatches() {
+        long batches = 0;
+        for (Combiner combiner : combiners) {
+            batches += combiner.batches;
+        }
+        return batches;
+    }
+
+    public static final class CombinedTransfer {
+
+        private final AccountAmountTransfer transfer;
+
+        private final Account debitedAccount;
+
+        private final Account creditedAccount;
+
+        // Set by the applier, published by done
+        private TransferStatus status;
+
+        private long journalPosition;
+
+        private Throwable failure;
+
+        private Thread waiter;
+
+        private volatile boolean done;
+
+        public CombinedTransfer(AccountAmountTransfer transfer, Account debitedAccount, Account creditedAccount) {
+            this.transfer = transfer;
+            this.debitedAccount = debitedAccount;
+            this.creditedAccount = creditedAccount;
+        }
+
+        public AccountAmountTransfer getTransfer() {
+            return transfer;
+        }
+
+        public Account getDebitedAccount() {
+            return debitedAccount;
+        }
+
+        public Account getCreditedAccount() {
+            return creditedAccount;
+        }
+
+        public TransferStatus getStatus() {
+            return status;
+        }
+
+        public long getJournalPosition() {
+            return journalPosition;
+        }
+
+        public void applied(TransferStatus status, long journalPosition) {
+            this.status = status;
+            this.journalPosition = journalPosition;
+        }
+    }
+
+    private static final class Combiner {
+
+        final Queue<CombinedTransfer> queue = new ConcurrentLinkedQueue<>();
+
+        final ReentrantLock lock = new ReentrantLock();
+
+        // Only touched while holding the lock
+        final List<CombinedTransfer> batch = new ArrayList<>();
+
+        volatile long transfers;
+
+        volatile long batches;
+
+        void applyQueued(final CombinedTransfer own, final Consumer<List<CombinedTransfer>> applier, final int maxBatch) {
+            for (int pass = 0; !own.done || pass < MAX_PASSES; pass++) {
+                CombinedTransfer next;
+                while (batch.size() < maxBatch && (next = queue.poll()) != null) {
+                    batch.add(next);
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+                try {
+                    applier.accept(batch);
+                } catch (Throwable e) {
+                    for (CombinedTransfer transfer : batch) {
+                        transfer.failure = e;
+                    }
+                }
+                transfers += batch.size();
+                batches++;
+                for (CombinedTransfer transfer : batch) {
+                    transfer.done = true;
+                    if (transfer != own) {
+                        LockSupport.unpark(transfer.waiter);
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.dws.challenge.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TransferIdempotencyConfig {
+
+    @Bean
+    public TransferIdempotencyStore transferIdempotencyStore(@Value("${accounts.idempotency.max-keys:1048576}") int maxKeys,
+                                                             @Value("${accounts.idempotency.ttl-seconds:86400}") long ttlSeconds,
+                                                             MeterRegistry meterRegistry) {
+        final TransferIdempotencyStore store = new TransferIdempotencyStore(maxKeys, ttlSeconds);
+        Gauge.builder("accounts.idempotency.size", store, TransferIdempotencyStore::getSize)
+                .register(meterRegistry);
+        Gauge.builder("accounts.idempotency.memory", store, TransferIdempotencyStore::getMemoryBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        return store;
+    }
+}
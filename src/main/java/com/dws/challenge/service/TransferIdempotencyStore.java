@@ -0,0 +1,327 @@
+package com.dws.challenge.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded store of transfer ids seen in the last {@code ttl}, each with the outcome of its transfer. Ids are
+ * encoded into 128 bits (UUIDs losslessly, other strings as a 128-bit hash) and kept with a 64-bit fingerprint of
+ * the request and one state word in flat {@code long} arrays, open-addressed with linear probing: 32 bytes per slot,
+ * about 43 bytes per id at the maximum load of 3/4 and no objects per entry. The arrays are split into segments with
+ * their own monitor, so ids only contend when they land in the same segment and no lock is held while the transfer
+ * itself runs.
+ * <p>
+ * A segment is bounded to its share of {@code maxKeys}; when it is full, expired ids are purged and if none
+ * expired the new id is refused rather than an unexpired one forgotten.
+ */
+public class TransferIdempotencyStore {
+
+    // begin results, completed transfers return their positive outcome instead
+    public static final int ACQUIRED = -1;
+    public static final int IN_FLIGHT = 0;
+    public static final int MISMATCH = -2;
+    public static final int FULL = -3;
+
+    private static final int SEGMENTS = 256;
+
+    // State word: outcome (0 while in flight) in the top byte | expiry in clock seconds in the low 32 bits
+    private static final int OUTCOME_SHIFT = 56;
+    private static final long EXPIRY_MASK = 0xffffffffL;
+
+    private final Segment[] segments;
+
+    private final long ttlSeconds;
+
+    private final LongSupplier clockSeconds;
+
+    public TransferIdempotencyStore(int maxKeys, long ttlSeconds) {
+        this(maxKeys, ttlSeconds, monotonicSeconds());
+    }
+
+    public TransferIdempotencyStore(int maxKeys, long ttlSeconds, LongSupplier clockSeconds) {
+        if (maxKeys < SEGMENTS) {
+            throw new IllegalArgumentException("Idempotency store must hold at least " + SEGMENTS + " ids");
+        }
+        if (ttlSeconds <= 0) {
+            throw new IllegalArgumentException("Idempotency window must be positive: " + ttlSeconds);
+        }
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            this.segments[i] = new Segment(maxKeys / SEGMENTS);
+        }
+        this.ttlSeconds = ttlSeconds;
+        this.clockSeconds = clockSeconds;
+    }
+
+    /**
+     * Claims the id for a new transfer. Returns {@link #ACQUIRED} when the caller should run the transfer and
+     * then {@link #complete} or {@link #abandon} it, {@link #IN_FLIGHT} while another request runs it,
+     * {@link #MISMATCH} when the id was used for a different request, {@link #FULL} when the window holds no
+     * more ids, or the positive outcome of the transfer that already completed.
+     */
+    public int begin(String transferId, long fingerprint) {
+        final long high = high(transferId);
+        final long low = low(transferId, high);
+        final Segment segment = segmentOf(high, low);
+
+        synchronized (segment) {
+            segment.allocate();
+            final long now = clockSeconds.getAsLong();
+            int slot = segment.find(high, low);
+            if (slot >= 0) {
+                final long state = segment.states[slot];
+                if (expired(state, now)) {
+                    segment.fingerprints[slot] = fingerprint;
+                    segment.states[slot] = state(IN_FLIGHT, now + ttlSeconds);
+                    return ACQUIRED;
+                }
+                if (segment.fingerprints[slot] != fingerprint) {
+                    return MISMATCH;
+                }
+                return (int) (state >>> OUTCOME_SHIFT);
+            }
+            if (segment.size >= segment.maxKeys) {
+                segment.purgeExpired(now);
+                if (segment.size >= segment.maxKeys) {
+                    return FULL;
+                }
+                slot = segment.find(high, low);
+            }
+            segment.insert(-slot - 1, high, low, fingerprint, state(IN_FLIGHT, now + ttlSeconds));
+            return ACQUIRED;
+        }
+    }
+
+    // Records the outcome (1..255) of an acquired id, repeats return it until the window passes
+    public void complete(String transferId, int outcome) {
+        if (outcome <= 0 || outcome > 0xff) {
+            throw new IllegalArgumentException("Outcome out of range: " + outcome);
+        }
+        final long high = high(transferId);
+        final long low = low(transferId, high);
+        final Segment segment = segmentOf(high, low);
+
+        synchronized (segment) {
+            final int slot = segment.find(high, low);
+            if (slot >= 0) {
+                segment.states[slot] = state(outcome, clockSeconds.getAsLong() + ttlSeconds);
+            }
+        }
+    }
+
+    // Forgets an acquired id whose transfer did not reach an outcome, so a retry runs it again
+    public void abandon(String transferId) {
+        final long high = high(transferId);
+        final long low = low(transferId, high);
+        final Segment segment = segmentOf(high, low);
+
+        synchronized (segment) {
+            final int slot = segment.find(high, low);
+            if (slot >= 0) {
+                segment.remove(slot);
+            }
+        }
+    }
+
+    public long getSize() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    // Bytes held by the key, fingerprint and state arrays, segments are allocated on their first id
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                if (segment.keys != null) {
+                    final int slots = segment.keys.length + segment.fingerprints.length + segment.states.length;
+                    bytes += (long) slots * Long.BYTES;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private Segment segmentOf(long high, long low) {
+        return segments[(int) (mix(high ^ low) >>> 56) & (SEGMENTS - 1)];
+    }
+
+    private static boolean expired(long state, long now) {
+        return (state & EXPIRY_MASK) <= now;
+    }
+
+    private static long state(int outcome, long expiry) {
+        return ((long) outcome << OUTCOME_SHIFT) | (expiry & EXPIRY_MASK);
+    }
+
+    // A UUID id is its own 128 bits, anything else is hashed twice with different seeds
+    static long high(String transferId) {
+        if (isUuid(transferId)) {
+            return parseHex(transferId, 0, 8) << 32 | parseHex(transferId, 9, 13) << 16 | parseHex(transferId, 14, 18);
+        }
+        return hash(transferId, 0x9e3779b97f4a7c15L);
+    }
+
+    static long low(String transferId, long high) {
+        final long low = isUuid(transferId)
+                ? parseHex(transferId, 19, 23) << 48 | parseHex(transferId, 24, 36)
+                : hash(transferId, 0xc2b2ae3d27d4eb4fL);
+        // 0/0 marks an empty slot
+        return high == 0 && low == 0 ? 1 : low;
+    }
+
+    private static boolean isUuid(String value) {
+        if (value.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            final char c = value.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseHex(String value, int from, int to) {
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            result = result << 4 | Character.digit(value.charAt(i), 16);
+        }
+        return result;
+    }
+
+    // 64-bit FNV-1a with a seed, a previous hash can be the seed to hash several values together
+    static long hash(String value, long seed) {
+        if (value == null) {
+            return mix(~seed);
+        }
+        long hash = seed ^ value.length();
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    // MurmurHash3 finalizer
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static LongSupplier monotonicSeconds() {
+        final long start = System.nanoTime();
+        return () -> TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+    }
+
+    // Guarded by its own monitor
+    private static final class Segment {
+
+        private final int maxKeys;
+
+        private final int slots;
+
+        // high and low half of each id, two longs per slot
+        private long[] keys;
+
+        private long[] fingerprints;
+
+        private long[] states;
+
+        private int size;
+
+        Segment(int maxKeys) {
+            this.maxKeys = maxKeys;
+            this.slots = maxKeys + (maxKeys + 2) / 3;
+        }
+
+        void allocate() {
+            if (keys == null) {
+                keys = new long[slots * 2];
+                fingerprints = new long[slots];
+                states = new long[slots];
+            }
+        }
+
+        // Slot of the id, or -(free slot to insert it at) - 1
+        int find(long high, long low) {
+            if (keys == null) {
+                return -1;
+            }
+            int slot = home(high, low);
+            while (true) {
+                final long slotHigh = keys[slot * 2];
+                final long slotLow = keys[slot * 2 + 1];
+                if (slotHigh == high && slotLow == low) {
+                    return slot;
+                }
+                if (slotHigh == 0 && slotLow == 0) {
+                    return -slot - 1;
+                }
+                slot = next(slot);
+            }
+        }
+
+        void insert(int slot, long high, long low, long fingerprint, long state) {
+            keys[slot * 2] = high;
+            keys[slot * 2 + 1] = low;
+            fingerprints[slot] = fingerprint;
+            states[slot] = state;
+            size++;
+        }
+
+        // Backward-shift deletion, the probe sequences of the following ids stay unbroken without tombstones
+        void remove(int hole) {
+            int slot = hole;
+            while (true) {
+                slot = next(slot);
+                final long high = keys[slot * 2];
+                final long low = keys[slot * 2 + 1];
+                if (high == 0 && low == 0) {
+                    break;
+                }
+                final int home = home(high, low);
+                final boolean homeBetween = hole <= slot ? hole < home && home <= slot : hole < home || home <= slot;
+                if (!homeBetween) {
+                    keys[hole * 2] = high;
+                    keys[hole * 2 + 1] = low;
+                    fingerprints[hole] = fingerprints[slot];
+                    states[hole] = states[slot];
+                    hole = slot;
+                }
+            }
+            keys[hole * 2] = 0;
+            keys[hole * 2 + 1] = 0;
+            fingerprints[hole] = 0;
+            states[hole] = 0;
+            size--;
+        }
+
+        void purgeExpired(long now) {
+            for (int slot = 0; slot < slots; slot++) {
+                // a removal may shift another expired id into this slot
+                while ((keys[slot * 2] != 0 || keys[slot * 2 + 1] != 0) && expired(states[slot], now)) {
+                    remove(slot);
+                }
+            }
+        }
+
+        private int home(long high, long low) {
+            return (int) (((mix(high ^ low) & 0xffffffffL) * slots) >>> 32);
+        }
+
+        private int next(int slot) {
+            return slot + 1 == slots ? 0 : slot + 1;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.domain.ScheduledTransfer;
+import com.dws.challenge.domain.ScheduledTransfersPage;
+import com.dws.challenge.exception.ScheduledTransfersExhaustedException;
+import com.dws.challenge.exception.TransferScheduleException;
+import com.dws.challenge.util.Constants;
+import com.dws.challenge.util.MoneyUnits;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pending deferred transfers in a hierarchical timing wheel: four levels of 256 buckets, a bucket of level
+ * {@code l} spans 256^l ticks. Due times up to 2^31 ticks ahead are held, 6.8 years with 100ms ticks.
+ * Scheduling pushes the transfer on the bucket its due tick falls in and cancelling unlinks it, both O(1). Each
+ * tick fires one level-0 bucket; when a lower level wraps, the next bucket up is cascaded into the levels below,
+ * so a transfer is touched at most four times before it is due. Fired transfers wait in a ready list until
+ * {@link #pollDue} hands them out and can no longer be cancelled.
+ * <p>
+ * Transfers are not objects: they live in chunked columns of primitive arrays (account ids as indexes into a
+ * dictionary of the accounts with pending transfers, amount in minor units, due tick, bucket links and a sequence
+ * number), 32 bytes each, and the slot of an executed or cancelled transfer is reused right away. The sequence
+ * number is part of the id, so a stale id cannot cancel the next transfer in its slot. All operations lock the
+ * wheel; the longest is a cascade, which relinks every transfer of the cascaded bucket.
+ */
+public class TransferTimingWheel {
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long HORIZON_TICKS = 1L << 31;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // from, to, due, next, previous and sequence ints, amount long
+    private static final int BYTES_PER_TRANSFER = 6 * Integer.BYTES + Long.BYTES;
+
+    // Slots a list call looks at, one chunk, so a listing never holds the wheel for long
+    private static final int MAX_LIST_SCAN = CHUNK_SIZE;
+
+    private static final int NONE = -1;
+
+    private final long tickMillis;
+
+    private final int maxPending;
+
+    // Bucket list heads, level by level
+    private final int[] buckets = new int[LEVELS * SLOTS];
+
+    private final Chunk[] chunks;
+
+    // Accounts of pending transfers with the number of transfers referencing them, a freed index is reused
+    private final Map<String, Integer> accountIndexes = new HashMap<>();
+
+    private String[] accountIds = new String[64];
+
+    // Reference count, or the next free index for a free one
+    private int[] accountReferences = new int[64];
+
+    private int accountsUsed;
+
+    private int freeAccount = NONE;
+
+    // Fired transfers waiting to be executed, in firing order
+    private int readyHead = NONE;
+
+    private int readyTail = NONE;
+
+    private int freeHead = NONE;
+
+    private int allocated;
+
+    private int inBuckets;
+
+    // Transfers in buckets or ready
+    private int pending;
+
+    // Of the last scheduled transfer, 0 is skipped so no id is 0
+    private int sequence;
+
+    private long currentTick;
+
+    public TransferTimingWheel(long tickMillis, int maxPending, long nowMillis) {
+        if (tickMillis <= 0 || maxPending <= 0) {
+            throw new IllegalArgumentException("Tick and capacity must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.maxPending = maxPending;
+        this.chunks = new Chunk[(maxPending + CHUNK_SIZE - 1) >>> CHUNK_SHIFT];
+        this.currentTick = nowMillis / tickMillis;
+        Arrays.fill(buckets, NONE);
+    }
+
+    /**
+     * Adds a transfer due at {@code dueMillis}, one already due fires on the next {@link #pollDue}. Returns its id.
+     * Transfers due in the same tick fire in no particular order.
+     */
+    public synchronized long schedule(String accountFrom, String accountTo, long amountMinorUnits, long dueMillis) {
+        if (amountMinorUnits <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amountMinorUnits);
+        }
+        final long dueTick = Math.max(currentTick, Math.floorDiv(dueMillis + tickMillis - 1, tickMillis));
+        if (dueTick - currentTick >= HORIZON_TICKS) {
+            throw new TransferScheduleException(Constants.SCHEDULE_BEYOND_HORIZON);
+        }
+        final int slot = allocate();
+        final Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+        final int offset = slot & CHUNK_MASK;
+        chunk.from[offset] = accountIndex(accountFrom);
+        chunk.to[offset] = accountIndex(accountTo);
+        chunk.amount[offset] = amountMinorUnits;
+        chunk.due[offset] = (int) dueTick;
+        if (++sequence == 0) {
+            sequence = 1;
+        }
+        chunk.sequence[offset] = sequence;
+        pending++;
+        insert(slot, dueTick);
+        return id(sequence, slot);
+    }
+
+    // False when the transfer is already due, was cancelled or never existed
+    public synchronized boolean cancel(long id) {
+        final int slot = (int) id;
+        if (slot < 0 || slot >= allocated) {
+            return false;
+        }
+        final Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+        final int offset = slot & CHUNK_MASK;
+        // A transfer in a bucket is due after the current tick, a fired one on or before it
+        if (chunk.sequence[offset] != (int) (id >>> 32) || chunk.amount[offset] == 0
+                || absoluteTick(chunk.due[offset]) <= currentTick) {
+            return false;
+        }
+        unlink(slot);
+        inBuckets--;
+        pending--;
+        free(slot);
+        return true;
+    }
+
+    /**
+     * Advances the wheel to {@code nowMillis} and moves up to {@code maxTransfers} due transfers into {@code due}.
+     * Returns how many were added; when that is {@code maxTransfers} more may be due.
+     */
+    public synchronized int pollDue(long nowMillis, int maxTransfers, List<AccountAmountTransfer> due) {
+        advanceTo(nowMillis / tickMillis);
+        int added = 0;
+        while (readyHead != NONE && added < maxTransfers) {
+            final int slot = readyHead;
+            final Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+            final int offset = slot & CHUNK_MASK;
+            readyHead = chunk.next[offset];
+            if (readyHead == NONE) {
+                readyTail = NONE;
+            }
+            due.add(new AccountAmountTransfer(accountIds[chunk.from[offset]], accountIds[chunk.to[offset]],
+                    MoneyUnits.toBigDecimal(chunk.amount[offset])));
+            pending--;
+            added++;
+            free(slot);
+        }
+        return added;
+    }
+
+    /**
+     * Pending transfers of one account (either side), or of all when it is null, in slot order. The first page fixes
+     * the sequence number of the listing: later pages skip transfers scheduled after it, so a recycled slot cannot
+     * show up as a transfer the listing has not seen before, and every transfer pending throughout is returned
+     * exactly once. The cursor holds that sequence number and the slot to go on from. A call looks at no more than
+     * {@link #MAX_LIST_SCAN} slots, a page can therefore hold fewer than {@code limit} transfers and still have a
+     * next cursor.
+     */
+    public synchronized ScheduledTransfersPage list(String accountId, Long cursor, int limit) {
+        final List<ScheduledTransfer> transfers = new ArrayList<>(Math.min(limit, 64));
+        final Integer accountIndex = accountId == null ? null : accountIndexes.get(accountId);
+        if (accountId != null && accountIndex == null) {
+            return new ScheduledTransfersPage(transfers, null);
+        }
+        final int listingSequence = cursor == null ? sequence : (int) (cursor >>> 32);
+        final int start = cursor == null ? 0 : Math.max(0, (int) (long) cursor);
+        final int end = (int) Math.min(allocated, (long) start + MAX_LIST_SCAN);
+        for (int slot = start; slot < end; slot++) {
+            final Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+            final int offset = slot & CHUNK_MASK;
+            // Sequence numbers wrap, only a transfer pending through 2^31 later ones would be taken for a newer one
+            if (chunk.amount[offset] == 0 || chunk.sequence[offset] - listingSequence > 0
+                    || (accountIndex != null && chunk.from[offset] != accountIndex && chunk.to[offset] != accountIndex)) {
+                continue;
+            }
+            if (transfers.size() == limit) {
+                return new ScheduledTransfersPage(transfers, id(listingSequence, slot));
+            }
+            transfers.add(new ScheduledTransfer(id(chunk.sequence[offset], slot), accountIds[chunk.from[offset]],
+                    accountIds[chunk.to[offset]], MoneyUnits.toBigDecimal(chunk.amount[offset]),
+                    Instant.ofEpochMilli(absoluteTick(chunk.due[offset]) * tickMillis)));
+        }
+        return new ScheduledTransfersPage(transfers, end < allocated ? id(listingSequence, end) : null);
+    }
+
+    public synchronized int getPending() {
+        return pending;
+    }
+
+    // Accounts referenced by pending transfers
+    public synchronized int getAccountCount() {
+        return accountIndexes.size();
+    }
+
+    // The wheel's arrays, not the account id strings
+    public synchronized long getMemoryBytes() {
+        long bytes = (long) buckets.length * Integer.BYTES + (long) accountIds.length * (Integer.BYTES + Integer.BYTES);
+        for (Chunk chunk : chunks) {
+            if (chunk != null) {
+                bytes += (long) CHUNK_SIZE * BYTES_PER_TRANSFER;
+            }
+        }
+        return bytes;
+    }
+
+    private void advanceTo(long nowTick) {
+        while (currentTick < nowTick) {
+            if (inBuckets == 0) {
+                currentTick = nowTick;
+                return;
+            }
+            currentTick++;
+            // Higher levels first, a cascade may refill a lower bucket that is cascaded at the same tick
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (level * SLOT_BITS)) - 1)) == 0) {
+                    cascade(level * SLOTS + (int) ((currentTick >>> (level * SLOT_BITS)) & SLOT_MASK));
+                }
+            }
+            for (int slot = detach((int) (currentTick & SLOT_MASK)); slot != NONE; ) {
+                final int next = nextOf(slot);
+                inBuckets--;
+                ready(slot);
+                slot = next;
+            }
+        }
+    }
+
+    private void cascade(int bucket) {
+        for (int slot = detach(bucket); slot != NONE; ) {
+            final Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+            final int offset = slot & CHUNK_MASK;
+            final int next = chunk.next[offset];
+            inBuckets--;
+            insert(slot, absoluteTick(chunk.due[offset]));
+            slot = next;
+        }
+    }
+
+    private void insert(int slot, long dueTick) {
+        final long delta = dueTick - currentTick;
+        if (delta <= 0) {
+            ready(slot);
+            return;
+        }
+        final int level = (63 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS;
+        final int bucket = level * SLOTS + (int) ((dueTick >>> (level * SLOT_BITS)) & SLOT_MASK);
+        final Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+        final int offset = slot & CHUNK_MASK;
+        final int head = buckets[bucket];
+        chunk.next[offset] = head;
+        chunk.previous[offset] = headOf(bucket);
+        if (head != NONE) {
+            chunks[head >>> CHUNK_SHIFT].previous[head & CHUNK_MASK] = slot;
+        }
+        buckets[bucket] = slot;
+        inBuckets++;
+    }
+
+    private void unlink(int slot) {
+        final Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+        final int offset = slot & CHUNK_MASK;
+        final int previous = chunk.previous[offset];
+        final int next = chunk.next[offset];
+        if (previous >= 0) {
+            chunks[previous >>> CHUNK_SHIFT].next[previous & CHUNK_MASK] = next;
+        } else {
+            buckets[headOf(previous)] = next;
+        }
+        if (next != NONE) {
+            chunks[next >>> CHUNK_SHIFT].previous[next & CHUNK_MASK] = previous;
+        }
+    }
+
+    // Takes the whole list of a bucket, the caller accounts for every transfer on it
+    private int detach(int bucket) {
+        final int head = buckets[bucket];
+        buckets[bucket] = NONE;
+        return head;
+    }
+
+    // The ready list is only taken from its head, its previous links are left as they were
+    private void ready(int slot) {
+        final Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+        final int offset = slot & CHUNK_MASK;
+        chunk.next[offset] = NONE;
+        if (readyTail == NONE) {
+            readyHead = slot;
+        } else {
+            chunks[readyTail >>> CHUNK_SHIFT].next[readyTail & CHUNK_MASK] = slot;
+        }
+        readyTail = slot;
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            final int slot = freeHead;
+            freeHead = nextOf(slot);
+            return slot;
+        }
+        if (allocated == maxPending) {
+            throw new ScheduledTransfersExhaustedException(Constants.SCHEDULED_TRANSFERS_EXHAUSTED);
+        }
+        final int slot = allocated++;
+        if (chunks[slot >>> CHUNK_SHIFT] == null) {
+            chunks[slot >>> CHUNK_SHIFT] = new Chunk();
+        }
+        return slot;
+    }
+
+    // A zero amount marks the slot free, its old id is refused until a new transfer gets the slot and a new sequence
+    private void free(int slot) {
+        final Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+        final int offset = slot & CHUNK_MASK;
+        chunk.amount[offset] = 0;
+        releaseAccount(chunk.from[offset]);
+        releaseAccount(chunk.to[offset]);
+        chunk.next[offset] = freeHead;
+        freeHead = slot;
+    }
+
+    // The previous link of a bucket's first transfer is its bucket, below NONE, and the other way round
+    private static int headOf(int bucketOrPrevious) {
+        return -2 - bucketOrPrevious;
+    }
+
+    private int nextOf(int slot) {
+        return chunks[slot >>> CHUNK_SHIFT].next[slot & CHUNK_MASK];
+    }
+
+    // Due ticks are kept as their low 32 bits, every pending one is less than 2^31 ticks from the current tick
+    private long absoluteTick(int dueTick) {
+        return currentTick + (dueTick - (int) currentTick);
+    }
+
+    private int accountIndex(String accountId) {
+        final Integer existing = accountIndexes.get(accountId);
+        if (existing != null) {
+            accountReferences[existing]++;
+            return existing;
+        }
+        final int index;
+        if (freeAccount != NONE) {
+            index = freeAccount;
+            freeAccount = accountReferences[index];
+        } else {
+            if (accountsUsed == accountIds.length) {
+                accountIds = Arrays.copyOf(accountIds, accountsUsed * 2);
+                accountReferences = Arrays.copyOf(accountReferences, accountsUsed * 2);
+            }
+            index = accountsUsed++;
+        }
+        accountIds[index] = accountId;
+        accountReferences[index] = 1;
+        accountIndexes.put(accountId, index);
+        return index;
+    }
+
+    // Drops the account from the dictionary with its last pending transfer
+    private void releaseAccount(int index) {
+        if (--accountReferences[index] == 0) {
+            accountIndexes.remove(accountIds[index]);
+            accountIds[index] = null;
+            accountReferences[index] = freeAccount;
+            freeAccount = index;
+        }
+    }
+
+    private static long id(int sequence, int slot) {
+        return ((long) sequence << 32) | slot;
+    }
+
+    private static final class Chunk {
+
+        final int[] from = new int[CHUNK_SIZE];
+
+        final int[] to = new int[CHUNK_SIZE];
+
+        final long[] amount = new long[CHUNK_SIZE];
+
+        final int[] due = new int[CHUNK_SIZE];
+
+        final int[] next = new int[CHUNK_SIZE];
+
+        final int[] previous = new int[CHUNK_SIZE];
+
+        final int[] sequence = new int[CHUNK_SIZE];
+    }
+}
@@ -2,36 +2,32 @@ package com.dws.challenge.util;
 
 
 import com.dws.challenge.domain.Account;
-import com.dws.challenge.exception.AccountNotFoundException;
-import com.dws.challenge.exception.AmountTransactionException;
-import com.dws.challenge.exception.NotSufficientBalanceException;
+import com.dws.challenge.domain.TransferStatus;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 
-import static com.dws.challenge.util.Constants.*;
-
 @Component
 public class AccountTransferValidator {
-    public void validate(final Account accountFrom, final Account accountTo, final BigDecimal amount)
-            throws AccountNotFoundException, NotSufficientBalanceException {
 
-        if (amount.compareTo(BigDecimal.ZERO) < 0) {
-            throw new AmountTransactionException("Account transfer amount is not valid. Please try with valid amount(Positive)");
-        }
+    // Null when the transfer may go ahead, otherwise why it is rejected. The balance is not checked here: it is only
+    // meaningful under the account lock (or in the debit CAS), where the transfer checks it right before debiting.
+    public TransferStatus check(final Account accountFrom, final Account accountTo, final BigDecimal amount) {
+        return check(accountFrom != null && accountTo != null, amount);
+    }
 
-        if (accountFrom == null || accountTo == null) {
-            throw new AccountNotFoundException(ACCOUNT_NOT_EXISTS);
-        }
+    // For stores that answer whether both accounts exist without handing out copies of them
+    public TransferStatus check(final boolean accountsExist, final BigDecimal amount) {
 
+        if (amount.signum() < 0) {
+            return TransferStatus.INVALID_AMOUNT;
+        }
 
-        if (!isBalanceSufficient(accountFrom, amount)) {
-            throw new NotSufficientBalanceException(INSUFFICIENT_BALANCE);
+        if (!accountsExist) {
+            return TransferStatus.ACCOUNT_NOT_EXISTS;
         }
-    }
 
-    private boolean isBalanceSufficient(final Account account, final BigDecimal amount) {
-        return account.getBalance().subtract(amount).compareTo(BigDecimal.ZERO) >= 0;
+        return null;
     }
 
 }
@@ -4,4 +4,20 @@ public final class Constants {
 
     public static final String ACCOUNT_NOT_EXISTS = "Account does not exist";
     public static final String INSUFFICIENT_BALANCE = "Sufficient balance is not available in account";
+    public static final String INVALID_AMOUNT = "Account transfer amount is not valid. Please try with valid amount(Positive)";
+    public static final String TRANSFER_COMPLETED = "Amount Transfer Completed";
+    public static final String TRANSFER_NOT_APPLIED = "Transfer not applied, another transfer in the batch failed";
+    public static final String INVALID_AMOUNT_PRECISION = "Amount must not have more than 2 decimal places";
+    public static final int MAX_TRANSACTIONS_PAGE = 1000;
+    public static final String INVALID_PAGE_SIZE = "limit must be between 1 and " + MAX_TRANSACTIONS_PAGE;
+    public static final String TRANSFER_IN_PROGRESS = "A transfer with this transferId is still in progress, retry later";
+    public static final String TRANSFER_ID_REUSED = "transferId was already used for a different transfer";
+    public static final String TRANSFER_IDS_EXHAUSTED = "Too many transfer ids in the deduplication window, retry later";
+    public static final int MAX_TOP_BALANCES = 10_000;
+    public static final String INVALID_TOP_BALANCES = "top must be between 0 and " + MAX_TOP_BALANCES;
+    public static final String TRANSFER_RATE_LIMITED = "Too many transfers, retry later";
+    public static final String READ_ONLY_STANDBY = "This node is a read-only standby, send changes to the primary";
+    public static final String SCHEDULE_BEYOND_HORIZON = "executeAt is too far in the future";
+    public static final String SCHEDULED_TRANSFERS_EXHAUSTED = "Too many scheduled transfers pending, retry later";
+    public static final String SCHEDULED_TRANSFER_NOT_FOUND = "Scheduled transfer does not exist or was already executed";
 }
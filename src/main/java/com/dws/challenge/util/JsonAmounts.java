@@ -0,0 +1,83 @@
+package com.dws.challenge.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Reads decimal amounts straight from the parser's character buffer into an unscaled {@code long} and a scale,
+ * without the intermediate String and BigInteger of {@code new BigDecimal(text)}. Plain decimals of up to 18
+ * digits ({@code 5500.80}, {@code -1}, {@code "10.5"}) take this path, anything else (exponents, more digits,
+ * surrounding blanks) is left to BigDecimal so the accepted values do not change.
+ */
+public final class JsonAmounts {
+
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private JsonAmounts() {
+    }
+
+    // Amount of the current number or string token, null when the text is not a decimal
+    public static BigDecimal readDecimal(JsonParser parser) throws IOException {
+        final char[] buffer = parser.getTextCharacters();
+        final int offset = parser.getTextOffset();
+        final int length = parser.getTextLength();
+        final BigDecimal amount = parseDecimal(buffer, offset, length);
+        if (amount != null) {
+            return amount;
+        }
+        try {
+            return new BigDecimal(new String(buffer, offset, length).trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Blank strings bind to a null amount, as with Jackson's own BigDecimal binding
+    public static boolean isBlank(JsonParser parser) throws IOException {
+        final char[] buffer = parser.getTextCharacters();
+        final int end = parser.getTextOffset() + parser.getTextLength();
+        for (int i = parser.getTextOffset(); i < end; i++) {
+            if (!Character.isWhitespace(buffer[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Fast path only, null when the text needs BigDecimal's parser
+    static BigDecimal parseDecimal(char[] buffer, int offset, int length) {
+        int index = offset;
+        final int end = offset + length;
+        boolean negative = false;
+        if (index < end && (buffer[index] == '-' || buffer[index] == '+')) {
+            negative = buffer[index] == '-';
+            index++;
+        }
+
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; index < end; index++) {
+            final char c = buffer[index];
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_LONG_DIGITS) {
+                    return null;
+                }
+                unscaled = unscaled * 10 + (c - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return null;
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+}
@@ -0,0 +1,32 @@
+package com.dws.challenge.util;
+
+import com.dws.challenge.exception.AmountTransactionException;
+import com.dws.challenge.exception.TransferRejections;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Fixed-scale conversion between BigDecimal amounts and long minor units (cents)
+public final class MoneyUnits {
+
+    public static final int SCALE = 2;
+
+    private MoneyUnits() {
+    }
+
+    public static long toMinorUnits(final BigDecimal amount) throws AmountTransactionException {
+        try {
+            return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw TransferRejections.AMOUNT_PRECISION;
+        }
+    }
+
+    public static boolean hasValidScale(final BigDecimal amount) {
+        return amount.scale() <= SCALE || amount.stripTrailingZeros().scale() <= SCALE;
+    }
+
+    public static BigDecimal toBigDecimal(final long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+}
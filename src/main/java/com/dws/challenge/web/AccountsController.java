@@ -2,28 +2,85 @@ package com.dws.challenge.web;
 
 import com.dws.challenge.domain.Account;
 import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.domain.AccountImportSummary;
+import com.dws.challenge.domain.AccountTransactionsPage;
+import com.dws.challenge.domain.BatchTransferRequest;
+import com.dws.challenge.domain.BatchTransferResult;
+import com.dws.challenge.domain.BalanceReport;
+import com.dws.challenge.domain.MultiLegTransferRequest;
+import com.dws.challenge.domain.ScheduledTransfer;
+import com.dws.challenge.domain.ScheduledTransferRequest;
+import com.dws.challenge.domain.ScheduledTransfersPage;
+import com.dws.challenge.exception.AccountNotFoundException;
 import com.dws.challenge.exception.AmountTransactionException;
 import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.exception.NotSufficientBalanceException;
+import com.dws.challenge.exception.ScheduledTransfersExhaustedException;
+import com.dws.challenge.exception.ShardUnavailableException;
+import com.dws.challenge.exception.TransferIdMismatchException;
+import com.dws.challenge.exception.TransferIdsExhaustedException;
+import com.dws.challenge.exception.TransferInProgressException;
+import com.dws.challenge.exception.TransferScheduleException;
+import com.dws.challenge.service.AccountsNdjsonService;
 import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BalanceReportService;
+import com.dws.challenge.service.IdempotentTransferService;
+import com.dws.challenge.service.TransferAdmissionControl;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+
+import static com.dws.challenge.util.Constants.INVALID_PAGE_SIZE;
+import static com.dws.challenge.util.Constants.INVALID_TOP_BALANCES;
+import static com.dws.challenge.util.Constants.MAX_TOP_BALANCES;
+import static com.dws.challenge.util.Constants.MAX_TRANSACTIONS_PAGE;
+import static com.dws.challenge.util.Constants.SCHEDULED_TRANSFER_NOT_FOUND;
+import static com.dws.challenge.util.Constants.TRANSFER_RATE_LIMITED;
 
 @RestController
 @RequestMapping("/v1/accounts")
 @Slf4j
 public class AccountsController {
 
+  static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+  // Refusals are answered before anything is validated or logged, from one shared immutable response
+  private static final ResponseEntity<Object> TOO_MANY_TRANSFERS = ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+          .header(HttpHeaders.RETRY_AFTER, "1")
+          .body(TRANSFER_RATE_LIMITED);
+
   private final AccountsService accountsService;
 
+  private final AccountsNdjsonService accountsNdjsonService;
+
+  private final IdempotentTransferService idempotentTransferService;
+
+  private final TransferAdmissionControl transferAdmissionControl;
+
+  private final BalanceReportService balanceReportService;
+
   @Autowired
-  public AccountsController(AccountsService accountsService) {
+  public AccountsController(AccountsService accountsService, AccountsNdjsonService accountsNdjsonService,
+                            IdempotentTransferService idempotentTransferService,
+                            TransferAdmissionControl transferAdmissionControl,
+                            BalanceReportService balanceReportService) {
     this.accountsService = accountsService;
+    this.accountsNdjsonService = accountsNdjsonService;
+    this.idempotentTransferService = idempotentTransferService;
+    this.transferAdmissionControl = transferAdmissionControl;
+    this.balanceReportService = balanceReportService;
   }
 
   @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -34,29 +91,190 @@ public class AccountsController {
     this.accountsService.createAccount(account);
     } catch (DuplicateAccountIdException daie) {
       return new ResponseEntity<>(daie.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (AmountTransactionException ate) {
+      return new ResponseEntity<>(ate.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (ShardUnavailableException sue) {
+      return new ResponseEntity<>(sue.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
     }
 
     return new ResponseEntity<>(HttpStatus.CREATED);
   }
 
+  // Bulk import, one account per line. The response lists rejected lines followed by a summary line.
+  @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public void importAccounts(InputStream accounts, HttpServletResponse response) throws IOException {
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+    AccountImportSummary summary = this.accountsNdjsonService.importAccounts(accounts, response.getOutputStream());
+    log.info("Imported accounts {}", summary);
+  }
+
+  @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportAccounts() {
+    log.info("Exporting accounts");
+    return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(this.accountsNdjsonService::exportAccounts);
+  }
+
+  // Reconciliation: count and exact total of all balances at one point in time, with the top largest balances
+  @GetMapping(path = "/balance-report")
+  public ResponseEntity<Object> getBalanceReport(@RequestParam(defaultValue = "10") int top) {
+    if (top < 0 || top > MAX_TOP_BALANCES) {
+      return new ResponseEntity<>(INVALID_TOP_BALANCES, HttpStatus.BAD_REQUEST);
+    }
+    BalanceReport report = this.balanceReportService.balanceReport(top);
+    return new ResponseEntity<>(report, HttpStatus.OK);
+  }
+
   @GetMapping(path = "/{accountId}")
   public Account getAccount(@PathVariable String accountId) {
     log.info("Retrieving account for id {}", accountId);
     return this.accountsService.getAccount(accountId);
   }
 
+  // Newest first; from is inclusive, to exclusive (ISO-8601 instants), cursor is the nextCursor of the previous page
+  @GetMapping(path = "/{accountId}/transactions")
+  public ResponseEntity<Object> getTransactions(@PathVariable String accountId,
+                                                @RequestParam(required = false) Long cursor,
+                                                @RequestParam(defaultValue = "100") int limit,
+                                                @RequestParam(required = false) Instant from,
+                                                @RequestParam(required = false) Instant to) {
+    if (limit <= 0 || limit > MAX_TRANSACTIONS_PAGE) {
+      return new ResponseEntity<>(INVALID_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+    }
+    try {
+      AccountTransactionsPage page = this.accountsService.getTransactions(accountId, cursor, limit, from, to);
+      return new ResponseEntity<>(page, HttpStatus.OK);
+    } catch (AccountNotFoundException anfe) {
+      return new ResponseEntity<>(anfe.getMessage(), HttpStatus.NOT_FOUND);
+    }
+  }
+
   @PostMapping(
           path = {"/transfer"},
           consumes = {"application/json"}
   )
-  public ResponseEntity<Object> amountToTransfer(@RequestBody @Valid AccountAmountTransfer accountAmountTransfer) {
+  public ResponseEntity<Object> amountToTransfer(@RequestBody @Valid AccountAmountTransfer accountAmountTransfer,
+                                                 @RequestHeader(name = CLIENT_ID_HEADER, required = false) String clientId,
+                                                 HttpServletRequest request) {
+    if (this.transferAdmissionControl.tryAdmit(clientId(clientId, request), accountAmountTransfer.getAccountFrom())
+            != TransferAdmissionControl.ADMITTED) {
+      return TOO_MANY_TRANSFERS;
+    }
+    final long startNanos = this.transferAdmissionControl.startNanos();
     try {
-      this.accountsService.amountTransfer(accountAmountTransfer.getAccountFrom(), accountAmountTransfer.getAccountTo(), accountAmountTransfer.getTransferAmount());
+      this.idempotentTransferService.amountTransfer(accountAmountTransfer);
     } catch (AmountTransactionException amountTransactionException) {
       return new ResponseEntity(amountTransactionException.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (NotSufficientBalanceException notSufficientBalanceException) {
+      return new ResponseEntity(notSufficientBalanceException.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (AccountNotFoundException accountNotFoundException) {
+      return new ResponseEntity(accountNotFoundException.getMessage(), HttpStatus.NOT_FOUND);
+    } catch (TransferInProgressException transferInProgressException) {
+      return new ResponseEntity(transferInProgressException.getMessage(), HttpStatus.CONFLICT);
+    } catch (TransferIdMismatchException transferIdMismatchException) {
+      return new ResponseEntity(transferIdMismatchException.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY);
+    } catch (TransferIdsExhaustedException transferIdsExhaustedException) {
+      return new ResponseEntity(transferIdsExhaustedException.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    } catch (ShardUnavailableException shardUnavailableException) {
+      return new ResponseEntity(shardUnavailableException.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    } finally {
+      this.transferAdmissionControl.completed(startNanos);
     }
 
     return new ResponseEntity("Amount Transfer Completed", HttpStatus.ACCEPTED);
   }
 
+  // Payroll and payouts: one debit of accountFrom, credits to every leg, applied in full or not at all
+  @PostMapping(
+          path = {"/transfer/multi-leg"},
+          consumes = {"application/json"}
+  )
+  public ResponseEntity<Object> multiLegTransfer(@RequestBody @Valid MultiLegTransferRequest multiLegTransferRequest,
+                                                 @RequestHeader(name = CLIENT_ID_HEADER, required = false) String clientId,
+                                                 HttpServletRequest request) {
+    if (this.transferAdmissionControl.tryAdmit(clientId(clientId, request), multiLegTransferRequest.getAccountFrom())
+            != TransferAdmissionControl.ADMITTED) {
+      return TOO_MANY_TRANSFERS;
+    }
+    final long startNanos = this.transferAdmissionControl.startNanos();
+    try {
+      this.accountsService.multiLegTransfer(multiLegTransferRequest.getAccountFrom(), multiLegTransferRequest.getLegs());
+    } catch (AmountTransactionException amountTransactionException) {
+      return new ResponseEntity(amountTransactionException.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (NotSufficientBalanceException notSufficientBalanceException) {
+      return new ResponseEntity(notSufficientBalanceException.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (AccountNotFoundException accountNotFoundException) {
+      return new ResponseEntity(accountNotFoundException.getMessage(), HttpStatus.NOT_FOUND);
+    } catch (ShardUnavailableException shardUnavailableException) {
+      return new ResponseEntity(shardUnavailableException.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    } finally {
+      this.transferAdmissionControl.completed(startNanos);
+    }
+
+    return new ResponseEntity("Amount Transfer Completed", HttpStatus.ACCEPTED);
+  }
+
+  // Clients are told apart by this header, or by their address when they do not send it
+  private static String clientId(String clientId, HttpServletRequest request) {
+    return clientId != null ? clientId : request.getRemoteAddr();
+  }
+
+  @PostMapping(
+          path = {"/transfers"},
+          consumes = {"application/json"}
+  )
+  public ResponseEntity<Object> batchTransfer(@RequestBody @Valid BatchTransferRequest batchTransferRequest) {
+    log.info("Processing {} batch of {} transfers", batchTransferRequest.getMode(), batchTransferRequest.getTransfers().size());
+    try {
+      BatchTransferResult result = BatchTransferResult.of(
+              this.accountsService.batchTransfer(batchTransferRequest.getTransfers(), batchTransferRequest.getMode()));
+      return new ResponseEntity<>(result, HttpStatus.OK);
+    } catch (ShardUnavailableException shardUnavailableException) {
+      return new ResponseEntity<>(shardUnavailableException.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+  }
+
+  // Standing orders and end-of-day sweeps: the transfer executes at executeAt, the balance is checked only then
+  @PostMapping(
+          path = {"/transfers/scheduled"},
+          consumes = {"application/json"}
+  )
+  public ResponseEntity<Object> scheduleTransfer(@RequestBody @Valid ScheduledTransferRequest scheduledTransferRequest) {
+    try {
+      ScheduledTransfer scheduled = this.accountsService.scheduleTransfer(scheduledTransferRequest.getAccountFrom(),
+              scheduledTransferRequest.getAccountTo(), scheduledTransferRequest.getTransferAmount(),
+              scheduledTransferRequest.getExecuteAt());
+      return new ResponseEntity<>(scheduled, HttpStatus.CREATED);
+    } catch (AmountTransactionException amountTransactionException) {
+      return new ResponseEntity<>(amountTransactionException.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (TransferScheduleException transferScheduleException) {
+      return new ResponseEntity<>(transferScheduleException.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (AccountNotFoundException accountNotFoundException) {
+      return new ResponseEntity<>(accountNotFoundException.getMessage(), HttpStatus.NOT_FOUND);
+    } catch (ScheduledTransfersExhaustedException scheduledTransfersExhaustedException) {
+      return new ResponseEntity<>(scheduledTransfersExhaustedException.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+  }
+
+  @DeleteMapping(path = "/transfers/scheduled/{id}")
+  public ResponseEntity<Object> cancelScheduledTransfer(@PathVariable long id) {
+    if (!this.accountsService.cancelScheduledTransfer(id)) {
+      return new ResponseEntity<>(SCHEDULED_TRANSFER_NOT_FOUND, HttpStatus.NOT_FOUND);
+    }
+    return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+  }
+
+  // Pending scheduled transfers, of accountId (either side) when given, cursor is the nextCursor of the previous page
+  @GetMapping(path = "/transfers/scheduled")
+  public ResponseEntity<Object> getScheduledTransfers(@RequestParam(required = false) String accountId,
+                                                      @RequestParam(required = false) Long cursor,
+                                                      @RequestParam(defaultValue = "100") int limit) {
+    if (limit <= 0 || limit > MAX_TRANSACTIONS_PAGE) {
+      return new ResponseEntity<>(INVALID_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+    }
+    ScheduledTransfersPage page = this.accountsService.getScheduledTransfers(accountId, cursor, limit);
+    return new ResponseEntity<>(page, HttpStatus.OK);
+  }
+
 }
@@ -0,0 +1,195 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.util.JsonAmounts;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Hand-written Jackson codecs for the two request bodies on the hot path. They walk the token stream directly
+ * instead of going through bean introspection and creator property buffering, match field names against
+ * Jackson's interned names, write pre-encoded field names and parse amounts from the parser's buffer
+ * ({@link JsonAmounts}). Parsers and generators keep using Jackson's per-thread recycled buffers. The wire format
+ * is the one the annotated classes define: unknown fields are skipped, scalars are accepted as strings and
+ * amounts may be JSON numbers or strings.
+ */
+@JsonComponent
+public class AccountsJsonCodec {
+
+    private static final SerializedString ACCOUNT_ID = new SerializedString("accountId");
+    private static final SerializedString BALANCE = new SerializedString("balance");
+    private static final SerializedString ACCOUNT_FROM = new SerializedString("accountFrom");
+    private static final SerializedString ACCOUNT_TO = new SerializedString("accountTo");
+    private static final SerializedString TRANSFER_AMOUNT = new SerializedString("transferAmount");
+    private static final SerializedString TRANSFER_ID = new SerializedString("transferId");
+
+    // For mappers built outside Spring, e.g. the benchmarks
+    public static SimpleModule module() {
+        return new SimpleModule("AccountsJsonCodec")
+                .addSerializer(Account.class, new AccountSerializer())
+                .addDeserializer(Account.class, new AccountDeserializer())
+                .addSerializer(AccountAmountTransfer.class, new TransferSerializer())
+                .addDeserializer(AccountAmountTransfer.class, new TransferDeserializer());
+    }
+
+    public static class AccountSerializer extends JsonSerializer<Account> {
+
+        @Override
+        public void serialize(Account account, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(account);
+            generator.writeFieldName(ACCOUNT_ID);
+            writeString(generator, account.getAccountId());
+            generator.writeFieldName(BALANCE);
+            writeDecimal(generator, account.getBalance());
+            generator.writeEndObject();
+        }
+    }
+
+    public static class AccountDeserializer extends JsonDeserializer<Account> {
+
+        @Override
+        public Account deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            String accountId = null;
+            BigDecimal balance = null;
+            for (String field = firstFieldName(parser, context, Account.class); field != null; field = parser.nextFieldName()) {
+                parser.nextToken();
+                switch (field) {
+                    case "accountId":
+                        accountId = readString(parser, context);
+                        break;
+                    case "balance":
+                        balance = readDecimal(parser, context);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return new Account(accountId, balance);
+        }
+    }
+
+    public static class TransferSerializer extends JsonSerializer<AccountAmountTransfer> {
+
+        @Override
+        public void serialize(AccountAmountTransfer transfer, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject(transfer);
+            generator.writeFieldName(ACCOUNT_FROM);
+            writeString(generator, transfer.getAccountFrom());
+            generator.writeFieldName(ACCOUNT_TO);
+            writeString(generator, transfer.getAccountTo());
+            generator.writeFieldName(TRANSFER_AMOUNT);
+            writeDecimal(generator, transfer.getTransferAmount());
+            generator.writeFieldName(TRANSFER_ID);
+            writeString(generator, transfer.getTransferId());
+            generator.writeEndObject();
+        }
+    }
+
+    public static class TransferDeserializer extends JsonDeserializer<AccountAmountTransfer> {
+
+        @Override
+        public AccountAmountTransfer deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            String accountFrom = null;
+            String accountTo = null;
+            BigDecimal transferAmount = null;
+            String transferId = null;
+            for (String field = firstFieldName(parser, context, AccountAmountTransfer.class); field != null; field = parser.nextFieldName()) {
+                parser.nextToken();
+                switch (field) {
+                    case "accountFrom":
+                        accountFrom = readString(parser, context);
+                        break;
+                    case "accountTo":
+                        accountTo = readString(parser, context);
+                        break;
+                    case "transferAmount":
+                        transferAmount = readDecimal(parser, context);
+                        break;
+                    case "transferId":
+                        transferId = readString(parser, context);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return new AccountAmountTransfer(accountFrom, accountTo, transferAmount, transferId);
+        }
+    }
+
+    // Jackson hands over an object on its start, or on its first field when it has looked ahead
+    private static String firstFieldName(JsonParser parser, DeserializationContext context, Class<?> type) throws IOException {
+        final JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            return parser.nextFieldName();
+        }
+        if (token == JsonToken.FIELD_NAME) {
+            return parser.getCurrentName();
+        }
+        if (token == JsonToken.END_OBJECT) {
+            return null;
+        }
+        context.handleUnexpectedToken(type, parser);
+        return null;
+    }
+
+    private static String readString(JsonParser parser, DeserializationContext context) throws IOException {
+        final JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isScalarValue()) {
+            return parser.getValueAsString();
+        }
+        return (String) context.handleUnexpectedToken(String.class, parser);
+    }
+
+    private static BigDecimal readDecimal(JsonParser parser, DeserializationContext context) throws IOException {
+        final JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.VALUE_STRING && !token.isNumeric()) {
+            return (BigDecimal) context.handleUnexpectedToken(BigDecimal.class, parser);
+        }
+        if (token == JsonToken.VALUE_STRING && JsonAmounts.isBlank(parser)) {
+            return null;
+        }
+        final BigDecimal amount = JsonAmounts.readDecimal(parser);
+        if (amount == null) {
+            throw context.weirdStringException(parser.getText(), BigDecimal.class, "not a valid representation");
+        }
+        return amount;
+    }
+
+    private static void writeString(JsonGenerator generator, String value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value);
+        }
+    }
+
+    private static void writeDecimal(JsonGenerator generator, BigDecimal value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.dws.challenge;
 
 import com.dws.challenge.domain.Account;
 import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.util.Constants;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -17,15 +18,17 @@ import org.springframework.web.context.WebApplicationContext;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.math.BigDecimal;
+import java.util.UUID;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = "accounts.ledger.enabled=true")
 @WebAppConfiguration
 public class AccountsControllerTest {
 
@@ -157,11 +160,128 @@ public class AccountsControllerTest {
                 .content("{\"accountFrom\":\"uid-785\",\"accountTo\":\"uid-763\",\"transferAmount\":-1.00}")).andExpect(status().isBadRequest());
     }
 
+    @Test
+    public void verifyMultiLegTransfer() throws Exception {
+        this.accountsService.createAccount(new Account("uid-800", new BigDecimal("100.00")));
+        this.accountsService.createAccount(new Account("uid-801", new BigDecimal("0.00")));
+        this.accountsService.createAccount(new Account("uid-802", new BigDecimal("0.00")));
+
+        this.mockMvc.perform(post("/v1/accounts/transfer/multi-leg").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"accountFrom\":\"uid-800\",\"legs\":[{\"accountTo\":\"uid-801\",\"transferAmount\":30.00},"
+                        + "{\"accountTo\":\"uid-802\",\"transferAmount\":20.50}]}")).andExpect(status().isAccepted());
+        this.mockMvc.perform(post("/v1/accounts/transfer/multi-leg").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"accountFrom\":\"uid-800\",\"legs\":[{\"accountTo\":\"uid-801\",\"transferAmount\":1.00},"
+                        + "{\"accountTo\":\"uid-899\",\"transferAmount\":1.00}]}")).andExpect(status().isNotFound());
+        this.mockMvc.perform(post("/v1/accounts/transfer/multi-leg").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"accountFrom\":\"uid-800\",\"legs\":[]}")).andExpect(status().isBadRequest());
+
+        verifyAccountBalance("uid-800", new BigDecimal("49.50"));
+        verifyAccountBalance("uid-801", new BigDecimal("30.00"));
+        verifyAccountBalance("uid-802", new BigDecimal("20.50"));
+    }
+
+    @Test
+    public void verifyRejectedTransfersAreClientErrors() throws Exception {
+        this.accountsService.createAccount(new Account("uid-785", new BigDecimal("685.88")));
+        this.accountsService.createAccount(new Account("uid-763", new BigDecimal("685.88")));
+
+        this.mockMvc.perform(post("/v1/accounts/transfer/").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"accountFrom\":\"uid-785\",\"accountTo\":\"uid-763\",\"transferAmount\":685.89}"))
+                .andExpect(status().isBadRequest()).andExpect(content().string(Constants.INSUFFICIENT_BALANCE));
+        this.mockMvc.perform(post("/v1/accounts/transfer/").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"accountFrom\":\"uid-785\",\"accountTo\":\"uid-000\",\"transferAmount\":1.00}"))
+                .andExpect(status().isNotFound()).andExpect(content().string(Constants.ACCOUNT_NOT_EXISTS));
+    }
+
+    @Test
+    public void verifyRetriedTransferIsAppliedOnce() throws Exception {
+        this.accountsService.createAccount(new Account("uid-785", new BigDecimal("100.00")));
+        this.accountsService.createAccount(new Account("uid-763", new BigDecimal("0.00")));
+        final String transfer = "{\"transferId\":\"" + UUID.randomUUID()
+                + "\",\"accountFrom\":\"uid-785\",\"accountTo\":\"uid-763\",\"transferAmount\":60.00";
+
+        for (int i = 0; i < 2; i++) {
+            this.mockMvc.perform(post("/v1/accounts/transfer/").contentType(MediaType.APPLICATION_JSON)
+                    .content(transfer + "}")).andExpect(status().isAccepted());
+        }
+        verifyAccountBalance("uid-785", new BigDecimal("40.00"));
+        verifyAccountBalance("uid-763", new BigDecimal("60.00"));
+
+        this.mockMvc.perform(post("/v1/accounts/transfer/").contentType(MediaType.APPLICATION_JSON)
+                .content(transfer.replace("60.00", "10.00") + "}")).andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    public void verifyTransactionsArePagedNewestFirst() throws Exception {
+        this.accountsService.createAccount(new Account("uid-801", new BigDecimal("100.00")));
+        this.accountsService.createAccount(new Account("uid-802", new BigDecimal("0.00")));
+        this.accountsService.amountTransfer("uid-801", "uid-802", new BigDecimal("10.00"));
+        this.accountsService.amountTransfer("uid-801", "uid-802", new BigDecimal("20.00"));
+        this.accountsService.amountTransfer("uid-802", "uid-801", new BigDecimal("5.00"));
+
+        this.mockMvc.perform(get("/v1/accounts/uid-801/transactions?limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions.length()").value(2))
+                .andExpect(jsonPath("$.transactions[0].amount").value(5.00))
+                .andExpect(jsonPath("$.transactions[0].counterparty").value("uid-802"))
+                .andExpect(jsonPath("$.transactions[1].amount").value(-20.00))
+                .andExpect(jsonPath("$.nextCursor").value(1));
+
+        this.mockMvc.perform(get("/v1/accounts/uid-801/transactions?limit=2&cursor=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions.length()").value(1))
+                .andExpect(jsonPath("$.transactions[0].amount").value(-10.00))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        this.mockMvc.perform(get("/v1/accounts/uid-801/transactions?from=2000-01-01T00:00:00Z&to=2000-01-02T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions.length()").value(0));
+
+        this.mockMvc.perform(get("/v1/accounts/uid-999/transactions")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void verifyBalanceReport() throws Exception {
+        this.accountsService.createAccount(new Account("uid-811", new BigDecimal("100.00")));
+        this.accountsService.createAccount(new Account("uid-812", new BigDecimal("250.50")));
+        this.accountsService.createAccount(new Account("uid-813", new BigDecimal("0.00")));
+        this.accountsService.amountTransfer("uid-812", "uid-813", new BigDecimal("50.50"));
+
+        this.mockMvc.perform(get("/v1/accounts/balance-report?top=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accounts").value(3))
+                .andExpect(jsonPath("$.totalBalance").value(350.50))
+                .andExpect(jsonPath("$.topBalances.length()").value(2))
+                .andExpect(jsonPath("$.topBalances[0].accountId").value("uid-812"))
+                .andExpect(jsonPath("$.topBalances[1].accountId").value("uid-811"));
+
+        this.mockMvc.perform(get("/v1/accounts/balance-report?top=-1")).andExpect(status().isBadRequest());
+    }
+
     @Test
     public void validationCheckForMissingInputRequest() throws Exception {
         this.mockMvc.perform(post("/v1/accounts/transfer/").contentType(MediaType.APPLICATION_JSON)
                 .content("{}")).andExpect(status().isBadRequest());
     }
 
+    @Test
+    public void verifyBestEffortBatchTransferReportsEachItem() throws Exception {
+        this.accountsService.createAccount(new Account("uid-901", new BigDecimal("100.00")));
+        this.accountsService.createAccount(new Account("uid-902", new BigDecimal("0.00")));
+
+        this.mockMvc.perform(post("/v1/accounts/transfers").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"mode\":\"BEST_EFFORT\",\"transfers\":["
+                        + "{\"accountFrom\":\"uid-901\",\"accountTo\":\"uid-902\",\"transferAmount\":70.00},"
+                        + "{\"accountFrom\":\"uid-901\",\"accountTo\":\"uid-902\",\"transferAmount\":70.00},"
+                        + "{\"accountFrom\":\"uid-901\",\"accountTo\":\"uid-999\",\"transferAmount\":1.00}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(1))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.results[1].status").value("INSUFFICIENT_BALANCE"))
+                .andExpect(jsonPath("$.results[2].status").value("ACCOUNT_NOT_EXISTS"));
+
+        verifyAccountBalance("uid-901", new BigDecimal("30.00"));
+        verifyAccountBalance("uid-902", new BigDecimal("70.00"));
+    }
 
 }
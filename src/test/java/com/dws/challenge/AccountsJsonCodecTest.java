@@ -0,0 +1,55 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.web.AccountsJsonCodec;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The codec must accept and produce exactly what reflective binding of the annotated classes does
+public class AccountsJsonCodecTest {
+
+    private final ObjectMapper binding = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final ObjectMapper codec = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .registerModule(AccountsJsonCodec.module());
+
+    @Test
+    public void readsTransfersLikeBinding() throws Exception {
+        final String[] bodies = {
+                "{\"accountFrom\":\"uid-1\",\"accountTo\":\"uid-2\",\"transferAmount\":100}",
+                "{\"accountFrom\":\"uid-1\",\"accountTo\":\"uid-2\",\"transferAmount\":\"5500.80\",\"transferId\":\"t-1\"}",
+                "{\"accountFrom\":1,\"accountTo\":\"uid-2\",\"transferAmount\":-1.00,\"unknown\":{\"a\":[1,2]}}",
+                "{\"transferAmount\":1e3}",
+                "{\"transferAmount\":12345678901234567890.123}",
+                "{\"transferAmount\":\" 5 \"}",
+                "{\"transferAmount\":\"\"}",
+                "{}"
+        };
+        for (String body : bodies) {
+            final AccountAmountTransfer expected = binding.readValue(body, AccountAmountTransfer.class);
+            final AccountAmountTransfer actual = codec.readValue(body, AccountAmountTransfer.class);
+
+            assertThat(actual).as(body).isEqualTo(expected);
+            if (expected.getTransferAmount() != null) {
+                assertThat(actual.getTransferAmount().scale()).as(body).isEqualTo(expected.getTransferAmount().scale());
+            }
+        }
+    }
+
+    @Test
+    public void writesAccountsLikeBinding() throws Exception {
+        final Account account = new Account("uid-1", new BigDecimal("685.88"));
+
+        assertThat(codec.writeValueAsString(account)).isEqualTo(binding.writeValueAsString(account))
+                .isEqualTo("{\"accountId\":\"uid-1\",\"balance\":685.88}");
+        assertThat(codec.readValue("{\"accountId\":\"uid-1\",\"balance\":685.88}", Account.class)).isEqualTo(account);
+    }
+}
@@ -0,0 +1,176 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountImportSummary;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsNdjsonService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountsNdjsonServiceTest {
+
+    private static final int LARGE_IMPORT_ACCOUNTS = 5_000_000;
+
+    private static final int LARGE_IMPORT_DUPLICATES = 1_000;
+
+    @Test
+    public void importReportsDuplicateAndInvalidLinesAndExportRoundTrips() throws Exception {
+        final AccountsRepository repository = new AccountsRepositoryInMemory();
+        final AccountsNdjsonService service = newNdjsonService(repository);
+
+        final String input = "{\"accountId\":\"uid-1\",\"balance\":100.50}\n"
+                + "{\"accountId\":\"uid-2\",\"balance\":\"7\"}\n"
+                + "{\"accountId\":\"uid-1\",\"balance\":1}\n"
+                + "{\"accountId\":\"uid-3\",\"balance\":-1}\n"
+                + "{\"accountId\":\"uid-4\",\"balance\":0.001}\n";
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+        final AccountImportSummary summary = service.importAccounts(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), report);
+
+        assertThat(summary).isEqualTo(new AccountImportSummary(2, 1, 2));
+        assertThat(report.toString(StandardCharsets.UTF_8.name()).split("\n")).containsExactly(
+                "{\"line\":4,\"status\":\"INVALID\"}",
+                "{\"line\":5,\"status\":\"INVALID\"}",
+                "{\"line\":3,\"accountId\":\"uid-1\",\"status\":\"DUPLICATE\"}",
+                "{\"imported\":2,\"duplicates\":1,\"invalid\":2}");
+        assertThat(repository.getAccount("uid-1").getBalance()).isEqualByComparingTo("100.50");
+
+        final ByteArrayOutputStream export = new ByteArrayOutputStream();
+        service.exportAccounts(export);
+        final AccountsRepository copy = new AccountsRepositoryInMemory();
+        newNdjsonService(copy)
+                .importAccounts(new ByteArrayInputStream(export.toByteArray()), new ByteArrayOutputStream());
+        assertThat(copy.getAccount("uid-1").getBalance()).isEqualByComparingTo("100.50");
+        assertThat(copy.getAccount("uid-2").getBalance()).isEqualByComparingTo("7");
+    }
+
+    // The test JVM heap is capped in build.gradle, far below what 5M buffered lines or results would need
+    @Test
+    public void importFiveMillionAccountsStreamsInConstantMemory() throws Exception {
+        final CountingRepository repository = new CountingRepository(LARGE_IMPORT_ACCOUNTS);
+        final AccountsNdjsonService service = newNdjsonService(repository);
+
+        final AccountImportSummary summary = service.importAccounts(
+                new GeneratedAccountsInput(LARGE_IMPORT_ACCOUNTS, LARGE_IMPORT_DUPLICATES), OutputStream.nullOutputStream());
+
+        assertThat(summary.getImported()).isEqualTo(LARGE_IMPORT_ACCOUNTS);
+        assertThat(summary.getDuplicates()).isEqualTo(LARGE_IMPORT_DUPLICATES);
+        assertThat(summary.getInvalid()).isZero();
+        assertThat(repository.ids.cardinality()).isEqualTo(LARGE_IMPORT_ACCOUNTS);
+    }
+
+    // Produces "uid-<n>" account lines on demand, the last lines repeat the first ids
+    private static final class GeneratedAccountsInput extends InputStream {
+
+        private final int accounts;
+
+        private final int lines;
+
+        private int nextLine;
+
+        private byte[] buffer = new byte[0];
+
+        private int position;
+
+        private GeneratedAccountsInput(int accounts, int duplicates) {
+            this.accounts = accounts;
+            this.lines = accounts + duplicates;
+        }
+
+        @Override
+        public int read() {
+            return fill() ? buffer[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            int read = 0;
+            while (read < length && fill()) {
+                final int count = Math.min(length - read, buffer.length - position);
+                System.arraycopy(buffer, position, target, offset + read, count);
+                position += count;
+                read += count;
+            }
+            return read == 0 ? -1 : read;
+        }
+
+        private boolean fill() {
+            if (position < buffer.length) {
+                return true;
+            }
+            if (nextLine == lines) {
+                return false;
+            }
+            final int id = nextLine++ % accounts;
+            buffer = ("{\"accountId\":\"uid-" + id + "\",\"balance\":" + (id % 10_000) + ".25}\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            return true;
+        }
+    }
+
+    private static AccountsNdjsonService newNdjsonService(AccountsRepository repository) {
+        return new AccountsNdjsonService(new AccountsServiceBuilder(repository).build(), new ObjectMapper());
+    }
+
+    // Keeps one bit per numeric account id instead of the accounts themselves
+    private static final class CountingRepository implements AccountsRepository {
+
+        private final BitSet ids;
+
+        private CountingRepository(int capacity) {
+            this.ids = new BitSet(capacity);
+        }
+
+        @Override
+        public BitSet createAccounts(List<Account> accounts) {
+            final BitSet duplicates = new BitSet();
+            for (int i = 0; i < accounts.size(); i++) {
+                final int id = Integer.parseInt(accounts.get(i).getAccountId().substring("uid-".length()));
+                if (ids.get(id)) {
+                    duplicates.set(i);
+                }
+                ids.set(id);
+            }
+            return duplicates;
+        }
+
+        @Override
+        public void createAccount(Account account) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Account getAccount(String accountId) {
+            return ids.get(Integer.parseInt(accountId.substring("uid-".length())))
+                    ? new Account(accountId, BigDecimal.ZERO) : null;
+        }
+
+        @Override
+        public void forEachAccount(Consumer<Account> action) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clearAccounts() {
+            ids.clear();
+        }
+    }
+}
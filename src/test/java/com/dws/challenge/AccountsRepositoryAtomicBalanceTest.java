@@ -0,0 +1,124 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.AmountTransactionException;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.repository.AccountsRepositoryAtomicBalance;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class AccountsRepositoryAtomicBalanceTest {
+
+    private static final int ACCOUNTS = 100;
+
+    private static final int THREADS = 8;
+
+    private final AccountsRepositoryAtomicBalance repository = new AccountsRepositoryAtomicBalance();
+
+    @Test
+    public void concurrentDebitsNeverOverdraw() throws Exception {
+        repository.createAccount(new Account("Id-1", new BigDecimal("100.00")));
+        final AtomicInteger debited = new AtomicInteger();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 5_000; i++) {
+                if (repository.tryDebit("Id-1", 1)) {
+                    debited.incrementAndGet();
+                }
+            }
+        });
+
+        assertThat(debited.get()).isEqualTo(10_000);
+        assertThat(repository.getBalance("Id-1")).isZero();
+        assertThat(repository.tryDebit("Id-1", 1)).isFalse();
+    }
+
+    @Test
+    public void concurrentTransfersConserveTotalBalance() throws Exception {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            repository.createAccount(new Account("Id-" + i, new BigDecimal("100.00")));
+        }
+
+        runConcurrently(() -> {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 5_000; i++) {
+                repository.transfer("Id-" + random.nextInt(ACCOUNTS), "Id-" + random.nextInt(ACCOUNTS),
+                        random.nextInt(1, 5_000));
+            }
+        });
+
+        long total = 0;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            final long balance = repository.getBalance("Id-" + i);
+            assertThat(balance).isGreaterThanOrEqualTo(0);
+            total += balance;
+        }
+        assertThat(total).isEqualTo(ACCOUNTS * 10_000L);
+    }
+
+    @Test
+    public void accountsAreDetachedCopiesOfMinorUnitBalances() {
+        repository.createAccount(new Account("Id-1", new BigDecimal("12.3")));
+        assertThat(repository.getBalance("Id-1")).isEqualTo(1_230);
+
+        final Account account = repository.getAccount("Id-1");
+        assertThat(account.getBalance()).isEqualTo(new BigDecimal("12.30"));
+        account.setBalance(BigDecimal.ZERO);
+        assertThat(repository.getBalance("Id-1")).isEqualTo(1_230);
+
+        repository.credit("Id-1", -230);
+        assertThat(repository.getAccount("Id-1").getBalance()).isEqualTo(new BigDecimal("10.00"));
+        assertThat(repository.getAccount("Id-2")).isNull();
+        assertThat(repository.containsAccount("Id-1")).isTrue();
+        assertThat(repository.containsAccount("Id-2")).isFalse();
+    }
+
+    @Test
+    public void invalidAccountsAndUnknownIdsAreRefused() {
+        repository.createAccount(new Account("Id-1", new BigDecimal("10.00")));
+        try {
+            repository.createAccount(new Account("Id-1", new BigDecimal("20.00")));
+            fail("Should have failed when adding duplicate account");
+        } catch (DuplicateAccountIdException ex) {
+            assertThat(repository.getBalance("Id-1")).isEqualTo(1_000);
+        }
+        try {
+            repository.createAccount(new Account("Id-2", new BigDecimal("0.001")));
+            fail("Should have refused a balance below a cent");
+        } catch (AmountTransactionException ex) {
+            assertThat(repository.containsAccount("Id-2")).isFalse();
+        }
+        try {
+            repository.tryDebit("Id-missing", 500);
+            fail("Should have failed on the missing account");
+        } catch (AmountTransactionException ex) {
+            assertThat(repository.getBalance("Id-1")).isEqualTo(1_000);
+        }
+    }
+
+    private static void runConcurrently(Runnable task) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                results.add(executor.submit(task));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.NotSufficientBalanceException;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.CachingAccountsRepository;
+import com.dws.challenge.service.AccountsService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+@ActiveProfiles("test")
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "accounts.repository=jpa")
+public class AccountsRepositoryJpaTest {
+
+    @Autowired
+    private AccountsService accountsService;
+
+    @Autowired
+    private AccountsRepository accountsRepository;
+
+    @Before
+    public void clearAccounts() {
+        accountsRepository.clearAccounts();
+    }
+
+    @Test
+    public void transferUpdatesBothRowsOrNeither() {
+        assertThat(accountsRepository).isInstanceOf(CachingAccountsRepository.class);
+        final BitSet duplicates = accountsService.createAccounts(Arrays.asList(
+                new Account("Id-1", new BigDecimal("100.00")),
+                new Account("Id-2", new BigDecimal("5.50")),
+                new Account("Id-1", BigDecimal.ONE)));
+        assertThat(duplicates.stream().toArray()).containsExactly(2);
+
+        accountsService.amountTransfer("Id-1", "Id-2", new BigDecimal("40.25"));
+        try {
+            accountsService.amountTransfer("Id-2", "Id-1", new BigDecimal("45.76"));
+            fail("Should have failed on insufficient balance");
+        } catch (NotSufficientBalanceException ex) {
+            // expected
+        }
+
+        assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("59.75");
+        assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("45.75");
+    }
+}
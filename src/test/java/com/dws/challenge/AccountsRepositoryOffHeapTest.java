@@ -0,0 +1,59 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.repository.AccountsRepositoryOffHeap;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class AccountsRepositoryOffHeapTest {
+
+    // Sized for a handful of accounts so the test also grows every index
+    private final AccountsRepositoryOffHeap repository = new AccountsRepositoryOffHeap(16);
+
+    @Test
+    public void accountsSurviveIndexGrowth() {
+        for (int i = 0; i < 20_000; i++) {
+            repository.createAccount(new Account("Id-" + i, BigDecimal.valueOf(i, 2)));
+        }
+        repository.createAccount(new Account("Id-\u017c\u00f3\u0142w", new BigDecimal("12.30")));
+
+        assertThat(repository.getAccountCount()).isEqualTo(20_001);
+        assertThat(repository.getAccount("Id-12345").getBalance()).isEqualByComparingTo("123.45");
+        assertThat(repository.getAccount("Id-\u017c\u00f3\u0142w").getBalance()).isEqualByComparingTo("12.30");
+        assertThat(repository.getAccount("Id-20000")).isNull();
+
+        final Map<String, BigDecimal> balances = new HashMap<>();
+        repository.forEachAccount(account -> balances.put(account.getAccountId(), account.getBalance()));
+        assertThat(balances).hasSize(20_001).containsEntry("Id-19999", new BigDecimal("199.99"));
+    }
+
+    @Test
+    public void duplicateAccountIsRejected() {
+        repository.createAccount(new Account("Id-1", new BigDecimal("10.00")));
+        try {
+            repository.createAccount(new Account("Id-1", new BigDecimal("20.00")));
+            fail("Should have failed when adding duplicate account");
+        } catch (DuplicateAccountIdException ex) {
+            assertThat(repository.getAccount("Id-1").getBalance()).isEqualByComparingTo("10.00");
+        }
+    }
+
+    @Test
+    public void debitNeverOverdraws() {
+        repository.createAccount(new Account("Id-1", new BigDecimal("10.00")));
+        repository.createAccount(new Account("Id-2", new BigDecimal("0.00")));
+
+        assertThat(repository.transfer("Id-1", "Id-2", 600)).isTrue();
+        assertThat(repository.transfer("Id-1", "Id-2", 600)).isFalse();
+
+        assertThat(repository.getBalance("Id-1")).isEqualTo(400);
+        assertThat(repository.getBalance("Id-2")).isEqualTo(600);
+    }
+}
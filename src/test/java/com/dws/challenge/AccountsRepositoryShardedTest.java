@@ -0,0 +1,91 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.AmountTransactionException;
+import com.dws.challenge.exception.ShardUnavailableException;
+import com.dws.challenge.repository.AccountsRepositorySharded;
+import org.junit.After;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class AccountsRepositoryShardedTest {
+
+    private static final int ACCOUNTS = 100;
+
+    private final AccountsRepositorySharded repository = new AccountsRepositorySharded(4);
+
+    @After
+    public void stopShards() throws Exception {
+        repository.destroy();
+    }
+
+    @Test
+    public void concurrentCrossShardTransfersConserveTotalBalance() throws Exception {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            repository.createAccount(new Account("Id-" + i, new BigDecimal("100.00")));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(() -> {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 5_000; i++) {
+                        repository.transfer("Id-" + random.nextInt(ACCOUNTS), "Id-" + random.nextInt(ACCOUNTS),
+                                random.nextInt(1, 5_000));
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long total = 0;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            final long balance = repository.getBalance("Id-" + i);
+            assertThat(balance).isNotNegative();
+            total += balance;
+        }
+        assertThat(total).isEqualTo(ACCOUNTS * 10_000L);
+    }
+
+    @Test
+    public void failedCreditIsCompensatedOnTheSourceShard() {
+        repository.createAccount(new Account("Id-1", new BigDecimal("10.00")));
+
+        try {
+            repository.transfer("Id-1", "Id-missing", 500);
+            fail("Should have failed on the missing destination account");
+        } catch (AmountTransactionException ex) {
+            assertThat(repository.getBalance("Id-1")).isEqualTo(1_000);
+        }
+        assertThat(repository.transfer("Id-1", "Id-1", 2_000)).isFalse();
+    }
+
+    @Test
+    public void commandsAreRefusedOnceTheShardsAreStopped() throws Exception {
+        repository.createAccount(new Account("Id-1", new BigDecimal("10.00")));
+        repository.destroy();
+
+        try {
+            repository.tryDebit("Id-1", 500);
+            fail("Should have refused the debit");
+        } catch (ShardUnavailableException ex) {
+            assertThat(repository.getBalance("Id-1")).isEqualTo(1_000);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.journal.TransferJournal;
+import com.dws.challenge.ledger.TransferLedger;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.service.AccountLockManager;
+import com.dws.challenge.service.AccountsMetrics;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BalanceSnapshots;
+import com.dws.challenge.service.NotificationService;
+import com.dws.challenge.service.TransferCombiner;
+import com.dws.challenge.service.TransferTimingWheel;
+import com.dws.challenge.util.AccountTransferValidator;
+
+// Wires an AccountsService without Spring. Nothing is on unless a test sets it: no notifications, journal, ledger,
+// metrics or combining.
+final class AccountsServiceBuilder {
+
+    private final AccountsRepository repository;
+
+    private NotificationService notificationService = (Account account, String transferDescription) -> {
+    };
+
+    private TransferJournal transferJournal = TransferJournal.DISABLED;
+
+    private TransferCombiner transferCombiner = TransferCombiner.DISABLED;
+
+    private BalanceSnapshots balanceSnapshots;
+
+    private TransferTimingWheel transferTimingWheel;
+
+    AccountsServiceBuilder(AccountsRepository repository) {
+        this.repository = repository;
+    }
+
+    AccountsServiceBuilder notificationService(NotificationService notificationService) {
+        this.notificationService = notificationService;
+        return this;
+    }
+
+    AccountsServiceBuilder transferJournal(TransferJournal transferJournal) {
+        this.transferJournal = transferJournal;
+        return this;
+    }
+
+    AccountsServiceBuilder transferCombiner(TransferCombiner transferCombiner) {
+        this.transferCombiner = transferCombiner;
+        return this;
+    }
+
+    AccountsServiceBuilder balanceSnapshots(BalanceSnapshots balanceSnapshots) {
+        this.balanceSnapshots = balanceSnapshots;
+        return this;
+    }
+
+    AccountsServiceBuilder transferTimingWheel(TransferTimingWheel transferTimingWheel) {
+        this.transferTimingWheel = transferTimingWheel;
+        return this;
+    }
+
+    AccountsService build() {
+        return new AccountsService(repository, notificationService, new AccountTransferValidator(),
+                new AccountLockManager(1024), transferJournal, TransferLedger.DISABLED, AccountsMetrics.NOOP,
+                transferCombiner, balanceSnapshots != null ? balanceSnapshots : new BalanceSnapshots(),
+                transferTimingWheel != null ? transferTimingWheel
+                        : new TransferTimingWheel(100, 1024, System.currentTimeMillis()));
+    }
+}
@@ -1,10 +1,24 @@
 package com.dws.challenge;
 
 import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.domain.BatchTransferMode;
+import com.dws.challenge.domain.TransferLeg;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.AccountNotFoundException;
+import com.dws.challenge.exception.AmountTransactionException;
 import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.exception.NotSufficientBalanceException;
+import com.dws.challenge.exception.TransferRejections;
+import com.dws.challenge.journal.TransferJournal;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryAtomicBalance;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
 import com.dws.challenge.service.AccountsService;
 import com.dws.challenge.service.NotificationService;
+import com.dws.challenge.service.TransferCombiner;
 import com.dws.challenge.util.Constants;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
@@ -13,8 +27,17 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
@@ -31,6 +54,9 @@ public class AccountsServiceTest {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private void shouldSendToNotification(final Account fromAccount, final Account toAccount, final BigDecimal transferAmount) {
         verify(notificationService, Mockito.times(1)).notifyAboutTransfer((fromAccount), "The amount of " + transferAmount + " for transfer request account number: " + toAccount.getAccountId() + " is completed.");
         verify(notificationService, Mockito.times(1)).notifyAboutTransfer((toAccount), "The amount of " + transferAmount + " to account with the account with ID + " + fromAccount.getAccountId() + " is completed.");
@@ -102,6 +128,54 @@ public class AccountsServiceTest {
     }
 
 
+    @Test // Rejections are shared and carry no stack trace
+    public void rejectedTransfersThrowStacklessExceptions() {
+        final String accountId = "uid-" + UUID.randomUUID();
+        this.accountsService.createAccount(new Account(accountId, new BigDecimal("1.00")));
+
+        try {
+            this.accountsService.amountTransfer(accountId, "uid-" + UUID.randomUUID(), BigDecimal.ONE);
+            fail("Should have failed for an unknown account");
+        } catch (AccountNotFoundException e) {
+            assertThat(e).isSameAs(TransferRejections.ACCOUNT_NOT_FOUND);
+            assertThat(e.getStackTrace()).isEmpty();
+        }
+        try {
+            this.accountsService.amountTransfer(accountId, accountId, new BigDecimal("1.01"));
+            fail("Should have failed for an insufficient balance");
+        } catch (NotSufficientBalanceException e) {
+            assertThat(e.getMessage()).isEqualTo(Constants.INSUFFICIENT_BALANCE);
+            assertThat(e.getStackTrace()).isEmpty();
+        }
+    }
+
+    @Test // Multi-leg - every payee is credited from one debit, or nothing moves
+    public void multiLegTransferAppliesAllLegsOrNone() {
+        final String prefix = "uid-" + UUID.randomUUID() + "-";
+        this.accountsService.createAccount(new Account(prefix + "payer", new BigDecimal("100.00")));
+        for (int i = 0; i < 3; i++) {
+            this.accountsService.createAccount(new Account(prefix + i, BigDecimal.ZERO));
+        }
+        final List<TransferLeg> legs = Arrays.asList(new TransferLeg(prefix + 0, new BigDecimal("10.00")),
+                new TransferLeg(prefix + 1, new BigDecimal("20.00")), new TransferLeg(prefix + 0, new BigDecimal("5.00")));
+
+        this.accountsService.multiLegTransfer(prefix + "payer", legs);
+
+        assertThat(this.accountsService.getAccount(prefix + "payer").getBalance()).isEqualByComparingTo("65.00");
+        assertThat(this.accountsService.getAccount(prefix + 0).getBalance()).isEqualByComparingTo("15.00");
+        assertThat(this.accountsService.getAccount(prefix + 1).getBalance()).isEqualByComparingTo("20.00");
+
+        try {
+            this.accountsService.multiLegTransfer(prefix + "payer", Arrays.asList(new TransferLeg(prefix + 2, new BigDecimal("60.00")),
+                    new TransferLeg(prefix + 1, new BigDecimal("6.00"))));
+            fail("Should have failed when the legs exceed the balance");
+        } catch (NotSufficientBalanceException e) {
+            assertThat(e.getMessage()).isEqualTo(Constants.INSUFFICIENT_BALANCE);
+        }
+        assertThat(this.accountsService.getAccount(prefix + "payer").getBalance()).isEqualByComparingTo("65.00");
+        assertThat(this.accountsService.getAccount(prefix + 2).getBalance()).isEqualByComparingTo("0");
+    }
+
     @Test // Positive case
     public void accountAmountTransferFunds() {
         final BigDecimal transferAmount = new BigDecimal("200.99");
@@ -123,5 +197,295 @@ public class AccountsServiceTest {
         shouldSendToNotification(accountFrom, accountTo, transferAmount);
     }
 
+    @Test // Contention - random concurrent transfers between a small set of accounts
+    public void concurrentAccountTransfersConserveTotalBalance() throws Exception {
+        final int accountCount = 8;
+        final int transferCount = 20_000;
+        final BigDecimal initialBalance = new BigDecimal("1000.00");
+
+        final String prefix = "uid-" + UUID.randomUUID() + "-";
+        for (int i = 0; i < accountCount; i++) {
+            this.accountsService.createAccount(new Account(prefix + i, initialBalance));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            final List<Future<?>> transfers = new ArrayList<>(transferCount);
+            for (int i = 0; i < transferCount; i++) {
+                transfers.add(executor.submit(() -> {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    final int from = random.nextInt(accountCount);
+                    final int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+                    try {
+                        this.accountsService.amountTransfer(prefix + from, prefix + to,
+                                BigDecimal.valueOf(random.nextInt(1, 5000), 2));
+                    } catch (NotSufficientBalanceException | AmountTransactionException e) {
+                        assertThat(e.getMessage()).isEqualTo(Constants.INSUFFICIENT_BALANCE);
+                    }
+                }));
+            }
+            for (Future<?> transfer : transfers) {
+                transfer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < accountCount; i++) {
+            final BigDecimal balance = this.accountsService.getAccount(prefix + i).getBalance();
+            assertThat(balance.signum()).isGreaterThanOrEqualTo(0);
+            total = total.add(balance);
+        }
+        assertThat(total).isEqualByComparingTo(initialBalance.multiply(BigDecimal.valueOf(accountCount)));
+    }
+
+    @Test // Hot account - contended transfers on one settlement account are combined, each still checked in order
+    public void hotAccountTransfersConserveTotalBalance() throws Exception {
+        final int accountCount = 64;
+        final BigDecimal initialBalance = new BigDecimal("10.00");
+
+        // combining is off by default, this service has it on
+        final TransferCombiner transferCombiner = new TransferCombiner(true, 256);
+        final AccountsService combiningAccountsService = new AccountsServiceBuilder(new AccountsRepositoryInMemory())
+                .transferCombiner(transferCombiner).build();
+        final String prefix = "uid-" + UUID.randomUUID() + "-";
+        final String settlement = prefix + "settlement";
+        combiningAccountsService.createAccount(new Account(settlement, initialBalance));
+        for (int i = 0; i < accountCount; i++) {
+            combiningAccountsService.createAccount(new Account(prefix + i, initialBalance));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            final List<Future<?>> transfers = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                transfers.add(executor.submit(() -> {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    final String other = prefix + random.nextInt(accountCount);
+                    final boolean pays = random.nextBoolean();
+                    try {
+                        combiningAccountsService.amountTransfer(pays ? settlement : other, pays ? other : settlement,
+                                BigDecimal.valueOf(random.nextInt(1, 300), 2));
+                    } catch (NotSufficientBalanceException | AmountTransactionException e) {
+                        assertThat(e.getMessage()).isEqualTo(Constants.INSUFFICIENT_BALANCE);
+                    }
+                }));
+            }
+            for (Future<?> transfer : transfers) {
+                transfer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        BigDecimal total = combiningAccountsService.getAccount(settlement).getBalance();
+        assertThat(total.signum()).isGreaterThanOrEqualTo(0);
+        for (int i = 0; i < accountCount; i++) {
+            final BigDecimal balance = combiningAccountsService.getAccount(prefix + i).getBalance();
+            assertThat(balance.signum()).isGreaterThanOrEqualTo(0);
+            total = total.add(balance);
+        }
+        assertThat(total).isEqualByComparingTo(initialBalance.multiply(BigDecimal.valueOf(accountCount + 1)));
+        assertThat(transferCombiner.getBatches()).isGreaterThan(0);
+        assertThat(transferCombiner.getCombinedTransfers()).isGreaterThanOrEqualTo(transferCombiner.getBatches());
+    }
+
+    @Test // Batch - one short transfer rolls back the whole all-or-nothing batch
+    public void batchTransferAllOrNothingAppliesNoneOnFailure() {
+        final String accountA = UUID.randomUUID().toString();
+        final String accountB = UUID.randomUUID().toString();
+        this.accountsService.createAccount(new Account(accountA, new BigDecimal("100.00")));
+        this.accountsService.createAccount(new Account(accountB, new BigDecimal("50.00")));
+
+        final List<AccountAmountTransfer> transfers = Arrays.asList(
+                new AccountAmountTransfer(accountA, accountB, new BigDecimal("80.00")),
+                new AccountAmountTransfer(accountA, accountB, new BigDecimal("30.00")), // only 20.00 left
+                new AccountAmountTransfer(accountB, accountA, new BigDecimal("10.00")));
+
+        assertThat(this.accountsService.batchTransfer(transfers, BatchTransferMode.ALL_OR_NOTHING)).containsExactly(
+                TransferStatus.NOT_APPLIED, TransferStatus.INSUFFICIENT_BALANCE, TransferStatus.NOT_APPLIED);
+        assertThat(this.accountsService.getAccount(accountA).getBalance()).isEqualByComparingTo("100.00");
+        assertThat(this.accountsService.getAccount(accountB).getBalance()).isEqualByComparingTo("50.00");
+
+        assertThat(this.accountsService.batchTransfer(transfers, BatchTransferMode.BEST_EFFORT)).containsExactly(
+                TransferStatus.COMPLETED, TransferStatus.INSUFFICIENT_BALANCE, TransferStatus.COMPLETED);
+        assertThat(this.accountsService.getAccount(accountA).getBalance()).isEqualByComparingTo("30.00");
+        assertThat(this.accountsService.getAccount(accountB).getBalance()).isEqualByComparingTo("120.00");
+    }
+
+    @Test // Lock-free store - notifications carry the balances the store holds after the transfer
+    public void atomicTransferNotifiesBalancesReadAfterTheTransfer() {
+        // a credit lands between the service reading the accounts and transferring
+        final AccountsRepositoryAtomicBalance repository = new AccountsRepositoryAtomicBalance() {
+            @Override
+            public boolean transfer(String accountFrom, String accountTo, long amount) {
+                credit(accountTo, 500);
+                return super.transfer(accountFrom, accountTo, amount);
+            }
+        };
+        repository.createAccount(new Account("Id-A", new BigDecimal("100.00")));
+        repository.createAccount(new Account("Id-B", BigDecimal.ZERO));
+        final List<String> notified = new ArrayList<>();
+        final AccountsService atomicAccountsService = new AccountsServiceBuilder(repository)
+                .notificationService((account, transferDescription) ->
+                        notified.add(account.getAccountId() + " " + account.getBalance()))
+                .build();
+
+        atomicAccountsService.amountTransfer("Id-A", "Id-B", new BigDecimal("10.00"));
+
+        assertThat(notified).containsExactly("Id-A 90.00", "Id-B 15.00");
+    }
+
+    @Test // Lock-free store - a transfer is checked by account id, no account copy is read before it is applied
+    public void atomicTransferChecksAccountsWithoutCopyingThem() {
+        final AccountsRepositoryAtomicBalance repository = new AccountsRepositoryAtomicBalance() {
+            @Override
+            public Account getAccount(String accountId) {
+                throw new AssertionError("Read a copy of " + accountId);
+            }
+        };
+        repository.createAccount(new Account("Id-A", new BigDecimal("100.00")));
+        repository.createAccount(new Account("Id-B", BigDecimal.ZERO));
+        final AccountsService atomicAccountsService = new AccountsServiceBuilder(repository).build();
+
+        assertRejectedWith(() -> atomicAccountsService.amountTransfer("Id-A", "Id-C", new BigDecimal("10.00")),
+                TransferRejections.ACCOUNT_NOT_FOUND);
+        assertRejectedWith(() -> atomicAccountsService.amountTransfer("Id-A", "Id-B", new BigDecimal("-10.00")),
+                TransferRejections.NEGATIVE_AMOUNT);
+        assertRejectedWith(() -> atomicAccountsService.amountTransfer("Id-A", "Id-B", new BigDecimal("0.001")),
+                TransferRejections.AMOUNT_PRECISION);
+        atomicAccountsService.amountTransfer("Id-A", "Id-B", new BigDecimal("10.00"));
+
+        assertThat(repository.getBalance("Id-A")).isEqualTo(9_000L);
+        assertThat(repository.getBalance("Id-B")).isEqualTo(1_000L);
+    }
+
+    @Test // Batch - the lock-free store checks all-or-nothing items in order, not only each account's net outflow
+    public void atomicBatchTransferAllOrNothingChecksItemsInOrder() {
+        final AccountsRepositoryAtomicBalance repository = new AccountsRepositoryAtomicBalance();
+        repository.createAccount(new Account("Id-A", new BigDecimal("100.00")));
+        repository.createAccount(new Account("Id-B", BigDecimal.ZERO));
+        final AccountsService atomicAccountsService = new AccountsServiceBuilder(repository).build();
+
+        // A's net outflow is 100.00, but it is 10.00 short at the second item
+        final List<AccountAmountTransfer> transfers = Arrays.asList(
+                new AccountAmountTransfer("Id-A", "Id-B", new BigDecimal("80.00")),
+                new AccountAmountTransfer("Id-A", "Id-B", new BigDecimal("30.00")),
+                new AccountAmountTransfer("Id-B", "Id-A", new BigDecimal("10.00")));
+        assertThat(atomicAccountsService.batchTransfer(transfers, BatchTransferMode.ALL_OR_NOTHING)).containsExactly(
+                TransferStatus.NOT_APPLIED, TransferStatus.INSUFFICIENT_BALANCE, TransferStatus.NOT_APPLIED);
+        assertThat(repository.getBalance("Id-A")).isEqualTo(10_000L);
+        assertThat(repository.getBalance("Id-B")).isZero();
+
+        // B pays on before it is paid: fine in this order, short in the other
+        final List<AccountAmountTransfer> chained = Arrays.asList(
+                new AccountAmountTransfer("Id-A", "Id-B", new BigDecimal("60.00")),
+                new AccountAmountTransfer("Id-B", "Id-A", new BigDecimal("50.00")),
+                new AccountAmountTransfer("Id-A", "Id-B", new BigDecimal("90.00")));
+        assertThat(atomicAccountsService.batchTransfer(chained, BatchTransferMode.ALL_OR_NOTHING)).containsExactly(
+                TransferStatus.COMPLETED, TransferStatus.COMPLETED, TransferStatus.COMPLETED);
+        assertThat(repository.getBalance("Id-A")).isZero();
+        assertThat(repository.getBalance("Id-B")).isEqualTo(10_000L);
+    }
+
+    @Test // Batch - the lock-free store rejects an amount with more than two decimals as a precision failure
+    public void atomicBatchTransferRejectsSubCentAmounts() {
+        final AccountsRepositoryAtomicBalance repository = new AccountsRepositoryAtomicBalance();
+        repository.createAccount(new Account("Id-A", new BigDecimal("100.00")));
+        repository.createAccount(new Account("Id-B", BigDecimal.ZERO));
+        final AccountsService atomicAccountsService = new AccountsServiceBuilder(repository).build();
+
+        final List<AccountAmountTransfer> transfers = Arrays.asList(
+                new AccountAmountTransfer("Id-A", "Id-B", new BigDecimal("10.00")),
+                new AccountAmountTransfer("Id-A", "Id-B", new BigDecimal("0.005")));
+        assertThat(atomicAccountsService.batchTransfer(transfers, BatchTransferMode.ALL_OR_NOTHING)).containsExactly(
+                TransferStatus.NOT_APPLIED, TransferStatus.INVALID_AMOUNT_PRECISION);
+        assertThat(repository.getBalance("Id-A")).isEqualTo(10_000L);
+
+        assertThat(atomicAccountsService.batchTransfer(transfers, BatchTransferMode.BEST_EFFORT)).containsExactly(
+                TransferStatus.COMPLETED, TransferStatus.INVALID_AMOUNT_PRECISION);
+        assertThat(repository.getBalance("Id-A")).isEqualTo(9_000L);
+        assertThat(repository.getBalance("Id-B")).isEqualTo(1_000L);
+    }
+
+    @Test // Journal - a transfer the journal cannot take leaves the balances as they were, on both store kinds
+    public void failedJournalAppendLeavesBalancesUnchanged() {
+        final TransferJournal failingJournal = new TransferJournal() {
+
+            @Override
+            public long appendAccountCreated(String accountId, BigDecimal balance) {
+                return 0;
+            }
+
+            @Override
+            public long appendTransfer(String accountFrom, String accountTo, BigDecimal amount) {
+                throw new UncheckedIOException(new IOException("Cannot open next journal segment"));
+            }
+
+            @Override
+            public void awaitDurable(long position) {
+            }
+        };
+        for (AccountsRepository repository : Arrays.asList(new AccountsRepositoryInMemory(), new AccountsRepositoryAtomicBalance())) {
+            repository.createAccount(new Account("Id-A", new BigDecimal("100.00")));
+            repository.createAccount(new Account("Id-B", BigDecimal.ZERO));
+            final AccountsService journaledAccountsService = new AccountsServiceBuilder(repository)
+                    .transferJournal(failingJournal).build();
+
+            try {
+                journaledAccountsService.amountTransfer("Id-A", "Id-B", new BigDecimal("40.00"));
+                fail("Should have failed on the journal");
+            } catch (UncheckedIOException e) {
+                assertThat(e.getCause().getMessage()).isEqualTo("Cannot open next journal segment");
+            }
+            try {
+                journaledAccountsService.multiLegTransfer("Id-A", Arrays.asList(new TransferLeg("Id-B", new BigDecimal("10.00"))));
+                fail("Should have failed on the journal");
+            } catch (UncheckedIOException e) {
+                assertThat(e.getCause().getMessage()).isEqualTo("Cannot open next journal segment");
+            }
+            for (BatchTransferMode mode : BatchTransferMode.values()) {
+                try {
+                    journaledAccountsService.batchTransfer(Arrays.asList(
+                            new AccountAmountTransfer("Id-A", "Id-B", new BigDecimal("30.00"))), mode);
+                    fail("Should have failed on the journal");
+                } catch (UncheckedIOException e) {
+                    assertThat(e.getCause().getMessage()).isEqualTo("Cannot open next journal segment");
+                }
+            }
+            assertThat(repository.getAccount("Id-A").getBalance()).isEqualByComparingTo("100.00");
+            assertThat(repository.getAccount("Id-B").getBalance()).isEqualByComparingTo("0.00");
+        }
+    }
+
+    @Test // Metrics - rejects are counted by reason and every transfer is timed
+    public void transferMetricsCountRejectsByReason() {
+        final double rejectedBefore = rejectedTransfers("account_not_exists");
+        final long transfersBefore = meterRegistry.get("accounts.transfer").timer().count();
+
+        try {
+            this.accountsService.amountTransfer(UUID.randomUUID().toString(), UUID.randomUUID().toString(), BigDecimal.ONE);
+            fail("Should have failed on missing accounts");
+        } catch (AccountNotFoundException ex) {
+            assertThat(ex.getMessage()).isEqualTo(Constants.ACCOUNT_NOT_EXISTS);
+        }
+
+        assertThat(rejectedTransfers("account_not_exists")).isEqualTo(rejectedBefore + 1);
+        assertThat(meterRegistry.get("accounts.transfer").timer().count()).isEqualTo(transfersBefore + 1);
+    }
+
+    private double rejectedTransfers(final String reason) {
+        return meterRegistry.get("accounts.transfer.rejected").tag("reason", reason).counter().count();
+    }
+
+    private static void assertRejectedWith(final Runnable transfer, final RuntimeException rejection) {
+        try {
+            transfer.run();
+            fail("Transfer should have been rejected");
+        } catch (RuntimeException e) {
+            assertThat(e).isSameAs(rejection);
+        }
+    }
 
 }
@@ -0,0 +1,37 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.service.AccountsMetrics;
+import com.dws.challenge.service.AsyncNotificationService;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncNotificationServiceTest {
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+
+    private final AsyncNotificationService notificationService = new AsyncNotificationService(
+            (account, transferDescription) -> sent.add(account.getBalance() + " " + Thread.currentThread().getName()),
+            16, 1, 4, AsyncNotificationService.OverflowPolicy.DROP, 0, AccountsMetrics.NOOP);
+
+    @Test
+    public void notificationsCarryTheBalanceWhenQueuedAndAreSentInlineAfterShutdown() throws Exception {
+        final Account account = new Account("Id-1", new BigDecimal("10.00"));
+
+        notificationService.notifyAboutTransfer(account, "debited");
+        account.setBalance(new BigDecimal("5.00"));
+        notificationService.destroy();
+
+        assertThat(sent).hasSize(1);
+        assertThat(sent.get(0)).startsWith("10.00 notification-dispatcher-");
+
+        notificationService.notifyAboutTransfer(account, "debited");
+        assertThat(sent).hasSize(2);
+        assertThat(sent.get(1)).isEqualTo("5.00 " + Thread.currentThread().getName());
+    }
+}
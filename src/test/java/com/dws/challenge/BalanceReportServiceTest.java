@@ -0,0 +1,131 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.domain.BalanceReport;
+import com.dws.challenge.domain.BatchTransferMode;
+import com.dws.challenge.domain.TransferLeg;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryAtomicBalance;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BalanceReportService;
+import com.dws.challenge.service.BalanceSnapshots;
+import com.dws.challenge.service.TransferCombiner;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BalanceReportServiceTest {
+
+    private static final int ACCOUNTS = 1000;
+
+    private static final BigDecimal BALANCE = new BigDecimal("100.00");
+
+    @Test
+    public void reportsTopBalancesOfOneSnapshot() {
+        final AccountsRepository repository = new AccountsRepositoryInMemory();
+        final BalanceSnapshots balanceSnapshots = new BalanceSnapshots();
+        final AccountsService accountsService = newAccountsService(repository, balanceSnapshots);
+        final BalanceReportService reportService = new BalanceReportService(repository, balanceSnapshots, 4);
+        try {
+            for (int i = 0; i < 100; i++) {
+                accountsService.createAccount(new Account("Id-" + i, new BigDecimal(i)));
+            }
+
+            final BalanceReport report = reportService.balanceReport(3);
+
+            assertThat(report.getAccounts()).isEqualTo(100);
+            assertThat(report.getTotalBalance()).isEqualByComparingTo("4950");
+            assertThat(report.getTopBalances()).extracting(Account::getAccountId).containsExactly("Id-99", "Id-98", "Id-97");
+        } finally {
+            reportService.destroy();
+        }
+    }
+
+    @Test
+    public void totalIsConservedInEverySnapshotUnderConcurrentTransfers() throws Exception {
+        verifyConservedUnderLoad(new AccountsRepositoryInMemory());
+        verifyConservedUnderLoad(new AccountsRepositoryAtomicBalance());
+    }
+
+    // Transfers of every kind between the initial accounts while new accounts of BALANCE are created: every report
+    // must hold the initial total plus BALANCE for each new account it counts
+    private void verifyConservedUnderLoad(AccountsRepository repository) throws Exception {
+        final BalanceSnapshots balanceSnapshots = new BalanceSnapshots();
+        final AccountsService accountsService = newAccountsService(repository, balanceSnapshots);
+        final BalanceReportService reportService = new BalanceReportService(repository, balanceSnapshots, 2);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountsService.createAccount(new Account("Id-" + i, BALANCE));
+        }
+        final BigDecimal initialTotal = BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS));
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicInteger createdAccounts = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            final List<Future<?>> writers = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                writers.add(executor.submit(() -> {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (running.get()) {
+                        final String from = "Id-" + random.nextInt(ACCOUNTS);
+                        final String to = "Id-" + random.nextInt(ACCOUNTS);
+                        final BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 5000), 2);
+                        try {
+                            switch (random.nextInt(4)) {
+                                case 0:
+                                    accountsService.amountTransfer(from, to, amount);
+                                    break;
+                                case 1:
+                                    accountsService.batchTransfer(Arrays.asList(new AccountAmountTransfer(from, to, amount),
+                                            new AccountAmountTransfer(to, from, amount.add(BigDecimal.ONE))),
+                                            random.nextBoolean() ? BatchTransferMode.ALL_OR_NOTHING : BatchTransferMode.BEST_EFFORT);
+                                    break;
+                                case 2:
+                                    accountsService.multiLegTransfer(from, Arrays.asList(new TransferLeg(to, amount),
+                                            new TransferLeg("Id-" + random.nextInt(ACCOUNTS), amount)));
+                                    break;
+                                default:
+                                    accountsService.createAccount(new Account("New-" + createdAccounts.incrementAndGet(), BALANCE));
+                            }
+                        } catch (RuntimeException rejected) {
+                            // insufficient balance, the transfer was not applied
+                        }
+                    }
+                }));
+            }
+
+            for (int i = 0; i < 50; i++) {
+                final BalanceReport report = reportService.balanceReport(10);
+                final BigDecimal created = BALANCE.multiply(BigDecimal.valueOf(report.getAccounts() - ACCOUNTS));
+                assertThat(report.getTotalBalance()).isEqualByComparingTo(initialTotal.add(created));
+            }
+            running.set(false);
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            assertThat(createdAccounts.get()).isPositive();
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+            reportService.destroy();
+        }
+    }
+
+    private static AccountsService newAccountsService(AccountsRepository repository, BalanceSnapshots balanceSnapshots) {
+        return new AccountsServiceBuilder(repository).transferCombiner(new TransferCombiner(true, 256))
+                .balanceSnapshots(balanceSnapshots).build();
+    }
+}
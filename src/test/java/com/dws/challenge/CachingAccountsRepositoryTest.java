@@ -0,0 +1,44 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepositoryAtomicBalance;
+import com.dws.challenge.repository.CachingAccountsRepository;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingAccountsRepositoryTest {
+
+    @Test
+    public void balanceChangesInvalidateTheCachedAccount() {
+        final CachingAccountsRepository cache = new CachingAccountsRepository(new AccountsRepositoryAtomicBalance(), 64);
+        cache.createAccount(new Account("Id-1", new BigDecimal("100.00")));
+        cache.createAccount(new Account("Id-2", new BigDecimal("0.00")));
+
+        assertThat(cache.getAccount("Id-1").getBalance()).isEqualByComparingTo("100.00");
+        assertThat(cache.getAccount("Id-1").getBalance()).isEqualByComparingTo("100.00");
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+
+        assertThat(cache.transfer("Id-1", "Id-2", 2550)).isTrue();
+        assertThat(cache.getAccount("Id-1").getBalance()).isEqualByComparingTo("74.50");
+        assertThat(cache.getAccount("Id-2").getBalance()).isEqualByComparingTo("25.50");
+        assertThat(cache.getMissCount()).isEqualTo(3);
+        assertThat(cache.getAccount("Id-3")).isNull();
+    }
+
+    @Test
+    public void sizeIsBoundedByEvictingLeastRecentlyUsed() {
+        final CachingAccountsRepository cache = new CachingAccountsRepository(new AccountsRepositoryAtomicBalance(), 64);
+        for (int i = 0; i < 10_000; i++) {
+            cache.createAccount(new Account("Id-" + i, BigDecimal.ONE));
+            cache.getAccount("Id-" + i);
+        }
+
+        assertThat(cache.getSize()).isLessThanOrEqualTo(64);
+        assertThat(cache.getEvictionCount()).isEqualTo(10_000 - cache.getSize());
+        assertThat(cache.getHitRate()).isZero();
+    }
+}
@@ -0,0 +1,156 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.AccountTransaction;
+import com.dws.challenge.domain.AccountTransactionsPage;
+import com.dws.challenge.ledger.ColumnarTransferLedger;
+import com.dws.challenge.ledger.TransferLedger;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ColumnarTransferLedgerTest {
+
+    private final ColumnarTransferLedger ledger = new ColumnarTransferLedger();
+
+    @Test
+    public void postingsArePagedNewestFirst() {
+        for (int i = 1; i <= 10; i++) {
+            ledger.recordTransfer("Id-A", "Id-B", BigDecimal.valueOf(i), 1_000);
+        }
+
+        final AccountTransactionsPage first = ledger.transactions("Id-A", null, 4, 0, Long.MAX_VALUE);
+        assertThat(first.getTransactions()).hasSize(4);
+        assertThat(first.getTransactions().get(0).getAmount()).isEqualByComparingTo("-10");
+        assertThat(first.getTransactions().get(0).getCounterparty()).isEqualTo("Id-B");
+        assertThat(first.getNextCursor()).isEqualTo(6L);
+
+        final AccountTransactionsPage second = ledger.transactions("Id-A", first.getNextCursor(), 4, 0, Long.MAX_VALUE);
+        assertThat(second.getTransactions().get(0).getAmount()).isEqualByComparingTo("-6");
+        final AccountTransactionsPage last = ledger.transactions("Id-A", second.getNextCursor(), 4, 0, Long.MAX_VALUE);
+        assertThat(last.getTransactions()).hasSize(2);
+        assertThat(last.getNextCursor()).isNull();
+
+        assertThat(ledger.transactions("Id-B", null, 1, 0, Long.MAX_VALUE).getTransactions().get(0).getAmount())
+                .isEqualByComparingTo("10");
+        assertThat(ledger.transactions("Id-C", null, 10, 0, Long.MAX_VALUE).getTransactions()).isEmpty();
+    }
+
+    @Test
+    public void timeRangesAreFoundAndTimestampsNeverGoBackwards() {
+        ledger.recordTransfer("Id-A", "Id-B", new BigDecimal("1.00"), 1_000);
+        ledger.recordTransfer("Id-A", "Id-B", new BigDecimal("2.00"), 3_000);
+        // journaled out of order, kept at the account's latest time
+        ledger.recordTransfer("Id-A", "Id-B", new BigDecimal("3.00"), 2_000);
+        ledger.recordTransfer("Id-A", "Id-B", new BigDecimal("4.00"), 5_000);
+
+        final List<AccountTransaction> range = ledger.transactions("Id-A", null, 10, 2_000, 5_000).getTransactions();
+        assertThat(range).hasSize(2);
+        assertThat(range.get(0).getAmount()).isEqualByComparingTo("-3.00");
+        assertThat(range.get(0).getTimestamp().toEpochMilli()).isEqualTo(3_000);
+        assertThat(range.get(1).getAmount()).isEqualByComparingTo("-2.00");
+    }
+
+    @Test
+    public void amountsThatDoNotFitTheColumnsKeepTheirValue() {
+        final BigDecimal tiny = new BigDecimal("1E-200");
+        final BigDecimal huge = new BigDecimal("123456789012345678901234567890.12");
+        ledger.recordTransfer("Id-A", "Id-B", tiny, 1_000);
+        ledger.recordTransfer("Id-A", "Id-B", huge, 1_000);
+
+        final List<AccountTransaction> credits = ledger.transactions("Id-B", null, 10, 0, Long.MAX_VALUE).getTransactions();
+        assertThat(credits.get(0).getAmount()).isEqualTo(huge);
+        assertThat(credits.get(1).getAmount()).isEqualTo(tiny);
+        assertThat(ledger.transactions("Id-A", null, 1, 0, Long.MAX_VALUE).getTransactions().get(0).getAmount())
+                .isEqualTo(huge.negate());
+    }
+
+    @Test
+    public void onlyTheNewestPostingsAreKept() {
+        final ColumnarTransferLedger bounded = new ColumnarTransferLedger(5_000);
+        bounded.recordTransfer("Id-A", "Id-B", new BigDecimal("123456789012345678901234567890.12"), 0);
+        for (int i = 1; i < 20_000; i++) {
+            bounded.recordTransfer("Id-A", "Id-B", BigDecimal.valueOf(i), i);
+        }
+
+        // 5000 postings take two chunks of 4096 besides the one being filled, chunks 2 to 4 are left
+        assertThat(bounded.size("Id-A")).isEqualTo(20_000);
+        final AccountTransactionsPage all = bounded.transactions("Id-A", null, 20_000, 0, Long.MAX_VALUE);
+        assertThat(all.getTransactions()).hasSize(20_000 - 2 * 4_096);
+        assertThat(all.getTransactions().get(all.getTransactions().size() - 1).getAmount()).isEqualByComparingTo("-8192");
+        assertThat(all.getNextCursor()).isNull();
+
+        assertThat(bounded.transactions("Id-A", 5_000L, 10, 0, Long.MAX_VALUE).getTransactions()).isEmpty();
+        assertThat(bounded.transactions("Id-A", null, 10, 0, 100).getTransactions()).isEmpty();
+        final AccountTransactionsPage page = bounded.transactions("Id-A", 8_200L, 100, 0, Long.MAX_VALUE);
+        assertThat(page.getTransactions()).hasSize(8);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void heldAccountsAreRecordedByTheHolderFirst() throws Exception {
+        final Thread other;
+        try (TransferLedger.Hold ignored = ledger.hold(Arrays.asList("Id-B", "Id-A", "Id-B"))) {
+            other = new Thread(() -> ledger.recordTransfer("Id-C", "Id-A", BigDecimal.ONE, 1_000));
+            other.start();
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (other.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+            assertThat(ledger.size("Id-A")).isZero();
+            ledger.recordTransfer("Id-A", "Id-B", BigDecimal.TEN, 1_000);
+        }
+        other.join();
+
+        final List<AccountTransaction> postings = ledger.transactions("Id-A", null, 10, 0, Long.MAX_VALUE).getTransactions();
+        assertThat(postings).hasSize(2);
+        assertThat(postings.get(1).getCounterparty()).isEqualTo("Id-B");
+        assertThat(postings.get(0).getCounterparty()).isEqualTo("Id-C");
+    }
+
+    // Millions of postings on one account across hundreds of chunks, read while they are written
+    @Test
+    public void millionsOfPostingsAreReadConsistentlyWhileWritten() throws Exception {
+        final int count = 2_000_000;
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicReference<String> inconsistency = new AtomicReference<>();
+        final Thread reader = new Thread(() -> {
+            while (writing.get() && inconsistency.get() == null) {
+                for (AccountTransaction transaction
+                        : ledger.transactions("Id-A", null, 64, 0, Long.MAX_VALUE).getTransactions()) {
+                    if (!"Id-B".equals(transaction.getCounterparty())
+                            || transaction.getAmount().longValueExact() != -transaction.getCursor()
+                            || transaction.getTimestamp().toEpochMilli() != transaction.getCursor()) {
+                        inconsistency.set(transaction.toString());
+                    }
+                }
+            }
+        });
+        reader.start();
+        try {
+            for (int i = 0; i < count; i++) {
+                ledger.recordTransfer("Id-A", "Id-B", BigDecimal.valueOf(i), i);
+            }
+        } finally {
+            writing.set(false);
+            reader.join();
+        }
+        assertThat(inconsistency.get()).isNull();
+
+        assertThat(ledger.size("Id-A")).isEqualTo(count);
+        assertThat(ledger.size("Id-B")).isEqualTo(count);
+        final List<AccountTransaction> range = ledger.transactions("Id-B", null, 100, 1_234_500, 1_234_600).getTransactions();
+        assertThat(range).hasSize(100);
+        assertThat(range.get(0).getCursor()).isEqualTo(1_234_599);
+        assertThat(range.get(99).getAmount()).isEqualByComparingTo("1234500");
+        final AccountTransactionsPage page = ledger.transactions("Id-A", 1_000_000L, 10, 0, Long.MAX_VALUE);
+        assertThat(page.getTransactions().get(0).getCursor()).isEqualTo(999_999);
+        assertThat(page.getNextCursor()).isEqualTo(999_990L);
+    }
+}
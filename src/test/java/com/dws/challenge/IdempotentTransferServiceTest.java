@@ -0,0 +1,82 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.exception.TransferIdMismatchException;
+import com.dws.challenge.exception.TransferRejections;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.IdempotentTransferService;
+import com.dws.challenge.service.TransferIdempotencyStore;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class IdempotentTransferServiceTest {
+
+    private final AccountsService accountsService =
+            new AccountsServiceBuilder(new AccountsRepositoryInMemory()).build();
+
+    private final IdempotentTransferService service = new IdempotentTransferService(accountsService,
+            new TransferIdempotencyStore(1024, 60));
+
+    @Test
+    public void retriesOfARejectedTransferReplayItsRejection() {
+        accountsService.createAccount(new Account("Id-1", new BigDecimal("10.00")));
+        accountsService.createAccount(new Account("Id-2", BigDecimal.ZERO));
+        final AccountAmountTransfer transfer = new AccountAmountTransfer("Id-1", "Id-2", new BigDecimal("20.00"),
+                "transfer-1");
+
+        assertRejectedWith(transfer, TransferRejections.NOT_SUFFICIENT_BALANCE);
+        accountsService.createAccount(new Account("Id-3", new BigDecimal("50.00")));
+        accountsService.amountTransfer("Id-3", "Id-1", new BigDecimal("50.00"));
+
+        // the balance is sufficient now, the retry still gets the first outcome
+        assertRejectedWith(transfer, TransferRejections.NOT_SUFFICIENT_BALANCE);
+
+        final AccountAmountTransfer toUnknown = new AccountAmountTransfer("Id-1", "Id-4", new BigDecimal("1.00"),
+                "transfer-2");
+        assertRejectedWith(toUnknown, TransferRejections.ACCOUNT_NOT_FOUND);
+        accountsService.createAccount(new Account("Id-4", BigDecimal.ZERO));
+        assertRejectedWith(toUnknown, TransferRejections.ACCOUNT_NOT_FOUND);
+        assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(accountsService.getAccount("Id-4").getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    public void anIdIsBoundToTheWholeTransfer() {
+        accountsService.createAccount(new Account("Id-1", new BigDecimal("100.00")));
+        accountsService.createAccount(new Account("Id-2", BigDecimal.ZERO));
+        accountsService.createAccount(new Account("Id-3", BigDecimal.ZERO));
+
+        service.amountTransfer(new AccountAmountTransfer("Id-1", "Id-2", new BigDecimal("10"), "transfer-1"));
+        // the same amount at another scale is a retry
+        service.amountTransfer(new AccountAmountTransfer("Id-1", "Id-2", new BigDecimal("10.00"), "transfer-1"));
+        assertThat(accountsService.getAccount("Id-2").getBalance()).isEqualByComparingTo("10.00");
+
+        assertMismatch(new AccountAmountTransfer("Id-1", "Id-3", new BigDecimal("10.00"), "transfer-1"));
+        assertMismatch(new AccountAmountTransfer("Id-2", "Id-1", new BigDecimal("10.00"), "transfer-1"));
+        assertMismatch(new AccountAmountTransfer("Id-1", "Id-2", new BigDecimal("10.01"), "transfer-1"));
+        assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("90.00");
+    }
+
+    private void assertRejectedWith(AccountAmountTransfer transfer, RuntimeException rejection) {
+        try {
+            service.amountTransfer(transfer);
+            fail("Transfer should have been rejected");
+        } catch (RuntimeException e) {
+            assertThat(e).isSameAs(rejection);
+        }
+    }
+
+    private void assertMismatch(AccountAmountTransfer transfer) {
+        try {
+            service.amountTransfer(transfer);
+            fail("Transfer id should have been refused");
+        } catch (TransferIdMismatchException expected) {
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.dws.challenge;
+
+import com.dws.challenge.journal.JournalReceiver;
+import com.dws.challenge.journal.JournalReplayer;
+import com.dws.challenge.journal.JournalShipper;
+import com.dws.challenge.journal.MappedTransferJournal;
+import com.dws.challenge.journal.ReplicationConfig;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class JournalReplicationTest {
+
+    // Small segments so the stream crosses segment boundaries and their zero tails
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void standbyCatchesUpAndResumesAfterReconnecting() throws Exception {
+        final AccountsRepository standby = new AccountsRepositoryInMemory();
+        try (MappedTransferJournal journal = MappedTransferJournal.open(folder.getRoot().toPath(), SEGMENT_SIZE,
+                false, 0, null);
+             JournalShipper shipper = JournalShipper.start(journal, new InetSocketAddress("localhost", 0),
+                     TimeUnit.MICROSECONDS.toNanos(100), lagNanos -> {
+                     })) {
+            journal.appendAccountCreated("Id-1", new BigDecimal("1000.00"));
+            journal.appendAccountCreated("Id-2", BigDecimal.ZERO);
+            for (int i = 0; i < 300; i++) {
+                journal.appendTransfer("Id-1", "Id-2", new BigDecimal("1.25"));
+            }
+
+            final InetSocketAddress primary = new InetSocketAddress("localhost", shipper.getPort());
+            final long appliedPosition;
+            try (JournalReceiver receiver = JournalReceiver.start(primary, 0, new JournalReplayer(standby), 10)) {
+                // the rest arrives while the standby is connected
+                for (int i = 0; i < 200; i++) {
+                    journal.appendTransfer("Id-1", "Id-2", new BigDecimal("1.25"));
+                }
+                awaitApplied(receiver, journal.getWritePosition());
+                assertThat(journal.getWritePosition()).isGreaterThan(2 * SEGMENT_SIZE);
+                assertThat(receiver.getAppliedRecords()).isEqualTo(502);
+                assertThat(standby.getAccount("Id-1").getBalance()).isEqualByComparingTo("375.00");
+                assertThat(standby.getAccount("Id-2").getBalance()).isEqualByComparingTo("625.00");
+                appliedPosition = receiver.getAppliedPosition();
+            }
+
+            journal.appendAccountCreated("Id-3", new BigDecimal("10.00"));
+            journal.appendTransfer("Id-2", "Id-3", new BigDecimal("25.00"));
+            try (JournalReceiver receiver = JournalReceiver.start(primary, appliedPosition,
+                    new JournalReplayer(standby), 10)) {
+                awaitApplied(receiver, journal.getWritePosition());
+                assertThat(receiver.getAppliedRecords()).isEqualTo(2);
+                assertThat(standby.getAccount("Id-2").getBalance()).isEqualByComparingTo("600.00");
+                assertThat(standby.getAccount("Id-3").getBalance()).isEqualByComparingTo("35.00");
+            }
+        }
+    }
+
+    @Test
+    public void primaryRefusesToStartWithSnapshots() throws Exception {
+        // snapshots would delete the segments a new standby replays from position 0
+        try {
+            new ReplicationConfig().journalShipper(null, true, "localhost", 0, 100, null);
+            fail("Primary should have refused snapshots");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void onlyRecordsOnDiskAreShipped() throws Exception {
+        final AccountsRepository standby = new AccountsRepositoryInMemory();
+        try (MappedTransferJournal journal = MappedTransferJournal.open(folder.getRoot().toPath(), SEGMENT_SIZE,
+                true, 0, null);
+             JournalShipper shipper = JournalShipper.start(journal, new InetSocketAddress("localhost", 0),
+                     TimeUnit.MICROSECONDS.toNanos(100), lagNanos -> {
+                     });
+             JournalReceiver receiver = JournalReceiver.start(new InetSocketAddress("localhost", shipper.getPort()), 0,
+                     new JournalReplayer(standby), 10)) {
+            journal.awaitDurable(journal.appendAccountCreated("Id-1", new BigDecimal("100.00")));
+            awaitApplied(receiver, journal.getWritePosition());
+            final long durable = journal.getWritePosition();
+
+            // appended but not forced yet, a crash of the primary could still lose it
+            journal.appendAccountCreated("Id-2", BigDecimal.ZERO);
+            TimeUnit.MILLISECONDS.sleep(50);
+            assertThat(receiver.getAppliedPosition()).isEqualTo(durable);
+            assertThat(standby.getAccount("Id-2")).isNull();
+
+            journal.awaitDurable(journal.getWritePosition());
+            awaitApplied(receiver, journal.getWritePosition());
+            assertThat(standby.getAccount("Id-2").getBalance()).isEqualByComparingTo("0");
+        }
+    }
+
+    private static void awaitApplied(JournalReceiver receiver, long position) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (receiver.getAppliedPosition() < position && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        assertThat(receiver.getAppliedPosition()).isEqualTo(position);
+    }
+}
@@ -0,0 +1,188 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.domain.AccountTransaction;
+import com.dws.challenge.journal.JournalReplayer;
+import com.dws.challenge.journal.MappedTransferJournal;
+import com.dws.challenge.ledger.ColumnarTransferLedger;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class MappedTransferJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reopenReplaysRecordsAcrossSegments() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        try (MappedTransferJournal journal = open(directory, new AccountsRepositoryInMemory())) {
+            journal.awaitDurable(journal.appendAccountCreated("Id-1", new BigDecimal("1000.00")));
+            journal.awaitDurable(journal.appendAccountCreated("Id-2", BigDecimal.ZERO));
+            for (int i = 0; i < 500; i++) {
+                journal.awaitDurable(journal.appendTransfer("Id-1", "Id-2", new BigDecimal("1.25")));
+            }
+            assertThat(journal.getWritePosition()).isGreaterThan(SEGMENT_SIZE);
+        }
+
+        final AccountsRepository recovered = new AccountsRepositoryInMemory();
+        try (MappedTransferJournal journal = open(directory, recovered)) {
+            assertThat(recovered.getAccount("Id-1").getBalance()).isEqualByComparingTo("375.00");
+            assertThat(recovered.getAccount("Id-2").getBalance()).isEqualByComparingTo("625.00");
+        }
+    }
+
+    @Test
+    public void reopenRebuildsTheLedgerWithTheJournaledTimes() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        final long startMillis = System.currentTimeMillis();
+        try (MappedTransferJournal journal = open(directory, new AccountsRepositoryInMemory())) {
+            journal.appendAccountCreated("Id-1", new BigDecimal("100.00"));
+            journal.appendAccountCreated("Id-2", BigDecimal.ZERO);
+            journal.appendTransfer("Id-1", "Id-2", new BigDecimal("10.00"));
+            journal.appendTransfers(Arrays.asList(new AccountAmountTransfer("Id-2", "Id-1", new BigDecimal("2.50")),
+                    new AccountAmountTransfer("Id-1", "Id-2", new BigDecimal("1.00"))));
+        }
+        final long endMillis = System.currentTimeMillis();
+
+        final ColumnarTransferLedger ledger = new ColumnarTransferLedger();
+        MappedTransferJournal.open(directory, SEGMENT_SIZE, true, 0,
+                new JournalReplayer(new AccountsRepositoryInMemory(), ledger)).close();
+        final List<AccountTransaction> postings = ledger.transactions("Id-1", null, 10, 0, Long.MAX_VALUE)
+                .getTransactions();
+        assertThat(postings).hasSize(3);
+        assertThat(postings.get(0).getAmount()).isEqualByComparingTo("-1.00");
+        assertThat(postings.get(1).getAmount()).isEqualByComparingTo("2.50");
+        assertThat(postings.get(2).getAmount()).isEqualByComparingTo("-10.00");
+        assertThat(postings.get(2).getTimestamp().toEpochMilli()).isBetween(startMillis, endMillis);
+        assertThat(ledger.size("Id-2")).isEqualTo(3);
+    }
+
+    @Test
+    public void tornTailIsDiscardedAndOverwritten() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        final long validPosition;
+        try (MappedTransferJournal journal = open(directory, new AccountsRepositoryInMemory())) {
+            journal.appendAccountCreated("Id-1", new BigDecimal("100"));
+            journal.appendAccountCreated("Id-2", new BigDecimal("100"));
+            validPosition = journal.appendTransfer("Id-1", "Id-2", new BigDecimal("10"));
+        }
+
+        // A record whose length made it to disk but whose body and checksum did not
+        final File[] segments = folder.getRoot().listFiles();
+        assertThat(segments).hasSize(1);
+        try (FileChannel channel = FileChannel.open(segments[0].toPath(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putInt(0, 40).put(4, (byte) 3), validPosition);
+        }
+
+        final AccountsRepository recovered = new AccountsRepositoryInMemory();
+        try (MappedTransferJournal journal = open(directory, recovered)) {
+            assertThat(journal.getWritePosition()).isEqualTo(validPosition);
+            journal.appendTransfer("Id-2", "Id-1", new BigDecimal("5"));
+        }
+        assertThat(recovered.getAccount("Id-1").getBalance()).isEqualByComparingTo("90");
+
+        final AccountsRepository reopened = new AccountsRepositoryInMemory();
+        open(directory, reopened).close();
+        assertThat(reopened.getAccount("Id-1").getBalance()).isEqualByComparingTo("95");
+        assertThat(reopened.getAccount("Id-2").getBalance()).isEqualByComparingTo("105");
+    }
+
+    @Test
+    public void transferGroupsAreWrittenWhollyOrNotAtAll() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        final List<AccountAmountTransfer> group = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            group.add(new AccountAmountTransfer("Id-1", "Id-2", new BigDecimal("1.00")));
+        }
+        final long written;
+        try (MappedTransferJournal journal = open(directory, new AccountsRepositoryInMemory())) {
+            journal.appendAccountCreated("Id-1", new BigDecimal("1000.00"));
+            journal.appendAccountCreated("Id-2", BigDecimal.ZERO);
+            for (int i = 0; i < 3; i++) {
+                journal.appendTransfers(group);
+            }
+            // the fourth group does not fit after the first three and starts the next segment
+            written = journal.appendTransfers(group);
+            assertThat(written - SEGMENT_SIZE).isEqualTo(journal.appendTransfers(group) - written);
+
+            final List<AccountAmountTransfer> oversized = new ArrayList<>(group);
+            oversized.addAll(group);
+            oversized.addAll(group);
+            oversized.addAll(group);
+            try {
+                journal.appendTransfers(oversized);
+                fail("Should have refused a group larger than a segment");
+            } catch (IllegalArgumentException e) {
+                assertThat(journal.getWritePosition()).isEqualTo(written + (written - SEGMENT_SIZE));
+            }
+        }
+
+        final AccountsRepository recovered = new AccountsRepositoryInMemory();
+        open(directory, recovered).close();
+        assertThat(recovered.getAccount("Id-1").getBalance()).isEqualByComparingTo("840.00");
+        assertThat(recovered.getAccount("Id-2").getBalance()).isEqualByComparingTo("160.00");
+    }
+
+    // Unscaled values around the old one-byte length limit, and one too long for the short length
+    @Test
+    public void amountsRoundTripWhateverTheirEncodedLength() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        final int[] lengths = {1, 127, 128, 255, 256, 1000};
+        try (MappedTransferJournal journal = open(directory, new AccountsRepositoryInMemory())) {
+            for (int length : lengths) {
+                journal.appendAccountCreated("Id-" + length, amountOfLength(length));
+            }
+            journal.appendTransfer("Id-256", "Id-1", amountOfLength(128));
+
+            final long written = journal.getWritePosition();
+            try {
+                journal.appendTransfer("Id-1000", "Id-1", amountOfLength(0x10000));
+                fail("Should have refused an amount whose length does not fit the record");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage()).isEqualTo("Amount too large for the journal");
+                assertThat(journal.getWritePosition()).isEqualTo(written);
+            }
+        }
+
+        final AccountsRepository recovered = new AccountsRepositoryInMemory();
+        open(directory, recovered).close();
+        for (int length : new int[]{127, 128, 255, 1000}) {
+            assertThat(recovered.getAccount("Id-" + length).getBalance()).isEqualTo(amountOfLength(length));
+        }
+        assertThat(recovered.getAccount("Id-256").getBalance())
+                .isEqualByComparingTo(amountOfLength(256).subtract(amountOfLength(128)));
+        assertThat(recovered.getAccount("Id-1").getBalance())
+                .isEqualByComparingTo(amountOfLength(1).add(amountOfLength(128)));
+    }
+
+    // A positive amount with two decimal places whose unscaled value takes exactly that many bytes
+    private static BigDecimal amountOfLength(int bytes) {
+        final BigDecimal amount = new BigDecimal(BigInteger.ONE.shiftLeft(bytes * 8 - 2), 2);
+        assertThat(amount.unscaledValue().toByteArray().length).isEqualTo(bytes);
+        return amount;
+    }
+
+    private static MappedTransferJournal open(Path directory, AccountsRepository repository) throws Exception {
+        return MappedTransferJournal.open(directory, SEGMENT_SIZE, true, 0, new JournalReplayer(repository));
+    }
+}
@@ -0,0 +1,139 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.NotSufficientBalanceException;
+import com.dws.challenge.journal.AccountsSnapshots;
+import com.dws.challenge.journal.JournalReplayer;
+import com.dws.challenge.journal.MappedTransferJournal;
+import com.dws.challenge.journal.SnapshotService;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryAtomicBalance;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BalanceSnapshots;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotServiceTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restartLoadsSnapshotAndReplaysOnlyTheJournalAfterIt() throws Exception {
+        final Path journalDirectory = folder.newFolder("journal").toPath();
+        final Path snapshotDirectory = folder.newFolder("snapshots").toPath();
+
+        try (MappedTransferJournal journal = open(journalDirectory, new AccountsRepositoryInMemory(), 0)) {
+            final AccountsRepository live = new AccountsRepositoryInMemory();
+            final BalanceSnapshots balanceSnapshots = new BalanceSnapshots();
+            final AccountsService accountsService = new AccountsServiceBuilder(live).transferJournal(journal)
+                    .balanceSnapshots(balanceSnapshots).build();
+            final SnapshotService snapshotService = new SnapshotService(journal, live, balanceSnapshots, snapshotDirectory, 0);
+            accountsService.createAccount(new Account("Id-1", new BigDecimal("1000.00")));
+            accountsService.createAccount(new Account("Id-2", BigDecimal.ZERO));
+            transfer(accountsService, 300);
+            final Path first = snapshotService.takeSnapshot();
+            assertThat(journalDirectory.toFile().list()).hasSize(1);
+            // the journal is forced up to the snapshot although appends are not
+            assertThat(journal.getDurablePosition()).isEqualTo(journal.getWritePosition());
+
+            transfer(accountsService, 100);
+            final Path second = snapshotService.takeSnapshot();
+            assertThat(snapshotDirectory.toFile().list()).containsExactly(second.getFileName().toString());
+            assertThat(first).isNotEqualTo(second);
+            assertThat(snapshotService.takeSnapshot()).isEqualTo(second);
+
+            transfer(accountsService, 50);
+            snapshotService.destroy();
+        }
+
+        final AccountsRepository recovered = new AccountsRepositoryInMemory();
+        final long replayFrom = AccountsSnapshots.load(AccountsSnapshots.latest(snapshotDirectory), recovered);
+        assertThat(recovered.getAccount("Id-1").getBalance()).isEqualByComparingTo("600.00");
+
+        open(journalDirectory, recovered, replayFrom).close();
+        assertThat(recovered.getAccount("Id-1").getBalance()).isEqualByComparingTo("550.00");
+        assertThat(recovered.getAccount("Id-2").getBalance()).isEqualByComparingTo("450.00");
+    }
+
+    @Test
+    public void snapshotsTakenDuringTransfersRecoverTheLiveBalances() throws Exception {
+        final Path journalDirectory = folder.newFolder("journal").toPath();
+        final Path snapshotDirectory = folder.newFolder("snapshots").toPath();
+        final int accountCount = 50;
+        final AccountsRepository live = new AccountsRepositoryAtomicBalance();
+
+        try (MappedTransferJournal journal = open(journalDirectory, new AccountsRepositoryInMemory(), 0)) {
+            final BalanceSnapshots balanceSnapshots = new BalanceSnapshots();
+            final AccountsService accountsService = new AccountsServiceBuilder(live).transferJournal(journal)
+                    .balanceSnapshots(balanceSnapshots).build();
+            final SnapshotService snapshotService = new SnapshotService(journal, live, balanceSnapshots, snapshotDirectory, 0);
+            for (int i = 0; i < accountCount; i++) {
+                accountsService.createAccount(new Account("Id-" + i, new BigDecimal("100.00")));
+            }
+
+            final AtomicBoolean running = new AtomicBoolean(true);
+            final ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                final List<Future<?>> transfers = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    transfers.add(executor.submit(() -> {
+                        final ThreadLocalRandom random = ThreadLocalRandom.current();
+                        while (running.get()) {
+                            try {
+                                accountsService.amountTransfer("Id-" + random.nextInt(accountCount),
+                                        "Id-" + random.nextInt(accountCount), BigDecimal.valueOf(random.nextInt(1, 5000), 2));
+                            } catch (NotSufficientBalanceException ignored) {
+                                // the balances stay as they were
+                            }
+                        }
+                    }));
+                }
+                for (int i = 0; i < 20; i++) {
+                    snapshotService.takeSnapshot();
+                }
+                running.set(false);
+                for (Future<?> transfer : transfers) {
+                    transfer.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            snapshotService.destroy();
+        }
+
+        final AccountsRepository recovered = new AccountsRepositoryInMemory();
+        final long replayFrom = AccountsSnapshots.load(AccountsSnapshots.latest(snapshotDirectory), recovered);
+        open(journalDirectory, recovered, replayFrom).close();
+        for (int i = 0; i < accountCount; i++) {
+            assertThat(recovered.getAccount("Id-" + i).getBalance())
+                    .isEqualByComparingTo(live.getAccount("Id-" + i).getBalance());
+        }
+    }
+
+    private static void transfer(AccountsService accountsService, int count) {
+        for (int i = 0; i < count; i++) {
+            accountsService.amountTransfer("Id-1", "Id-2", BigDecimal.ONE);
+        }
+    }
+
+    private static MappedTransferJournal open(Path directory, AccountsRepository repository, long replayFrom) throws Exception {
+        return MappedTransferJournal.open(directory, SEGMENT_SIZE, false, replayFrom, new JournalReplayer(repository));
+    }
+}
@@ -0,0 +1,101 @@
+package com.dws.challenge;
+
+import com.dws.challenge.service.TransferAdmissionControl;
+import com.dws.challenge.service.TransferAdmissionControl.TokenBuckets;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferAdmissionControlTest {
+
+    private long now = 1;
+
+    @Test
+    public void accountsGetTheirBurstThenTheirRate() {
+        final TransferAdmissionControl admissionControl = new TransferAdmissionControl(
+                new TokenBuckets(1024, 10, 5), new TokenBuckets(1024, 1000, 1000), 1000, 1000, () -> now);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(admissionControl.tryAdmit("client", "Id-1")).isEqualTo(TransferAdmissionControl.ADMITTED);
+        }
+        assertThat(admissionControl.tryAdmit("client", "Id-1")).isEqualTo(TransferAdmissionControl.ACCOUNT_LIMITED);
+        assertThat(admissionControl.tryAdmit("client", "Id-2")).isEqualTo(TransferAdmissionControl.ADMITTED);
+
+        // 10 per second, one token back every 100ms
+        now += TimeUnit.MILLISECONDS.toNanos(100);
+        assertThat(admissionControl.tryAdmit("client", "Id-1")).isEqualTo(TransferAdmissionControl.ADMITTED);
+        assertThat(admissionControl.tryAdmit("client", "Id-1")).isEqualTo(TransferAdmissionControl.ACCOUNT_LIMITED);
+        assertThat(admissionControl.getRejected(TransferAdmissionControl.ACCOUNT_LIMITED)).isEqualTo(2);
+    }
+
+    @Test
+    public void clientsAreLimitedAcrossAccounts() {
+        final TransferAdmissionControl admissionControl = new TransferAdmissionControl(
+                new TokenBuckets(1024, 1000, 1000), new TokenBuckets(1024, 1, 3), 1000, 1000, () -> now);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(admissionControl.tryAdmit("client-1", "Id-" + i)).isEqualTo(TransferAdmissionControl.ADMITTED);
+        }
+        assertThat(admissionControl.tryAdmit("client-1", "Id-3")).isEqualTo(TransferAdmissionControl.CLIENT_LIMITED);
+        assertThat(admissionControl.tryAdmit("client-2", "Id-3")).isEqualTo(TransferAdmissionControl.ADMITTED);
+    }
+
+    @Test
+    public void idleKeysGiveUpTheirSlots() {
+        final TokenBuckets buckets = new TokenBuckets(16, 1, 1);
+
+        // a key is over its rate for a second after its request, so at most five are active at a time
+        for (int key = 1; key <= 10_000; key++) {
+            assertThat(buckets.tryAcquire(key * 0x9e3779b97f4a7c15L, now)).isTrue();
+            now += TimeUnit.MILLISECONDS.toNanos(200);
+        }
+        assertThat(buckets.getMemoryBytes()).isEqualTo(16 * 16);
+        now -= TimeUnit.MILLISECONDS.toNanos(200);
+        assertThat(buckets.tryAcquire(10_000 * 0x9e3779b97f4a7c15L, now)).isFalse();
+    }
+
+    @Test
+    public void keysWithoutAFreeSlotAreRefusedAndCounted() {
+        final TokenBuckets buckets = new TokenBuckets(8, 1, 1);
+
+        // 16 slots, every key below starts probing at slot 0 and stays active for a second
+        for (int key = 1; key <= 8; key++) {
+            assertThat(buckets.tryAcquire(key * 16L, now)).isTrue();
+        }
+        assertThat(buckets.tryAcquire(9 * 16L, now)).isFalse();
+        assertThat(buckets.getOverflowCount()).isEqualTo(1);
+
+        now += TimeUnit.SECONDS.toNanos(1);
+        assertThat(buckets.tryAcquire(9 * 16L, now)).isTrue();
+    }
+
+    @Test
+    public void slowTransfersShedLoadUntilLatencyRecovers() {
+        final TransferAdmissionControl admissionControl = new TransferAdmissionControl(
+                new TokenBuckets(1024, 1_000_000, 1_000_000), new TokenBuckets(1024, 1_000_000, 1_000_000), 10, 1000,
+                () -> now);
+        for (int window = 0; window < 20; window++) {
+            now += TimeUnit.MILLISECONDS.toNanos(100);
+            for (int i = 0; i < 100; i++) {
+                if (admissionControl.tryAdmit("client", "Id-" + i) == TransferAdmissionControl.ADMITTED) {
+                    admissionControl.completed(now - TimeUnit.SECONDS.toNanos(1));
+                }
+            }
+        }
+        assertThat(admissionControl.getAdmittedFraction()).isLessThan(0.1);
+        assertThat(admissionControl.getRejected(TransferAdmissionControl.OVERLOADED)).isGreaterThan(1000);
+
+        for (int window = 0; window < 20; window++) {
+            now += TimeUnit.MILLISECONDS.toNanos(100);
+            for (int i = 0; i < 100; i++) {
+                if (admissionControl.tryAdmit("client", "Id-" + i) == TransferAdmissionControl.ADMITTED) {
+                    admissionControl.completed(admissionControl.startNanos());
+                }
+            }
+        }
+        assertThat(admissionControl.getAdmittedFraction()).isEqualTo(1.0);
+        assertThat(admissionControl.getInFlight()).isZero();
+    }
+}
@@ -0,0 +1,63 @@
+package com.dws.challenge;
+
+import com.dws.challenge.service.TransferIdempotencyStore;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferIdempotencyStoreTest {
+
+    private long now;
+
+    @Test
+    public void repeatsSeeTheInFlightStateThenTheOutcome() {
+        final TransferIdempotencyStore store = new TransferIdempotencyStore(1024, 60, () -> now);
+        final String transferId = UUID.randomUUID().toString();
+
+        assertThat(store.begin(transferId, 42)).isEqualTo(TransferIdempotencyStore.ACQUIRED);
+        assertThat(store.begin(transferId, 42)).isEqualTo(TransferIdempotencyStore.IN_FLIGHT);
+        assertThat(store.begin(transferId, 43)).isEqualTo(TransferIdempotencyStore.MISMATCH);
+
+        store.complete(transferId, 7);
+        assertThat(store.begin(transferId, 42)).isEqualTo(7);
+
+        now += 60;
+        assertThat(store.begin(transferId, 43)).isEqualTo(TransferIdempotencyStore.ACQUIRED);
+    }
+
+    @Test
+    public void abandonedIdsCanBeRetried() {
+        final TransferIdempotencyStore store = new TransferIdempotencyStore(1024, 60, () -> now);
+
+        assertThat(store.begin("transfer-1", 1)).isEqualTo(TransferIdempotencyStore.ACQUIRED);
+        store.abandon("transfer-1");
+
+        assertThat(store.getSize()).isZero();
+        assertThat(store.begin("transfer-1", 1)).isEqualTo(TransferIdempotencyStore.ACQUIRED);
+    }
+
+    @Test
+    public void windowIsBoundedAndReclaimedOnExpiry() {
+        final TransferIdempotencyStore store = new TransferIdempotencyStore(256 * 64, 60, () -> now);
+
+        int refused = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (store.begin("transfer-" + i, 1) == TransferIdempotencyStore.FULL) {
+                refused++;
+            }
+        }
+        assertThat(store.getSize()).isEqualTo(256 * 64);
+        assertThat(refused).isEqualTo(100_000 - 256 * 64);
+        // 128-bit key, fingerprint and state word per slot at 3/4 load
+        assertThat(store.getMemoryBytes() / (256 * 64)).isLessThanOrEqualTo(43);
+
+        now += 60;
+        for (int i = 0; i < 100_000; i++) {
+            store.begin("retry-" + i, 1);
+        }
+        assertThat(store.getSize()).isEqualTo(256 * 64);
+        assertThat(store.begin("retry-1", 1)).isEqualTo(TransferIdempotencyStore.IN_FLIGHT);
+    }
+}
@@ -0,0 +1,310 @@
+package com.dws.challenge;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountAmountTransfer;
+import com.dws.challenge.domain.ScheduledTransfer;
+import com.dws.challenge.domain.ScheduledTransfersPage;
+import com.dws.challenge.exception.ScheduledTransfersExhaustedException;
+import com.dws.challenge.exception.TransferScheduleException;
+import com.dws.challenge.journal.TransferJournal;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.ScheduledTransferRunner;
+import com.dws.challenge.service.TransferTimingWheel;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class TransferTimingWheelTest {
+
+    private static final long TICK_MILLIS = 10;
+
+    private final List<AccountAmountTransfer> due = new ArrayList<>();
+
+    @Test
+    public void transfersFireOnTheirTickAtEveryLevel() {
+        final TransferTimingWheel wheel = new TransferTimingWheel(TICK_MILLIS, 1024, 0);
+        // around the level boundaries, the amount is the due tick
+        final long[] dueTicks = {1, 255, 256, 257, 65_535, 65_536, 70_000, 16_777_215, 16_777_216, 16_777_300};
+        for (int i = dueTicks.length - 1; i >= 0; i--) {
+            wheel.schedule("Id-1", "Id-2", dueTicks[i], dueTicks[i] * TICK_MILLIS);
+        }
+
+        for (long dueTick : dueTicks) {
+            assertThat(wheel.pollDue((dueTick - 1) * TICK_MILLIS, 10, due)).isZero();
+            assertThat(wheel.pollDue(dueTick * TICK_MILLIS + TICK_MILLIS - 1, 10, due)).isEqualTo(1);
+            assertThat(due.get(0).getTransferAmount()).isEqualByComparingTo(BigDecimal.valueOf(dueTick, 2));
+            due.clear();
+        }
+        assertThat(wheel.getPending()).isZero();
+    }
+
+    @Test
+    public void cancelledTransfersDoNotFireAndStaleIdsCancelNothing() {
+        final TransferTimingWheel wheel = new TransferTimingWheel(TICK_MILLIS, 2, 0);
+        final long cancelled = wheel.schedule("Id-1", "Id-2", 100, 5_000);
+        wheel.schedule("Id-1", "Id-3", 200, 5_000);
+        try {
+            wheel.schedule("Id-1", "Id-4", 300, 5_000);
+            fail("Should have failed with every slot taken");
+        } catch (ScheduledTransfersExhaustedException e) {
+            assertThat(e.getMessage()).isEqualTo("Too many scheduled transfers pending, retry later");
+        }
+
+        assertThat(wheel.cancel(cancelled)).isTrue();
+        assertThat(wheel.cancel(cancelled)).isFalse();
+        assertThat(wheel.getPending()).isEqualTo(1);
+        assertThat(wheel.pollDue(5_000, 10, due)).isEqualTo(1);
+        assertThat(due).extracting(AccountAmountTransfer::getAccountTo).containsExactly("Id-3");
+
+        // both slots are reused, the old ids must not cancel the new transfers
+        final long first = wheel.schedule("Id-2", "Id-1", 400, 6_000);
+        final long second = wheel.schedule("Id-3", "Id-1", 500, 6_000);
+        assertThat(wheel.cancel(cancelled)).isFalse();
+        assertThat(wheel.getPending()).isEqualTo(2);
+        assertThat(wheel.cancel(first)).isTrue();
+        assertThat(wheel.cancel(second)).isTrue();
+    }
+
+    @Test
+    public void dueTransfersAreListedAndDrainInBatches() {
+        final TransferTimingWheel wheel = new TransferTimingWheel(TICK_MILLIS, 1024, 1_000);
+        for (int i = 0; i < 250; i++) {
+            wheel.schedule("Id-" + (i % 5), "Id-9", 100 + i, 2_000);
+        }
+        // already due, fires on the next poll and can no longer be cancelled
+        assertThat(wheel.cancel(wheel.schedule("Id-9", "Id-0", 1, 0))).isFalse();
+        try {
+            wheel.schedule("Id-1", "Id-2", 1, TICK_MILLIS * (1L << 31) + 1_000);
+            fail("Should have failed beyond the horizon");
+        } catch (TransferScheduleException e) {
+            assertThat(e.getMessage()).isEqualTo("executeAt is too far in the future");
+        }
+
+        // Id-0 pays 50 of them and is paid by the last one
+        final ScheduledTransfersPage first = wheel.list("Id-0", null, 48);
+        assertThat(first.getTransfers().size()).isEqualTo(48);
+        assertThat(first.getTransfers().get(0).getExecuteAt()).isEqualTo(Instant.ofEpochMilli(2_000));
+        final ScheduledTransfersPage second = wheel.list("Id-0", first.getNextCursor(), 48);
+        assertThat(second.getTransfers()).extracting(ScheduledTransfer::getTransferAmount)
+                .containsExactly(new BigDecimal("3.40"), new BigDecimal("3.45"), new BigDecimal("0.01"));
+        assertThat(second.getNextCursor()).isNull();
+
+        assertThat(wheel.pollDue(1_000, 100, due)).isEqualTo(1);
+        assertThat(wheel.pollDue(2_000, 100, due)).isEqualTo(100);
+        assertThat(wheel.pollDue(2_000, 100, due)).isEqualTo(100);
+        assertThat(wheel.pollDue(2_000, 100, due)).isEqualTo(50);
+        assertThat(due.size()).isEqualTo(251);
+        assertThat(wheel.list(null, null, 10).getTransfers().isEmpty()).isTrue();
+    }
+
+    @Test
+    public void listingSkipsTransfersScheduledInRecycledSlotsAndScansBoundedPages() {
+        final TransferTimingWheel wheel = new TransferTimingWheel(TICK_MILLIS, 200_000, 0);
+        final long[] ids = new long[140_000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = wheel.schedule("Id-1", "Id-2", 1 + i, 5_000);
+        }
+        // Id-3 is in the last slot only, the first page scans one chunk and is empty
+        wheel.cancel(ids[ids.length - 1]);
+        wheel.schedule("Id-3", "Id-2", 7, 5_000);
+        final ScheduledTransfersPage first = wheel.list("Id-3", null, 10);
+        assertThat(first.getTransfers().isEmpty()).isTrue();
+        assertThat(first.getNextCursor() != null).isTrue();
+
+        // the listing started before this one, which takes a slot the listing has not reached yet
+        wheel.cancel(ids[100_000]);
+        wheel.schedule("Id-3", "Id-1", 8, 5_000);
+        ScheduledTransfersPage page = wheel.list("Id-3", first.getNextCursor(), 10);
+        final List<ScheduledTransfer> listed = new ArrayList<>(page.getTransfers());
+        while (page.getNextCursor() != null) {
+            page = wheel.list("Id-3", page.getNextCursor(), 10);
+            listed.addAll(page.getTransfers());
+        }
+        assertThat(listed).extracting(ScheduledTransfer::getTransferAmount).containsExactly(new BigDecimal("0.07"));
+        assertThat(wheel.list("Id-3", null, 10).getTransfers().isEmpty()).isTrue();
+    }
+
+    @Test
+    public void accountsLeaveTheDictionaryWithTheirLastTransfer() {
+        final TransferTimingWheel wheel = new TransferTimingWheel(TICK_MILLIS, 1024, 0);
+        for (int i = 0; i < 500; i++) {
+            wheel.schedule("Id-" + i, "Id-Settlement", 1, 1_000);
+        }
+        final long cancelled = wheel.schedule("Id-Once", "Id-Settlement", 1, 2_000);
+        assertThat(wheel.getAccountCount()).isEqualTo(502);
+        final long bytes = wheel.getMemoryBytes();
+
+        assertThat(wheel.cancel(cancelled)).isTrue();
+        assertThat(wheel.getAccountCount()).isEqualTo(501);
+        assertThat(wheel.pollDue(1_000, 1_000, due)).isEqualTo(500);
+        assertThat(wheel.getAccountCount()).isZero();
+        assertThat(wheel.list("Id-Settlement", null, 10).getTransfers().isEmpty()).isTrue();
+
+        // freed indexes are reused, the dictionary does not grow with accounts that come and go
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 500; i++) {
+                wheel.schedule("Id-" + round + "-" + i, "Id-Settlement", 1, 3_000 + round * 1_000);
+            }
+            wheel.pollDue(3_000 + round * 1_000, 1_000, due);
+        }
+        assertThat(wheel.getAccountCount()).isZero();
+        assertThat(wheel.getMemoryBytes()).isEqualTo(bytes);
+    }
+
+    @Test
+    public void tenMillionPendingTransfersFitInABoundedHeap() {
+        final int transfers = 10_000_000;
+        final long day = TimeUnit.DAYS.toMillis(1);
+        final TransferTimingWheel wheel = new TransferTimingWheel(TICK_MILLIS, transfers, 0);
+        final SplittableRandom random = new SplittableRandom(42);
+        final long[] cancelled = new long[transfers / 10];
+        long expectedTotal = 0;
+        for (int i = 0; i < transfers; i++) {
+            // the amount is the due tick so firing times can be checked
+            final long dueTick = 1 + random.nextLong(day / TICK_MILLIS);
+            final long id = wheel.schedule("Id-" + (i & 1023), "Id-" + (i >>> 10 & 1023), dueTick,
+                    dueTick * TICK_MILLIS);
+            if (i % 10 == 0) {
+                cancelled[i / 10] = id;
+            } else {
+                expectedTotal += dueTick;
+            }
+        }
+        // 32 bytes per transfer: no object per transfer and nothing the scheduler allocates per tick
+        assertThat(wheel.getMemoryBytes()).isLessThan(33L * transfers);
+        assertThat(wheel.getPending()).isEqualTo(transfers);
+        for (long id : cancelled) {
+            assertThat(wheel.cancel(id)).isTrue();
+        }
+        final int expectedFired = transfers - cancelled.length;
+
+        long fired = 0;
+        long total = 0;
+        long previousTick = 0;
+        for (long now = 0; now <= day; now += TimeUnit.MINUTES.toMillis(7)) {
+            final long nowTick = now / TICK_MILLIS;
+            int polled;
+            do {
+                polled = wheel.pollDue(now, 100_000, due);
+                for (AccountAmountTransfer transfer : due) {
+                    final long dueTick = transfer.getTransferAmount().unscaledValue().longValueExact();
+                    if (dueTick <= previousTick || dueTick > nowTick) {
+                        fail("Transfer due at tick " + dueTick + " fired between ticks " + previousTick + " and " + nowTick);
+                    }
+                    total += dueTick;
+                }
+                fired += polled;
+                due.clear();
+            } while (polled == 100_000);
+            previousTick = nowTick;
+        }
+        wheel.pollDue(day, Integer.MAX_VALUE, due);
+        for (AccountAmountTransfer transfer : due) {
+            total += transfer.getTransferAmount().unscaledValue().longValueExact();
+        }
+        assertThat(fired + due.size()).isEqualTo(expectedFired);
+        assertThat(total).isEqualTo(expectedTotal);
+        assertThat(wheel.getPending()).isZero();
+    }
+
+    @Test
+    public void dueTransfersExecuteAsBestEffortBatches() {
+        final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+        repository.createAccount(new Account("Id-1", new BigDecimal("100.00")));
+        repository.createAccount(new Account("Id-2", BigDecimal.ZERO));
+        final TransferTimingWheel wheel = new TransferTimingWheel(TICK_MILLIS, 1024, 0);
+        final AccountsService accountsService = new AccountsServiceBuilder(repository).transferTimingWheel(wheel)
+                .build();
+        final ScheduledTransferRunner runner = new ScheduledTransferRunner(wheel, accountsService, 2, 0);
+        try {
+            for (int i = 0; i < 5; i++) {
+                accountsService.scheduleTransfer("Id-1", "Id-2", new BigDecimal("30.00"), Instant.ofEpochMilli(1_000));
+            }
+            accountsService.scheduleTransfer("Id-2", "Id-1", new BigDecimal("10.00"), Instant.ofEpochMilli(2_000));
+
+            assertThat(runner.executeDue(999)).isZero();
+            assertThat(runner.executeDue(1_000)).isEqualTo(5);
+            assertThat(runner.getCompleted()).isEqualTo(3);
+            assertThat(runner.getRejected()).isEqualTo(2);
+            assertThat(repository.getAccount("Id-1").getBalance()).isEqualByComparingTo("10.00");
+
+            assertThat(runner.executeDue(2_000)).isEqualTo(1);
+            assertThat(repository.getAccount("Id-1").getBalance()).isEqualByComparingTo("20.00");
+            assertThat(repository.getAccount("Id-2").getBalance()).isEqualByComparingTo("80.00");
+        } finally {
+            runner.destroy();
+        }
+    }
+
+    @Test
+    public void transfersOfAFailedBatchAreKeptAsFailed() {
+        final AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+        repository.createAccount(new Account("Id-1", new BigDecimal("100.00")));
+        repository.createAccount(new Account("Id-2", BigDecimal.ZERO));
+        final TransferTimingWheel wheel = new TransferTimingWheel(TICK_MILLIS, 1024, 0);
+        final AtomicBoolean journalFailing = new AtomicBoolean(true);
+        final TransferJournal journal = new TransferJournal() {
+
+            @Override
+            public long appendAccountCreated(String accountId, BigDecimal balance) {
+                return 0;
+            }
+
+            @Override
+            public long appendTransfer(String accountFrom, String accountTo, BigDecimal amount) {
+                return 0;
+            }
+
+            @Override
+            public void awaitDurable(long position) {
+                if (journalFailing.get()) {
+                    throw new UncheckedIOException(new IOException("Disk full"));
+                }
+            }
+        };
+        final AccountsService accountsService = new AccountsServiceBuilder(repository).transferTimingWheel(wheel)
+                .transferJournal(journal)
+                .build();
+        final ScheduledTransferRunner runner = new ScheduledTransferRunner(wheel, accountsService, 2, 0);
+        try {
+            for (int i = 0; i < 3; i++) {
+                accountsService.scheduleTransfer("Id-1", "Id-2", new BigDecimal("10.00"), Instant.ofEpochMilli(1_000));
+            }
+
+            try {
+                runner.executeDue(1_000);
+                fail("Batch should have failed");
+            } catch (UncheckedIOException expected) {
+            }
+            assertThat(runner.getFailed()).isEqualTo(2);
+            assertThat(runner.getFailedPending()).isEqualTo(2);
+            assertThat(wheel.getPending()).isEqualTo(1);
+
+            journalFailing.set(false);
+            assertThat(runner.executeDue(1_000)).isEqualTo(1);
+            assertThat(runner.getCompleted()).isEqualTo(1);
+
+            final List<AccountAmountTransfer> failed = new ArrayList<>();
+            assertThat(runner.drainFailed(failed)).isEqualTo(2);
+            for (AccountAmountTransfer transfer : failed) {
+                assertThat(transfer.getTransferAmount()).isEqualByComparingTo("10.00");
+            }
+            assertThat(runner.getFailedPending()).isZero();
+            assertThat(runner.getFailed()).isEqualTo(2);
+        } finally {
+            runner.destroy();
+        }
+    }
+}